@@ -0,0 +1,147 @@
+package uk.gov.companieshouse.psc.delta.service;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.delete;
+import static com.github.tomakehurst.wiremock.client.WireMock.deleteRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.matchingJsonPath;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.put;
+import static com.github.tomakehurst.wiremock.client.WireMock.putRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import consumer.exception.NonRetryableErrorException;
+import consumer.exception.RetryableErrorException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import uk.gov.companieshouse.api.InternalApiClient;
+import uk.gov.companieshouse.api.psc.ExternalData;
+import uk.gov.companieshouse.api.psc.FullRecordCompanyPSCApi;
+import uk.gov.companieshouse.psc.delta.http.JdkHttpTransport;
+import uk.gov.companieshouse.psc.delta.http.PooledApiKeyHttpClient;
+import uk.gov.companieshouse.psc.delta.metrics.DeltaMetrics;
+import uk.gov.companieshouse.psc.delta.processor.DeletePscApiClientRequest;
+import uk.gov.companieshouse.psc.delta.tracing.DeltaTracing;
+
+/**
+ * Runs bulk requests against a WireMock stand-in for the PSC data API bulk endpoint, and against one without it.
+ */
+class ApiClientServiceBulkITest {
+
+    private static final String COMPANY_NUMBER = "OE623672";
+    private static final String BULK_URL = "/company/OE623672/persons-with-significant-control/full_record/bulk";
+    private static final String ITEM_URL = "/company/OE623672/persons-with-significant-control/%s/full_record";
+    private static final String DELTA_AT = "20230724093435661593";
+
+    private WireMockServer wireMockServer;
+    private JdkHttpTransport transport;
+    private ApiClientService apiClientService;
+
+    @BeforeEach
+    void setUp() {
+        wireMockServer = new WireMockServer(options().dynamicPort());
+        wireMockServer.start();
+
+        transport = new JdkHttpTransport(Duration.ofSeconds(5), 4, false);
+        InternalApiClient internalApiClient = new InternalApiClient(
+                new PooledApiKeyHttpClient("api-key", transport, 5000, 5000, TextMapPropagator.noop()));
+        internalApiClient.setBasePath(wireMockServer.baseUrl());
+        DeltaMetrics deltaMetrics = new DeltaMetrics(new SimpleMeterRegistry());
+        apiClientService = new ApiClientService(() -> internalApiClient,
+                new ResponseHandler(deltaMetrics, 60000L), deltaMetrics,
+                Runnable::run, new AdaptiveConcurrencyLimiter(false, 10, 1, 50, 2000, 0.5, null, deltaMetrics),
+                new ApiCircuitBreaker(false, 5, 30000, 240000, null, deltaMetrics),
+                new DryRunOutputWriter(false, "psc-delta-consumer", "-retry", "-error", "", 0L,
+                        new StandardEnvironment()),
+                new DeltaTracing(OpenTelemetry.noop()));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        wireMockServer.stop();
+        transport.shutdown();
+    }
+
+    @Test
+    void shouldReportResultOfEachItemFromBulkEndpoint() {
+        // given
+        wireMockServer.stubFor(post(urlEqualTo(BULK_URL))
+                .willReturn(aResponse()
+                        .withStatus(207)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("""
+                                {"results": [{"notification_id": "first", "status": 200},
+                                             {"notification_id": "second", "status": 409},
+                                             {"notification_id": "third", "status": 503}]}
+                                """)));
+
+        // when
+        List<PscBulkResult> actual = apiClientService.bulkPscFullRecords(COMPANY_NUMBER, List.of(
+                PscBulkItem.put("first", fullRecord()),
+                PscBulkItem.delete(deleteRequest("second")),
+                PscBulkItem.put("third", fullRecord())));
+
+        // then
+        assertThat(actual.get(0).succeeded()).isTrue();
+        assertThat(actual.get(1).failure()).isInstanceOf(NonRetryableErrorException.class);
+        assertThat(actual.get(2).failure()).isInstanceOf(RetryableErrorException.class);
+        wireMockServer.verify(1, postRequestedFor(urlEqualTo(BULK_URL))
+                .withHeader("Content-Type", containing("application/json"))
+                .withRequestBody(matchingJsonPath("$.items[0].operation", containing("PUT")))
+                .withRequestBody(matchingJsonPath("$.items[0].full_record.external_data.company_number",
+                        containing(COMPANY_NUMBER)))
+                .withRequestBody(matchingJsonPath("$.items[1].operation", containing("DELETE")))
+                .withRequestBody(matchingJsonPath("$.items[1].delta_at", containing(DELTA_AT))));
+    }
+
+    @Test
+    void shouldFallBackToPerItemRequestsWhenBulkEndpointIsMissing() {
+        // given
+        wireMockServer.stubFor(post(urlEqualTo(BULK_URL)).willReturn(aResponse().withStatus(404)));
+        wireMockServer.stubFor(put(urlEqualTo(ITEM_URL.formatted("first"))).willReturn(aResponse().withStatus(200)));
+        wireMockServer.stubFor(delete(urlEqualTo(ITEM_URL.formatted("second")))
+                .willReturn(aResponse().withStatus(200)));
+
+        // when
+        List<PscBulkResult> first = apiClientService.bulkPscFullRecords(COMPANY_NUMBER, List.of(
+                PscBulkItem.put("first", fullRecord()),
+                PscBulkItem.delete(deleteRequest("second"))));
+        List<PscBulkResult> second = apiClientService.bulkPscFullRecords(COMPANY_NUMBER, List.of(
+                PscBulkItem.put("first", fullRecord())));
+
+        // then
+        assertThat(first).allMatch(PscBulkResult::succeeded);
+        assertThat(second).allMatch(PscBulkResult::succeeded);
+        wireMockServer.verify(1, postRequestedFor(urlEqualTo(BULK_URL)));
+        wireMockServer.verify(2, putRequestedFor(urlEqualTo(ITEM_URL.formatted("first"))));
+        wireMockServer.verify(1, deleteRequestedFor(urlEqualTo(ITEM_URL.formatted("second"))));
+    }
+
+    private static FullRecordCompanyPSCApi fullRecord() {
+        ExternalData externalData = new ExternalData();
+        externalData.setCompanyNumber(COMPANY_NUMBER);
+        FullRecordCompanyPSCApi fullRecord = new FullRecordCompanyPSCApi();
+        fullRecord.setExternalData(externalData);
+        return fullRecord;
+    }
+
+    private static DeletePscApiClientRequest deleteRequest(String notificationId) {
+        return DeletePscApiClientRequest.Builder.builder()
+                .companyNumber(COMPANY_NUMBER)
+                .notificationId(notificationId)
+                .deltaAt(DELTA_AT)
+                .kind("individual-person-with-significant-control")
+                .build();
+    }
+}
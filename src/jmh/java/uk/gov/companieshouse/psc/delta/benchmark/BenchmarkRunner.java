@@ -0,0 +1,146 @@
+package uk.gov.companieshouse.psc.delta.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+
+/**
+ * Runs the JMH benchmarks with the usual JMH command line, then optionally records the results as a baseline or
+ * compares them with a recorded baseline. The mode is chosen with the {@code benchmark.baseline.mode} system
+ * property:
+ * <ul>
+ *     <li>{@code none} - only report the results (the default)</li>
+ *     <li>{@code record} - write the throughput and allocation of each benchmark to the baseline file</li>
+ *     <li>{@code compare} - exit with a failure if any benchmark is slower, or allocates more per operation, than
+ *     the baseline by more than {@code benchmark.baseline.tolerance} (a fraction, 0.10 by default)</li>
+ * </ul>
+ * The baseline is written to {@code benchmark.baseline.file}. Scores depend on the machine they were taken on, so
+ * the baseline is meant to be recorded and compared locally rather than committed.
+ */
+public final class BenchmarkRunner {
+
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+    private static final String THROUGHPUT_SUFFIX = ".ops";
+    private static final String ALLOCATION_SUFFIX = ".alloc";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+        Collection<RunResult> results = new Runner(new CommandLineOptions(args)).run();
+        Map<String, Double> scores = scores(results);
+
+        String mode = System.getProperty("benchmark.baseline.mode", "none");
+        Path baselineFile = Path.of(System.getProperty("benchmark.baseline.file", "jmh-baseline.properties"));
+        double tolerance = Double.parseDouble(System.getProperty("benchmark.baseline.tolerance", "0.10"));
+
+        switch (mode) {
+            case "record" -> record(scores, baselineFile);
+            case "compare" -> {
+                List<String> regressions = compare(scores, load(baselineFile), tolerance);
+                if (!regressions.isEmpty()) {
+                    System.err.println("Benchmarks regressed against baseline " + baselineFile + ":");
+                    regressions.forEach(regression -> System.err.println("  " + regression));
+                    System.exit(1);
+                }
+                System.out.println("No benchmark regressed against baseline " + baselineFile);
+            }
+            case "none" -> {
+                // report only
+            }
+            default -> throw new IllegalArgumentException("Unknown benchmark.baseline.mode: " + mode);
+        }
+    }
+
+    static Map<String, Double> scores(Collection<RunResult> results) {
+        Map<String, Double> scores = new TreeMap<>();
+        for (RunResult result : results) {
+            String label = label(result.getParams());
+            scores.put(label + THROUGHPUT_SUFFIX, result.getPrimaryResult().getScore());
+            for (Map.Entry<String, Result> secondary : result.getSecondaryResults().entrySet()) {
+                if (secondary.getKey().endsWith(ALLOCATION_METRIC)) {
+                    scores.put(label + ALLOCATION_SUFFIX, secondary.getValue().getScore());
+                }
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Throughput must not drop, and allocation per operation must not rise, by more than the tolerance. A
+     * benchmark missing from the baseline is not a regression.
+     */
+    static List<String> compare(Map<String, Double> scores, Map<String, Double> baseline, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        scores.forEach((key, score) -> {
+            Double expected = baseline.get(key);
+            if (expected == null) {
+                return;
+            }
+            boolean regressed = key.endsWith(THROUGHPUT_SUFFIX)
+                    ? score < expected * (1 - tolerance)
+                    : score > expected * (1 + tolerance);
+            if (regressed) {
+                regressions.add("%s: %.2f (baseline %.2f)".formatted(key, score, expected));
+            }
+        });
+        return regressions;
+    }
+
+    private static String label(BenchmarkParams params) {
+        StringBuilder label = new StringBuilder(params.getBenchmark());
+        for (String key : params.getParamsKeys()) {
+            label.append(':').append(key).append('=').append(params.getParam(key));
+        }
+        return label.toString();
+    }
+
+    private static void record(Map<String, Double> scores, Path baselineFile) throws IOException {
+        Properties properties = new Properties();
+        if (Files.exists(baselineFile)) {
+            // keep the baseline for benchmarks that were not part of this run
+            properties.putAll(toProperties(load(baselineFile)));
+        }
+        properties.putAll(toProperties(scores));
+        try (OutputStream output = Files.newOutputStream(baselineFile)) {
+            properties.store(output, "JMH baseline");
+        }
+        System.out.println("Recorded benchmark baseline to " + baselineFile);
+    }
+
+    private static Map<String, Double> load(Path baselineFile) throws IOException {
+        if (!Files.exists(baselineFile)) {
+            throw new IllegalStateException("No benchmark baseline at " + baselineFile
+                    + ", record one with -Dbenchmark.baseline.mode=record");
+        }
+        Properties properties = new Properties();
+        try (InputStream input = Files.newInputStream(baselineFile)) {
+            properties.load(input);
+        }
+        Map<String, Double> baseline = new TreeMap<>();
+        properties.stringPropertyNames()
+                .forEach(key -> baseline.put(key, Double.parseDouble(properties.getProperty(key))));
+        return baseline;
+    }
+
+    private static Properties toProperties(Map<String, Double> scores) {
+        Properties properties = new Properties();
+        scores.forEach((key, score) -> properties.setProperty(key, String.valueOf(score)));
+        return properties;
+    }
+}
@@ -0,0 +1,61 @@
+package uk.gov.companieshouse.psc.delta.benchmark;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.companieshouse.psc.delta.mapper.ChipsDates;
+
+/**
+ * Compares parsing the dates of an individual PSC with identity verification details (its date of birth, notified
+ * on, ceased on and five verification dates) and its delta_at through {@code DateTimeFormatter}, as the mapper and
+ * transformer used to, against {@link ChipsDates}. PscMapperBenchmark with the individual kind shows the effect on
+ * mapping a whole delta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChipsDatesBenchmark {
+
+    private static final DateTimeFormatter DATE_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyyMMddHHmmss", Locale.UK).withZone(ZoneId.of("UTC"));
+
+    private String[] dates = {"19800514", "20160406", "20240131", "20250618", "20250618", "20260618", "20250701",
+            "20250701"};
+    private String deltaAt = "20230724093435661593";
+
+    @Benchmark
+    public OffsetDateTime formatter() {
+        LocalDate last = null;
+        for (String date : dates) {
+            last = LocalDate.parse(date + "000000", DATE_FORMATTER);
+        }
+        DateTimeFormatter deltaAtFormatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSSSSS")
+                .withZone(ZoneId.of("Z"));
+        return ZonedDateTime.parse(deltaAt, deltaAtFormatter).toOffsetDateTime().with(last);
+    }
+
+    @Benchmark
+    public OffsetDateTime chipsDates() {
+        LocalDate last = null;
+        for (String date : dates) {
+            last = ChipsDates.parseDate(date);
+        }
+        return ChipsDates.parseDeltaAt(deltaAt).with(last);
+    }
+}
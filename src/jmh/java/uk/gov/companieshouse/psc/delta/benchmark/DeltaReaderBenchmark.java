@@ -0,0 +1,67 @@
+package uk.gov.companieshouse.psc.delta.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.companieshouse.api.delta.PscDelta;
+import uk.gov.companieshouse.psc.delta.processor.DeltaReader;
+
+/**
+ * Compares binding a delta with {@code ObjectMapper.readValue}, as the processor used to, against
+ * {@link DeltaReader} with and without the Blackbird module.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeltaReaderBenchmark {
+
+    @Param({"individual", "corporate_entity_BO", "super_secure_entity"})
+    private String kind;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DeltaReader deltaReader = new DeltaReader(new ObjectMapper());
+    private final DeltaReader blackbirdDeltaReader =
+            new DeltaReader(new ObjectMapper().registerModule(new BlackbirdModule()));
+
+    private String deltaJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream input = getClass().getResourceAsStream("/json/input/%s_psc_delta.json".formatted(kind))) {
+            deltaJson = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public PscDelta objectMapper() throws JsonProcessingException {
+        return objectMapper.readValue(deltaJson, PscDelta.class);
+    }
+
+    @Benchmark
+    public PscDelta deltaReader() throws JsonProcessingException {
+        return deltaReader.readPscDelta(deltaJson);
+    }
+
+    @Benchmark
+    public PscDelta blackbirdDeltaReader() throws JsonProcessingException {
+        return blackbirdDeltaReader.readPscDelta(deltaJson);
+    }
+}
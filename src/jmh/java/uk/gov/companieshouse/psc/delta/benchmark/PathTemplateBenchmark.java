@@ -0,0 +1,55 @@
+package uk.gov.companieshouse.psc.delta.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.companieshouse.psc.delta.http.PathTemplate;
+
+/**
+ * Compares building the self link of a PSC and the URI of its full record with {@code String.format}, as the mapper
+ * and the API client used to, against {@link PathTemplate}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PathTemplateBenchmark {
+
+    private static final String SELF_LINK = "/company/%s/persons-with-significant-control/%s/%s";
+    private static final String URI = "/company/%s/persons-with-significant-control/%s/full_record";
+    private static final PathTemplate SELF_LINK_TEMPLATE = PathTemplate.compile(SELF_LINK);
+    private static final PathTemplate URI_TEMPLATE = PathTemplate.compile(URI);
+
+    private String companyNumber = "00623672";
+    private String kind = "individual";
+    private String notificationId = "lXgouUAR16hSIwxdJSpbr_dhyT8";
+
+    @Benchmark
+    public String selfLinkStringFormat() {
+        return String.format(SELF_LINK, companyNumber, kind, notificationId);
+    }
+
+    @Benchmark
+    public String selfLinkPathTemplate() {
+        return SELF_LINK_TEMPLATE.expand(companyNumber, kind, notificationId);
+    }
+
+    @Benchmark
+    public String uriStringFormat() {
+        return String.format(URI, companyNumber, notificationId);
+    }
+
+    @Benchmark
+    public String uriPathTemplate() {
+        return URI_TEMPLATE.expand(companyNumber, notificationId);
+    }
+}
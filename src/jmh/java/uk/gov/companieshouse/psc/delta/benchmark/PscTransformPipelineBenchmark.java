@@ -0,0 +1,83 @@
+package uk.gov.companieshouse.psc.delta.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.companieshouse.api.delta.PscDelta;
+import uk.gov.companieshouse.api.psc.FullRecordCompanyPSCApi;
+import uk.gov.companieshouse.psc.delta.mapper.PscMapperImpl;
+import uk.gov.companieshouse.psc.delta.processor.DeltaReader;
+import uk.gov.companieshouse.psc.delta.transformer.PscApiTransformer;
+
+/**
+ * Drives each PSC kind in the integration test inputs through the stages a delta goes through before it is sent
+ * to the API: binding the delta JSON, transforming it and serialising the result. Each stage is measured on its own
+ * as well as end to end, so a regression can be traced to the stage that caused it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PscTransformPipelineBenchmark {
+
+    @Param({"individual", "individual_BO", "corporate_entity", "corporate_entity_BO", "legal_person",
+            "legal_person_BO", "super_secure_entity", "super_secure_entity_BO"})
+    private String kind;
+
+    private final DeltaReader deltaReader = new DeltaReader(new ObjectMapper());
+    private final ObjectMapper apiObjectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final PscApiTransformer transformer = new PscApiTransformer(new PscMapperImpl());
+
+    private String deltaJson;
+    private PscDelta pscDelta;
+    private FullRecordCompanyPSCApi apiObject;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream input = getClass().getResourceAsStream("/json/input/%s_psc_delta.json".formatted(kind))) {
+            deltaJson = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        pscDelta = deltaReader.readPscDelta(deltaJson);
+        apiObject = transformer.transform(pscDelta);
+    }
+
+    @Benchmark
+    public PscDelta deserialise() throws JsonProcessingException {
+        return deltaReader.readPscDelta(deltaJson);
+    }
+
+    @Benchmark
+    public FullRecordCompanyPSCApi transform() {
+        return transformer.transform(pscDelta);
+    }
+
+    @Benchmark
+    public byte[] serialise() throws JsonProcessingException {
+        return apiObjectMapper.writeValueAsBytes(apiObject);
+    }
+
+    @Benchmark
+    public byte[] pipeline() throws JsonProcessingException {
+        return apiObjectMapper.writeValueAsBytes(transformer.transform(deltaReader.readPscDelta(deltaJson)));
+    }
+}
@@ -0,0 +1,52 @@
+package uk.gov.companieshouse.psc.delta.mapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.companieshouse.api.delta.Psc;
+import uk.gov.companieshouse.api.delta.PscDelta;
+import uk.gov.companieshouse.api.psc.FullRecordCompanyPSCApi;
+
+/**
+ * Measures {@link PscMapper#mapPscData(Psc)} for every PSC kind in the integration test inputs. Run with the gc
+ * profiler (the default for the benchmark profile) to see the bytes allocated per mapped delta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PscMapperBenchmark {
+
+    @Param({"individual", "individual_BO", "corporate_entity", "corporate_entity_BO", "legal_person",
+            "legal_person_BO", "super_secure_entity", "super_secure_entity_BO"})
+    private String kind;
+
+    private final PscMapper pscMapper = new PscMapperImpl();
+    private Psc psc;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream input = getClass().getResourceAsStream("/json/input/%s_psc_delta.json".formatted(kind))) {
+            psc = new ObjectMapper().readValue(input, PscDelta.class).getPscs().getFirst();
+        }
+    }
+
+    @Benchmark
+    public FullRecordCompanyPSCApi mapPscData() {
+        return pscMapper.mapPscData(psc);
+    }
+}
@@ -2,6 +2,8 @@ package uk.gov.companieshouse.psc.delta;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Profiles;
 
 @SpringBootApplication
 public class PscDeltaConsumerApplication {
@@ -9,7 +11,11 @@ public class PscDeltaConsumerApplication {
     public static final String NAMESPACE = "psc-delta-consumer";
 
     public static void main(String[] args) {
-        SpringApplication.run(PscDeltaConsumerApplication.class, args);
+        ConfigurableApplicationContext context = SpringApplication.run(PscDeltaConsumerApplication.class, args);
+        // The bulk load has finished by the time run returns, so exit with the code it reports
+        if (context.getEnvironment().acceptsProfiles(Profiles.of("bulk-load"))) {
+            System.exit(SpringApplication.exit(context));
+        }
     }
 
 }
\ No newline at end of file
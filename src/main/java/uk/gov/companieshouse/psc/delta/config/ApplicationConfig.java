@@ -1,8 +1,15 @@
 package uk.gov.companieshouse.psc.delta.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
 import consumer.deserialization.AvroDeserializer;
 import consumer.serialization.AvroSerializer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.opentelemetry.api.OpenTelemetry;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Supplier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
@@ -11,12 +18,14 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Scope;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import uk.gov.companieshouse.api.InternalApiClient;
-import uk.gov.companieshouse.api.http.ApiKeyHttpClient;
 import uk.gov.companieshouse.delta.ChsDelta;
 import uk.gov.companieshouse.environment.EnvironmentReader;
 import uk.gov.companieshouse.environment.impl.EnvironmentReaderImpl;
 import uk.gov.companieshouse.kafka.serialization.SerializerFactory;
+import uk.gov.companieshouse.psc.delta.http.JdkHttpTransport;
+import uk.gov.companieshouse.psc.delta.http.PooledApiKeyHttpClient;
 import uk.gov.companieshouse.psc.delta.logging.DataMapHolder;
+import uk.gov.companieshouse.psc.delta.mapper.IdEncoder;
 import uk.gov.companieshouse.sdk.manager.ApiSdkManager;
 
 @Configuration
@@ -56,21 +65,86 @@ public class ApplicationConfig implements WebMvcConfigurer {
         return new AvroDeserializer<>(ChsDelta.class);
     }
 
+    /**
+     * The mapper deltas are bound with. Blackbird can be turned on to replace reflective property access with
+     * generated accessors.
+     */
     @Bean
-    ObjectMapper objectMapper() {
-        return new ObjectMapper();
+    ObjectMapper objectMapper(@Value("${pscs.delta.json.blackbird.enabled}") boolean blackbirdEnabled) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        if (blackbirdEnabled) {
+            objectMapper.registerModule(new BlackbirdModule());
+        }
+        return objectMapper;
     }
 
+    /**
+     * Executor the batch processor fans deltas out to. In virtual thread mode every delta gets its own virtual
+     * thread, so the number of concurrent API calls is bounded by the batch size rather than a pool of platform
+     * threads. The logging context in {@link DataMapHolder} is set up on the thread that handles each delta, so it
+     * works the same on either kind of thread.
+     */
     @Bean
-    public Supplier<InternalApiClient> internalApiClientSupplier() {
-        return () -> {
-            ApiKeyHttpClient apiKeyHttpClient = new ApiKeyHttpClient(apiKey);
-            apiKeyHttpClient.setRequestId(DataMapHolder.getRequestId());
+    ExecutorService batchExecutor(@Value("${pscs.delta.batch.worker-threads}") int workerThreads,
+            @Value("${pscs.delta.virtual-threads.enabled}") boolean virtualThreadsEnabled) {
+        return virtualThreadsEnabled
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(workerThreads);
+    }
+
+    /**
+     * Executor asynchronous PSC data API calls run on. The in-flight limit already bounds how many calls are made at
+     * once, so a fixed pool is sized to it; in virtual thread mode every call gets its own virtual thread.
+     */
+    @Bean
+    ExecutorService apiExecutor(@Value("${pscs.delta.async.max-in-flight}") int maxInFlight,
+            @Value("${pscs.delta.virtual-threads.enabled}") boolean virtualThreadsEnabled) {
+        return virtualThreadsEnabled
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(maxInFlight);
+    }
+
+    /**
+     * Executor deltas whose asynchronous API call failed are forwarded to the retry or error topic on, so while Kafka
+     * is slow or unreachable only forwarding waits and the API executor's threads are left free. Each waiting delta
+     * holds a place in the in-flight window, which bounds how many can queue.
+     */
+    @Bean
+    ExecutorService forwardExecutor() {
+        return Executors.newSingleThreadExecutor();
+    }
 
-            InternalApiClient internalApiClient = new InternalApiClient(apiKeyHttpClient);
-            internalApiClient.setBasePath(apiUrl);
+    /**
+     * Publishes the hit, miss and eviction counts of the encoded id cache.
+     */
+    @Bean
+    MeterBinder encodedIdCacheMetrics() {
+        return registry -> CaffeineCacheMetrics.monitor(registry, IdEncoder.cache(), "psc-delta-encoded-ids");
+    }
+
+    /**
+     * Transport shared by every call to the PSC data API, which keeps connections to it open between calls.
+     */
+    @Bean
+    JdkHttpTransport pscDataApiTransport(@Value("${api.connect-timeout-ms}") int connectTimeout,
+            @Value("${api.max-connections-per-route}") int maxConnectionsPerRoute,
+            @Value("${api.http2.enabled}") boolean http2Enabled) {
+        return new JdkHttpTransport(Duration.ofMillis(connectTimeout), maxConnectionsPerRoute, http2Enabled);
+    }
+
+    /**
+     * Supplies the one PSC data API client, which is safe to share as the request id is set on each request from
+     * the calling thread's logging context rather than on the client, and the trace context from its current span.
+     */
+    @Bean
+    public Supplier<InternalApiClient> internalApiClientSupplier(JdkHttpTransport pscDataApiTransport,
+            @Value("${api.connect-timeout-ms}") int connectTimeout,
+            @Value("${api.read-timeout-ms}") int readTimeout, OpenTelemetry openTelemetry) {
+        InternalApiClient internalApiClient = new InternalApiClient(new PooledApiKeyHttpClient(apiKey,
+                pscDataApiTransport, connectTimeout, readTimeout,
+                openTelemetry.getPropagators().getTextMapPropagator()));
+        internalApiClient.setBasePath(apiUrl);
 
-            return internalApiClient;
-        };
+        return () -> internalApiClient;
     }
 }
\ No newline at end of file
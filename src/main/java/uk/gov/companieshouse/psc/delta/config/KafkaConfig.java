@@ -1,12 +1,15 @@
 package uk.gov.companieshouse.psc.delta.config;
 
 import consumer.deserialization.AvroDeserializer;
+import consumer.exception.NonRetryableErrorException;
 import consumer.exception.TopicErrorInterceptor;
 import consumer.serialization.AvroSerializer;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.util.HashMap;
 import java.util.Map;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,16 +17,23 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerConsumerListener;
 import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.util.backoff.FixedBackOff;
 import uk.gov.companieshouse.delta.ChsDelta;
+import uk.gov.companieshouse.psc.delta.tracing.DeltaTracing;
+import uk.gov.companieshouse.psc.delta.tracing.TracingDeserializer;
 
 @Configuration
 @EnableKafka
@@ -34,6 +44,14 @@ public class KafkaConfig {
     private final AvroDeserializer<ChsDelta> deserializer;
     private final Integer listenerConcurrency;
     private final String bootstrapServers;
+    private final Integer batchMaxPollRecords;
+    private final Integer retryAttempts;
+    private final Long backoffDelay;
+    private final boolean virtualThreadsEnabled;
+    private final boolean asyncEnabled;
+    private final String errorTopicSuffix;
+    private final MeterRegistry meterRegistry;
+    private final DeltaTracing deltaTracing;
 
     /**
      * Constructor.
@@ -42,11 +60,27 @@ public class KafkaConfig {
     public KafkaConfig(AvroDeserializer<ChsDelta> deserializer,
             AvroSerializer serializer,
             @Value("${spring.kafka.bootstrap-servers}") String bootstrapServers,
-            @Value("${spring.kafka.listener.concurrency}") Integer listenerConcurrency) {
+            @Value("${spring.kafka.listener.concurrency}") Integer listenerConcurrency,
+            @Value("${pscs.delta.batch.max-poll-records}") Integer batchMaxPollRecords,
+            @Value("${pscs.delta.retry-attempts}") Integer retryAttempts,
+            @Value("${pscs.delta.backoff-delay}") Long backoffDelay,
+            @Value("${pscs.delta.virtual-threads.enabled}") boolean virtualThreadsEnabled,
+            @Value("${pscs.delta.async.enabled}") boolean asyncEnabled,
+            @Value("${pscs.delta.error-topic-suffix}") String errorTopicSuffix,
+            MeterRegistry meterRegistry,
+            DeltaTracing deltaTracing) {
         this.serializer = serializer;
         this.deserializer = deserializer;
         this.bootstrapServers = bootstrapServers;
         this.listenerConcurrency = listenerConcurrency;
+        this.batchMaxPollRecords = batchMaxPollRecords;
+        this.retryAttempts = retryAttempts;
+        this.backoffDelay = backoffDelay;
+        this.virtualThreadsEnabled = virtualThreadsEnabled;
+        this.asyncEnabled = asyncEnabled;
+        this.errorTopicSuffix = errorTopicSuffix;
+        this.meterRegistry = meterRegistry;
+        this.deltaTracing = deltaTracing;
     }
 
     /**
@@ -54,8 +88,7 @@ public class KafkaConfig {
      */
     @Bean
     public ConsumerFactory<String, ChsDelta> kafkaConsumerFactory() {
-        return new DefaultKafkaConsumerFactory<>(consumerConfigs(), new StringDeserializer(),
-                new ErrorHandlingDeserializer<>(deserializer));
+        return consumerFactory(consumerConfigs());
     }
 
     /**
@@ -79,7 +112,10 @@ public class KafkaConfig {
     }
 
     /**
-     * Kafka Listener Container Factory.
+     * Kafka Listener Container Factory. In async mode each delta is acknowledged once its API call completes, which
+     * may be out of order; with asynchronous acks an offset is only committed once every offset before it has been
+     * acknowledged. A pause takes effect immediately, so the deltas left from the last poll are fetched again on
+     * resume rather than processed, and committed, while the PSC data API is unavailable.
      */
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, ChsDelta> listenerContainerFactory() {
@@ -87,11 +123,75 @@ public class KafkaConfig {
                 = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(kafkaConsumerFactory());
         factory.setConcurrency(listenerConcurrency);
-        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.RECORD);
+        if (asyncEnabled) {
+            factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+            factory.getContainerProperties().setAsyncAcks(true);
+        } else {
+            factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.RECORD);
+        }
+        factory.getContainerProperties().setPauseImmediate(true);
+        configureListenerThreads(factory);
 
         return factory;
     }
 
+    /**
+     * Kafka Batch Listener Container Factory. Offsets are committed once per batch; a delta that fails within the
+     * batch is forwarded to the retry or error topic by the batch processor, and only a failure to forward it is
+     * seen by the error handler. The error handler retries from that delta as many times as the record listener
+     * would retry it, then publishes the record as received to the error topic and moves on, so a partition is never
+     * held up by one delta. A record with no delta to forward, such as one that could not be deserialised, is
+     * published to the error topic without retrying.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, ChsDelta> batchListenerContainerFactory() {
+        Map<String, Object> props = consumerConfigs();
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxPollRecords);
+
+        ConcurrentKafkaListenerContainerFactory<String, ChsDelta> factory
+                = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory(props));
+        factory.setConcurrency(listenerConcurrency);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(kafkaTemplate(),
+                (consumerRecord, ex) -> new TopicPartition(consumerRecord.topic() + errorTopicSuffix, -1));
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(recoverer,
+                new FixedBackOff(backoffDelay, retryAttempts - 1L));
+        errorHandler.addNotRetryableExceptions(NonRetryableErrorException.class);
+        factory.setCommonErrorHandler(errorHandler);
+        configureListenerThreads(factory);
+
+        return factory;
+    }
+
+    /**
+     * Runs the listener containers' consumer threads as virtual threads when enabled, so a thread blocked on a PSC
+     * data API call does not hold a platform thread. This saves memory but not time: each container still handles
+     * one record at a time, so on its own it needs the same listener concurrency as before. Throughput only rises
+     * with the batch or async mode, which hand delta handling to the batch or API executor, each of which runs every
+     * delta on its own virtual thread in this mode.
+     */
+    private void configureListenerThreads(ConcurrentKafkaListenerContainerFactory<String, ChsDelta> factory) {
+        if (virtualThreadsEnabled) {
+            SimpleAsyncTaskExecutor listenerTaskExecutor = new SimpleAsyncTaskExecutor("psc-delta-listener-");
+            listenerTaskExecutor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(listenerTaskExecutor);
+        }
+    }
+
+    /**
+     * Binds the Kafka consumer metrics, including the records-lag and records-lag-max gauges, of every consumer
+     * the factory creates. Each record is deserialised within a span, which the delta is traced from.
+     */
+    private ConsumerFactory<String, ChsDelta> consumerFactory(Map<String, Object> props) {
+        DefaultKafkaConsumerFactory<String, ChsDelta> consumerFactory = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(),
+                new ErrorHandlingDeserializer<>(new TracingDeserializer<>(deserializer, deltaTracing)));
+        consumerFactory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return consumerFactory;
+    }
+
     private Map<String, Object> consumerConfigs() {
         Map<String, Object> props = new HashMap<>();
 
@@ -0,0 +1,117 @@
+package uk.gov.companieshouse.psc.delta.consumer;
+
+import static uk.gov.companieshouse.psc.delta.PscDeltaConsumerApplication.NAMESPACE;
+
+import consumer.exception.NonRetryableErrorException;
+import consumer.exception.RetryableErrorException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.retrytopic.RetryTopicHeaders;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.delta.ChsDelta;
+import uk.gov.companieshouse.logging.Logger;
+import uk.gov.companieshouse.logging.LoggerFactory;
+import uk.gov.companieshouse.psc.delta.logging.DataMapHolder;
+import uk.gov.companieshouse.psc.delta.tracing.DeltaTracing;
+
+/**
+ * Forwards a delta that failed outside the record listener (e.g. within a batch) to the same retry and error
+ * topics the record listener uses, so it is retried on its own rather than with the rest of its batch. The trace
+ * context of the delta is forwarded with it, as the retry topic infrastructure forwards the headers of the record.
+ */
+@Component
+public class FailedDeltaPublisher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NAMESPACE);
+    private static final int FIRST_RETRY_ATTEMPT = 2;
+    private static final long SEND_TIMEOUT_SECONDS = 30L;
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final long backoffDelay;
+    private final String retryTopicSuffix;
+    private final String errorTopicSuffix;
+    private final DeltaTracing deltaTracing;
+
+    public FailedDeltaPublisher(KafkaTemplate<String, Object> kafkaTemplate,
+            @Value("${pscs.delta.backoff-delay}") long backoffDelay,
+            @Value("${pscs.delta.retry-topic-suffix}") String retryTopicSuffix,
+            @Value("${pscs.delta.error-topic-suffix}") String errorTopicSuffix, DeltaTracing deltaTracing) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.backoffDelay = backoffDelay;
+        this.retryTopicSuffix = retryTopicSuffix;
+        this.errorTopicSuffix = errorTopicSuffix;
+        this.deltaTracing = deltaTracing;
+    }
+
+    /**
+     * Publishes the failed delta to the retry topic, or to the error topic if the failure is not retryable.
+     *
+     * @param message the delta that failed
+     * @param cause   the exception it failed with
+     * @throws RetryableErrorException    if the delta could not be published
+     * @throws NonRetryableErrorException if the message has no delta to publish, e.g. because it could not be
+     *                                     deserialised, so the listener's error handler recovers the raw record
+     */
+    public void publish(Message<ChsDelta> message, Throwable cause) {
+        MessageHeaders headers = message.getHeaders();
+        if (!(message.getPayload() instanceof ChsDelta)) {
+            LOGGER.error("Unable to forward delta with invalid payload type", DataMapHolder.getLogMap());
+            throw new NonRetryableErrorException("Unable to forward delta with invalid payload type", cause);
+        }
+
+        final String sourceTopic = (String) headers.get(KafkaHeaders.RECEIVED_TOPIC);
+        final boolean retryable = !(cause instanceof NonRetryableErrorException);
+        final String destination = sourceTopic + (retryable ? retryTopicSuffix : errorTopicSuffix);
+
+        ProducerRecord<String, Object> producerRecord = new ProducerRecord<>(destination, null,
+                (String) headers.get(KafkaHeaders.RECEIVED_KEY), message.getPayload());
+        addHeaders(producerRecord.headers(), headers, cause, retryable);
+        deltaTracing.propagate(headers, producerRecord.headers());
+
+        try {
+            kafkaTemplate.send(producerRecord).get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RetryableErrorException("Interrupted forwarding delta to %s".formatted(destination), ex);
+        } catch (ExecutionException | TimeoutException ex) {
+            throw new RetryableErrorException("Failed to forward delta to %s".formatted(destination), ex);
+        }
+    }
+
+    private void addHeaders(Headers recordHeaders, MessageHeaders headers, Throwable cause, boolean retryable) {
+        recordHeaders.add(KafkaHeaders.DLT_EXCEPTION_FQCN, cause.getClass().getName().getBytes(StandardCharsets.UTF_8));
+        Optional.ofNullable(cause.getMessage())
+                .ifPresent(msg -> recordHeaders.add(KafkaHeaders.DLT_EXCEPTION_MESSAGE,
+                        msg.getBytes(StandardCharsets.UTF_8)));
+        Optional.ofNullable((String) headers.get(KafkaHeaders.RECEIVED_TOPIC))
+                .ifPresent(topic -> recordHeaders.add(KafkaHeaders.DLT_ORIGINAL_TOPIC,
+                        topic.getBytes(StandardCharsets.UTF_8)));
+        Optional.ofNullable((Integer) headers.get(KafkaHeaders.RECEIVED_PARTITION))
+                .ifPresent(partition -> recordHeaders.add(KafkaHeaders.DLT_ORIGINAL_PARTITION,
+                        ByteBuffer.allocate(Integer.BYTES).putInt(partition).array()));
+        Optional.ofNullable((Long) headers.get(KafkaHeaders.OFFSET))
+                .ifPresent(offset -> recordHeaders.add(KafkaHeaders.DLT_ORIGINAL_OFFSET,
+                        ByteBuffer.allocate(Long.BYTES).putLong(offset).array()));
+
+        if (retryable) {
+            // Same headers the retry topic infrastructure writes, so the retry listener honours the backoff delay
+            // and counts this as the first retry
+            recordHeaders.add(RetryTopicHeaders.DEFAULT_HEADER_ATTEMPTS,
+                    ByteBuffer.allocate(Integer.BYTES).putInt(FIRST_RETRY_ATTEMPT).array());
+            recordHeaders.add(RetryTopicHeaders.DEFAULT_HEADER_BACKOFF_TIMESTAMP,
+                    BigInteger.valueOf(System.currentTimeMillis() + backoffDelay).toByteArray());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package uk.gov.companieshouse.psc.delta.consumer;
+
+import static uk.gov.companieshouse.psc.delta.PscDeltaConsumerApplication.NAMESPACE;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.logging.Logger;
+import uk.gov.companieshouse.logging.LoggerFactory;
+import uk.gov.companieshouse.psc.delta.logging.DataMapHolder;
+
+/**
+ * Pauses and resumes every listener container on behalf of any number of independent reasons. The containers are
+ * paused when the first reason is raised and only resumed once every reason has been cleared, so one part of the
+ * application cannot resume consumption that another still needs paused. A paused container keeps polling, so the
+ * consumer stays in its group, but fetches no records.
+ */
+@Component
+public class ListenerPauseController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NAMESPACE);
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final Set<String> reasons = new HashSet<>();
+
+    public ListenerPauseController(KafkaListenerEndpointRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Pauses the containers for the given reason, if they are not already paused for it.
+     *
+     * @param reason what consumption is paused for
+     */
+    public synchronized void pause(String reason) {
+        if (reasons.add(reason) && reasons.size() == 1) {
+            LOGGER.info("Pausing listener containers: %s".formatted(reason), DataMapHolder.getLogMap());
+            registry.getAllListenerContainers().forEach(MessageListenerContainer::pause);
+        }
+    }
+
+    /**
+     * Clears the given reason, resuming the containers if no other reason to pause them remains.
+     *
+     * @param reason what consumption was paused for
+     */
+    public synchronized void resume(String reason) {
+        if (reasons.remove(reason) && reasons.isEmpty()) {
+            LOGGER.info("Resuming listener containers: %s".formatted(reason), DataMapHolder.getLogMap());
+            registry.getAllListenerContainers().forEach(MessageListenerContainer::resume);
+        }
+    }
+
+    public synchronized boolean isPaused() {
+        return !reasons.isEmpty();
+    }
+}
@@ -0,0 +1,53 @@
+package uk.gov.companieshouse.psc.delta.consumer;
+
+import java.util.List;
+import java.util.Objects;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.delta.ChsDelta;
+import uk.gov.companieshouse.psc.delta.processor.PscDeltaBatchProcessor;
+
+@Component
+@Profile("!bulk-load")
+@ConditionalOnProperty(name = "pscs.delta.batch.enabled", havingValue = "true")
+public class PscDeltaBatchConsumer {
+
+    public static final String LISTENER_ID = "psc-delta-batch-consumer";
+
+    private final PscDeltaBatchProcessor pscDeltaBatchProcessor;
+    private final KafkaListenerEndpointRegistry registry;
+
+    public PscDeltaBatchConsumer(PscDeltaBatchProcessor pscDeltaBatchProcessor,
+            KafkaListenerEndpointRegistry registry) {
+        this.pscDeltaBatchProcessor = pscDeltaBatchProcessor;
+        this.registry = registry;
+    }
+
+    @KafkaListener(id = LISTENER_ID,
+            topics = "${pscs.delta.topic}",
+            groupId = "${pscs.delta.group-id}",
+            containerFactory = "batchListenerContainerFactory")
+    public void receiveMainMessages(List<Message<ChsDelta>> chsDeltaMessages) {
+        pscDeltaBatchProcessor.processBatch(chsDeltaMessages);
+    }
+
+    /**
+     * In batch mode the record listener does not start on the main topic, but its retry and error topic containers
+     * are still needed to work through deltas forwarded from a batch.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRetryContainers() {
+        registry.getListenerContainerIds().stream()
+                .filter(id -> id.startsWith(PscDeltaConsumer.LISTENER_ID + "-"))
+                .map(registry::getListenerContainer)
+                .filter(Objects::nonNull)
+                .forEach(MessageListenerContainer::start);
+    }
+}
@@ -1,41 +1,73 @@
 package uk.gov.companieshouse.psc.delta.consumer;
 
 import consumer.exception.NonRetryableErrorException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.annotation.RetryableTopic;
 import org.springframework.kafka.retrytopic.DltStrategy;
 import org.springframework.kafka.retrytopic.SameIntervalTopicReuseStrategy;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.Message;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Component;
 import uk.gov.companieshouse.delta.ChsDelta;
+import uk.gov.companieshouse.psc.delta.processor.PscDeltaAsyncProcessor;
 import uk.gov.companieshouse.psc.delta.processor.PscDeltaProcessor;
 
 @Component
+@Profile("!bulk-load")
 public class PscDeltaConsumer {
 
+    public static final String LISTENER_ID = "psc-delta-consumer";
+
     private final PscDeltaProcessor pscDeltaProcessor;
+    private final PscDeltaAsyncProcessor pscDeltaAsyncProcessor;
+    private final boolean asyncEnabled;
+    private final String topic;
 
-    public PscDeltaConsumer(PscDeltaProcessor pscDeltaProcessor) {
+    public PscDeltaConsumer(PscDeltaProcessor pscDeltaProcessor, PscDeltaAsyncProcessor pscDeltaAsyncProcessor,
+            @Value("${pscs.delta.async.enabled}") boolean asyncEnabled, @Value("${pscs.delta.topic}") String topic) {
         this.pscDeltaProcessor = pscDeltaProcessor;
+        this.pscDeltaAsyncProcessor = pscDeltaAsyncProcessor;
+        this.asyncEnabled = asyncEnabled;
+        this.topic = topic;
     }
 
     @RetryableTopic(attempts = "${pscs.delta.retry-attempts}",
             backoff = @Backoff(delayExpression = "${pscs.delta.backoff-delay}"),
             sameIntervalTopicReuseStrategy = SameIntervalTopicReuseStrategy.SINGLE_TOPIC,
-            dltTopicSuffix = "-error",
-            retryTopicSuffix = "-retry",
+            dltTopicSuffix = "${pscs.delta.error-topic-suffix}",
+            retryTopicSuffix = "${pscs.delta.retry-topic-suffix}",
             dltStrategy = DltStrategy.FAIL_ON_ERROR,
             autoCreateTopics = "false",
             exclude = NonRetryableErrorException.class)
-    @KafkaListener(topics = "${pscs.delta.topic}",
+    @KafkaListener(id = LISTENER_ID,
+            topics = "${pscs.delta.topic}",
             groupId = "${pscs.delta.group-id}",
-            containerFactory = "listenerContainerFactory")
+            containerFactory = "listenerContainerFactory",
+            autoStartup = "#{!${pscs.delta.batch.enabled:false}}")
     public void receiveMainMessages(Message<ChsDelta> chsDeltaMessage) {
+        // Only present when offsets are acknowledged manually, i.e. in async mode
+        Acknowledgment acknowledgment = chsDeltaMessage.getHeaders()
+                .get(KafkaHeaders.ACKNOWLEDGMENT, Acknowledgment.class);
+
+        // Deltas on the retry and error topics are still processed synchronously, so the retry topic
+        // infrastructure sees their failures
+        if (asyncEnabled && acknowledgment != null
+                && topic.equals(chsDeltaMessage.getHeaders().get(KafkaHeaders.RECEIVED_TOPIC))) {
+            pscDeltaAsyncProcessor.submit(chsDeltaMessage, acknowledgment);
+            return;
+        }
+
         if (chsDeltaMessage.getPayload().getIsDelete()) {
             pscDeltaProcessor.processDelete(chsDeltaMessage);
         } else {
             pscDeltaProcessor.processDelta(chsDeltaMessage);
         }
+        if (acknowledgment != null) {
+            acknowledgment.acknowledge();
+        }
     }
 }
@@ -0,0 +1,73 @@
+package uk.gov.companieshouse.psc.delta.http;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A single request sent through a {@link JdkHttpTransport}.
+ */
+class JdkHttpRequest extends LowLevelHttpRequest {
+
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    // Headers the JDK client sets itself and will not accept from the caller
+    private static final Set<String> RESTRICTED_HEADERS = caseInsensitive(
+            Set.of("Connection", "Content-Length", "Expect", "Host", "Upgrade"));
+
+    private final JdkHttpTransport transport;
+    private final String method;
+    private final HttpRequest.Builder builder;
+    private final Set<String> headerNames = caseInsensitive(Set.of());
+
+    JdkHttpRequest(JdkHttpTransport transport, String method, URI uri) {
+        this.transport = transport;
+        this.method = method;
+        this.builder = HttpRequest.newBuilder(uri);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (!RESTRICTED_HEADERS.contains(name)) {
+            builder.header(name, value);
+            headerNames.add(name);
+        }
+    }
+
+    @Override
+    public void setTimeout(int connectTimeout, int readTimeout) {
+        // the connect timeout is fixed by the shared client; a read timeout of 0 means no timeout
+        if (readTimeout > 0) {
+            builder.timeout(Duration.ofMillis(readTimeout));
+        }
+    }
+
+    @Override
+    public LowLevelHttpResponse execute() throws IOException {
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.noBody();
+        if (getStreamingContent() != null) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            getStreamingContent().writeTo(content);
+            body = HttpRequest.BodyPublishers.ofByteArray(content.toByteArray());
+            if (getContentType() != null && !headerNames.contains(CONTENT_TYPE)) {
+                builder.header(CONTENT_TYPE, getContentType());
+            }
+            if (getContentEncoding() != null && !headerNames.contains(CONTENT_ENCODING)) {
+                builder.header(CONTENT_ENCODING, getContentEncoding());
+            }
+        }
+        return new JdkHttpResponse(transport.send(builder.method(method, body).build()));
+    }
+
+    private static Set<String> caseInsensitive(Set<String> names) {
+        Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        set.addAll(names);
+        return set;
+    }
+}
@@ -0,0 +1,79 @@
+package uk.gov.companieshouse.psc.delta.http;
+
+import com.google.api.client.http.LowLevelHttpResponse;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The response to a {@link JdkHttpRequest}, with its body already read.
+ */
+class JdkHttpResponse extends LowLevelHttpResponse {
+
+    private final HttpResponse<byte[]> response;
+    private final List<String> headerNames = new ArrayList<>();
+    private final List<String> headerValues = new ArrayList<>();
+
+    JdkHttpResponse(HttpResponse<byte[]> response) {
+        this.response = response;
+        response.headers().map().forEach((name, values) -> values.forEach(value -> {
+            headerNames.add(name);
+            headerValues.add(value);
+        }));
+    }
+
+    @Override
+    public InputStream getContent() {
+        byte[] body = response.body();
+        return body == null || body.length == 0 ? null : new ByteArrayInputStream(body);
+    }
+
+    @Override
+    public String getContentEncoding() {
+        return response.headers().firstValue("Content-Encoding").orElse(null);
+    }
+
+    @Override
+    public long getContentLength() {
+        byte[] body = response.body();
+        return body == null ? 0 : body.length;
+    }
+
+    @Override
+    public String getContentType() {
+        return response.headers().firstValue("Content-Type").orElse(null);
+    }
+
+    @Override
+    public String getStatusLine() {
+        return (response.version() == HttpClient.Version.HTTP_2 ? "HTTP/2 " : "HTTP/1.1 ") + getStatusCode();
+    }
+
+    @Override
+    public int getStatusCode() {
+        return response.statusCode();
+    }
+
+    @Override
+    public String getReasonPhrase() {
+        return null;
+    }
+
+    @Override
+    public int getHeaderCount() {
+        return headerNames.size();
+    }
+
+    @Override
+    public String getHeaderName(int index) {
+        return headerNames.get(index);
+    }
+
+    @Override
+    public String getHeaderValue(int index) {
+        return headerValues.get(index);
+    }
+}
@@ -0,0 +1,74 @@
+package uk.gov.companieshouse.psc.delta.http;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.LowLevelHttpRequest;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A google-http-client transport, as used by the API SDK, backed by one shared {@link HttpClient}. Connections are
+ * pooled and kept alive between calls, and HTTP/2 is used when enabled and the server supports it. Calls to each
+ * route (scheme, host and port) are limited to a maximum at a time, which bounds the connections open to it.
+ */
+public class JdkHttpTransport extends HttpTransport {
+
+    private final HttpClient httpClient;
+    private final int maxConnectionsPerRoute;
+    private final Map<String, Semaphore> routes = new ConcurrentHashMap<>();
+
+    public JdkHttpTransport(Duration connectTimeout, int maxConnectionsPerRoute, boolean http2Enabled) {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .version(http2Enabled ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    @Override
+    public boolean supportsMethod(String method) {
+        return true;
+    }
+
+    @Override
+    protected LowLevelHttpRequest buildRequest(String method, String url) {
+        return new JdkHttpRequest(this, method, URI.create(url));
+    }
+
+    /**
+     * Sends the request once a connection to its route is free. The response body is read in full before the
+     * route is released; PSC data API responses are small, and this means a caller that never closes the response
+     * cannot hold on to a connection.
+     */
+    HttpResponse<byte[]> send(HttpRequest request) throws IOException {
+        URI uri = request.uri();
+        Semaphore route = routes.computeIfAbsent(uri.getScheme() + "://" + uri.getAuthority(),
+                key -> new Semaphore(maxConnectionsPerRoute, true));
+        try {
+            route.acquire();
+            try {
+                return httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            } finally {
+                route.release();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted = new InterruptedIOException("Interrupted calling " + uri);
+            interrupted.initCause(ex);
+            throw interrupted;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        httpClient.close();
+    }
+}
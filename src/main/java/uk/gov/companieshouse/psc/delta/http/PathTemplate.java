@@ -0,0 +1,89 @@
+package uk.gov.companieshouse.psc.delta.http;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A resource path with {@code %s} placeholders, split into its literal parts once so that expanding it is a single
+ * sized copy of the parts and values, rather than the pattern being parsed again by {@code String.format} for every
+ * path built. Values are expanded as {@code String.format} would expand them with {@code %s}, a null as "null".
+ */
+public final class PathTemplate {
+
+    private static final String PLACEHOLDER = "%s";
+
+    private final String template;
+    private final String[] literals;
+    private final int literalLength;
+
+    private PathTemplate(String template, String[] literals) {
+        this.template = template;
+        this.literals = literals;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * @param template the path, with a {@code %s} wherever a value is expanded
+     */
+    public static PathTemplate compile(String template) {
+        List<String> literals = new ArrayList<>();
+        int start = 0;
+        int placeholder;
+        while ((placeholder = template.indexOf(PLACEHOLDER, start)) >= 0) {
+            literals.add(template.substring(start, placeholder));
+            start = placeholder + PLACEHOLDER.length();
+        }
+        literals.add(template.substring(start));
+        return new PathTemplate(template, literals.toArray(String[]::new));
+    }
+
+    public String expand(String value) {
+        checkArity(1);
+        return new StringBuilder(literalLength + length(value))
+                .append(literals[0]).append(value)
+                .append(literals[1])
+                .toString();
+    }
+
+    public String expand(String first, String second) {
+        checkArity(2);
+        return new StringBuilder(literalLength + length(first) + length(second))
+                .append(literals[0]).append(first)
+                .append(literals[1]).append(second)
+                .append(literals[2])
+                .toString();
+    }
+
+    public String expand(String first, String second, String third) {
+        checkArity(3);
+        return new StringBuilder(literalLength + length(first) + length(second) + length(third))
+                .append(literals[0]).append(first)
+                .append(literals[1]).append(second)
+                .append(literals[2]).append(third)
+                .append(literals[3])
+                .toString();
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+
+    private void checkArity(int values) {
+        if (literals.length != values + 1) {
+            throw new IllegalArgumentException("Path template [%s] takes %d values, not %d"
+                    .formatted(template, literals.length - 1, values));
+        }
+    }
+
+    /**
+     * The length of the value as appended, a null being appended as "null".
+     */
+    private static int length(String value) {
+        return value != null ? value.length() : 4;
+    }
+}
@@ -0,0 +1,57 @@
+package uk.gov.companieshouse.psc.delta.http;
+
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpRequestFactory;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpTransport;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.context.propagation.TextMapSetter;
+import uk.gov.companieshouse.api.http.ApiKeyHttpClient;
+import uk.gov.companieshouse.psc.delta.logging.DataMapHolder;
+
+/**
+ * An API key client that sends every request over one shared transport, so a single instance can be used by every
+ * listener thread. The SDK's own request set-up (the API key credentials) is kept, and the request id is added to
+ * each request from the logging context of the thread making the call rather than held on the client, as is the
+ * trace context of the call.
+ */
+public class PooledApiKeyHttpClient extends ApiKeyHttpClient {
+
+    static final String REQUEST_ID_HEADER = "X-Request-Id";
+    private static final TextMapSetter<HttpHeaders> HEADERS_SETTER = (headers, name, value) -> {
+        if (headers != null) {
+            headers.set(name, value);
+        }
+    };
+
+    private final HttpRequestFactory requestFactory;
+
+    public PooledApiKeyHttpClient(String apiKey, HttpTransport transport, int connectTimeout, int readTimeout,
+            TextMapPropagator propagator) {
+        super(apiKey);
+        HttpRequestInitializer sdkInitializer = super.getRequestFactory().getInitializer();
+        this.requestFactory = transport.createRequestFactory(request -> {
+            if (sdkInitializer != null) {
+                sdkInitializer.initialize(request);
+            }
+            request.getHeaders().set(REQUEST_ID_HEADER, DataMapHolder.getRequestId());
+            propagator.inject(Context.current(), request.getHeaders(), HEADERS_SETTER);
+            request.setConnectTimeout(connectTimeout);
+            request.setReadTimeout(readTimeout);
+        });
+    }
+
+    @Override
+    public HttpRequestFactory getRequestFactory() {
+        return requestFactory;
+    }
+
+    /**
+     * The request id is taken from the calling thread for each request, so it is not held on the shared client.
+     */
+    @Override
+    public void setRequestId(String requestId) {
+        // intentionally ignored
+    }
+}
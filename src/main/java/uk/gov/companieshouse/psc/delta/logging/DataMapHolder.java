@@ -1,41 +1,178 @@
 package uk.gov.companieshouse.psc.delta.logging;
 
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 import uk.gov.companieshouse.logging.util.DataMap;
 import uk.gov.companieshouse.logging.util.DataMap.Builder;
 
+/**
+ * Holds the logging context of the delta a thread is working on. The log map is built from the context once and
+ * kept until the context next changes, rather than built again for every line logged. The request id, and the
+ * company number, kind and retry count spans are described with, are held apart from it so reading them builds
+ * nothing.
+ */
 public class DataMapHolder {
 
-    private static final ThreadLocal<DataMap.Builder> DATAMAP_BUILDER
-            = ThreadLocal.withInitial(() -> new Builder().requestId("uninitialised"));
+    private static final String UNINITIALISED = "uninitialised";
+    private static final ThreadLocal<LogContext> LOG_CONTEXT = ThreadLocal.withInitial(LogContext::new);
 
     public static void initialise(String requestId) {
-        DATAMAP_BUILDER.get().requestId(requestId);
+        LOG_CONTEXT.get().requestId(requestId);
     }
 
     private DataMapHolder() {
     }
 
     public static void clear() {
-        DATAMAP_BUILDER.remove();
+        LOG_CONTEXT.remove();
     }
 
+    /**
+     * The builder of the context, to add fields to. The log map is built again the next time it is needed.
+     */
     public static DataMap.Builder get() {
-        return DATAMAP_BUILDER.get();
+        return LOG_CONTEXT.get().builder();
     }
 
     /**
      * Get the Log Map from the Builder.
      *
-     * @return Map
+     * @return a copy of the log map, which the logger is free to add to
      */
     public static Map<String, Object> getLogMap() {
-        return DATAMAP_BUILDER.get()
-                .build()
-                .getLogMap();
+        return new HashMap<>(LOG_CONTEXT.get().logMap());
     }
 
     public static String getRequestId() {
-        return (String) getLogMap().get("request_id");
+        return LOG_CONTEXT.get().requestId;
+    }
+
+    /**
+     * Adds the retry count of the delta to the context.
+     */
+    public static void retryCount(int retryCount) {
+        LogContext context = LOG_CONTEXT.get();
+        context.builder().retryCount(retryCount);
+        context.retryCount = retryCount;
+    }
+
+    /**
+     * Adds the PSC the delta is for to the context.
+     *
+     * @param companyNumber the company the PSC is of
+     * @param itemId        the internal id of the PSC
+     * @param kind          the kind of PSC, as the delta gives it
+     */
+    public static void psc(String companyNumber, String itemId, String kind) {
+        LogContext context = LOG_CONTEXT.get();
+        context.builder()
+                .companyNumber(companyNumber)
+                .itemId(itemId);
+        context.companyNumber = companyNumber;
+        context.kind = kind;
+    }
+
+    public static String getCompanyNumber() {
+        return LOG_CONTEXT.get().companyNumber;
+    }
+
+    public static String getKind() {
+        return LOG_CONTEXT.get().kind;
+    }
+
+    public static Integer getRetryCount() {
+        return LOG_CONTEXT.get().retryCount;
+    }
+
+    /**
+     * Marks the delta as handed to another thread, which logs the line summarising it and records its outcome once
+     * that is known, so the listener does not do so on returning.
+     */
+    public static void handOff() {
+        LOG_CONTEXT.get().handedOff = true;
+    }
+
+    public static boolean isHandedOff() {
+        return LOG_CONTEXT.get().handedOff;
+    }
+
+    /**
+     * Wraps the task so that it runs with the calling thread's logging and trace context, whichever thread it later
+     * runs on. The context the running thread had before is put back afterwards.
+     *
+     * @param task the task to wrap
+     * @return the wrapped task
+     */
+    public static Runnable wrap(Runnable task) {
+        LogContext context = LOG_CONTEXT.get();
+        Context traceContext = Context.current();
+        return () -> {
+            LogContext previous = LOG_CONTEXT.get();
+            LOG_CONTEXT.set(context);
+            try (Scope ignored = traceContext.makeCurrent()) {
+                task.run();
+            } finally {
+                LOG_CONTEXT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * Wraps the supplier so that it runs with the calling thread's logging and trace context, whichever thread it
+     * later runs on. The context the running thread had before is put back afterwards.
+     *
+     * @param supplier the supplier to wrap
+     * @return the wrapped supplier
+     */
+    public static <T> Supplier<T> wrap(Supplier<T> supplier) {
+        LogContext context = LOG_CONTEXT.get();
+        Context traceContext = Context.current();
+        return () -> {
+            LogContext previous = LOG_CONTEXT.get();
+            LOG_CONTEXT.set(context);
+            try (Scope ignored = traceContext.makeCurrent()) {
+                return supplier.get();
+            } finally {
+                LOG_CONTEXT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * A wrapped task shares its context with the thread that wrapped it, so the log map may be built on either;
+     * each build is of a whole map, published once built.
+     */
+    private static final class LogContext {
+
+        private final DataMap.Builder builder = new Builder().requestId(UNINITIALISED);
+        private volatile String requestId = UNINITIALISED;
+        private volatile String companyNumber;
+        private volatile String kind;
+        private volatile Integer retryCount;
+        private volatile boolean handedOff;
+        private volatile Map<String, Object> logMap;
+
+        void requestId(String requestId) {
+            builder.requestId(requestId);
+            this.requestId = requestId;
+            logMap = null;
+        }
+
+        DataMap.Builder builder() {
+            logMap = null;
+            return builder;
+        }
+
+        Map<String, Object> logMap() {
+            Map<String, Object> built = logMap;
+            if (built == null) {
+                built = builder.build().getLogMap();
+                logMap = built;
+            }
+            return built;
+        }
     }
 }
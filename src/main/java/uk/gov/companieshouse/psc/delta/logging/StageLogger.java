@@ -0,0 +1,43 @@
+package uk.gov.companieshouse.psc.delta.logging;
+
+import static uk.gov.companieshouse.psc.delta.PscDeltaConsumerApplication.NAMESPACE;
+
+import uk.gov.companieshouse.logging.Logger;
+import uk.gov.companieshouse.logging.LoggerFactory;
+
+/**
+ * Logs the lines marking each stage a delta passes through, such as transforming it or sending it to the API. These
+ * are several lines for every delta, so they are only logged while info is enabled for the namespace, before the log
+ * map is copied for them, and can be turned off in favour of the single line logged once each delta is processed.
+ * Failures are logged as they happen, not through here.
+ */
+public final class StageLogger {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NAMESPACE);
+    private static final org.slf4j.Logger LEVEL = org.slf4j.LoggerFactory.getLogger(NAMESPACE);
+
+    private static volatile boolean summaryOnly;
+
+    private StageLogger() {
+    }
+
+    /**
+     * Logs the stage a delta has reached, unless stage lines are turned off.
+     */
+    public static void info(String message) {
+        if (isEnabled()) {
+            LOGGER.info(message, DataMapHolder.getLogMap());
+        }
+    }
+
+    public static boolean isEnabled() {
+        return !summaryOnly && LEVEL.isInfoEnabled();
+    }
+
+    /**
+     * @param summaryOnly whether to log only the line for each delta once processed, rather than every stage
+     */
+    static void summaryOnly(boolean summaryOnly) {
+        StageLogger.summaryOnly = summaryOnly;
+    }
+}
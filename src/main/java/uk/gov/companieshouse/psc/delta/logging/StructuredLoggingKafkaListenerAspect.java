@@ -8,6 +8,7 @@ import static uk.gov.companieshouse.psc.delta.PscDeltaConsumerApplication.NAMESP
 
 import consumer.exception.NonRetryableErrorException;
 import consumer.exception.RetryableErrorException;
+import io.micrometer.core.instrument.Timer;
 import java.nio.ByteBuffer;
 import java.util.Optional;
 import java.util.UUID;
@@ -21,6 +22,10 @@ import org.springframework.stereotype.Component;
 import uk.gov.companieshouse.delta.ChsDelta;
 import uk.gov.companieshouse.logging.Logger;
 import uk.gov.companieshouse.logging.LoggerFactory;
+import uk.gov.companieshouse.psc.delta.metrics.DeltaMetrics;
+import uk.gov.companieshouse.psc.delta.metrics.Operation;
+import uk.gov.companieshouse.psc.delta.metrics.Outcome;
+import uk.gov.companieshouse.psc.delta.tracing.DeltaTracing;
 
 @Component
 @Aspect
@@ -34,14 +39,32 @@ class StructuredLoggingKafkaListenerAspect {
     private static final String EXCEPTION_MESSAGE = "%s exception thrown";
 
     private final int maxAttempts;
+    private final DeltaMetrics deltaMetrics;
+    private final DeltaTracing deltaTracing;
 
-    StructuredLoggingKafkaListenerAspect(@Value("${pscs.delta.retry-attempts}") int maxAttempts) {
+    StructuredLoggingKafkaListenerAspect(@Value("${pscs.delta.retry-attempts}") int maxAttempts,
+            DeltaMetrics deltaMetrics, @Value("${pscs.delta.logging.summary-only}") boolean summaryOnly,
+            DeltaTracing deltaTracing) {
         this.maxAttempts = maxAttempts;
+        this.deltaMetrics = deltaMetrics;
+        this.deltaTracing = deltaTracing;
+        StageLogger.summaryOnly(summaryOnly);
     }
 
-    @Around("@annotation(org.springframework.kafka.annotation.KafkaListener)")
+    /**
+     * The line logged once a delta is processed is logged whether or not stage lines are, as the summary of the
+     * delta. The delta is processed within a span of its own, continuing the trace in its headers. Batch listeners
+     * are excluded by the args() clause; their deltas are handed one at a time to PscDeltaProcessor.process, which
+     * gets the same per-delta logging context. A delta handed to the async processor has not been processed when the
+     * listener returns, so the summary line and outcome are left for the async processor to log and record.
+     */
+    @Around("@annotation(org.springframework.kafka.annotation.KafkaListener) && args(org.springframework.messaging.Message)"
+            + " || execution(public void uk.gov.companieshouse.psc.delta.processor.PscDeltaProcessor.process(..))")
     public Object manageStructuredLogging(ProceedingJoinPoint joinPoint) throws Throwable {
         int retryCount = 0;
+        Operation operation = null;
+        Outcome outcome = Outcome.SUCCESS;
+        Timer.Sample sample = deltaMetrics.startTimer();
         try {
             Message<?> message = (Message<?>) joinPoint.getArgs()[0];
             MessageHeaders headers = message.getHeaders();
@@ -50,27 +73,30 @@ class StructuredLoggingKafkaListenerAspect {
                     .orElse(1) - 1;
 
             ChsDelta chsDelta = extractChsDelta(message.getPayload());
+            operation = Operation.of(chsDelta.getIsDelete());
 
             DataMapHolder.initialise(Optional.ofNullable(chsDelta.getContextId())
                     .orElse(UUID.randomUUID().toString()));
 
+            DataMapHolder.retryCount(retryCount);
             DataMapHolder.get()
-                    .retryCount(retryCount)
                     .topic((String) headers.get(RECEIVED_TOPIC))
                     .partition((Integer) headers.get(
                             RECEIVED_PARTITION))
                     .offset((Long) headers.get(OFFSET));
 
-            LOGGER.info(chsDelta.getIsDelete() ? LOG_MESSAGE_DELETE_RECEIVED : LOG_MESSAGE_RECEIVED,
-                    DataMapHolder.getLogMap());
+            StageLogger.info(chsDelta.getIsDelete() ? LOG_MESSAGE_DELETE_RECEIVED : LOG_MESSAGE_RECEIVED);
 
-            Object result = joinPoint.proceed();
+            Object result = deltaTracing.traceDelta(headers, joinPoint::proceed);
 
-            LOGGER.info(chsDelta.getIsDelete() ? LOG_MESSAGE_DELETE_PROCESSED : LOG_MESSAGE_PROCESSED,
-                    DataMapHolder.getLogMap());
+            if (!DataMapHolder.isHandedOff()) {
+                LOGGER.info(chsDelta.getIsDelete() ? LOG_MESSAGE_DELETE_PROCESSED : LOG_MESSAGE_PROCESSED,
+                        DataMapHolder.getLogMap());
+            }
 
             return result;
         } catch (RetryableErrorException ex) {
+            outcome = Outcome.RETRYABLE_ERROR;
             // maxAttempts includes first attempt which is not a retry
             if (retryCount >= maxAttempts - 1) {
                 LOGGER.error("Max retry attempts reached", ex, DataMapHolder.getLogMap());
@@ -79,9 +105,13 @@ class StructuredLoggingKafkaListenerAspect {
             }
             throw ex;
         } catch (Exception ex) {
+            outcome = Outcome.of(ex);
             LOGGER.error("Exception thrown", ex, DataMapHolder.getLogMap());
             throw ex;
         } finally {
+            if (operation != null && !DataMapHolder.isHandedOff()) {
+                deltaMetrics.recordProcessed(sample, operation, outcome, retryCount);
+            }
             DataMapHolder.clear();
         }
     }
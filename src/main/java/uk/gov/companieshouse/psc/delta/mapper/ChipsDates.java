@@ -0,0 +1,119 @@
+package uk.gov.companieshouse.psc.delta.mapper;
+
+import static uk.gov.companieshouse.psc.delta.PscDeltaConsumerApplication.NAMESPACE;
+
+import consumer.exception.NonRetryableErrorException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import uk.gov.companieshouse.logging.Logger;
+import uk.gov.companieshouse.logging.LoggerFactory;
+import uk.gov.companieshouse.psc.delta.logging.DataMapHolder;
+
+/**
+ * Parses the fixed-width dates CHIPS sends, reading the digits straight from the string rather than through a
+ * {@code DateTimeFormatter}, which builds a parse context and a map of fields for every date. The dates resolve as
+ * the formatters previously used resolved them: a day of month from 29 to 31 past the end of its month is taken as
+ * the last day of that month, and a delta_at of 24:00 as midnight at the start of the next day.
+ */
+public final class ChipsDates {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NAMESPACE);
+    private static final int DATE_LENGTH = 8;
+    private static final int DELTA_AT_LENGTH = 20;
+    private static final int END_OF_DAY_HOUR = 24;
+    private static final String FAILED_TO_PARSE = "Failed to parse date/time: [";
+    private static final String TIME_START_OF_DAY = "000000";
+
+    private ChipsDates() {
+    }
+
+    /**
+     * @param date a date as yyyyMMdd
+     * @throws NonRetryableErrorException if the date is not a valid yyyyMMdd date
+     */
+    public static LocalDate parseDate(final String date) {
+        if (date != null && date.length() == DATE_LENGTH) {
+            try {
+                final LocalDate parsed = date(date);
+                if (parsed != null) {
+                    return parsed;
+                }
+            } catch (final DateTimeException exception) {
+                throw failure(date + TIME_START_OF_DAY, exception);
+            }
+        }
+        throw failure(date + TIME_START_OF_DAY, null);
+    }
+
+    /**
+     * @param deltaAt the time of a delta as yyyyMMddHHmmssSSSSSS, in UTC
+     * @throws NonRetryableErrorException if the time is not a valid yyyyMMddHHmmssSSSSSS time
+     */
+    public static OffsetDateTime parseDeltaAt(final String deltaAt) {
+        if (deltaAt != null && deltaAt.length() == DELTA_AT_LENGTH) {
+            try {
+                final LocalDate date = date(deltaAt);
+                final int hour = digits(deltaAt, 8, 10);
+                final int minute = digits(deltaAt, 10, 12);
+                final int second = digits(deltaAt, 12, 14);
+                final int micros = digits(deltaAt, 14, 20);
+                if (date != null && hour == END_OF_DAY_HOUR && minute == 0 && second == 0 && micros == 0) {
+                    return date.plusDays(1).atStartOfDay().atOffset(ZoneOffset.UTC);
+                }
+                if (date != null && hour >= 0 && minute >= 0 && second >= 0 && micros >= 0) {
+                    return OffsetDateTime.of(date.getYear(), date.getMonthValue(), date.getDayOfMonth(),
+                            hour, minute, second, micros * 1000, ZoneOffset.UTC);
+                }
+            } catch (final DateTimeException exception) {
+                throw failure(deltaAt, exception);
+            }
+        }
+        throw failure(deltaAt, null);
+    }
+
+    /**
+     * The yyyyMMdd date at the start of the value, or null if it is not all digits.
+     *
+     * @throws DateTimeException if the month or day is out of range
+     */
+    private static LocalDate date(final String value) {
+        final int year = digits(value, 0, 4);
+        final int month = digits(value, 4, 6);
+        final int day = digits(value, 6, 8);
+        if (year < 0 || month < 0 || day < 0) {
+            return null;
+        }
+        if (year == 0) {
+            throw new DateTimeException("Invalid year of era: 0");
+        }
+        final YearMonth yearMonth = YearMonth.of(year, month);
+        if (day < 1 || day > 31) {
+            throw new DateTimeException("Invalid day of month: " + day);
+        }
+        return yearMonth.atDay(Math.min(day, yearMonth.lengthOfMonth()));
+    }
+
+    /**
+     * The number written in the digits from start to end, or -1 if any of them is not an ASCII digit.
+     */
+    private static int digits(final String value, final int start, final int end) {
+        int number = 0;
+        for (int i = start; i < end; i++) {
+            final int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            number = number * 10 + digit;
+        }
+        return number;
+    }
+
+    private static NonRetryableErrorException failure(final String input, final Exception cause) {
+        final String msg = FAILED_TO_PARSE + input + ']';
+        LOGGER.error(msg, DataMapHolder.getLogMap());
+        return new NonRetryableErrorException(msg, cause);
+    }
+}
@@ -0,0 +1,28 @@
+package uk.gov.companieshouse.psc.delta.mapper;
+
+/**
+ * The type of company, as far as natures of control are concerned, classified from the company number prefix.
+ */
+enum CompanyType {
+    STANDARD,
+    LLP,
+    ROE;
+
+    /**
+     * Classify a company number by its first two characters: SO, NC and OC are limited liability partnerships and
+     * OE is a registered overseas entity.
+     */
+    static CompanyType of(final String companyNumber) {
+        if (companyNumber.length() < 2) {
+            return STANDARD;
+        }
+        final char first = companyNumber.charAt(0);
+        final char second = companyNumber.charAt(1);
+        if (second == 'C' && (first == 'N' || first == 'O') || first == 'S' && second == 'O') {
+            return LLP;
+        } else if (first == 'O' && second == 'E') {
+            return ROE;
+        }
+        return STANDARD;
+    }
+}
@@ -0,0 +1,249 @@
+package uk.gov.companieshouse.psc.delta.mapper;
+
+import static uk.gov.companieshouse.psc.delta.mapper.MapperUtils.parseLocalDate;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import uk.gov.companieshouse.GenerateEtagUtil;
+import uk.gov.companieshouse.api.delta.NameElements;
+import uk.gov.companieshouse.api.delta.Psc;
+import uk.gov.companieshouse.api.psc.Data;
+import uk.gov.companieshouse.api.psc.DateOfBirth;
+import uk.gov.companieshouse.api.psc.ExternalData;
+import uk.gov.companieshouse.api.psc.Identification;
+import uk.gov.companieshouse.api.psc.IdentityVerificationDetails;
+import uk.gov.companieshouse.api.psc.ItemLinkTypes;
+import uk.gov.companieshouse.api.psc.SensitiveData;
+import uk.gov.companieshouse.psc.delta.http.PathTemplate;
+
+/**
+ * Maps every PSC field that is derived rather than copied in a single pass over the delta, so each derived value
+ * (the encoded internal id, the parsed date of birth and so on) is worked out once and reused wherever it is needed.
+ */
+final class DerivedFieldMapper {
+
+    private static final PathTemplate SELF_LINK =
+            PathTemplate.compile("/company/%s/persons-with-significant-control/%s/%s");
+    private static final PathTemplate STATEMENT_LINK =
+            PathTemplate.compile("/company/%s/persons-with-significant-control-statements/%s");
+    private static final String YES = "Y";
+
+    private DerivedFieldMapper() {
+    }
+
+    /**
+     * Maps the derived fields of the external data and the data and sensitive data within it.
+     *
+     * @param target ExternalData object within FullRecordCompanyPSCApi object to map to
+     * @param source Psc delta object that will be mapped from
+     */
+    static void map(final ExternalData target, final Psc source) {
+        final String encodedInternalId = MapperUtils.encode(source.getInternalId());
+        final String encodedPscStatementId = source.getPscStatementId() != null
+                ? MapperUtils.encode(source.getPscStatementId()) : null;
+
+        target.setId(encodedInternalId);
+        target.setNotificationId(encodedInternalId);
+        target.setPscStatementId(encodedPscStatementId);
+        if (source.getPscId() != null) {
+            target.setPscId(MapperUtils.encode(source.getPscId()));
+        }
+
+        mapData(target.getData(), source, encodedInternalId, encodedPscStatementId);
+        mapSensitiveData(target.getSensitiveData(), source);
+    }
+
+    private static void mapData(final Data target, final Psc source, final String encodedInternalId,
+            final String encodedPscStatementId) {
+        final Psc.KindEnum kind = source.getKind();
+
+        target.setEtag(GenerateEtagUtil.generateEtag());
+
+        if (source.getAddress() != null) {
+            target.getServiceAddress().setPremises(source.getAddress().getPremise());
+            target.getServiceAddress().setCareOf(source.getAddress().getCareOfName());
+        }
+        if (source.getPrincipalOfficeAddress() != null) {
+            target.getPrincipalOfficeAddress().setPremises(source.getPrincipalOfficeAddress().getPremise());
+        }
+
+        mapKindAndIdentification(target, source, kind);
+        mapName(target, source, kind);
+
+        if (kind == Psc.KindEnum.SUPER_SECURE) {
+            target.setDescription("super-secure-persons-with-significant-control");
+        } else if (kind == Psc.KindEnum.SUPER_SECURE_BENEFICIAL_OWNER) {
+            target.setDescription("super-secure-beneficial-owner");
+        }
+
+        if (source.getSanctionInd() == Psc.SanctionIndEnum._0) {
+            target.setIsSanctioned(false);
+        } else if (source.getSanctionInd() == Psc.SanctionIndEnum._1) {
+            target.setIsSanctioned(true);
+        }
+
+        final ItemLinkTypes links = new ItemLinkTypes();
+        links.setSelf(SELF_LINK.expand(source.getCompanyNumber(), kind.toString(), encodedInternalId));
+        if (encodedPscStatementId != null) {
+            links.setStatement(STATEMENT_LINK.expand(source.getCompanyNumber(), encodedPscStatementId));
+        }
+        target.setLinks(Collections.singletonList(links));
+
+        if (source.getCeasedOn() != null) {
+            target.setCeasedOn(parseLocalDate(source.getCeasedOn()));
+        }
+
+        if (source.getServiceAddressSameAsRegisteredAddress() != null) {
+            target.setServiceAddressSameAsRegisteredOfficeAddress(
+                    YES.equals(source.getServiceAddressSameAsRegisteredAddress().toString()));
+        }
+
+        mapIdentityVerificationDetails(target, source, kind);
+    }
+
+    /**
+     * Identification is only created for kinds that carry it and only when at least one of its fields is present,
+     * so an empty object is never persisted to Mongo.
+     */
+    private static void mapKindAndIdentification(final Data target, final Psc source, final Psc.KindEnum kind) {
+        switch (kind) {
+            case INDIVIDUAL -> target.setKind("individual-person-with-significant-control");
+            case CORPORATE_ENTITY -> {
+                target.setKind("corporate-entity-person-with-significant-control");
+                target.setIdentification(corporateIdentification(source));
+            }
+            case LEGAL_PERSON -> {
+                target.setKind("legal-person-person-with-significant-control");
+                target.setIdentification(legalPersonIdentification(source));
+            }
+            case SUPER_SECURE -> target.setKind("super-secure-person-with-significant-control");
+            case INDIVIDUAL_BENEFICIAL_OWNER -> target.setKind("individual-beneficial-owner");
+            case CORPORATE_ENTITY_BENEFICIAL_OWNER -> {
+                target.setKind("corporate-entity-beneficial-owner");
+                target.setIdentification(corporateIdentification(source));
+            }
+            case LEGAL_PERSON_BENEFICIAL_OWNER -> {
+                target.setKind("legal-person-beneficial-owner");
+                target.setIdentification(legalPersonIdentification(source));
+            }
+            case SUPER_SECURE_BENEFICIAL_OWNER -> target.setKind("super-secure-beneficial-owner");
+            default -> {
+                // kind is left unset
+            }
+        }
+    }
+
+    private static Identification corporateIdentification(final Psc source) {
+        if (source.getLegalAuthority() == null && source.getLegalForm() == null
+                && source.getCountryRegistered() == null && source.getPlaceRegistered() == null
+                && source.getRegistrationNumber() == null) {
+            return null;
+        }
+        final Identification identification = new Identification();
+        identification.setLegalAuthority(source.getLegalAuthority());
+        identification.setLegalForm(source.getLegalForm());
+        identification.setCountryRegistered(source.getCountryRegistered());
+        identification.setPlaceRegistered(source.getPlaceRegistered());
+        identification.setRegistrationNumber(source.getRegistrationNumber());
+        return identification;
+    }
+
+    private static Identification legalPersonIdentification(final Psc source) {
+        if (source.getLegalAuthority() == null && source.getLegalForm() == null) {
+            return null;
+        }
+        final Identification identification = new Identification();
+        identification.setLegalAuthority(source.getLegalAuthority());
+        identification.setLegalForm(source.getLegalForm());
+        return identification;
+    }
+
+    private static void mapName(final Data target, final Psc source, final Psc.KindEnum kind) {
+        if (kind == Psc.KindEnum.INDIVIDUAL || kind == Psc.KindEnum.INDIVIDUAL_BENEFICIAL_OWNER) {
+            final NameElements nameElements = source.getNameElements();
+            if (nameElements != null) {
+                final StringBuilder name = new StringBuilder();
+                boolean first = appendNamePart(name, nameElements.getTitle(), true);
+                first = appendNamePart(name, nameElements.getForename(), first);
+                first = appendNamePart(name, nameElements.getMiddleName(), first);
+                appendNamePart(name, nameElements.getSurname(), first);
+                target.setName(name.toString());
+            }
+        } else {
+            target.setName(source.getName());
+        }
+    }
+
+    /**
+     * Appends a non-null name part, separated from any earlier part by a single space.
+     *
+     * @return whether the name is still empty of parts
+     */
+    private static boolean appendNamePart(final StringBuilder name, final String part, final boolean first) {
+        if (part == null) {
+            return first;
+        }
+        if (!first) {
+            name.append(' ');
+        }
+        name.append(part);
+        return false;
+    }
+
+    private static void mapIdentityVerificationDetails(final Data target, final Psc source,
+            final Psc.KindEnum kind) {
+        final var sourceDetails = source.getIdentityVerificationDetails();
+        if (sourceDetails == null) {
+            return;
+        }
+
+        final IdentityVerificationDetails details = new IdentityVerificationDetails();
+
+        if (kind != Psc.KindEnum.SUPER_SECURE) {
+            final String statementDate = sourceDetails.getAppointmentVerificationStatementDate();
+            if (statementDate != null) {
+                details.setAppointmentVerificationStatementDate(parseLocalDate(statementDate));
+            }
+            final String statementDueOn = sourceDetails.getAppointmentVerificationStatementDueOn();
+            if (statementDueOn != null) {
+                details.setAppointmentVerificationStatementDueOn(parseLocalDate(statementDueOn));
+            }
+            final String identityVerifiedOn = sourceDetails.getIdentityVerifiedOn();
+            if (identityVerifiedOn != null) {
+                details.setIdentityVerifiedOn(parseLocalDate(identityVerifiedOn));
+            }
+
+            details.setAuthorisedCorporateServiceProviderName(
+                    sourceDetails.getAuthorisedCorporateServiceProviderName());
+            details.setAntiMoneyLaunderingSupervisoryBodies(sourceDetails.getAntiMoneyLaunderingSupervisoryBodies());
+            details.setPreferredName(sourceDetails.getPreferredName());
+        }
+
+        final String endOn = sourceDetails.getAppointmentVerificationEndOn();
+        if (endOn != null) {
+            details.setAppointmentVerificationEndOn(parseLocalDate(endOn));
+        }
+        final String startOn = sourceDetails.getAppointmentVerificationStartOn();
+        if (startOn != null) {
+            details.setAppointmentVerificationStartOn(parseLocalDate(startOn));
+        }
+
+        target.setIdentityVerificationDetails(details);
+    }
+
+    private static void mapSensitiveData(final SensitiveData target, final Psc source) {
+        if (source.getResidentialAddressSameAsServiceAddress() != null) {
+            target.setResidentialAddressSameAsServiceAddress(
+                    YES.equals(source.getResidentialAddressSameAsServiceAddress().toString()));
+        }
+
+        if (source.getDateOfBirth() != null) {
+            final LocalDate parsed = parseLocalDate(source.getDateOfBirth());
+            final DateOfBirth dateOfBirth = new DateOfBirth();
+            dateOfBirth.setYear(parsed.getYear());
+            dateOfBirth.setMonth(parsed.getMonthValue());
+            dateOfBirth.setDay(parsed.getDayOfMonth());
+            target.setDateOfBirth(dateOfBirth);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package uk.gov.companieshouse.psc.delta.mapper;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Encodes ids for use in links and ids as the URL safe Base64 of the salted SHA-1 of the id. The same PSCs come
+ * through many times (several ids per delta, and again on replay), so encoded ids are held in a bounded cache that
+ * evicts the least used ids once it is full. Digests are borrowed from a small shared pool rather than held per
+ * thread, as in virtual thread mode nearly every delta is handled on a new thread.
+ */
+public final class IdEncoder {
+
+    static final long MAXIMUM_CACHE_SIZE = 10_000L;
+    static final int DIGEST_POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
+
+    private static final byte[] SALT = "ks734s_sdgOc4£b2".getBytes(StandardCharsets.UTF_8);
+    private static final Base64.Encoder BASE64_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Queue<Sha1> SHA1_POOL = new ArrayBlockingQueue<>(DIGEST_POOL_SIZE);
+    private static final Cache<String, String> ENCODED_IDS = Caffeine.newBuilder()
+            .maximumSize(MAXIMUM_CACHE_SIZE)
+            .recordStats()
+            .build();
+
+    private IdEncoder() {
+    }
+
+    /**
+     * Encodes the id, from the cache where it has been encoded before. A null id is encoded as the string "null".
+     */
+    public static String encode(final String id) {
+        final String value = String.valueOf(id);
+        return ENCODED_IDS.get(value, IdEncoder::hash);
+    }
+
+    /**
+     * The cache of encoded ids, for binding its hit and miss statistics to metrics.
+     */
+    public static Cache<String, String> cache() {
+        return ENCODED_IDS;
+    }
+
+    /**
+     * Hashing never blocks, so no more digests are in use at once than there are threads running, and a pool of a
+     * few per processor is enough. A digest is only made when none is free, and only kept if the pool has room.
+     */
+    static String hash(final String value) {
+        Sha1 sha1 = SHA1_POOL.poll();
+        if (sha1 == null) {
+            sha1 = new Sha1();
+        }
+        try {
+            return BASE64_ENCODER.encodeToString(sha1.digest(value));
+        } finally {
+            SHA1_POOL.offer(sha1);
+        }
+    }
+
+    static int pooledDigests() {
+        return SHA1_POOL.size();
+    }
+
+    /**
+     * A SHA-1 digest and scratch buffers used by one thread at a time, so the id and salt are hashed without building
+     * a salted string or allocating a new digest for every id.
+     */
+    private static final class Sha1 {
+
+        private static final int HASH_LENGTH = 20;
+        private static final int MAX_ASCII_LENGTH = 64;
+
+        private final MessageDigest digest;
+        private final byte[] input = new byte[MAX_ASCII_LENGTH];
+        private final byte[] hash = new byte[HASH_LENGTH];
+
+        Sha1() {
+            try {
+                digest = MessageDigest.getInstance("SHA-1");
+            } catch (final NoSuchAlgorithmException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        /**
+         * Returns the hash of the value followed by the salt. The returned array is reused by the next call.
+         */
+        byte[] digest(final String value) {
+            if (!updateAscii(value)) {
+                digest.update(value.getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update(SALT);
+            try {
+                digest.digest(hash, 0, HASH_LENGTH);
+            } catch (final DigestException ex) {
+                digest.reset();
+                throw new IllegalStateException(ex);
+            }
+            return hash;
+        }
+
+        /**
+         * Ids are almost always short and ASCII, whose UTF-8 bytes are just their chars, so they are copied into
+         * the scratch buffer rather than encoded into a new array.
+         *
+         * @return false, without updating the digest, if the value is too long or not ASCII
+         */
+        private boolean updateAscii(final String value) {
+            final int length = value.length();
+            if (length > MAX_ASCII_LENGTH) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                final char c = value.charAt(i);
+                if (c > 0x7F) {
+                    return false;
+                }
+                input[i] = (byte) c;
+            }
+            digest.update(input, 0, length);
+            return true;
+        }
+    }
+}
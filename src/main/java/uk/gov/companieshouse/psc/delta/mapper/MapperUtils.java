@@ -1,29 +1,16 @@
 package uk.gov.companieshouse.psc.delta.mapper;
 
 import static java.util.Map.entry;
-import static uk.gov.companieshouse.psc.delta.PscDeltaConsumerApplication.NAMESPACE;
 
 import consumer.exception.NonRetryableErrorException;
 import java.time.LocalDate;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-import java.util.Base64;
-import java.util.Locale;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.Map;
-import org.apache.commons.codec.digest.DigestUtils;
-import uk.gov.companieshouse.logging.Logger;
-import uk.gov.companieshouse.logging.LoggerFactory;
-import uk.gov.companieshouse.psc.delta.logging.DataMapHolder;
+import uk.gov.companieshouse.api.delta.Psc.NaturesOfControlEnum;
 
 public final class MapperUtils {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(NAMESPACE);
-    private static final String TIME_START_OF_DAY = "000000";
-    private static final String DATETIME_PATTERN = "yyyyMMddHHmmss";
-    private static final DateTimeFormatter UTC_DATETIME_FORMATTER =
-            DateTimeFormatter.ofPattern(DATETIME_PATTERN, Locale.UK).withZone(ZoneId.of("UTC"));
-
     // Define constants for frequently used substrings
     private static final String AS_CONTROL_OVER_FIRM = "-as-control-over-firm";
     private static final String AS_CONTROL_OVER_TRUST = "-as-control-over-trust";
@@ -51,63 +38,83 @@ public final class MapperUtils {
     private static final String VOTING_RIGHTS = "voting-rights";
     private static final String RIGHT_TO_APPOINT_AND_REMOVE_PERSON = "right-to-appoint-and-remove-person";
 
+    // Built once at class load, after the substrings above
+    private static final Map<String, String> STANDARD_NATURES_OF_CONTROL = createNaturesOfControlMap();
+    private static final Map<String, String> LLP_NATURES_OF_CONTROL = createLlpNaturesOfControlMap();
+    private static final Map<String, String> ROE_NATURES_OF_CONTROL = createRoeNaturesOfControlMap();
+    private static final Map<NaturesOfControlEnum, String> STANDARD_NATURES_OF_CONTROL_LOOKUP =
+            toLookup(STANDARD_NATURES_OF_CONTROL);
+    private static final Map<NaturesOfControlEnum, String> LLP_NATURES_OF_CONTROL_LOOKUP =
+            toLookup(LLP_NATURES_OF_CONTROL);
+    private static final Map<NaturesOfControlEnum, String> ROE_NATURES_OF_CONTROL_LOOKUP =
+            toLookup(ROE_NATURES_OF_CONTROL);
+
     private MapperUtils() {
     }
 
     /**
-     * Parse a date string (expected format: DATE_PATTERN). Implementation note: Instant conversion requires input level of detail
-     * is Seconds, so TIME_START_OF_DAY is appended before conversion.
+     * Parse a date string (expected format: yyyyMMdd).
      *
      * @param rawDateString the date string
      * @return the LocalDate corresponding to the parsed string (at UTC by definition)
      * @throws NonRetryableErrorException if date parsing fails
+     * @see ChipsDates#parseDate(String)
      */
     public static LocalDate parseLocalDate(final String rawDateString)
             throws NonRetryableErrorException {
-        return convertToLocalDate(rawDateString + TIME_START_OF_DAY);
-    }
-
-    private static LocalDate convertToLocalDate(final String date) {
-        try {
-            return LocalDate.parse(date, UTC_DATETIME_FORMATTER);
-        } catch (final DateTimeParseException exception) {
-            final String msg = "Failed to parse date/time: [%s]".formatted(date);
-            LOGGER.error(msg, DataMapHolder.getLogMap());
-            throw new NonRetryableErrorException(msg, exception);
-        }
+        return ChipsDates.parseDate(rawDateString);
     }
 
     /**
      * encode the String passed in for use in links and ids.
+     *
+     * @see IdEncoder
      */
     public static String encode(final String unencodedString) {
-        final String salt = "ks734s_sdgOc4£b2";
-        return Base64.getUrlEncoder().withoutPadding().encodeToString(
-                DigestUtils.sha1(unencodedString + salt));
+        return IdEncoder.encode(unencodedString);
     }
 
     /**
-     * Create a hashmap for natures of control.
+     * Get the prebuilt natures of control table for the type of company, keyed on the delta natures of control name.
      */
     public static Map<String, String> getNaturesOfControlMap(final String companyNumber) {
-        if (companyNumber.length() < 2) {
-            return getNaturesOfControlMap();
-        } else {
-            final String typeCode = companyNumber.substring(0, 2);
-            if (typeCode.equals("SO") || typeCode.equals("NC") || typeCode.equals("OC")) {
-                return getLlpNaturesOfControlMap();
-            } else if (typeCode.equals("OE")) {
-                return getRoeNaturesOfControlMap();
-            } else {
-                return getNaturesOfControlMap();
+        return switch (CompanyType.of(companyNumber)) {
+            case LLP -> LLP_NATURES_OF_CONTROL;
+            case ROE -> ROE_NATURES_OF_CONTROL;
+            case STANDARD -> STANDARD_NATURES_OF_CONTROL;
+        };
+    }
+
+    /**
+     * Get the prebuilt natures of control lookup for the type of company, keyed on the delta natures of control
+     * enum.
+     */
+    public static Map<NaturesOfControlEnum, String> getNaturesOfControlLookup(final String companyNumber) {
+        return switch (CompanyType.of(companyNumber)) {
+            case LLP -> LLP_NATURES_OF_CONTROL_LOOKUP;
+            case ROE -> ROE_NATURES_OF_CONTROL_LOOKUP;
+            case STANDARD -> STANDARD_NATURES_OF_CONTROL_LOOKUP;
+        };
+    }
+
+    /**
+     * Create the lookup table once from a natures of control map, leaving out delta natures with no mapping.
+     */
+    private static Map<NaturesOfControlEnum, String> toLookup(final Map<String, String> naturesOfControlMap) {
+        final Map<NaturesOfControlEnum, String> lookup = new EnumMap<>(NaturesOfControlEnum.class);
+        for (final NaturesOfControlEnum nature : NaturesOfControlEnum.values()) {
+            final String mapped = naturesOfControlMap.get(nature.name());
+            if (mapped != null) {
+                lookup.put(nature, mapped);
             }
         }
+        return Collections.unmodifiableMap(lookup);
     }
 
     /**
      * Create a hashmap for natures of control.
      */
-    private static Map<String, String> getNaturesOfControlMap() {
+    private static Map<String, String> createNaturesOfControlMap() {
         return Map.<String, String>ofEntries( // explicitly specify Map types to avoid compilation and analysis slowdown for large argument lists
             entry("OWNERSHIPOFSHARES_25TO50PERCENT_AS_PERSON", OWNERSHIP_OF_SHARES + PERCENT_25_TO_50),
             entry("OWNERSHIPOFSHARES_50TO75PERCENT_AS_PERSON", OWNERSHIP_OF_SHARES + PERCENT_50_TO_75),
@@ -187,9 +194,16 @@ public final class MapperUtils {
     }
 
     /**
-     * Create a hashmap for natures of control llps.
+     * Get the prebuilt natures of control table for llps.
      */
     public static Map<String, String> getLlpNaturesOfControlMap() {
+        return LLP_NATURES_OF_CONTROL;
+    }
+
+    /**
+     * Create a hashmap for natures of control llps.
+     */
+    private static Map<String, String> createLlpNaturesOfControlMap() {
         return Map.ofEntries(
             entry("RIGHTTOSHARESURPLUSASSETS_25TO50PERCENT_AS_PERSON", RIGHT_TO_SHARE_SURPLUS_ASSETS + PERCENT_25_TO_50 + LIMITED_LIABILITY_PARTNERSHIP),
             entry("RIGHTTOSHARESURPLUSASSETS_50TO75PERCENT_AS_PERSON", RIGHT_TO_SHARE_SURPLUS_ASSETS + PERCENT_50_TO_75 + LIMITED_LIABILITY_PARTNERSHIP),
@@ -221,7 +235,7 @@ public final class MapperUtils {
     /**
      * Create a hashmap for natures of control ROEs.
      */
-    private static Map<String, String> getRoeNaturesOfControlMap() {
+    private static Map<String, String> createRoeNaturesOfControlMap() {
         return Map.ofEntries(
             entry("OE_OWNERSHIPOFSHARES_MORETHAN25PERCENT_AS_PERSON", OWNERSHIP_OF_SHARES + MORE_THAN_25_PERCENT + REGISTERED_OVERSEAS_ENTITY),
             entry("OE_OWNERSHIPOFSHARES_MORETHAN25PERCENT_AS_TRUST", OWNERSHIP_OF_SHARES + MORE_THAN_25_PERCENT + AS_TRUST + REGISTERED_OVERSEAS_ENTITY),
@@ -1,32 +1,15 @@
 package uk.gov.companieshouse.psc.delta.mapper;
 
-import static uk.gov.companieshouse.psc.delta.mapper.MapperUtils.parseLocalDate;
-
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import org.mapstruct.AfterMapping;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
 import org.springframework.util.CollectionUtils;
-import uk.gov.companieshouse.GenerateEtagUtil;
-import uk.gov.companieshouse.api.delta.NameElements;
 import uk.gov.companieshouse.api.delta.Psc;
-import uk.gov.companieshouse.api.delta.PscAddress;
-import uk.gov.companieshouse.api.psc.Address;
 import uk.gov.companieshouse.api.psc.Data;
-import uk.gov.companieshouse.api.psc.DateOfBirth;
-import uk.gov.companieshouse.api.psc.ExternalData;
 import uk.gov.companieshouse.api.psc.FullRecordCompanyPSCApi;
-import uk.gov.companieshouse.api.psc.Identification;
-import uk.gov.companieshouse.api.psc.IdentityVerificationDetails;
-import uk.gov.companieshouse.api.psc.ItemLinkTypes;
-import uk.gov.companieshouse.api.psc.SensitiveData;
 
 @Mapper(componentModel = "spring")
 public interface PscMapper {
@@ -62,290 +45,14 @@ public interface PscMapper {
     FullRecordCompanyPSCApi mapPscData(Psc psc);
 
     /**
-     * encode internal_id and map to id and notification_id.
-     */
-    @AfterMapping
-    default void mapEncodedInternalId(@MappingTarget ExternalData target, Psc source) {
-        target.setId(MapperUtils.encode(source.getInternalId()));
-        target.setNotificationId(MapperUtils.encode(source.getInternalId()));
-        if (source.getPscStatementId() != null) {
-            target.setPscStatementId(MapperUtils.encode(source.getPscStatementId()));
-        } else {
-            target.setPscStatementId(null);
-        }
-
-    }
-
-    @AfterMapping
-    default void mapEtag(@MappingTarget Data target) {
-        target.setEtag(GenerateEtagUtil.generateEtag());
-    }
-
-    /**
-     * Invoked at the end of the auto-generated mapping methods.
+     * Maps every derived field in a single pass so values shared between fields are only computed once.
      *
-     * @param target the target PSC
-     * @param source the source PSC
-     */
-    @AfterMapping
-    default void mapAddressPremiseToPremises(@MappingTarget Data target, Psc source) {
-        Address serviceAddress = target.getServiceAddress();
-        Address principalOfficeAddress = target.getPrincipalOfficeAddress();
-        if (source.getAddress() != null) {
-            serviceAddress.setPremises(source.getAddress().getPremise());
-        }
-        if (source.getPrincipalOfficeAddress() != null) {
-            principalOfficeAddress.setPremises(source.getPrincipalOfficeAddress().getPremise());
-        }
-    }
-
-    /**
-     * Invoked at the end of the auto-generated mapping methods.
-     *
-     * @param target the target PSC
-     * @param source the source PSC
-     */
-    @AfterMapping
-    default void mapCareOf(@MappingTarget ExternalData target, Psc source) {
-        Data data = target.getData();
-        Address address = data.getServiceAddress();
-        PscAddress sourceAddress = source.getAddress();
-        if (source.getAddress() != null) {
-            address.setCareOf(sourceAddress.getCareOfName());
-            data.setServiceAddress(address);
-            target.setData(data);
-        }
-    }
-
-    /**
-     * Manually map Description for Super Secure.
-     *
-     * @param target Data object within FullRecordCompanyPSCApi object to map to
+     * @param target the mapped FullRecordCompanyPSCApi object
      * @param source Psc delta object that will be mapped from
      */
     @AfterMapping
-    default void mapSuperSecureDescription(@MappingTarget Data target, Psc source) {
-        if (source.getKind() == Psc.KindEnum.SUPER_SECURE) {
-            target.setDescription("super-secure-persons-with-significant-control");
-        } else if (source.getKind() == Psc.KindEnum.SUPER_SECURE_BENEFICIAL_OWNER) {
-            target.setDescription("super-secure-beneficial-owner");
-        }
-    }
-
-    /**
-     * Manually map Name.
-     *
-     * @param target Data object within FullRecordCompanyPSCApi object to map to
-     * @param source Psc delta object that will be mapped from
-     */
-    @AfterMapping
-    default void mapName(@MappingTarget Data target, Psc source) {
-        Psc.KindEnum kind = source.getKind();
-        if (kind.equals(Psc.KindEnum.INDIVIDUAL)
-                || kind.equals(Psc.KindEnum.INDIVIDUAL_BENEFICIAL_OWNER)) {
-            NameElements nameElements = source.getNameElements();
-            if (nameElements != null) {
-                target.setName(Stream.of(
-                                nameElements.getTitle(),
-                                nameElements.getForename(),
-                                nameElements.getMiddleName(),
-                                nameElements.getSurname())
-                        .filter(Objects::nonNull).collect(Collectors.joining(" ")));
-            }
-        } else {
-            target.setName(source.getName());
-        }
-    }
-
-    /**
-     * Manually map IsSanctioned.
-     *
-     * @param target Data object within FullRecordCompanyPSCApi object to map to
-     * @param source Psc delta object that will be mapped from
-     */
-    @AfterMapping
-    default void mapIsSanctioned(@MappingTarget Data target, Psc source) {
-        if (source.getSanctionInd() == Psc.SanctionIndEnum._0) {
-            target.setIsSanctioned(false);
-        } else if (source.getSanctionInd() == Psc.SanctionIndEnum._1) {
-            target.setIsSanctioned(true);
-        }
-        // else null
-    }
-
-    /**
-     * Manually map links.
-     *
-     * @param target Data object within FullRecordCompanyPSCApi object to map to
-     * @param source Psc delta object that will be mapped from
-     */
-    @AfterMapping
-    default void mapLinks(@MappingTarget Data target, Psc source) {
-        String encodedId = MapperUtils.encode(source.getInternalId());
-        ItemLinkTypes links = new ItemLinkTypes();
-        links.setSelf(String
-                .format("/company/%s/persons-with-significant-control/%s/%s",
-                        source.getCompanyNumber(),
-                        source.getKind(),
-                        encodedId));
-
-        if (source.getPscStatementId() != null) {
-            String encodedStatementId = MapperUtils.encode(source.getPscStatementId());
-            links.setStatement(String
-                    .format("/company/%s/persons-with-significant-control-statements/%s",
-                            source.getCompanyNumber(),
-                            encodedStatementId));
-        }
-        target.setLinks(Collections.singletonList(links));
-    }
-
-    /**
-     * Manually map kind.
-     *
-     * @param target Data object within FullRecordCompanyPSCApi object to map to
-     * @param source Psc delta object that will be mapped from
-     */
-    @AfterMapping
-    default void mapKindAndIdentification(@MappingTarget Data target, Psc source) {
-
-        Identification identification = new Identification();
-        target.setIdentification(identification);
-        switch (source.getKind()) {
-            case INDIVIDUAL:
-                target.setKind("individual-person-with-significant-control");
-                break;
-            case CORPORATE_ENTITY:
-                target.setKind("corporate-entity-person-with-significant-control");
-                identification.setLegalAuthority(source.getLegalAuthority());
-                identification.setLegalForm(source.getLegalForm());
-                identification.setCountryRegistered(source.getCountryRegistered());
-                identification.setPlaceRegistered(source.getPlaceRegistered());
-                identification.setRegistrationNumber(source.getRegistrationNumber());
-                break;
-            case LEGAL_PERSON:
-                target.setKind("legal-person-person-with-significant-control");
-                identification.setLegalAuthority(source.getLegalAuthority());
-                identification.setLegalForm(source.getLegalForm());
-                break;
-            case SUPER_SECURE:
-                target.setKind("super-secure-person-with-significant-control");
-                break;
-            case INDIVIDUAL_BENEFICIAL_OWNER:
-                target.setKind("individual-beneficial-owner");
-                break;
-            case CORPORATE_ENTITY_BENEFICIAL_OWNER:
-                target.setKind("corporate-entity-beneficial-owner");
-                identification.setLegalAuthority(source.getLegalAuthority());
-                identification.setLegalForm(source.getLegalForm());
-                identification.setCountryRegistered(source.getCountryRegistered());
-                identification.setPlaceRegistered(source.getPlaceRegistered());
-                identification.setRegistrationNumber(source.getRegistrationNumber());
-                break;
-            case LEGAL_PERSON_BENEFICIAL_OWNER:
-                target.setKind("legal-person-beneficial-owner");
-                identification.setLegalAuthority(source.getLegalAuthority());
-                identification.setLegalForm(source.getLegalForm());
-                break;
-            case SUPER_SECURE_BENEFICIAL_OWNER:
-                target.setKind("super-secure-beneficial-owner");
-                break;
-            default:
-        }
-    }
-
-    /**
-     * removes empty objects from the target to ensure they are not persisted to Mongo.
-     */
-    @AfterMapping
-    default void removeEmptyIdentificationObject(@MappingTarget Data target, Psc source) {
-        if (Objects.equals(target.getIdentification(), new Identification())) {
-            target.setIdentification(null);
-        }
-
-    }
-
-    /**
-     * Manually map CeasedOn.
-     *
-     * @param target Data object within FullRecordCompanyPSCApi object to map to
-     * @param source Psc delta object that will be mapped from
-     */
-    @AfterMapping
-    default void mapCeasedOn(@MappingTarget Data target, Psc source) {
-        if (source.getCeasedOn() != null) {
-            target.setCeasedOn(parseLocalDate(source.getCeasedOn()));
-        }
-    }
-
-    /**
-     * encode psc_id.
-     */
-    @AfterMapping
-    default void mapEncodedPscId(@MappingTarget ExternalData target, Psc source) {
-        if (source.getPscId() != null) {
-            target.setPscId(MapperUtils.encode(source.getPscId()));
-        }
-    }
-
-    /**
-     * Manually map ServiceAddressSameAsRegisteredAddress.
-     *
-     * @param target Data object within FullRecordCompanyPSCApi object to map to
-     * @param source Psc delta object that will be mapped from
-     */
-    @AfterMapping
-    default void mapServiceAddressSameAsRegisteredAddress(@MappingTarget Data target, Psc source) {
-        Psc.ServiceAddressSameAsRegisteredAddressEnum registeredAddressEnum =
-                source.getServiceAddressSameAsRegisteredAddress();
-
-        if (registeredAddressEnum != null) {
-            target.setServiceAddressSameAsRegisteredOfficeAddress(
-                    registeredAddressEnum.toString().equals("Y"));
-        }
-    }
-
-    /**
-     * Manually map ResidentialAddressSameAsServiceAddress.
-     *
-     * @param target Data object within FullRecordCompanyPSCApi object to map to
-     * @param source Psc delta object that will be mapped from
-     */
-    @AfterMapping
-    default void mapResidentialAddressSameAsServiceAddress(
-            @MappingTarget SensitiveData target, Psc source) {
-        Psc.ResidentialAddressSameAsServiceAddressEnum serviceAddressEnum =
-                source.getResidentialAddressSameAsServiceAddress();
-
-        if (serviceAddressEnum != null) {
-            target.setResidentialAddressSameAsServiceAddress(
-                    serviceAddressEnum.toString().equals("Y"));
-        }
-    }
-
-    /**
-     * Manually map Date of Birth.
-     *
-     * @param target SensitiveData object within FullRecordCompanyPSCApi object to map to
-     * @param source Psc delta object that will be mapped from
-     */
-    @AfterMapping
-    default void mapDateOfBirth(@MappingTarget SensitiveData target, Psc source) {
-
-        if (source.getDateOfBirth() != null) {
-            DateOfBirth dateOfBirth = new DateOfBirth();
-            String year = String.valueOf((parseLocalDate(source.getDateOfBirth()))
-                    .getYear());
-            String month = String.valueOf((parseLocalDate(source.getDateOfBirth()))
-                    .getMonthValue());
-            String day = String.valueOf((parseLocalDate(source.getDateOfBirth()))
-                    .getDayOfMonth());
-
-            dateOfBirth.setYear(Integer.parseInt(year));
-            dateOfBirth.setMonth(Integer.parseInt(month));
-            dateOfBirth.setDay(Integer.parseInt(day));
-
-            target.setDateOfBirth(dateOfBirth);
-        }
+    default void mapDerivedFields(@MappingTarget FullRecordCompanyPSCApi target, Psc source) {
+        DerivedFieldMapper.map(target.getExternalData(), source);
     }
 
     /**
@@ -354,52 +61,16 @@ public interface PscMapper {
      * @param target Data object within FullRecordCompanyPSCApi object to map to
      * @param source Psc delta object that will be mapped from.
      */
-
     @AfterMapping
     default void mapNaturesOfControl(@MappingTarget final Data target, final Psc source) {
         if (!CollectionUtils.isEmpty(source.getNaturesOfControl())) {
-            final var naturesOfControlMap = MapperUtils.getNaturesOfControlMap(source.getCompanyNumber());
-            final List<String> mappedNaturesOfControl = source.getNaturesOfControl().stream()
-                .map(nature -> naturesOfControlMap.get(nature.name()))
-                .collect(Collectors.toCollection(ArrayList::new));
+            final var naturesOfControlLookup = MapperUtils.getNaturesOfControlLookup(source.getCompanyNumber());
+            final List<String> mappedNaturesOfControl = new ArrayList<>(source.getNaturesOfControl().size());
+            for (final Psc.NaturesOfControlEnum nature : source.getNaturesOfControl()) {
+                mappedNaturesOfControl.add(naturesOfControlLookup.get(nature));
+            }
 
             target.setNaturesOfControl(mappedNaturesOfControl);
         }
     }
-
-    /**
-     * Manually map IdentityVerificationDetails.
-     *
-     * @param target Data object within FullRecordCompanyPSCApi object to map to
-     * @param source Psc delta object that will be mapped from.
-     */
-    @AfterMapping
-    default void mapIdentityVerificationDetails(@MappingTarget Data target, Psc source) {
-        var sourceDetails = source.getIdentityVerificationDetails();
-        if (sourceDetails == null) return;
-
-        IdentityVerificationDetails details = new IdentityVerificationDetails();
-
-        Optional<String> appointmentVerificationEndOn = Optional.ofNullable(sourceDetails.getAppointmentVerificationEndOn());
-        Optional<String> appointmentVerificationStatementDate = Optional.ofNullable(sourceDetails.getAppointmentVerificationStatementDate());
-        Optional<String> appointmentVerificationStatementDueOn = Optional.ofNullable(sourceDetails.getAppointmentVerificationStatementDueOn());
-        Optional<String> appointmentVerificationStartOn = Optional.ofNullable(sourceDetails.getAppointmentVerificationStartOn());
-        Optional<String> identityVerifiedOn = Optional.ofNullable(sourceDetails.getIdentityVerifiedOn());
-
-        if (source.getKind() != Psc.KindEnum.SUPER_SECURE) {
-            appointmentVerificationStatementDate.ifPresent(dateString -> details.setAppointmentVerificationStatementDate(parseLocalDate(dateString)));
-            appointmentVerificationStatementDueOn.ifPresent(dateString -> details.setAppointmentVerificationStatementDueOn(parseLocalDate(dateString)));
-            appointmentVerificationStartOn.ifPresent(dateString -> details.setAppointmentVerificationStartOn(parseLocalDate(dateString)));
-            identityVerifiedOn.ifPresent(dateString -> details.setIdentityVerifiedOn(parseLocalDate(dateString)));
-
-            details.setAuthorisedCorporateServiceProviderName(sourceDetails.getAuthorisedCorporateServiceProviderName());
-            details.setAntiMoneyLaunderingSupervisoryBodies(sourceDetails.getAntiMoneyLaunderingSupervisoryBodies());
-            details.setPreferredName(sourceDetails.getPreferredName());
-        }
-
-        appointmentVerificationEndOn.ifPresent(dateString -> details.setAppointmentVerificationEndOn(parseLocalDate(dateString)));
-        appointmentVerificationStartOn.ifPresent(dateString -> details.setAppointmentVerificationStartOn(parseLocalDate(dateString)));
-
-        target.setIdentityVerificationDetails(details);
-    }
 }
@@ -0,0 +1,212 @@
+package uk.gov.companieshouse.psc.delta.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records the metrics of the delta pipeline, published through the actuator metrics endpoint:
+ * <ul>
+ *     <li>{@value #STAGE_DURATION} - time spent deserialising, transforming and calling the API, by stage</li>
+ *     <li>{@value #DELTAS} - deltas received, by PSC kind and operation</li>
+ *     <li>{@value #PROCESSING_DURATION} - time to process a delta end to end, by operation and outcome</li>
+ *     <li>{@value #RETRY_ATTEMPTS} - the retry a delta was on when an attempt finished, by outcome</li>
+ *     <li>{@value #API_RESPONSES} - PSC data API responses, by operation and status code</li>
+ *     <li>{@value #API_FAILURES} - failed PSC data API calls, by operation, status code and whether retryable</li>
+ *     <li>{@value #LANE_WAIT} - time a PSC data API call waited in its priority lane to be started, by lane</li>
+ *     <li>{@value #LANE_LATENCY} - time from a call entering its priority lane until it completed, by lane</li>
+ *     <li>{@value #COALESCED} - deltas skipped as superseded by a newer delta in the same batch, by operation</li>
+ *     <li>{@value #DEDUP_LOOKUPS} - lookups of deltas in the applied delta cache, by operation and hit or miss</li>
+ *     <li>{@value #API_CONCURRENCY_LIMIT} - the adaptive limit on PSC data API calls in flight at once</li>
+ *     <li>{@value #API_IN_FLIGHT} - the PSC data API calls in flight</li>
+ *     <li>{@value #API_CIRCUIT_OPEN} - 1 while the PSC data API circuit breaker is open or half-open, else 0</li>
+ * </ul>
+ * Consumer lag is published by the Kafka consumer metrics bound in the Kafka config.
+ */
+@Component
+public class DeltaMetrics {
+
+    static final String STAGE_DURATION = "psc.delta.stage.duration";
+    static final String DELTAS = "psc.delta.received";
+    static final String PROCESSING_DURATION = "psc.delta.processing.duration";
+    static final String RETRY_ATTEMPTS = "psc.delta.retry.attempts";
+    static final String API_RESPONSES = "psc.delta.api.responses";
+    static final String API_FAILURES = "psc.delta.api.failures";
+    static final String LANE_WAIT = "psc.delta.lane.wait";
+    static final String LANE_LATENCY = "psc.delta.lane.latency";
+    static final String COALESCED = "psc.delta.coalesced";
+    static final String DEDUP_LOOKUPS = "psc.delta.dedup.lookups";
+    static final String API_CONCURRENCY_LIMIT = "psc.delta.api.concurrency.limit";
+    static final String API_IN_FLIGHT = "psc.delta.api.in-flight";
+    static final String API_CIRCUIT_OPEN = "psc.delta.api.circuit.open";
+    static final String UNKNOWN = "unknown";
+
+    private final MeterRegistry registry;
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+    private final Map<Lane, Timer> laneWaitTimers = new EnumMap<>(Lane.class);
+    private final Map<Lane, Timer> laneLatencyTimers = new EnumMap<>(Lane.class);
+
+    public DeltaMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder(STAGE_DURATION)
+                    .description("Time spent in each stage of processing a delta")
+                    .tag("stage", stage.getTag())
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        for (Lane lane : Lane.values()) {
+            laneWaitTimers.put(lane, Timer.builder(LANE_WAIT)
+                    .description("Time a PSC data API call waited in its priority lane before it was started")
+                    .tag("lane", lane.getTag())
+                    .publishPercentileHistogram()
+                    .register(registry));
+            laneLatencyTimers.put(lane, Timer.builder(LANE_LATENCY)
+                    .description("Time from a PSC data API call entering its priority lane until it completed")
+                    .tag("lane", lane.getTag())
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+    public Timer.Sample startTimer() {
+        return Timer.start(registry);
+    }
+
+    public void recordStage(Timer.Sample sample, Stage stage) {
+        sample.stop(stageTimers.get(stage));
+    }
+
+    /**
+     * @param sample started when the call entered its lane
+     * @param lane   the lane the call was queued in
+     */
+    public void recordLaneWait(Timer.Sample sample, Lane lane) {
+        sample.stop(laneWaitTimers.get(lane));
+    }
+
+    /**
+     * @param sample started when the call entered its lane
+     * @param lane   the lane the call was queued in
+     */
+    public void recordLaneLatency(Timer.Sample sample, Lane lane) {
+        sample.stop(laneLatencyTimers.get(lane));
+    }
+
+    public void countDelta(String kind, Operation operation) {
+        Counter.builder(DELTAS)
+                .description("Deltas received")
+                .tag("kind", kind != null ? kind : UNKNOWN)
+                .tag("operation", operation.name())
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Records the end of an attempt to process a delta.
+     *
+     * @param sample     started when the delta was received
+     * @param operation  the operation the delta results in
+     * @param outcome    how the attempt ended
+     * @param retryCount the number of earlier attempts at the delta
+     */
+    public void recordProcessed(Timer.Sample sample, Operation operation, Outcome outcome, int retryCount) {
+        sample.stop(Timer.builder(PROCESSING_DURATION)
+                .description("Time to process a delta")
+                .tag("operation", operation.name())
+                .tag("outcome", outcome.getTag())
+                .publishPercentileHistogram()
+                .register(registry));
+        DistributionSummary.builder(RETRY_ATTEMPTS)
+                .description("Retry a delta was on when an attempt at it finished")
+                .tag("outcome", outcome.getTag())
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(retryCount);
+    }
+
+    /**
+     * Records a call to the PSC data API, as an API call stage and a response with the given status.
+     *
+     * @param sample     started before the call was made
+     * @param operation  the operation called
+     * @param statusCode the response status code, or null if no response was received
+     */
+    public void recordApiCall(Timer.Sample sample, Operation operation, Integer statusCode) {
+        recordStage(sample, Stage.API_CALL);
+        Counter.builder(API_RESPONSES)
+                .description("PSC data API responses")
+                .tag("operation", operation.name())
+                .tag("status", statusCode != null ? String.valueOf(statusCode) : UNKNOWN)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Counts a failed PSC data API call by the outcome the response handler sorted it into.
+     *
+     * @param operation  the operation that failed
+     * @param statusCode the status of the failed response
+     * @param outcome    whether the failure is retryable
+     */
+    public void countApiFailure(Operation operation, int statusCode, Outcome outcome) {
+        Counter.builder(API_FAILURES)
+                .description("Failed PSC data API calls")
+                .tag("operation", operation.name())
+                .tag("status", String.valueOf(statusCode))
+                .tag("outcome", outcome.getTag())
+                .register(registry)
+                .increment();
+    }
+
+    public void countCoalesced(Operation operation) {
+        Counter.builder(COALESCED)
+                .description("Deltas skipped as superseded by a newer delta in the same batch")
+                .tag("operation", operation.name())
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Records a lookup in the applied delta cache. The hit rate is the share of lookups that were hits, each a delta
+     * skipped as already applied.
+     *
+     * @param operation the operation the delta results in
+     * @param hit       whether the delta had already been applied
+     */
+    public void countDedupLookup(Operation operation, boolean hit) {
+        Counter.builder(DEDUP_LOOKUPS)
+                .description("Lookups of deltas in the applied delta cache")
+                .tag("operation", operation.name())
+                .tag("result", hit ? "hit" : "miss")
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Publishes the adaptive limit on PSC data API calls in flight, and the number in flight, as gauges.
+     *
+     * @param limit    the current limit
+     * @param inFlight the calls in flight
+     */
+    public void gaugeApiConcurrency(Supplier<Number> limit, Supplier<Number> inFlight) {
+        Gauge.builder(API_CONCURRENCY_LIMIT, limit)
+                .description("Adaptive limit on PSC data API calls in flight at once")
+                .register(registry);
+        Gauge.builder(API_IN_FLIGHT, inFlight)
+                .description("PSC data API calls in flight")
+                .register(registry);
+    }
+
+    public void gaugeCircuitOpen(Supplier<Number> open) {
+        Gauge.builder(API_CIRCUIT_OPEN, open)
+                .description("Whether the PSC data API circuit breaker is open or half-open")
+                .register(registry);
+    }
+}
@@ -0,0 +1,23 @@
+package uk.gov.companieshouse.psc.delta.metrics;
+
+/**
+ * The priority lane a delta's PSC data API call is queued in, when deletes and upserts are scheduled apart.
+ */
+public enum Lane {
+    DELETE("delete"),
+    UPSERT("upsert");
+
+    private final String tag;
+
+    Lane(String tag) {
+        this.tag = tag;
+    }
+
+    public static Lane of(boolean isDelete) {
+        return isDelete ? DELETE : UPSERT;
+    }
+
+    String getTag() {
+        return tag;
+    }
+}
@@ -0,0 +1,14 @@
+package uk.gov.companieshouse.psc.delta.metrics;
+
+/**
+ * The PSC data API operation a delta results in, or BULK for a bulk request carrying several.
+ */
+public enum Operation {
+    PUT,
+    DELETE,
+    BULK;
+
+    public static Operation of(boolean isDelete) {
+        return isDelete ? DELETE : PUT;
+    }
+}
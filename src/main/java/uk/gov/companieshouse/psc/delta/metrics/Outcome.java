@@ -0,0 +1,33 @@
+package uk.gov.companieshouse.psc.delta.metrics;
+
+import consumer.exception.NonRetryableErrorException;
+import consumer.exception.RetryableErrorException;
+
+/**
+ * How an attempt to process a delta ended.
+ */
+public enum Outcome {
+    SUCCESS("success"),
+    RETRYABLE_ERROR("retryable-error"),
+    NON_RETRYABLE_ERROR("non-retryable-error"),
+    ERROR("error");
+
+    private final String tag;
+
+    Outcome(String tag) {
+        this.tag = tag;
+    }
+
+    public static Outcome of(Throwable ex) {
+        if (ex instanceof RetryableErrorException) {
+            return RETRYABLE_ERROR;
+        } else if (ex instanceof NonRetryableErrorException) {
+            return NON_RETRYABLE_ERROR;
+        }
+        return ERROR;
+    }
+
+    String getTag() {
+        return tag;
+    }
+}
@@ -0,0 +1,20 @@
+package uk.gov.companieshouse.psc.delta.metrics;
+
+/**
+ * The stages a delta passes through, each timed separately.
+ */
+public enum Stage {
+    DESERIALISE("deserialise"),
+    TRANSFORM("transform"),
+    API_CALL("api-call");
+
+    private final String tag;
+
+    Stage(String tag) {
+        this.tag = tag;
+    }
+
+    String getTag() {
+        return tag;
+    }
+}
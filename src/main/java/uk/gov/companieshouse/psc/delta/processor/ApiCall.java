@@ -0,0 +1,13 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * The PSC data API call a delta has been bound and transformed into, ready to be sent.
+ *
+ * @param companyNumber the company the delta is for, which calls are kept in order by
+ * @param send          starts the call, returning a future completed with its outcome
+ */
+public record ApiCall(String companyNumber, Supplier<CompletableFuture<Void>> send) {
+}
@@ -0,0 +1,216 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import static uk.gov.companieshouse.psc.delta.PscDeltaConsumerApplication.NAMESPACE;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.delta.ChsDelta;
+import uk.gov.companieshouse.logging.Logger;
+import uk.gov.companieshouse.logging.LoggerFactory;
+import uk.gov.companieshouse.psc.delta.logging.DataMapHolder;
+import uk.gov.companieshouse.psc.delta.metrics.DeltaMetrics;
+import uk.gov.companieshouse.psc.delta.metrics.Operation;
+
+/**
+ * Remembers the deltas that have recently been applied to the PSC data API, so a delta seen again, after a
+ * rebalance or from the retry topic, is skipped rather than transformed and sent again. A delta is keyed on its
+ * context id, PSC notification and delta_at, and is only remembered once its API call has succeeded.
+ *
+ * <p>The cache is bounded and each delta is forgotten once the expiry has passed since it was applied. If a store
+ * path is set the cache is saved there on shutdown and loaded again on startup, so it survives a redeploy; a delta
+ * applied but not saved, e.g. before a crash, is simply sent again.
+ *
+ * <p>Nothing is sent to the API during a dry run, so no delta is remembered as applied; deltas remembered before
+ * are still skipped.
+ */
+@Component
+public class AppliedDeltaCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NAMESPACE);
+    private static final char SEPARATOR = ' ';
+
+    private final boolean enabled;
+    private final boolean dryRun;
+    private final long expireAfterMillis;
+    private final Path storePath;
+    private final JsonFactory jsonFactory;
+    private final DeltaMetrics deltaMetrics;
+    private final Clock clock;
+    private final Cache<String, Long> appliedAt;
+
+    public AppliedDeltaCache(@Value("${pscs.delta.dedup.enabled}") boolean enabled,
+            @Value("${pscs.delta.dedup.max-size}") long maxSize,
+            @Value("${pscs.delta.dedup.expire-after-ms}") long expireAfterMillis,
+            @Value("${pscs.delta.dedup.store-path}") String storePath,
+            @Value("${pscs.delta.dry-run.enabled}") boolean dryRun,
+            ObjectMapper objectMapper, DeltaMetrics deltaMetrics) {
+        this(enabled, maxSize, expireAfterMillis, storePath, dryRun, objectMapper, deltaMetrics, Clock.systemUTC());
+    }
+
+    AppliedDeltaCache(boolean enabled, long maxSize, long expireAfterMillis, String storePath, boolean dryRun,
+            ObjectMapper objectMapper, DeltaMetrics deltaMetrics, Clock clock) {
+        this.enabled = enabled;
+        this.dryRun = dryRun;
+        this.expireAfterMillis = expireAfterMillis;
+        this.storePath = storePath == null || storePath.isBlank() ? null : Path.of(storePath);
+        this.jsonFactory = objectMapper.getFactory();
+        this.deltaMetrics = deltaMetrics;
+        this.clock = clock;
+        this.appliedAt = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Long>() {
+                    @Override
+                    public long expireAfterCreate(String key, Long value, long currentTime) {
+                        return remainingNanos(value);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Long value, long currentTime, long currentDuration) {
+                        return remainingNanos(value);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Long value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        if (enabled && this.storePath != null) {
+            load();
+        }
+    }
+
+    /**
+     * Reads the fields the delta is keyed on, without binding it. Nothing is read while the cache is disabled.
+     */
+    DeltaSummary summarise(Message<ChsDelta> message) {
+        return enabled ? DeltaSummary.read(jsonFactory, message) : DeltaSummary.INVALID;
+    }
+
+    /**
+     * Whether the delta has already been applied, counting the lookup as a hit or a miss. A delta that cannot be
+     * keyed is never applied.
+     */
+    boolean isApplied(DeltaSummary summary) {
+        String key = key(summary);
+        if (key == null) {
+            return false;
+        }
+        boolean applied = appliedAt.getIfPresent(key) != null;
+        deltaMetrics.countDedupLookup(Operation.of(summary.delete()), applied);
+        if (applied) {
+            LOGGER.info("Skipping delta already applied to PSC data API", DataMapHolder.getLogMap());
+        }
+        return applied;
+    }
+
+    void markApplied(DeltaSummary summary) {
+        String key = key(summary);
+        if (key != null && !dryRun) {
+            appliedAt.put(key, clock.millis());
+        }
+    }
+
+    /**
+     * Wraps an asynchronous API call so the delta is remembered once the call has succeeded.
+     */
+    Supplier<CompletableFuture<Void>> markingApplied(DeltaSummary summary, Supplier<CompletableFuture<Void>> send) {
+        if (key(summary) == null || dryRun) {
+            return send;
+        }
+        return () -> send.get().thenRun(() -> markApplied(summary));
+    }
+
+    long size() {
+        appliedAt.cleanUp();
+        return appliedAt.estimatedSize();
+    }
+
+    /**
+     * Saves the deltas still remembered to the store, replacing it whole so a shutdown part way through leaves the
+     * previous store in place.
+     */
+    @PreDestroy
+    void save() {
+        if (!enabled || storePath == null) {
+            return;
+        }
+        try {
+            Path tempFile = storePath.resolveSibling(storePath.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Long> entry : appliedAt.asMap().entrySet()) {
+                    writer.write(Long.toString(entry.getValue()));
+                    writer.write(SEPARATOR);
+                    writer.write(entry.getKey());
+                    writer.newLine();
+                }
+            }
+            Files.move(tempFile, storePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.info("Saved %d applied deltas to %s".formatted(appliedAt.estimatedSize(), storePath),
+                    DataMapHolder.getLogMap());
+        } catch (IOException ex) {
+            LOGGER.error("Failed to save applied deltas to %s".formatted(storePath), ex, DataMapHolder.getLogMap());
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(storePath)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(storePath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf(SEPARATOR);
+                if (separator > 0) {
+                    long applied = Long.parseLong(line, 0, separator, 10);
+                    if (remainingNanos(applied) > 0) {
+                        appliedAt.put(line.substring(separator + 1), applied);
+                    }
+                }
+            }
+            LOGGER.info("Loaded %d applied deltas from %s".formatted(appliedAt.estimatedSize(), storePath),
+                    DataMapHolder.getLogMap());
+        } catch (IOException | NumberFormatException ex) {
+            LOGGER.error("Failed to load applied deltas from %s".formatted(storePath), ex,
+                    DataMapHolder.getLogMap());
+        }
+    }
+
+    private long remainingNanos(long appliedAtMillis) {
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0L, appliedAtMillis + expireAfterMillis - clock.millis()));
+    }
+
+    /**
+     * The context id, notification and delta_at of the delta, or null if the cache is disabled or the delta is
+     * missing any of them. The notification id is encoded from the internal id, so the internal id stands for it.
+     */
+    private String key(DeltaSummary summary) {
+        if (!enabled) {
+            return null;
+        }
+        String notificationKey = summary.notificationKey();
+        if (notificationKey == null) {
+            return null;
+        }
+        return summary.contextId() + '/' + notificationKey + '/' + summary.deltaAt();
+    }
+}
@@ -0,0 +1,117 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.TreeMap;
+
+/**
+ * How far a bulk load has got, saved to a file so an interrupted load can resume. Deltas are loaded in parallel and
+ * so complete out of order; the checkpoint is the position of the first delta not yet completed, and every delta
+ * before it has completed. A delta that fails to load is never completed, so the checkpoint never moves past it.
+ * Input files are loaded in name order, so the position is the name of a file and the number of deltas in it to skip.
+ */
+final class BulkLoadCheckpoint {
+
+    private static final char SEPARATOR = '\t';
+
+    private final Path path;
+    private final Position resumeFrom;
+    private final TreeMap<Long, Position> pending = new TreeMap<>();
+    private Position next;
+    private Position saved;
+    private long nextSequence;
+
+    /**
+     * @param file   the name of an input file
+     * @param record the number of deltas in the file before this position
+     */
+    record Position(String file, long record) {
+
+        /**
+         * Whether the delta at the given position comes before this one, and so has already been loaded.
+         */
+        boolean covers(String otherFile, long otherRecord) {
+            int compared = otherFile.compareTo(file);
+            return compared < 0 || (compared == 0 && otherRecord < record);
+        }
+    }
+
+    private BulkLoadCheckpoint(Path path, Position saved) {
+        this.path = path;
+        this.resumeFrom = saved;
+        this.saved = saved;
+        this.next = saved;
+    }
+
+    /**
+     * Reads the checkpoint saved at the path, if there is one.
+     *
+     * @param path where the checkpoint is saved, or null not to save one
+     */
+    static BulkLoadCheckpoint load(Path path) throws IOException {
+        if (path == null || !Files.exists(path)) {
+            return new BulkLoadCheckpoint(path, null);
+        }
+        String line = Files.readString(path, StandardCharsets.UTF_8).strip();
+        int separator = line.lastIndexOf(SEPARATOR);
+        if (separator < 0) {
+            throw new IOException("Invalid bulk load checkpoint [%s] in %s".formatted(line, path));
+        }
+        try {
+            return new BulkLoadCheckpoint(path,
+                    new Position(line.substring(0, separator), Long.parseLong(line.substring(separator + 1))));
+        } catch (NumberFormatException ex) {
+            throw new IOException("Invalid bulk load checkpoint [%s] in %s".formatted(line, path), ex);
+        }
+    }
+
+    /**
+     * The position the load resumes from, or null to load every delta.
+     */
+    Position resumeFrom() {
+        return resumeFrom;
+    }
+
+    /**
+     * Records that the delta at the position has started loading.
+     *
+     * @return the sequence number to complete the delta with
+     */
+    synchronized long started(String file, long record) {
+        long sequence = nextSequence++;
+        pending.put(sequence, new Position(file, record));
+        next = new Position(file, record + 1);
+        return sequence;
+    }
+
+    synchronized void completed(long sequence) {
+        pending.remove(sequence);
+    }
+
+    /**
+     * Saves the position of the first delta not yet completed, if it has moved on since last saved. The file is
+     * replaced whole, so a load stopped while saving keeps the previous checkpoint.
+     */
+    void save() {
+        Position position;
+        synchronized (this) {
+            position = pending.isEmpty() ? next : pending.firstEntry().getValue();
+            if (path == null || position == null || position.equals(saved)) {
+                return;
+            }
+            saved = position;
+        }
+        try {
+            Path tempFile = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.writeString(tempFile, position.file() + SEPARATOR + position.record() + System.lineSeparator(),
+                    StandardCharsets.UTF_8);
+            Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to save bulk load checkpoint to %s".formatted(path), ex);
+        }
+    }
+}
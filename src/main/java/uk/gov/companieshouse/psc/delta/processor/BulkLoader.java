@@ -0,0 +1,252 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import static uk.gov.companieshouse.psc.delta.PscDeltaConsumerApplication.NAMESPACE;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import consumer.exception.RetryableErrorException;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.logging.Logger;
+import uk.gov.companieshouse.logging.LoggerFactory;
+import uk.gov.companieshouse.psc.delta.logging.DataMapHolder;
+
+/**
+ * Loads PSC deltas from local files straight into the PSC data API, without going through Kafka, to rebuild the PSC
+ * data after an incident. Runs in place of the consumer under the bulk-load profile, and exits once every file has
+ * been loaded with the exit code reported here:
+ * <pre>
+ * java -jar psc-delta-consumer.jar --spring.profiles.active=bulk-load \
+ *     --pscs.delta.bulk-load.input=/data/pscs --pscs.delta.bulk-load.checkpoint=/data/pscs.checkpoint
+ * </pre>
+ *
+ * <p>The input is a file or a directory of files, loaded in name order. Each file holds the data of deltas as they
+ * are on the topic, a PSC delta or a PSC delete delta, either one after another or one per line; a file whose name
+ * ends in .gz is gunzipped as it is read. Deltas are transformed and sent by a pool of workers, keeping deltas for
+ * the same company in file order. A delta that fails with a retryable error is tried again after the backoff delay,
+ * up to the retry attempts; one that still fails is logged with its file and position, and the load carries on.
+ *
+ * <p>The checkpoint is saved every {@value #CHECKPOINT_INTERVAL} deltas and at the end. A load run again with the same
+ * checkpoint skips the deltas it had already completed; a few completed since the last save may be sent again. A
+ * delta that failed is never completed, so the checkpoint stops at the first one and a load run again tries it and
+ * every delta after it again.
+ */
+@Component
+@Profile("bulk-load")
+public class BulkLoader implements ApplicationRunner, ExitCodeGenerator {
+
+    static final int CHECKPOINT_INTERVAL = 1000;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NAMESPACE);
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final String PSCS_FIELD = "pscs";
+    private static final String COMPANY_NUMBER_FIELD = "company_number";
+
+    private final PscDeltaProcessor pscDeltaProcessor;
+    private final DeltaReader deltaReader;
+    private final ObjectReader nodeReader;
+    private final String input;
+    private final String checkpoint;
+    private final int workers;
+    private final int retryAttempts;
+    private final long backoffDelay;
+
+    private final AtomicLong loaded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean interrupted;
+
+    public BulkLoader(PscDeltaProcessor pscDeltaProcessor, DeltaReader deltaReader, ObjectMapper objectMapper,
+            @Value("${pscs.delta.bulk-load.input}") String input,
+            @Value("${pscs.delta.bulk-load.checkpoint}") String checkpoint,
+            @Value("${pscs.delta.bulk-load.workers}") int workers,
+            @Value("${pscs.delta.retry-attempts}") int retryAttempts,
+            @Value("${pscs.delta.backoff-delay}") long backoffDelay) {
+        this.pscDeltaProcessor = pscDeltaProcessor;
+        this.deltaReader = deltaReader;
+        this.nodeReader = objectMapper.readerFor(JsonNode.class);
+        this.input = input;
+        this.checkpoint = checkpoint;
+        this.workers = Math.max(1, workers);
+        this.retryAttempts = Math.max(1, retryAttempts);
+        this.backoffDelay = backoffDelay;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (input == null || input.isBlank()) {
+            throw new IllegalArgumentException("pscs.delta.bulk-load.input must be set to load PSC deltas");
+        }
+        load(Path.of(input), checkpoint == null || checkpoint.isBlank() ? null : Path.of(checkpoint));
+    }
+
+    @Override
+    public int getExitCode() {
+        return failed.get() > 0 || interrupted ? 1 : 0;
+    }
+
+    /**
+     * Loads every delta in the input not already covered by the checkpoint.
+     *
+     * @param inputPath      a file, or a directory of files
+     * @param checkpointPath where the checkpoint is saved, or null not to checkpoint
+     * @return the deltas loaded and the deltas that failed
+     */
+    BulkLoadResult load(Path inputPath, Path checkpointPath) throws IOException {
+        BulkLoadCheckpoint loadCheckpoint = BulkLoadCheckpoint.load(checkpointPath);
+        BulkLoadCheckpoint.Position resumeFrom = loadCheckpoint.resumeFrom();
+        if (resumeFrom != null) {
+            LOGGER.info("Resuming bulk load from %s".formatted(resumeFrom), DataMapHolder.getLogMap());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        KeyOrderedExecutor keyOrderedExecutor = new KeyOrderedExecutor(executor);
+        Semaphore inFlight = new Semaphore(workers * 2);
+        try {
+            for (Path file : inputFiles(inputPath)) {
+                String fileName = file.getFileName().toString();
+                if (resumeFrom != null && fileName.compareTo(resumeFrom.file()) < 0) {
+                    continue;
+                }
+                LOGGER.info("Loading PSC deltas from %s".formatted(file), DataMapHolder.getLogMap());
+                loadFile(file, fileName, resumeFrom, loadCheckpoint, keyOrderedExecutor, inFlight);
+            }
+            inFlight.acquire(workers * 2);
+            inFlight.release(workers * 2);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            interrupted = true;
+            LOGGER.error("Interrupted bulk load", DataMapHolder.getLogMap());
+        } finally {
+            executor.shutdown();
+            loadCheckpoint.save();
+        }
+        LOGGER.info("Bulk load finished: %d loaded, %d failed".formatted(loaded.get(), failed.get()),
+                DataMapHolder.getLogMap());
+        return new BulkLoadResult(loaded.get(), failed.get());
+    }
+
+    private void loadFile(Path file, String fileName, BulkLoadCheckpoint.Position resumeFrom,
+            BulkLoadCheckpoint loadCheckpoint, KeyOrderedExecutor keyOrderedExecutor, Semaphore inFlight)
+            throws IOException, InterruptedException {
+        try (InputStream inputStream = open(file);
+                MappingIterator<JsonNode> deltas = nodeReader.readValues(inputStream)) {
+            long record = 0;
+            while (deltas.hasNextValue()) {
+                JsonNode delta = deltas.nextValue();
+                long position = record++;
+                if (resumeFrom != null && resumeFrom.covers(fileName, position)) {
+                    continue;
+                }
+                inFlight.acquire();
+                long sequence = loadCheckpoint.started(fileName, position);
+                keyOrderedExecutor.submit(companyNumber(delta), () -> {
+                    if (loadDelta(delta, fileName, position)) {
+                        loadCheckpoint.completed(sequence);
+                    }
+                }).whenComplete((result, ex) -> inFlight.release());
+                if (record % CHECKPOINT_INTERVAL == 0) {
+                    loadCheckpoint.save();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return false if the delta failed to load
+     */
+    private boolean loadDelta(JsonNode delta, String fileName, long position) {
+        String contextId = "bulk-load-%s-%d".formatted(fileName, position);
+        DataMapHolder.initialise(contextId);
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    apply(delta, contextId);
+                    loaded.incrementAndGet();
+                    return true;
+                } catch (RetryableErrorException ex) {
+                    if (attempt >= retryAttempts) {
+                        throw ex;
+                    }
+                    LOGGER.info("Retrying PSC delta %d in %s after: %s".formatted(position, fileName,
+                            ex.getMessage()), DataMapHolder.getLogMap());
+                    Thread.sleep(backoffDelay);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            fail(fileName, position, ex);
+        } catch (IOException | RuntimeException ex) {
+            fail(fileName, position, ex);
+        } finally {
+            DataMapHolder.clear();
+        }
+        return false;
+    }
+
+    private void apply(JsonNode delta, String contextId) throws IOException {
+        if (delta.has(PSCS_FIELD)) {
+            pscDeltaProcessor.applyDelta(deltaReader.readPscDelta(delta));
+        } else {
+            pscDeltaProcessor.applyDelete(deltaReader.readPscDeleteDelta(delta), contextId);
+        }
+    }
+
+    private void fail(String fileName, long position, Exception ex) {
+        failed.incrementAndGet();
+        LOGGER.error("Failed to load PSC delta %d in %s".formatted(position, fileName), ex,
+                DataMapHolder.getLogMap());
+    }
+
+    /**
+     * Deltas are ordered by company number, as on the topic. A delta whose company number cannot be found is keyed
+     * on nothing in particular and will fail when it is bound or sent.
+     */
+    private static String companyNumber(JsonNode delta) {
+        JsonNode owner = delta.has(PSCS_FIELD) ? delta.path(PSCS_FIELD).path(0) : delta;
+        return owner.path(COMPANY_NUMBER_FIELD).asText();
+    }
+
+    private static List<Path> inputFiles(Path inputPath) throws IOException {
+        if (!Files.isDirectory(inputPath)) {
+            return List.of(inputPath);
+        }
+        try (Stream<Path> files = Files.list(inputPath)) {
+            return files.filter(Files::isRegularFile)
+                    .sorted((first, second) -> first.getFileName().toString()
+                            .compareTo(second.getFileName().toString()))
+                    .toList();
+        }
+    }
+
+    private static InputStream open(Path file) throws IOException {
+        InputStream inputStream = new BufferedInputStream(Files.newInputStream(file));
+        return file.getFileName().toString().endsWith(GZIP_SUFFIX)
+                ? new GZIPInputStream(inputStream)
+                : inputStream;
+    }
+
+    /**
+     * @param loaded the deltas loaded
+     * @param failed the deltas that failed to load
+     */
+    record BulkLoadResult(long loaded, long failed) {
+    }
+}
@@ -0,0 +1,65 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.psc.delta.metrics.DeltaMetrics;
+import uk.gov.companieshouse.psc.delta.metrics.Operation;
+
+/**
+ * Finds the deltas in a batch that are superseded by a newer delta in the same batch for the same PSC notification,
+ * so they can be skipped. The data API only keeps the newest upsert or delete for a notification, and during
+ * replays the same notification often arrives several times in a row, so each superseded delta is a transform and
+ * an API call saved.
+ */
+@Component
+public class DeltaCoalescer {
+
+    private final boolean enabled;
+    private final DeltaMetrics deltaMetrics;
+
+    public DeltaCoalescer(@Value("${pscs.delta.batch.coalesce.enabled}") boolean enabled,
+            DeltaMetrics deltaMetrics) {
+        this.enabled = enabled;
+        this.deltaMetrics = deltaMetrics;
+    }
+
+    /**
+     * Deltas are compared by delta_at, with the later of two deltas in the batch kept if they are equally new.
+     * Deltas that cannot be keyed or ordered are never superseded.
+     *
+     * @param summaries the summaries of the deltas in the batch, in the order received
+     * @return the positions in the batch of the superseded deltas, none if coalescing is disabled
+     */
+    BitSet superseded(List<DeltaSummary> summaries) {
+        BitSet superseded = new BitSet(summaries.size());
+        if (!enabled) {
+            return superseded;
+        }
+
+        Map<String, Integer> newest = new HashMap<>();
+        for (int i = 0; i < summaries.size(); i++) {
+            DeltaSummary summary = summaries.get(i);
+            String key = summary.notificationKey();
+            if (key == null) {
+                continue;
+            }
+            Integer previous = newest.putIfAbsent(key, i);
+            if (previous == null) {
+                continue;
+            }
+            if (summary.isAtLeastAsNewAs(summaries.get(previous))) {
+                superseded.set(previous);
+                newest.put(key, i);
+            } else {
+                superseded.set(i);
+            }
+        }
+
+        superseded.stream().forEach(i -> deltaMetrics.countCoalesced(Operation.of(summaries.get(i).delete())));
+        return superseded;
+    }
+}
@@ -0,0 +1,45 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.api.delta.PscDeleteDelta;
+import uk.gov.companieshouse.api.delta.PscDelta;
+
+/**
+ * Binds the data of a {@link uk.gov.companieshouse.delta.ChsDelta} to the delta models. Each model has a reader
+ * built once up front, so the deserialiser for it is looked up once rather than on every delta. Properties the
+ * models do not have are skipped rather than failing the delta.
+ */
+@Component
+public class DeltaReader {
+
+    private final ObjectReader pscDeltaReader;
+    private final ObjectReader pscDeleteDeltaReader;
+
+    public DeltaReader(ObjectMapper objectMapper) {
+        ObjectReader reader = objectMapper.reader().without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.pscDeltaReader = reader.forType(PscDelta.class);
+        this.pscDeleteDeltaReader = reader.forType(PscDeleteDelta.class);
+    }
+
+    public PscDelta readPscDelta(String data) throws JsonProcessingException {
+        return pscDeltaReader.readValue(data);
+    }
+
+    public PscDeleteDelta readPscDeleteDelta(String data) throws JsonProcessingException {
+        return pscDeleteDeltaReader.readValue(data);
+    }
+
+    public PscDelta readPscDelta(JsonNode data) throws IOException {
+        return pscDeltaReader.readValue(data);
+    }
+
+    public PscDeleteDelta readPscDeleteDelta(JsonNode data) throws IOException {
+        return pscDeleteDeltaReader.readValue(data);
+    }
+}
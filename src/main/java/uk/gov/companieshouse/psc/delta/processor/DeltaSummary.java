@@ -0,0 +1,125 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import org.springframework.messaging.Message;
+import uk.gov.companieshouse.delta.ChsDelta;
+
+/**
+ * The fields of a delta needed to order, coalesce and filter it, found with a streaming scan so the delta is only
+ * fully bound once, by the processor. The company number, internal id and kind are top level fields of a delete
+ * delta and fields of the PSC in an upsert delta; delta_at is a top level field of both.
+ *
+ * @param valid         whether the message has a ChsDelta payload
+ * @param contextId     the context id of the delta
+ * @param companyNumber the company number, or null if not found
+ * @param internalId    the internal id, which the notification id is encoded from, or null if not found
+ * @param kind          the kind of PSC as given in the delta, or null if not found
+ * @param deltaAt       the delta_at timestamp, or null if not found
+ * @param delete        whether the delta is a delete
+ */
+record DeltaSummary(boolean valid, String contextId, String companyNumber, String internalId, String kind,
+                    String deltaAt, boolean delete) {
+
+    static final DeltaSummary INVALID = new DeltaSummary(false, null, null, null, null, null, false);
+
+    private static final String COMPANY_NUMBER_FIELD = "company_number";
+    private static final String INTERNAL_ID_FIELD = "internal_id";
+    private static final String KIND_FIELD = "kind";
+    private static final String DELTA_AT_FIELD = "delta_at";
+    private static final int TOP_LEVEL = 1;
+    private static final int PSC_LEVEL = 3;
+    private static final int DELTA_AT_LENGTH = 20;
+
+    static DeltaSummary read(JsonFactory jsonFactory, Message<?> message) {
+        if (!(message.getPayload() instanceof ChsDelta chsDelta)) {
+            return INVALID;
+        }
+        String companyNumber = null;
+        String internalId = null;
+        String kind = null;
+        String deltaAt = null;
+        try (JsonParser parser = jsonFactory.createParser(chsDelta.getData())) {
+            int depth = 0;
+            JsonToken token;
+            while ((companyNumber == null || internalId == null || kind == null || deltaAt == null)
+                    && (token = parser.nextToken()) != null) {
+                switch (token) {
+                    case START_OBJECT, START_ARRAY -> depth++;
+                    case END_OBJECT, END_ARRAY -> depth--;
+                    case FIELD_NAME -> {
+                        String field = parser.currentName();
+                        if (depth == TOP_LEVEL || depth == PSC_LEVEL) {
+                            if (companyNumber == null && COMPANY_NUMBER_FIELD.equals(field)) {
+                                companyNumber = nextString(parser);
+                            } else if (internalId == null && INTERNAL_ID_FIELD.equals(field)) {
+                                internalId = nextString(parser);
+                            } else if (kind == null && KIND_FIELD.equals(field)) {
+                                kind = nextString(parser);
+                            } else if (deltaAt == null && depth == TOP_LEVEL && DELTA_AT_FIELD.equals(field)) {
+                                deltaAt = nextString(parser);
+                            }
+                        }
+                    }
+                    default -> {
+                        // scalar values are skipped
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            // keep whatever was found before the delta became unreadable
+        }
+        return new DeltaSummary(true, String.valueOf(chsDelta.getContextId()), companyNumber, internalId, kind,
+                deltaAt, Boolean.TRUE.equals(chsDelta.getIsDelete()));
+    }
+
+    /**
+     * Deltas are ordered by company number, which also keeps every delta for a notification in order. A delta whose
+     * company number cannot be found is keyed on its context id and will fail in the processor.
+     */
+    String orderingKey() {
+        if (!valid) {
+            return "";
+        }
+        return companyNumber != null ? companyNumber : contextId;
+    }
+
+    /**
+     * The key deltas for the same PSC notification share, or null if the delta cannot be coalesced because it is
+     * missing its company number or internal id or has no valid delta_at to order it by.
+     */
+    String notificationKey() {
+        if (companyNumber == null || internalId == null || !isDeltaAt(deltaAt)) {
+            return null;
+        }
+        return companyNumber + '/' + internalId;
+    }
+
+    /**
+     * Whether this delta is newer than the other, or as new. delta_at is a fixed width yyyyMMddHHmmssSSSSSS
+     * timestamp, which is too wide for a long, but as both are the same width of digits comparing them as strings
+     * orders them by time.
+     */
+    boolean isAtLeastAsNewAs(DeltaSummary other) {
+        return deltaAt.compareTo(other.deltaAt) >= 0;
+    }
+
+    private static boolean isDeltaAt(String value) {
+        if (value == null || value.length() != DELTA_AT_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < DELTA_AT_LENGTH; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String nextString(JsonParser parser) throws IOException {
+        return parser.nextToken() == JsonToken.VALUE_STRING ? parser.getText() : null;
+    }
+}
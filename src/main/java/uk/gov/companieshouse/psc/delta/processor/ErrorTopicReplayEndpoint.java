@@ -0,0 +1,63 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint to start, follow and cancel a replay of the error topic. Disabled unless
+ * management.endpoint.replay.enabled is set. Times are ISO-8601 instants, e.g. 2024-01-31T09:00:00Z.
+ */
+@Component
+@Endpoint(id = "replay")
+public class ErrorTopicReplayEndpoint {
+
+    private final ErrorTopicReplayer replayer;
+
+    public ErrorTopicReplayEndpoint(ErrorTopicReplayer replayer) {
+        this.replayer = replayer;
+    }
+
+    @ReadOperation
+    public ReplayProgress progress() {
+        return replayer.progress();
+    }
+
+    /**
+     * Starts a replay of the deltas matching every parameter given.
+     */
+    @WriteOperation
+    public ReplayProgress start(@Nullable Long fromOffset, @Nullable String fromTime, @Nullable String toTime,
+            @Nullable String companyNumber, @Nullable String kind, @Nullable String errorClass) {
+        ReplayFilter filter = new ReplayFilter(fromOffset, parseInstant(fromTime), parseInstant(toTime),
+                companyNumber, kind, errorClass);
+        try {
+            return replayer.start(filter);
+        } catch (IllegalStateException ex) {
+            throw new InvalidEndpointRequestException(ex.getMessage(), "Replay already running");
+        }
+    }
+
+    @DeleteOperation
+    public ReplayProgress cancel() {
+        replayer.cancel();
+        return replayer.progress();
+    }
+
+    private static Instant parseInstant(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException ex) {
+            throw new InvalidEndpointRequestException("Invalid time [%s]".formatted(value), "Invalid time");
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import static uk.gov.companieshouse.psc.delta.PscDeltaConsumerApplication.NAMESPACE;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.delta.ChsDelta;
+import uk.gov.companieshouse.logging.Logger;
+import uk.gov.companieshouse.logging.LoggerFactory;
+import uk.gov.companieshouse.psc.delta.logging.DataMapHolder;
+
+/**
+ * Replays deltas from the error topic through the processor once whatever made them fail has been fixed. The
+ * replay reads every partition of the error topic up to the end offsets it had when the replay started, or up to the
+ * end of the time range, and processes the deltas that match the filter at no more than the configured rate.
+ *
+ * <p>Deltas are processed by a pool of workers, keeping deltas for the same company, and so for the same PSC
+ * notification, in the order they are on the error topic. A delta that fails again is counted and left on the error
+ * topic rather than published anywhere, and no offsets are committed, so the same range can be replayed again.
+ * Only one replay runs at a time.
+ */
+@Component
+public class ErrorTopicReplayer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NAMESPACE);
+    private static final String GROUP_ID = "psc-delta-consumer-replay";
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+    private final ConsumerFactory<String, ChsDelta> consumerFactory;
+    private final PscDeltaProcessor pscDeltaProcessor;
+    private final JsonFactory jsonFactory;
+    private final String errorTopic;
+    private final int workers;
+    private final long intervalNanos;
+
+    private final AtomicLong read = new AtomicLong();
+    private final AtomicLong matched = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile ReplayProgress progress = ReplayProgress.IDLE;
+    private volatile String lastError;
+    private volatile boolean cancelled;
+
+    public ErrorTopicReplayer(ConsumerFactory<String, ChsDelta> kafkaConsumerFactory,
+            PscDeltaProcessor pscDeltaProcessor, ObjectMapper objectMapper,
+            @Value("${pscs.delta.topic}") String topic,
+            @Value("${pscs.delta.error-topic-suffix}") String errorTopicSuffix,
+            @Value("${pscs.delta.replay.workers}") int workers,
+            @Value("${pscs.delta.replay.rate-per-second}") int ratePerSecond) {
+        this.consumerFactory = kafkaConsumerFactory;
+        this.pscDeltaProcessor = pscDeltaProcessor;
+        this.jsonFactory = objectMapper.getFactory();
+        this.errorTopic = topic + errorTopicSuffix;
+        this.workers = Math.max(1, workers);
+        this.intervalNanos = ratePerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / ratePerSecond : 0L;
+    }
+
+    /**
+     * Starts replaying the deltas on the error topic that match the filter.
+     *
+     * @param filter which deltas to replay
+     * @return the progress of the replay as it starts
+     * @throws IllegalStateException if a replay is already running
+     */
+    public synchronized ReplayProgress start(ReplayFilter filter) {
+        if (progress.state() == ReplayProgress.State.RUNNING) {
+            throw new IllegalStateException("A replay of %s is already running".formatted(errorTopic));
+        }
+        read.set(0);
+        matched.set(0);
+        replayed.set(0);
+        failed.set(0);
+        lastError = null;
+        cancelled = false;
+        progress = new ReplayProgress(ReplayProgress.State.RUNNING, filter, Instant.now(), null, 0, 0, 0, 0, null);
+        LOGGER.info("Starting replay of %s with %s".formatted(errorTopic, filter), DataMapHolder.getLogMap());
+        Thread.ofPlatform().name("psc-delta-replay").start(() -> run(filter));
+        return progress();
+    }
+
+    /**
+     * Stops the running replay once the deltas already handed to the workers have been processed.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public ReplayProgress progress() {
+        ReplayProgress current = progress;
+        if (current.state() != ReplayProgress.State.RUNNING) {
+            return current;
+        }
+        return new ReplayProgress(current.state(), current.filter(), current.startedAt(), null, read.get(),
+                matched.get(), replayed.get(), failed.get(), lastError);
+    }
+
+    private void run(ReplayFilter filter) {
+        ReplayProgress.State outcome;
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        Semaphore inFlight = new Semaphore(workers * 2);
+        try (Consumer<String, ChsDelta> consumer = consumerFactory.createConsumer(GROUP_ID, "-replay")) {
+            KeyOrderedExecutor keyOrderedExecutor = new KeyOrderedExecutor(executor);
+            Map<TopicPartition, Long> endOffsets = seek(consumer, filter);
+            Set<TopicPartition> remaining = new HashSet<>(endOffsets.keySet());
+            finishReached(consumer, endOffsets, remaining);
+            long nextReplayNanos = System.nanoTime();
+
+            while (!remaining.isEmpty() && !cancelled) {
+                for (ConsumerRecord<String, ChsDelta> consumerRecord : consumer.poll(POLL_TIMEOUT)) {
+                    TopicPartition partition = new TopicPartition(consumerRecord.topic(), consumerRecord.partition());
+                    if (!remaining.contains(partition)) {
+                        continue;
+                    }
+                    if (consumerRecord.offset() >= endOffsets.get(partition)
+                            || filter.isAfterEnd(consumerRecord.timestamp())) {
+                        finish(consumer, remaining, partition);
+                        continue;
+                    }
+                    read.incrementAndGet();
+                    if (consumerRecord.offset() + 1 >= endOffsets.get(partition)) {
+                        finish(consumer, remaining, partition);
+                    }
+                    if (consumerRecord.value() == null) {
+                        continue;
+                    }
+
+                    Message<ChsDelta> message = toMessage(consumerRecord);
+                    DeltaSummary summary = DeltaSummary.read(jsonFactory, message);
+                    if (!summary.valid() || !filter.matches(summary, consumerRecord.headers())) {
+                        continue;
+                    }
+                    matched.incrementAndGet();
+                    nextReplayNanos = throttle(nextReplayNanos);
+                    inFlight.acquire();
+                    keyOrderedExecutor.submit(summary.orderingKey(), () -> replay(message, summary))
+                            .whenComplete((result, ex) -> inFlight.release());
+                }
+                finishReached(consumer, endOffsets, remaining);
+            }
+            inFlight.acquire(workers * 2);
+            outcome = cancelled ? ReplayProgress.State.CANCELLED : ReplayProgress.State.COMPLETED;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            lastError = "Interrupted";
+            outcome = ReplayProgress.State.FAILED;
+        } catch (RuntimeException ex) {
+            LOGGER.error("Replay of %s failed".formatted(errorTopic), ex, DataMapHolder.getLogMap());
+            lastError = ex.getMessage();
+            outcome = ReplayProgress.State.FAILED;
+        } finally {
+            executor.shutdown();
+        }
+        ReplayProgress current = progress;
+        progress = new ReplayProgress(outcome, filter, current.startedAt(), Instant.now(), read.get(),
+                matched.get(), replayed.get(), failed.get(), lastError);
+        LOGGER.info("Replay of %s %s: %d read, %d matched, %d replayed, %d failed".formatted(errorTopic,
+                outcome, read.get(), matched.get(), replayed.get(), failed.get()), DataMapHolder.getLogMap());
+    }
+
+    /**
+     * Assigns every partition of the error topic and seeks each to where the replay starts.
+     *
+     * @return the offset in each partition the replay stops before
+     */
+    private Map<TopicPartition, Long> seek(Consumer<String, ChsDelta> consumer, ReplayFilter filter) {
+        List<TopicPartition> partitions = new ArrayList<>();
+        for (PartitionInfo partitionInfo : consumer.partitionsFor(errorTopic)) {
+            partitions.add(new TopicPartition(partitionInfo.topic(), partitionInfo.partition()));
+        }
+        consumer.assign(partitions);
+        Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+
+        if (filter.fromTime() != null) {
+            Map<TopicPartition, Long> timestamps = new HashMap<>();
+            partitions.forEach(partition -> timestamps.put(partition, filter.fromTime().toEpochMilli()));
+            consumer.offsetsForTimes(timestamps).forEach((partition, offsetAndTimestamp) ->
+                    consumer.seek(partition, startOffset(offsetAndTimestamp, endOffsets.get(partition))));
+        } else if (filter.fromOffset() != null) {
+            consumer.seekToBeginning(partitions);
+            for (TopicPartition partition : partitions) {
+                long offset = Math.min(filter.fromOffset(), endOffsets.get(partition));
+                if (offset > consumer.position(partition)) {
+                    consumer.seek(partition, offset);
+                }
+            }
+        } else {
+            consumer.seekToBeginning(partitions);
+        }
+        return endOffsets;
+    }
+
+    private static long startOffset(OffsetAndTimestamp offsetAndTimestamp, long endOffset) {
+        return offsetAndTimestamp == null ? endOffset : offsetAndTimestamp.offset();
+    }
+
+    /**
+     * Finishes every partition whose position has reached its end offset. The last offsets of a partition may hold
+     * no record the consumer returns, such as transaction markers or records compacted away, so a partition cannot
+     * be relied on to be finished by a record at its last offset.
+     */
+    private static void finishReached(Consumer<String, ChsDelta> consumer, Map<TopicPartition, Long> endOffsets,
+            Set<TopicPartition> remaining) {
+        for (TopicPartition partition : List.copyOf(remaining)) {
+            if (consumer.position(partition) >= endOffsets.get(partition)) {
+                finish(consumer, remaining, partition);
+            }
+        }
+    }
+
+    /**
+     * Stops fetching a partition once the replay has reached its end.
+     */
+    private static void finish(Consumer<String, ChsDelta> consumer, Set<TopicPartition> remaining,
+            TopicPartition partition) {
+        remaining.remove(partition);
+        consumer.pause(List.of(partition));
+    }
+
+    /**
+     * Waits until the next delta may be replayed without exceeding the rate.
+     *
+     * @return the time the delta after it may be replayed
+     */
+    private long throttle(long nextReplayNanos) throws InterruptedException {
+        if (intervalNanos == 0L) {
+            return nextReplayNanos;
+        }
+        long now = System.nanoTime();
+        if (nextReplayNanos > now) {
+            TimeUnit.NANOSECONDS.sleep(nextReplayNanos - now);
+            return nextReplayNanos + intervalNanos;
+        }
+        return now + intervalNanos;
+    }
+
+    private void replay(Message<ChsDelta> message, DeltaSummary summary) {
+        DataMapHolder.initialise(summary.contextId());
+        try {
+            pscDeltaProcessor.process(message);
+            replayed.incrementAndGet();
+        } catch (RuntimeException ex) {
+            LOGGER.info("Replayed delta failed again: %s".formatted(ex.getMessage()), DataMapHolder.getLogMap());
+            failed.incrementAndGet();
+            lastError = ex.getMessage();
+        } finally {
+            DataMapHolder.clear();
+        }
+    }
+
+    private static Message<ChsDelta> toMessage(ConsumerRecord<String, ChsDelta> consumerRecord) {
+        return MessageBuilder.withPayload(consumerRecord.value())
+                .setHeader(KafkaHeaders.RECEIVED_TOPIC, consumerRecord.topic())
+                .setHeader(KafkaHeaders.RECEIVED_PARTITION, consumerRecord.partition())
+                .setHeader(KafkaHeaders.OFFSET, consumerRecord.offset())
+                .setHeader(KafkaHeaders.RECEIVED_KEY, consumerRecord.key())
+                .build();
+    }
+}
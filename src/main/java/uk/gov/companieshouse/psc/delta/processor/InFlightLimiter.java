@@ -0,0 +1,74 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import consumer.exception.RetryableErrorException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.psc.delta.consumer.ListenerPauseController;
+
+/**
+ * Bounds the number of PSC data API calls in flight at once. When the window is full the listener containers are
+ * paused, so no more deltas are fetched, and are resumed once half the window is free again rather than as soon as
+ * one call completes, so they do not flap between paused and running under sustained load.
+ *
+ * <p>A place is taken on the listener thread, and a pause only takes effect once the listener returns, so the wait
+ * for a place is bounded and kept well below the consumer's max.poll.interval.ms. A delta that finds no place in time
+ * fails, and is sent to the retry topic, rather than holding the listener until its consumer is evicted from the
+ * group and every delta still awaiting acknowledgement is redelivered.
+ */
+@Component
+public class InFlightLimiter {
+
+    static final String PAUSE_REASON = "in-flight API call limit reached";
+
+    private final Semaphore permits;
+    private final int maxInFlight;
+    private final long maxWaitMillis;
+    private final ListenerPauseController pauseController;
+
+    public InFlightLimiter(@Value("${pscs.delta.async.max-in-flight}") int maxInFlight,
+            @Value("${pscs.delta.async.max-wait-ms}") long maxWaitMillis,
+            ListenerPauseController pauseController) {
+        this.permits = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+        this.maxWaitMillis = maxWaitMillis;
+        this.pauseController = pauseController;
+    }
+
+    /**
+     * Takes a place in the window, pausing the containers and waiting up to the maximum wait for a call to complete
+     * if it is full.
+     *
+     * @throws RetryableErrorException if no place is free by the end of the maximum wait, or if interrupted while
+     *                                 waiting
+     */
+    public void acquire() {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        pauseController.pause(PAUSE_REASON);
+        try {
+            if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                throw new RetryableErrorException("Timed out waiting for an in-flight API call to complete");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RetryableErrorException("Interrupted waiting for an in-flight API call to complete", ex);
+        }
+    }
+
+    /**
+     * Gives up a place in the window once the call holding it has completed.
+     */
+    public void release() {
+        permits.release();
+        if (permits.availablePermits() >= (maxInFlight + 1) / 2) {
+            pauseController.resume(PAUSE_REASON);
+        }
+    }
+
+    public int inFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+}
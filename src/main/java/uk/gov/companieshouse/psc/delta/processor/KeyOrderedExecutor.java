@@ -0,0 +1,70 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs tasks on an underlying executor so that tasks sharing a key run one at a time in submission order, while
+ * tasks with different keys run concurrently.
+ */
+public class KeyOrderedExecutor {
+
+    private final Executor executor;
+    private final Map<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    public KeyOrderedExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Submits a task to run after every task previously submitted with the same key has completed, whether or not
+     * those tasks succeeded.
+     *
+     * @param key  the ordering key
+     * @param task the task to run
+     * @return a future completed with the outcome of the task
+     */
+    public CompletableFuture<Void> submit(String key, Runnable task) {
+        return chain(key, previous -> previous.thenRunAsync(task, executor));
+    }
+
+    /**
+     * Starts an asynchronous task once every task previously submitted with the same key has completed, whether or
+     * not those tasks succeeded. The task is started on the thread that completes the task before it, or on the
+     * calling thread if there is none, so it should only start its work and not carry it out.
+     *
+     * @param key  the ordering key
+     * @param task starts the task, returning a future completed with its outcome
+     * @return a future completed with the outcome of the task
+     */
+    public CompletableFuture<Void> submitAsync(String key, Supplier<CompletableFuture<Void>> task) {
+        return chain(key, previous -> previous.thenCompose(ignored -> task.get()));
+    }
+
+    /**
+     * Puts a new gate in as the tail for the key and chains the task onto the tail it replaced. The task is chained
+     * outside the map operation, as it may start at once and its completion may update the map itself. The gate
+     * completes, whatever the outcome of the task, once the task has, and is removed unless a later task has
+     * already taken its place.
+     */
+    private CompletableFuture<Void> chain(String key,
+            Function<CompletableFuture<Void>, CompletableFuture<Void>> then) {
+        CompletableFuture<Void> gate = new CompletableFuture<>();
+        CompletableFuture<Void> previous = tails.put(key, gate);
+        CompletableFuture<Void> next = then.apply(
+                previous != null ? previous : CompletableFuture.completedFuture(null));
+        next.whenComplete((result, ex) -> {
+            tails.remove(key, gate);
+            gate.complete(null);
+        });
+        return next;
+    }
+
+    int pendingKeys() {
+        return tails.size();
+    }
+}
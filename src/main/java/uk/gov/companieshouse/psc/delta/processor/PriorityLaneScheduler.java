@@ -0,0 +1,243 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import consumer.exception.RetryableErrorException;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.psc.delta.consumer.ListenerPauseController;
+import uk.gov.companieshouse.psc.delta.metrics.DeltaMetrics;
+import uk.gov.companieshouse.psc.delta.metrics.Lane;
+
+/**
+ * Queues the PSC data API calls of deletes and upserts in separate lanes, so a backlog of upserts does not hold up
+ * the removal of PSCs. Each lane holds a bounded number of calls, and a place in it is reserved by the listener
+ * before a delta is handed on, so a full lane holds back the listener rather than a thread completing a call. Up to
+ * a fixed number of calls are started at once, the next one taken from the lanes by weighted round robin, so while
+ * both lanes have calls waiting each is started in proportion to its weight and neither is starved.
+ *
+ * <p>As with the {@link InFlightLimiter}, a full lane pauses the listener containers until half of it is free again,
+ * and the wait for a place is bounded by the same maximum wait, kept well below the consumer's max.poll.interval.ms.
+ *
+ * <p>Calls for the same company are kept in order across the lanes by handing a call to its lane only once the call
+ * before it has completed, as {@link KeyOrderedExecutor} does; this scheduler only chooses between calls that are
+ * free to start. When disabled, every call is started at once, as before.
+ *
+ * <p>Only the asynchronous processing of the main topic queues calls in lanes, so lanes may only be enabled with
+ * asynchronous processing and without batch processing; the application fails to start otherwise.
+ */
+@Component
+public class PriorityLaneScheduler {
+
+    private final boolean enabled;
+    private final int maxConcurrent;
+    private final long maxWaitMillis;
+    private final ListenerPauseController pauseController;
+    private final DeltaMetrics deltaMetrics;
+    private final Map<Lane, LaneQueue> lanes = new EnumMap<>(Lane.class);
+    private final AtomicInteger drainRequests = new AtomicInteger();
+    private int running;
+
+    public PriorityLaneScheduler(@Value("${pscs.delta.lanes.enabled}") boolean enabled,
+            @Value("${pscs.delta.async.enabled}") boolean asyncEnabled,
+            @Value("${pscs.delta.batch.enabled}") boolean batchEnabled,
+            @Value("${pscs.delta.lanes.max-concurrent}") int maxConcurrent,
+            @Value("${pscs.delta.lanes.delete.weight}") int deleteWeight,
+            @Value("${pscs.delta.lanes.delete.capacity}") int deleteCapacity,
+            @Value("${pscs.delta.lanes.upsert.weight}") int upsertWeight,
+            @Value("${pscs.delta.lanes.upsert.capacity}") int upsertCapacity,
+            @Value("${pscs.delta.async.max-wait-ms}") long maxWaitMillis,
+            ListenerPauseController pauseController, DeltaMetrics deltaMetrics) {
+        if (enabled && (maxConcurrent < 1 || deleteWeight < 1 || deleteCapacity < 1 || upsertWeight < 1
+                || upsertCapacity < 1)) {
+            throw new IllegalArgumentException("Priority lane concurrency, weights and capacities must be positive");
+        }
+        if (enabled && (!asyncEnabled || batchEnabled)) {
+            throw new IllegalArgumentException(
+                    "Priority lanes can only be enabled with asynchronous processing and without batch processing");
+        }
+        this.enabled = enabled;
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitMillis = maxWaitMillis;
+        this.pauseController = pauseController;
+        this.deltaMetrics = deltaMetrics;
+        lanes.put(Lane.DELETE, new LaneQueue(Lane.DELETE, deleteWeight, deleteCapacity));
+        lanes.put(Lane.UPSERT, new LaneQueue(Lane.UPSERT, upsertWeight, upsertCapacity));
+    }
+
+    /**
+     * Reserves a place in the lane for a call to be submitted later, pausing the containers and waiting up to the
+     * maximum wait for one if the lane is full.
+     *
+     * @throws RetryableErrorException if no place is free by the end of the maximum wait, or if interrupted while
+     *                                 waiting
+     */
+    public void reserve(Lane lane) {
+        if (!enabled) {
+            return;
+        }
+        LaneQueue laneQueue = lanes.get(lane);
+        if (laneQueue.places.tryAcquire()) {
+            return;
+        }
+        pauseController.pause(laneQueue.pauseReason);
+        try {
+            if (!laneQueue.places.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                throw new RetryableErrorException("Timed out waiting for a place in the %s lane".formatted(lane));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RetryableErrorException("Interrupted waiting for a place in the %s lane".formatted(lane), ex);
+        }
+    }
+
+    /**
+     * Gives up a place reserved in the lane for a call that will not be submitted after all.
+     */
+    public void cancel(Lane lane) {
+        if (enabled) {
+            release(lanes.get(lane));
+        }
+    }
+
+    /**
+     * Queues the call in the place reserved for it in the lane, starting it once it is chosen and fewer than the
+     * maximum calls are running. The call is started on the thread that submits it or that completes the call
+     * before it, so it should only start its work and not carry it out.
+     *
+     * @param lane the lane a place was reserved in
+     * @param call starts the call, returning a future completed with its outcome
+     * @return a future completed with the outcome of the call
+     */
+    public CompletableFuture<Void> submit(Lane lane, Supplier<CompletableFuture<Void>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        QueuedCall queued = new QueuedCall(lane, call, deltaMetrics.startTimer(), new CompletableFuture<>());
+        synchronized (lanes) {
+            lanes.get(lane).calls.add(queued);
+        }
+        drain();
+        return queued.result();
+    }
+
+    /**
+     * Starts calls while there are calls waiting and room to run them. Only one thread drains at a time; a call that
+     * completes at once, or a drain requested meanwhile by another thread, is picked up by the draining thread
+     * going round again rather than starting a drain of its own.
+     */
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            QueuedCall next;
+            while ((next = next()) != null) {
+                start(next);
+            }
+        } while (drainRequests.decrementAndGet() != 0);
+    }
+
+    /**
+     * The next call to start, chosen by smooth weighted round robin over the lanes with calls waiting: each such
+     * lane gains its weight in credit, the lane with the most credit is chosen and gives up the total weight of the
+     * lanes it was chosen from. Ties go to the delete lane.
+     *
+     * @return the call, or null if none is waiting or the maximum calls are already running
+     */
+    private QueuedCall next() {
+        synchronized (lanes) {
+            if (running >= maxConcurrent) {
+                return null;
+            }
+            LaneQueue chosen = null;
+            int totalWeight = 0;
+            for (LaneQueue lane : lanes.values()) {
+                if (!lane.calls.isEmpty()) {
+                    lane.credit += lane.weight;
+                    totalWeight += lane.weight;
+                    if (chosen == null || lane.credit > chosen.credit) {
+                        chosen = lane;
+                    }
+                }
+            }
+            if (chosen == null) {
+                return null;
+            }
+            chosen.credit -= totalWeight;
+            running++;
+            return chosen.calls.poll();
+        }
+    }
+
+    private void start(QueuedCall queued) {
+        deltaMetrics.recordLaneWait(queued.sample(), queued.lane());
+        CompletableFuture<Void> call;
+        try {
+            call = queued.call().get();
+        } catch (RuntimeException ex) {
+            call = CompletableFuture.failedFuture(ex);
+        }
+        call.whenComplete((result, ex) -> {
+            synchronized (lanes) {
+                running--;
+            }
+            release(lanes.get(queued.lane()));
+            deltaMetrics.recordLaneLatency(queued.sample(), queued.lane());
+            if (ex == null) {
+                queued.result().complete(null);
+            } else {
+                queued.result().completeExceptionally(
+                        ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+            }
+            drain();
+        });
+    }
+
+    private void release(LaneQueue laneQueue) {
+        laneQueue.places.release();
+        if (laneQueue.places.availablePermits() >= (laneQueue.capacity + 1) / 2) {
+            pauseController.resume(laneQueue.pauseReason);
+        }
+    }
+
+    int queued(Lane lane) {
+        synchronized (lanes) {
+            return lanes.get(lane).calls.size();
+        }
+    }
+
+    static String pauseReason(Lane lane) {
+        return "%s lane full".formatted(lane.name().toLowerCase());
+    }
+
+    private static final class LaneQueue {
+
+        private final int weight;
+        private final int capacity;
+        private final String pauseReason;
+        private final Semaphore places;
+        private final Queue<QueuedCall> calls = new ArrayDeque<>();
+        private int credit;
+
+        LaneQueue(Lane lane, int weight, int capacity) {
+            this.weight = weight;
+            this.capacity = Math.max(capacity, 0);
+            this.pauseReason = pauseReason(lane);
+            this.places = new Semaphore(this.capacity);
+        }
+    }
+
+    private record QueuedCall(Lane lane, Supplier<CompletableFuture<Void>> call, Timer.Sample sample,
+            CompletableFuture<Void> result) {
+    }
+}
@@ -0,0 +1,206 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import static uk.gov.companieshouse.psc.delta.PscDeltaConsumerApplication.NAMESPACE;
+
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.delta.ChsDelta;
+import uk.gov.companieshouse.logging.Logger;
+import uk.gov.companieshouse.logging.LoggerFactory;
+import uk.gov.companieshouse.psc.delta.consumer.FailedDeltaPublisher;
+import uk.gov.companieshouse.psc.delta.consumer.PscDeltaConsumer;
+import uk.gov.companieshouse.psc.delta.logging.DataMapHolder;
+import uk.gov.companieshouse.psc.delta.metrics.DeltaMetrics;
+import uk.gov.companieshouse.psc.delta.metrics.Lane;
+import uk.gov.companieshouse.psc.delta.metrics.Operation;
+import uk.gov.companieshouse.psc.delta.metrics.Outcome;
+
+/**
+ * Processes deltas from the main topic without waiting on the PSC data API, so the listener thread can move on to
+ * the next delta while earlier calls are still in flight. Calls for the same company are still made one at a time in
+ * the order their deltas were received. A delta is only acknowledged once its call has completed, or once it has
+ * been forwarded to the retry or error topic if the call failed; with asynchronous acks the container only commits
+ * an offset once every delta before it has been acknowledged too. Calls free to start are started in the order
+ * chosen by the {@link PriorityLaneScheduler}, which can put deletes ahead of upserts.
+ *
+ * <p>The listener returns as soon as a delta is handed over, so the line summarising the delta and its processing
+ * metrics are logged and recorded here once its call has completed.
+ */
+@Component
+public class PscDeltaAsyncProcessor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NAMESPACE);
+    private static final String LOG_MESSAGE_PROCESSED = "Processed delta";
+    private static final String LOG_MESSAGE_DELETE_PROCESSED = "Processed DELETE delta";
+    // Only deltas from the main topic are processed asynchronously, so each is on its first attempt
+    private static final int RETRY_COUNT = 0;
+
+    private final PscDeltaProcessor pscDeltaProcessor;
+    private final FailedDeltaPublisher failedDeltaPublisher;
+    private final InFlightLimiter inFlightLimiter;
+    private final KeyOrderedExecutor keyOrderedExecutor;
+    private final Executor forwardExecutor;
+    private final PriorityLaneScheduler laneScheduler;
+    private final KafkaListenerEndpointRegistry registry;
+    private final DeltaMetrics deltaMetrics;
+    private final int forwardAttempts;
+    private final long backoffDelay;
+
+    public PscDeltaAsyncProcessor(PscDeltaProcessor pscDeltaProcessor, FailedDeltaPublisher failedDeltaPublisher,
+            InFlightLimiter inFlightLimiter, @Qualifier("apiExecutor") Executor apiExecutor,
+            @Qualifier("forwardExecutor") Executor forwardExecutor, PriorityLaneScheduler laneScheduler,
+            KafkaListenerEndpointRegistry registry, DeltaMetrics deltaMetrics,
+            @Value("${pscs.delta.retry-attempts}") int forwardAttempts,
+            @Value("${pscs.delta.backoff-delay}") long backoffDelay) {
+        this.pscDeltaProcessor = pscDeltaProcessor;
+        this.failedDeltaPublisher = failedDeltaPublisher;
+        this.inFlightLimiter = inFlightLimiter;
+        this.keyOrderedExecutor = new KeyOrderedExecutor(apiExecutor);
+        this.forwardExecutor = forwardExecutor;
+        this.laneScheduler = laneScheduler;
+        this.registry = registry;
+        this.deltaMetrics = deltaMetrics;
+        this.forwardAttempts = forwardAttempts;
+        this.backoffDelay = backoffDelay;
+    }
+
+    /**
+     * Binds and transforms the delta on the calling thread and queues its API call in the lane for deletes or
+     * upserts, waiting first for a place in the in-flight window and then in the lane if either is full.
+     *
+     * @param message        the delta message
+     * @param acknowledgment acknowledges the delta once its call has completed or it has been forwarded
+     * @return a future completed once the delta has been acknowledged, or left unacknowledged as it could not be
+     *         forwarded
+     * @throws consumer.exception.RetryableErrorException if no place in the in-flight window is free in time, so the
+     *                                                    listener fails the delta and it is sent to the retry topic
+     */
+    public CompletableFuture<Void> submit(Message<ChsDelta> message, Acknowledgment acknowledgment) {
+        inFlightLimiter.acquire();
+        DataMapHolder.handOff();
+        Timer.Sample sample = deltaMetrics.startTimer();
+        Operation operation = Operation.of(message.getPayload().getIsDelete());
+
+        CompletableFuture<Void> call;
+        Lane reserved = null;
+        try {
+            ApiCall apiCall = pscDeltaProcessor.prepare(message);
+            Lane lane = Lane.of(message.getPayload().getIsDelete());
+            laneScheduler.reserve(lane);
+            reserved = lane;
+            Supplier<CompletableFuture<Void>> send = DataMapHolder.wrap(apiCall.send());
+            call = keyOrderedExecutor.submitAsync(apiCall.companyNumber(), () -> laneScheduler.submit(lane, send));
+        } catch (RuntimeException ex) {
+            if (reserved != null) {
+                laneScheduler.cancel(reserved);
+            }
+            call = CompletableFuture.failedFuture(ex);
+        }
+
+        // A failed delta is forwarded on the forward executor rather than on the thread that completed its call,
+        // which may be one of the API executor's
+        final CompletableFuture<Void> outcome = call;
+        Runnable completion = DataMapHolder.wrap(() -> complete(message, acknowledgment, outcome, operation, sample));
+        return outcome.handle((result, ex) -> ex == null)
+                .thenCompose(succeeded -> CompletableFuture.runAsync(completion,
+                        succeeded ? Runnable::run : forwardExecutor));
+    }
+
+    private void complete(Message<ChsDelta> message, Acknowledgment acknowledgment,
+            CompletableFuture<Void> outcome, Operation operation, Timer.Sample sample) {
+        try {
+            if (outcome.state() == Future.State.SUCCESS) {
+                deltaMetrics.recordProcessed(sample, operation, Outcome.SUCCESS, RETRY_COUNT);
+                LOGGER.info(operation == Operation.DELETE ? LOG_MESSAGE_DELETE_PROCESSED : LOG_MESSAGE_PROCESSED,
+                        DataMapHolder.getLogMap());
+                acknowledgment.acknowledge();
+                return;
+            }
+            Throwable cause = outcome.exceptionNow();
+            deltaMetrics.recordProcessed(sample, operation, Outcome.of(cause), RETRY_COUNT);
+            if (forward(message, cause)) {
+                acknowledgment.acknowledge();
+            } else {
+                restartListener();
+            }
+        } finally {
+            inFlightLimiter.release();
+        }
+    }
+
+    /**
+     * Forwards the failed delta to the retry or error topic, trying as many times as a delta is attempted, with the
+     * backoff delay between tries.
+     *
+     * @return false if the delta could not be forwarded, in which case it is left unacknowledged
+     */
+    private boolean forward(Message<ChsDelta> message, Throwable cause) {
+        LOGGER.info("Forwarding delta after %s".formatted(cause.getClass().getSimpleName()),
+                DataMapHolder.getLogMap());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                failedDeltaPublisher.publish(message, cause);
+                return true;
+            } catch (RuntimeException ex) {
+                if (attempt >= forwardAttempts) {
+                    LOGGER.error("Unable to forward delta after %d attempts".formatted(attempt), ex,
+                            DataMapHolder.getLogMap());
+                    return false;
+                }
+                LOGGER.error("Unable to forward delta, retrying", ex, DataMapHolder.getLogMap());
+            }
+            try {
+                Thread.sleep(backoffDelay);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                LOGGER.error("Interrupted forwarding delta", DataMapHolder.getLogMap());
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Stops the main topic listener and starts it again after the backoff delay, as a delta left unacknowledged would
+     * stop any later offset on its partition being committed. Stopping commits the offsets acknowledged before it, so
+     * the delta is redelivered once the listener has started again, or to another instance if its partition is
+     * reassigned meanwhile.
+     */
+    private void restartListener() {
+        MessageListenerContainer container = registry.getListenerContainer(PscDeltaConsumer.LISTENER_ID);
+        if (container == null || !container.isRunning()) {
+            return;
+        }
+        LOGGER.error("Stopping listener as a failed delta could not be forwarded; it will be redelivered once the "
+                + "listener restarts in %d ms".formatted(backoffDelay), DataMapHolder.getLogMap());
+        container.stop(() -> scheduleStart(container));
+    }
+
+    private void scheduleStart(MessageListenerContainer container) {
+        CompletableFuture.runAsync(DataMapHolder.wrap(() -> startListener(container)),
+                CompletableFuture.delayedExecutor(backoffDelay, TimeUnit.MILLISECONDS));
+    }
+
+    private void startListener(MessageListenerContainer container) {
+        if (container.isRunning()) {
+            return;
+        }
+        LOGGER.info("Restarting listener", DataMapHolder.getLogMap());
+        try {
+            container.start();
+        } catch (RuntimeException ex) {
+            LOGGER.error("Unable to restart listener, retrying", ex, DataMapHolder.getLogMap());
+            scheduleStart(container);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import static uk.gov.companieshouse.psc.delta.PscDeltaConsumerApplication.NAMESPACE;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.delta.ChsDelta;
+import uk.gov.companieshouse.logging.Logger;
+import uk.gov.companieshouse.logging.LoggerFactory;
+import uk.gov.companieshouse.psc.delta.consumer.FailedDeltaPublisher;
+import uk.gov.companieshouse.psc.delta.logging.DataMapHolder;
+import uk.gov.companieshouse.psc.delta.service.ApiClientService;
+import uk.gov.companieshouse.psc.delta.service.PscBulkItem;
+import uk.gov.companieshouse.psc.delta.service.PscBulkResult;
+
+@Component
+public class PscDeltaBatchProcessor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NAMESPACE);
+
+    private final PscDeltaProcessor pscDeltaProcessor;
+    private final FailedDeltaPublisher failedDeltaPublisher;
+    private final KeyOrderedExecutor keyOrderedExecutor;
+    private final JsonFactory jsonFactory;
+    private final DeltaCoalescer deltaCoalescer;
+    private final ApiClientService apiClientService;
+    private final AppliedDeltaCache appliedDeltaCache;
+    private final boolean bulkEnabled;
+
+    public PscDeltaBatchProcessor(PscDeltaProcessor pscDeltaProcessor, FailedDeltaPublisher failedDeltaPublisher,
+            @Qualifier("batchExecutor") ExecutorService batchExecutor, ObjectMapper objectMapper,
+            DeltaCoalescer deltaCoalescer, ApiClientService apiClientService, AppliedDeltaCache appliedDeltaCache,
+            @Value("${pscs.delta.bulk.enabled}") boolean bulkEnabled) {
+        this.pscDeltaProcessor = pscDeltaProcessor;
+        this.failedDeltaPublisher = failedDeltaPublisher;
+        this.keyOrderedExecutor = new KeyOrderedExecutor(batchExecutor);
+        this.jsonFactory = objectMapper.getFactory();
+        this.deltaCoalescer = deltaCoalescer;
+        this.apiClientService = apiClientService;
+        this.appliedDeltaCache = appliedDeltaCache;
+        this.bulkEnabled = bulkEnabled;
+    }
+
+    /**
+     * Processes the deltas in the batch concurrently, keeping deltas for the same company in the order they were
+     * received, and skipping deltas superseded by a newer delta in the batch for the same notification when
+     * coalescing is enabled. In bulk mode the deltas for each company are sent in a single bulk request. A delta
+     * that fails is forwarded to the retry or error topic on its own so the rest of the batch can still be committed.
+     * The batch only returns once every delta has completed, so offsets are never committed past a delta that is
+     * still in flight.
+     *
+     * @param messages the deltas received in one poll
+     * @throws BatchListenerFailedException identifying the first delta that could be neither processed nor
+     *                                      forwarded, so only the deltas before it are committed
+     */
+    public void processBatch(List<Message<ChsDelta>> messages) {
+        List<DeltaSummary> summaries = new ArrayList<>(messages.size());
+        for (Message<ChsDelta> message : messages) {
+            summaries.add(DeltaSummary.read(jsonFactory, message));
+        }
+        BitSet superseded = deltaCoalescer.superseded(summaries);
+        if (!superseded.isEmpty()) {
+            LOGGER.info("Skipping %d superseded deltas in batch of %d".formatted(superseded.cardinality(),
+                    messages.size()));
+        }
+
+        List<CompletableFuture<Void>> results = bulkEnabled
+                ? submitByCompany(messages, summaries, superseded)
+                : submitEach(messages, summaries, superseded);
+
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+                .exceptionally(ex -> null)
+                .join();
+
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                results.get(i).join();
+            } catch (CompletionException ex) {
+                LOGGER.info("Unable to process or forward delta %d of %d in batch".formatted(i + 1, results.size()));
+                throw new BatchListenerFailedException("Failed to process PSC delta batch", ex.getCause(), i);
+            }
+        }
+    }
+
+    String orderingKey(Message<ChsDelta> message) {
+        return DeltaSummary.read(jsonFactory, message).orderingKey();
+    }
+
+    private List<CompletableFuture<Void>> submitEach(List<Message<ChsDelta>> messages, List<DeltaSummary> summaries,
+            BitSet superseded) {
+        List<CompletableFuture<Void>> results = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            Message<ChsDelta> message = messages.get(i);
+            results.add(superseded.get(i)
+                    ? CompletableFuture.completedFuture(null)
+                    : keyOrderedExecutor.submit(summaries.get(i).orderingKey(), () -> processRecord(message)));
+        }
+        return results;
+    }
+
+    /**
+     * Groups the deltas by company and submits one bulk request for each company. Each delta still has its own
+     * result, completed once it has been sent or forwarded, so a failure is reported against the right delta.
+     */
+    private List<CompletableFuture<Void>> submitByCompany(List<Message<ChsDelta>> messages,
+            List<DeltaSummary> summaries, BitSet superseded) {
+        List<CompletableFuture<Void>> results = new ArrayList<>(messages.size());
+        Map<String, List<Integer>> positionsByCompany = new LinkedHashMap<>();
+        for (int i = 0; i < messages.size(); i++) {
+            if (superseded.get(i)) {
+                results.add(CompletableFuture.completedFuture(null));
+            } else {
+                results.add(new CompletableFuture<>());
+                positionsByCompany.computeIfAbsent(summaries.get(i).orderingKey(), key -> new ArrayList<>()).add(i);
+            }
+        }
+
+        positionsByCompany.forEach((companyNumber, positions) -> keyOrderedExecutor
+                .submit(companyNumber, () -> processCompany(companyNumber, positions, messages, summaries, results))
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        positions.forEach(i -> results.get(i).completeExceptionally(ex));
+                    }
+                }));
+        return results;
+    }
+
+    private void processCompany(String companyNumber, List<Integer> positions, List<Message<ChsDelta>> messages,
+            List<DeltaSummary> summaries, List<CompletableFuture<Void>> results) {
+        List<PscBulkItem> items = new ArrayList<>(positions.size());
+        List<Integer> itemPositions = new ArrayList<>(positions.size());
+        try {
+            for (int i : positions) {
+                DataMapHolder.initialise(summaries.get(i).contextId());
+                if (appliedDeltaCache.isApplied(summaries.get(i))) {
+                    results.get(i).complete(null);
+                    continue;
+                }
+                try {
+                    items.add(pscDeltaProcessor.prepareBulkItem(messages.get(i)));
+                    itemPositions.add(i);
+                } catch (RuntimeException ex) {
+                    forward(messages.get(i), ex, results.get(i));
+                }
+            }
+            if (items.isEmpty()) {
+                return;
+            }
+
+            DataMapHolder.initialise(summaries.get(itemPositions.getFirst()).contextId());
+            List<PscBulkResult> bulkResults = apiClientService.bulkPscFullRecords(companyNumber, items);
+            for (int j = 0; j < itemPositions.size(); j++) {
+                int i = itemPositions.get(j);
+                PscBulkResult bulkResult = bulkResults.get(j);
+                if (bulkResult.succeeded()) {
+                    appliedDeltaCache.markApplied(summaries.get(i));
+                    results.get(i).complete(null);
+                } else {
+                    forward(messages.get(i), bulkResult.failure(), results.get(i));
+                }
+            }
+        } finally {
+            DataMapHolder.clear();
+        }
+    }
+
+    private void forward(Message<ChsDelta> message, RuntimeException cause, CompletableFuture<Void> result) {
+        try {
+            failedDeltaPublisher.publish(message, cause);
+            result.complete(null);
+        } catch (RuntimeException ex) {
+            result.completeExceptionally(ex);
+        }
+    }
+
+    private void processRecord(Message<ChsDelta> message) {
+        try {
+            pscDeltaProcessor.process(message);
+        } catch (RuntimeException ex) {
+            failedDeltaPublisher.publish(message, ex);
+        }
+    }
+}
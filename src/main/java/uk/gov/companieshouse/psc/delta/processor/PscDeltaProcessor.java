@@ -3,8 +3,9 @@ package uk.gov.companieshouse.psc.delta.processor;
 import static uk.gov.companieshouse.psc.delta.PscDeltaConsumerApplication.NAMESPACE;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import consumer.exception.RetryableErrorException;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.CompletableFuture;
 import org.springframework.messaging.Message;
 import org.springframework.stereotype.Component;
 import uk.gov.companieshouse.api.delta.Psc;
@@ -15,9 +16,16 @@ import uk.gov.companieshouse.delta.ChsDelta;
 import uk.gov.companieshouse.logging.Logger;
 import uk.gov.companieshouse.logging.LoggerFactory;
 import uk.gov.companieshouse.psc.delta.logging.DataMapHolder;
+import uk.gov.companieshouse.psc.delta.logging.StageLogger;
 import uk.gov.companieshouse.psc.delta.mapper.KindMapper;
 import uk.gov.companieshouse.psc.delta.mapper.MapperUtils;
+import uk.gov.companieshouse.psc.delta.metrics.DeltaMetrics;
+import uk.gov.companieshouse.psc.delta.metrics.Operation;
+import uk.gov.companieshouse.psc.delta.metrics.Stage;
 import uk.gov.companieshouse.psc.delta.service.ApiClientService;
+import uk.gov.companieshouse.psc.delta.service.PscBulkItem;
+import uk.gov.companieshouse.psc.delta.tracing.DeltaTracing;
+import uk.gov.companieshouse.psc.delta.tracing.TracedStage;
 import uk.gov.companieshouse.psc.delta.transformer.PscApiTransformer;
 
 @Component
@@ -28,73 +36,186 @@ public class PscDeltaProcessor {
     private final PscApiTransformer transformer;
     private final ApiClientService apiClientService;
     private final KindMapper kindMapper;
-    private final ObjectMapper objectMapper;
+    private final DeltaReader deltaReader;
+    private final DeltaMetrics deltaMetrics;
+    private final AppliedDeltaCache appliedDeltaCache;
+    private final DeltaTracing deltaTracing;
 
     public PscDeltaProcessor(PscApiTransformer transformer, ApiClientService apiClientService, KindMapper kindMapper,
-            ObjectMapper objectMapper) {
+            DeltaReader deltaReader, DeltaMetrics deltaMetrics, AppliedDeltaCache appliedDeltaCache,
+            DeltaTracing deltaTracing) {
         this.transformer = transformer;
         this.apiClientService = apiClientService;
         this.kindMapper = kindMapper;
-        this.objectMapper = objectMapper;
+        this.deltaReader = deltaReader;
+        this.deltaMetrics = deltaMetrics;
+        this.appliedDeltaCache = appliedDeltaCache;
+        this.deltaTracing = deltaTracing;
+    }
+
+    /**
+     * Processes a single delta, dispatching on whether it is a delete. Used where deltas are handled outside the
+     * record listener, e.g. by {@link PscDeltaBatchProcessor}.
+     *
+     * @param chsDelta the delta message
+     */
+    public void process(Message<ChsDelta> chsDelta) {
+        if (chsDelta.getPayload().getIsDelete()) {
+            processDelete(chsDelta);
+        } else {
+            processDelta(chsDelta);
+        }
+    }
+
+    /**
+     * Binds and transforms the delta on the calling thread, returning the API call to make for it without making
+     * it, so the call can be made asynchronously by {@link PscDeltaAsyncProcessor}. A delta that has already been
+     * applied is neither bound nor sent; its call completes at once.
+     *
+     * @param chsDelta the delta message
+     * @return the API call for the delta
+     */
+    public ApiCall prepare(Message<ChsDelta> chsDelta) {
+        DeltaSummary summary = appliedDeltaCache.summarise(chsDelta);
+        if (appliedDeltaCache.isApplied(summary)) {
+            return new ApiCall(summary.orderingKey(), () -> CompletableFuture.completedFuture(null));
+        }
+        if (chsDelta.getPayload().getIsDelete()) {
+            DeletePscApiClientRequest clientRequest = toDeleteRequest(chsDelta);
+            return new ApiCall(clientRequest.getCompanyNumber(), appliedDeltaCache.markingApplied(summary,
+                    () -> apiClientService.deletePscFullRecordAsync(clientRequest)));
+        }
+        FullRecordCompanyPSCApi fullRecordCompanyPscApi = toFullRecord(chsDelta);
+        String companyNumber = fullRecordCompanyPscApi.getExternalData().getCompanyNumber();
+        return new ApiCall(companyNumber, appliedDeltaCache.markingApplied(summary,
+                () -> apiClientService.putPscFullRecordAsync(companyNumber,
+                        fullRecordCompanyPscApi.getExternalData().getNotificationId(), fullRecordCompanyPscApi)));
+    }
+
+    /**
+     * Binds and transforms the delta into an item of a bulk request for its company, without sending it.
+     *
+     * @param chsDelta the delta message
+     * @return the bulk item for the delta
+     */
+    public PscBulkItem prepareBulkItem(Message<ChsDelta> chsDelta) {
+        if (chsDelta.getPayload().getIsDelete()) {
+            return PscBulkItem.delete(toDeleteRequest(chsDelta));
+        }
+        FullRecordCompanyPSCApi fullRecordCompanyPscApi = toFullRecord(chsDelta);
+        return PscBulkItem.put(fullRecordCompanyPscApi.getExternalData().getNotificationId(), fullRecordCompanyPscApi);
     }
 
     public void processDelta(Message<ChsDelta> chsDelta) {
-        LOGGER.info("Processing PSC delta", DataMapHolder.getLogMap());
+        DeltaSummary summary = appliedDeltaCache.summarise(chsDelta);
+        if (appliedDeltaCache.isApplied(summary)) {
+            return;
+        }
+        FullRecordCompanyPSCApi fullRecordCompanyPscApi = toFullRecord(chsDelta);
+
+        apiClientService.putPscFullRecord(fullRecordCompanyPscApi.getExternalData().getCompanyNumber(),
+                fullRecordCompanyPscApi.getExternalData().getNotificationId(),
+                fullRecordCompanyPscApi);
+        appliedDeltaCache.markApplied(summary);
+    }
+
+    public void processDelete(Message<ChsDelta> chsDelta) {
+        DeltaSummary summary = appliedDeltaCache.summarise(chsDelta);
+        if (appliedDeltaCache.isApplied(summary)) {
+            return;
+        }
+        apiClientService.deletePscFullRecord(toDeleteRequest(chsDelta));
+        appliedDeltaCache.markApplied(summary);
+    }
+
+    /**
+     * Transforms and puts a delta that has already been bound, e.g. from a file by {@link BulkLoader}.
+     *
+     * @param pscDelta the delta
+     */
+    void applyDelta(PscDelta pscDelta) {
+        FullRecordCompanyPSCApi fullRecordCompanyPscApi = toFullRecord(pscDelta);
+
+        apiClientService.putPscFullRecord(fullRecordCompanyPscApi.getExternalData().getCompanyNumber(),
+                fullRecordCompanyPscApi.getExternalData().getNotificationId(),
+                fullRecordCompanyPscApi);
+    }
+
+    /**
+     * Deletes the PSC of a delete delta that has already been bound, e.g. from a file by {@link BulkLoader}.
+     *
+     * @param pscDelete the delete delta
+     * @param contextId the context id to send the delete with
+     */
+    void applyDelete(PscDeleteDelta pscDelete, String contextId) {
+        apiClientService.deletePscFullRecord(toDeleteRequest(pscDelete, contextId));
+    }
+
+    private FullRecordCompanyPSCApi toFullRecord(Message<ChsDelta> chsDelta) {
+        StageLogger.info("Processing PSC delta");
 
         ChsDelta payload = chsDelta.getPayload();
         PscDelta pscDelta;
+        Timer.Sample sample = deltaMetrics.startTimer();
         try {
-            pscDelta = objectMapper.readValue(payload.getData(), PscDelta.class);
+            pscDelta = deltaTracing.trace(TracedStage.READ_DELTA, () -> deltaReader.readPscDelta(payload.getData()));
+            deltaMetrics.recordStage(sample, Stage.DESERIALISE);
         } catch (JsonProcessingException ex) {
             final String msg = "Failed to extract PSC delta";
             LOGGER.info(msg, DataMapHolder.getLogMap());
             throw new RetryableErrorException(msg, ex);
         }
+        return toFullRecord(pscDelta);
+    }
 
+    private FullRecordCompanyPSCApi toFullRecord(PscDelta pscDelta) {
         Psc psc = pscDelta.getPscs().getFirst(); // We will only ever get one PSC per request
 
-        DataMapHolder.get()
-                .companyNumber(psc.getCompanyNumber())
-                .itemId(psc.getInternalId());
-
-        FullRecordCompanyPSCApi fullRecordCompanyPscApi = transformer.transform(pscDelta);
-        LOGGER.info("Successfully transformed PSC", DataMapHolder.getLogMap());
+        final String kind = psc.getKind() != null ? psc.getKind().toString() : null;
+        DataMapHolder.psc(psc.getCompanyNumber(), psc.getInternalId(), kind);
+        deltaMetrics.countDelta(kind, Operation.PUT);
 
-        apiClientService.putPscFullRecord(fullRecordCompanyPscApi.getExternalData().getCompanyNumber(),
-                fullRecordCompanyPscApi.getExternalData().getNotificationId(),
-                fullRecordCompanyPscApi);
+        Timer.Sample sample = deltaMetrics.startTimer();
+        FullRecordCompanyPSCApi fullRecordCompanyPscApi =
+                deltaTracing.trace(TracedStage.TRANSFORM, () -> transformer.transform(pscDelta));
+        deltaMetrics.recordStage(sample, Stage.TRANSFORM);
+        StageLogger.info("Successfully transformed PSC");
+        return fullRecordCompanyPscApi;
     }
 
-    public void processDelete(Message<ChsDelta> chsDelta) {
-        LOGGER.info("Processing PSC delete delta", DataMapHolder.getLogMap());
+    private DeletePscApiClientRequest toDeleteRequest(Message<ChsDelta> chsDelta) {
+        StageLogger.info("Processing PSC delete delta");
 
         final ChsDelta payload = chsDelta.getPayload();
         final String contextId = payload.getContextId();
 
         PscDeleteDelta pscDelete;
+        Timer.Sample sample = deltaMetrics.startTimer();
         try {
-            pscDelete = objectMapper.readValue(payload.getData(), PscDeleteDelta.class);
+            pscDelete = deltaTracing.trace(TracedStage.READ_DELTA,
+                    () -> deltaReader.readPscDeleteDelta(payload.getData()));
+            deltaMetrics.recordStage(sample, Stage.DESERIALISE);
         } catch (JsonProcessingException ex) {
             final String msg = "Failed to extract PSC delete delta";
             LOGGER.info(msg, DataMapHolder.getLogMap());
             throw new RetryableErrorException(msg, ex);
         }
+        return toDeleteRequest(pscDelete, contextId);
+    }
 
-        DataMapHolder.get()
-                .companyNumber(pscDelete.getCompanyNumber())
-                .itemId(pscDelete.getInternalId());
+    private DeletePscApiClientRequest toDeleteRequest(PscDeleteDelta pscDelete, String contextId) {
+        DataMapHolder.psc(pscDelete.getCompanyNumber(), pscDelete.getInternalId(), pscDelete.getKind());
+        deltaMetrics.countDelta(pscDelete.getKind(), Operation.DELETE);
 
         final String notificationId = MapperUtils.encode(pscDelete.getInternalId());
         final String kind = kindMapper.mapKindForDelete(pscDelete.getKind());
         final String companyNumber = pscDelete.getCompanyNumber();
-        DeletePscApiClientRequest clientRequest = DeletePscApiClientRequest.Builder.builder()
+        return DeletePscApiClientRequest.Builder.builder()
                 .contextId(contextId)
                 .notificationId(notificationId)
                 .companyNumber(companyNumber)
                 .deltaAt(pscDelete.getDeltaAt())
                 .kind(kind)
                 .build();
-
-        apiClientService.deletePscFullRecord(clientRequest);
     }
 }
@@ -0,0 +1,40 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.kafka.support.KafkaHeaders;
+
+/**
+ * Which deltas on the error topic to replay. A null field does not filter.
+ *
+ * @param fromOffset    the offset to start from in every partition, ignored if a start time is given
+ * @param fromTime      the time to start from, by the timestamp of the records on the error topic
+ * @param toTime        the time to stop at, by the timestamp of the records on the error topic
+ * @param companyNumber the company number of the deltas
+ * @param kind          the kind of PSC in the deltas, as given in the delta, e.g. individual
+ * @param errorClass    the class, or simple class name, of the exception the deltas failed with, or of its cause
+ */
+public record ReplayFilter(Long fromOffset, Instant fromTime, Instant toTime, String companyNumber, String kind,
+                           String errorClass) {
+
+    boolean matches(DeltaSummary summary, Headers headers) {
+        return (companyNumber == null || companyNumber.equals(summary.companyNumber()))
+                && (kind == null || kind.equalsIgnoreCase(summary.kind()))
+                && (errorClass == null || isErrorClass(headers.lastHeader(KafkaHeaders.DLT_EXCEPTION_FQCN))
+                        || isErrorClass(headers.lastHeader(KafkaHeaders.DLT_EXCEPTION_CAUSE_FQCN)));
+    }
+
+    boolean isAfterEnd(long timestamp) {
+        return toTime != null && timestamp > toTime.toEpochMilli();
+    }
+
+    private boolean isErrorClass(Header header) {
+        if (header == null) {
+            return false;
+        }
+        String className = new String(header.value(), StandardCharsets.UTF_8);
+        return className.equals(errorClass) || className.endsWith("." + errorClass);
+    }
+}
@@ -0,0 +1,26 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import java.time.Instant;
+
+/**
+ * How far the latest replay of the error topic has got.
+ *
+ * @param state      whether the replay is running or how it ended
+ * @param filter     the deltas being replayed
+ * @param startedAt  when the replay started
+ * @param finishedAt when the replay ended, or null while it is running
+ * @param read       the records read from the error topic
+ * @param matched    the deltas that matched the filter
+ * @param replayed   the deltas processed successfully
+ * @param failed     the deltas that failed again, which stay on the error topic
+ * @param lastError  the last failure, or null if there has been none
+ */
+public record ReplayProgress(State state, ReplayFilter filter, Instant startedAt, Instant finishedAt, long read,
+                             long matched, long replayed, long failed, String lastError) {
+
+    static final ReplayProgress IDLE = new ReplayProgress(State.IDLE, null, null, null, 0, 0, 0, 0, null);
+
+    public enum State {
+        IDLE, RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+}
@@ -0,0 +1,162 @@
+package uk.gov.companieshouse.psc.delta.service;
+
+import static uk.gov.companieshouse.psc.delta.PscDeltaConsumerApplication.NAMESPACE;
+
+import consumer.exception.RetryableErrorException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.logging.Logger;
+import uk.gov.companieshouse.logging.LoggerFactory;
+import uk.gov.companieshouse.psc.delta.consumer.ListenerPauseController;
+import uk.gov.companieshouse.psc.delta.logging.DataMapHolder;
+import uk.gov.companieshouse.psc.delta.metrics.DeltaMetrics;
+
+/**
+ * Limits the number of PSC data API calls in flight at once to a limit that adapts to how the API is coping, by
+ * additive increase and multiplicative decrease (AIMD). Each call answered in time with a status that is not 429
+ * or 5xx raises the limit by one over the current limit, so by about one for every full window of calls. A call
+ * answered with 429 or 5xx, or slower than the latency threshold, cuts the limit by the backoff ratio, at most once
+ * for the calls that were already in flight when it was last cut.
+ *
+ * <p>When the limit is reached the listener containers are paused, so no more deltas are fetched only to be sent to
+ * the retry topic, and the caller waits for a place. The containers are resumed once half the limit is free. The
+ * wait ends at the deadline the caller gives, the one the circuit breaker also waits to, as it may be on a listener
+ * thread, which must poll again within the max poll interval.
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    static final String PAUSE_REASON = "PSC data API concurrency limit reached";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NAMESPACE);
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVER_ERROR = 500;
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final ListenerPauseController pauseController;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition belowLimit = lock.newCondition();
+
+    private volatile double limit;
+    private int inFlight;
+    private boolean paused;
+    private long lastDecreaseNanos = System.nanoTime();
+
+    public AdaptiveConcurrencyLimiter(@Value("${api.adaptive-limit.enabled}") boolean enabled,
+            @Value("${api.adaptive-limit.initial-limit}") int initialLimit,
+            @Value("${api.adaptive-limit.min-limit}") int minLimit,
+            @Value("${api.adaptive-limit.max-limit}") int maxLimit,
+            @Value("${api.adaptive-limit.latency-threshold-ms}") long latencyThresholdMillis,
+            @Value("${api.adaptive-limit.backoff-ratio}") double backoffRatio,
+            ListenerPauseController pauseController, DeltaMetrics deltaMetrics) {
+        this.enabled = enabled;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.clamp(initialLimit, this.minLimit, this.maxLimit);
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+        this.backoffRatio = backoffRatio;
+        this.pauseController = pauseController;
+        if (enabled) {
+            deltaMetrics.gaugeApiConcurrency(this::limit, this::inFlight);
+        }
+    }
+
+    /**
+     * Takes a place for a call, pausing the containers and waiting up to the deadline for a place if the limit has
+     * been reached.
+     *
+     * @param deadlineNanos the time, from {@link System#nanoTime()}, after which the call stops waiting
+     * @return the time the call was let through, to pass to {@link #release(long, Integer)}
+     * @throws RetryableErrorException if no place is free by the deadline, or if interrupted while waiting
+     */
+    public long acquire(long deadlineNanos) {
+        if (!enabled) {
+            return System.nanoTime();
+        }
+        lock.lock();
+        try {
+            while (inFlight >= limit()) {
+                if (!paused) {
+                    paused = true;
+                    pauseController.pause(PAUSE_REASON);
+                }
+                long remaining = deadlineNanos - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new RetryableErrorException("Timed out waiting for a place to call the PSC data API");
+                }
+                belowLimit.awaitNanos(remaining);
+            }
+            inFlight++;
+            return System.nanoTime();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RetryableErrorException("Interrupted waiting for a place to call the PSC data API", ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives up the place taken for a call once it has completed, adjusting the limit to how the API answered.
+     *
+     * @param startedNanos the time returned by {@link #acquire(long)}
+     * @param statusCode   the response status code, or null if the call was not answered
+     */
+    public void release(long startedNanos, Integer statusCode) {
+        if (!enabled) {
+            return;
+        }
+        final long now = System.nanoTime();
+        lock.lock();
+        try {
+            inFlight--;
+            if (isOverloaded(statusCode, now - startedNanos)) {
+                if (startedNanos - lastDecreaseNanos >= 0) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastDecreaseNanos = now;
+                    LOGGER.info("Reduced PSC data API concurrency limit to %d, status code: %s"
+                            .formatted(limit(), statusCode), DataMapHolder.getLogMap());
+                }
+            } else if (statusCode != null) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+
+            if (inFlight < limit()) {
+                belowLimit.signal();
+            }
+            if (paused && inFlight <= limit() / 2) {
+                paused = false;
+                pauseController.resume(PAUSE_REASON);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isOverloaded(Integer statusCode, long latencyNanos) {
+        if (latencyNanos > latencyThresholdNanos) {
+            return true;
+        }
+        return statusCode != null && (statusCode == TOO_MANY_REQUESTS || statusCode >= SERVER_ERROR);
+    }
+}
@@ -0,0 +1,207 @@
+package uk.gov.companieshouse.psc.delta.service;
+
+import static uk.gov.companieshouse.psc.delta.PscDeltaConsumerApplication.NAMESPACE;
+
+import consumer.exception.RetryableErrorException;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.api.error.ApiErrorResponseException;
+import uk.gov.companieshouse.logging.Logger;
+import uk.gov.companieshouse.logging.LoggerFactory;
+import uk.gov.companieshouse.psc.delta.consumer.ListenerPauseController;
+import uk.gov.companieshouse.psc.delta.logging.DataMapHolder;
+import uk.gov.companieshouse.psc.delta.metrics.DeltaMetrics;
+
+/**
+ * Stops calling the PSC data API while it is unavailable, so an outage becomes consumer lag rather than deltas on
+ * the retry and error topics. After a number of consecutive calls have failed with 429 or 5xx, or without a
+ * response, the circuit opens: the listener containers are paused, and calls wait instead of failing, holding their
+ * deltas uncommitted. Once the open duration has passed the circuit half-opens and lets one call through as a probe.
+ * If the probe succeeds the circuit closes and the containers are resumed; if not, it opens again.
+ *
+ * <p>A call is never held for longer than the maximum wait, which is kept below the consumer's max.poll.interval.ms.
+ * Beyond it the call fails with a {@link RetryableErrorException} and its delta is retried as before.
+ */
+@Component
+public class ApiCircuitBreaker {
+
+    static final String PAUSE_REASON = "PSC data API circuit open";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NAMESPACE);
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVER_ERROR = 500;
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final boolean enabled;
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final long maxWaitNanos;
+    private final ListenerPauseController pauseController;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition stateChanged = lock.newCondition();
+
+    private volatile State state = State.CLOSED;
+    private volatile int consecutiveFailures;
+    private long openedAtNanos;
+    private boolean probing;
+
+    public ApiCircuitBreaker(@Value("${api.circuit-breaker.enabled}") boolean enabled,
+            @Value("${api.circuit-breaker.failure-threshold}") int failureThreshold,
+            @Value("${api.circuit-breaker.open-duration-ms}") long openDurationMillis,
+            @Value("${api.circuit-breaker.max-wait-ms}") long maxWaitMillis,
+            ListenerPauseController pauseController, DeltaMetrics deltaMetrics) {
+        this.enabled = enabled;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMillis);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.pauseController = pauseController;
+        if (enabled) {
+            deltaMetrics.gaugeCircuitOpen(() -> state == State.CLOSED ? 0 : 1);
+        }
+    }
+
+    /**
+     * Whether a call failed in a way that suggests the API is unavailable rather than that the request was wrong:
+     * with 429 or 5xx, or without a response.
+     */
+    static boolean isUnavailable(RuntimeException ex) {
+        if (!(ex instanceof RetryableErrorException)) {
+            return false;
+        }
+        if (ex.getCause() instanceof ApiErrorResponseException apiException) {
+            int statusCode = apiException.getStatusCode();
+            return statusCode == TOO_MANY_REQUESTS || statusCode >= SERVER_ERROR;
+        }
+        return ex.getCause() instanceof IOException;
+    }
+
+    /**
+     * @return the time, from {@link System#nanoTime()}, after which a call started now stops waiting
+     */
+    long waitDeadline() {
+        return System.nanoTime() + maxWaitNanos;
+    }
+
+    /**
+     * Waits until a call may be made: at once while the circuit is closed, otherwise until the circuit half-opens
+     * and the call can be the probe, or the circuit closes.
+     *
+     * @param deadlineNanos from {@link #waitDeadline()}
+     * @return whether the call is the half-open probe, which must end in {@link #onSuccess()},
+     *         {@link #onFailure()} or {@link #abandonProbe()}
+     * @throws RetryableErrorException if the deadline passes first, or if interrupted while waiting
+     */
+    boolean acquirePermission(long deadlineNanos) {
+        if (!enabled || state == State.CLOSED) {
+            return false;
+        }
+        lock.lock();
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                if (state == State.CLOSED) {
+                    return false;
+                }
+                if (state == State.OPEN && now - openedAtNanos >= openDurationNanos) {
+                    LOGGER.info("Half-opening PSC data API circuit", DataMapHolder.getLogMap());
+                    state = State.HALF_OPEN;
+                    probing = false;
+                }
+                if (state == State.HALF_OPEN && !probing) {
+                    probing = true;
+                    return true;
+                }
+
+                long remaining = deadlineNanos - now;
+                if (remaining <= 0) {
+                    throw new RetryableErrorException("PSC data API circuit open");
+                }
+                long wait = state == State.OPEN
+                        ? Math.min(remaining, openedAtNanos + openDurationNanos - now) : remaining;
+                stateChanged.awaitNanos(wait);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RetryableErrorException("Interrupted waiting for the PSC data API circuit to close", ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a call the API answered, closing the circuit if it was not already closed.
+     */
+    void onSuccess() {
+        if (!enabled || (state == State.CLOSED && consecutiveFailures == 0)) {
+            return;
+        }
+        lock.lock();
+        try {
+            consecutiveFailures = 0;
+            if (state != State.CLOSED) {
+                LOGGER.info("Closing PSC data API circuit", DataMapHolder.getLogMap());
+                state = State.CLOSED;
+                probing = false;
+                pauseController.resume(PAUSE_REASON);
+                stateChanged.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives up the probe without a call having been made, so the API has told nothing of whether it is available and
+     * the circuit stays half-open for the next call to probe.
+     */
+    void abandonProbe() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN && probing) {
+                probing = false;
+                stateChanged.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a call that failed as the API is unavailable, opening the circuit if the failure threshold has been
+     * reached or the call was the half-open probe.
+     *
+     * @return whether the circuit is open, in which case the call should wait to be made again rather than fail
+     */
+    boolean onFailure() {
+        if (!enabled) {
+            return false;
+        }
+        lock.lock();
+        try {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                LOGGER.info("Opening PSC data API circuit after %d consecutive failures"
+                        .formatted(consecutiveFailures), DataMapHolder.getLogMap());
+                state = State.OPEN;
+                openedAtNanos = System.nanoTime();
+                probing = false;
+                pauseController.pause(PAUSE_REASON);
+                stateChanged.signalAll();
+            }
+            return state != State.CLOSED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    State state() {
+        return state;
+    }
+}
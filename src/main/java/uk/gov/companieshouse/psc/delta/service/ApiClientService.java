@@ -2,68 +2,349 @@ package uk.gov.companieshouse.psc.delta.service;
 
 import static uk.gov.companieshouse.psc.delta.PscDeltaConsumerApplication.NAMESPACE;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.google.api.client.http.ByteArrayContent;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpResponse;
+import consumer.exception.RetryableErrorException;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongFunction;
 import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import uk.gov.companieshouse.api.InternalApiClient;
 import uk.gov.companieshouse.api.error.ApiErrorResponseException;
 import uk.gov.companieshouse.api.handler.exception.URIValidationException;
+import uk.gov.companieshouse.api.model.ApiResponse;
 import uk.gov.companieshouse.api.psc.FullRecordCompanyPSCApi;
 import uk.gov.companieshouse.logging.Logger;
 import uk.gov.companieshouse.logging.LoggerFactory;
+import uk.gov.companieshouse.psc.delta.http.PathTemplate;
 import uk.gov.companieshouse.psc.delta.logging.DataMapHolder;
+import uk.gov.companieshouse.psc.delta.logging.StageLogger;
+import uk.gov.companieshouse.psc.delta.metrics.DeltaMetrics;
+import uk.gov.companieshouse.psc.delta.metrics.Operation;
 import uk.gov.companieshouse.psc.delta.processor.DeletePscApiClientRequest;
+import uk.gov.companieshouse.psc.delta.tracing.DeltaTracing;
+import uk.gov.companieshouse.psc.delta.tracing.TracedStage;
 
 @Component
 public class ApiClientService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(NAMESPACE);
-    private static final String URI = "/company/%s/persons-with-significant-control/%s/full_record";
+    private static final PathTemplate URI =
+            PathTemplate.compile("/company/%s/persons-with-significant-control/%s/full_record");
+    private static final PathTemplate BULK_URI =
+            PathTemplate.compile("/company/%s/persons-with-significant-control/full_record/bulk");
+    private static final String JSON_CONTENT_TYPE = "application/json";
+    private static final Set<Integer> BULK_UNSUPPORTED_STATUSES = Set.of(404, 405, 501);
 
     private final Supplier<InternalApiClient> internalApiClientSupplier;
     private final ResponseHandler responseHandler;
+    private final DeltaMetrics deltaMetrics;
+    private final Executor apiExecutor;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final ApiCircuitBreaker circuitBreaker;
+    private final DryRunOutputWriter dryRunOutputWriter;
+    private final DeltaTracing deltaTracing;
+    private final AtomicBoolean bulkSupported = new AtomicBoolean(true);
+    private final ObjectWriter bulkRequestWriter;
+    private final ObjectReader bulkResponseReader;
 
     public ApiClientService(Supplier<InternalApiClient> internalApiClientSupplier,
-            ResponseHandler responseHandler) {
+            ResponseHandler responseHandler, DeltaMetrics deltaMetrics,
+            @Qualifier("apiExecutor") Executor apiExecutor, AdaptiveConcurrencyLimiter concurrencyLimiter,
+            ApiCircuitBreaker circuitBreaker, DryRunOutputWriter dryRunOutputWriter, DeltaTracing deltaTracing) {
         this.internalApiClientSupplier = internalApiClientSupplier;
         this.responseHandler = responseHandler;
+        this.deltaMetrics = deltaMetrics;
+        this.apiExecutor = apiExecutor;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.circuitBreaker = circuitBreaker;
+        this.dryRunOutputWriter = dryRunOutputWriter;
+        this.deltaTracing = deltaTracing;
+
+        ObjectMapper bulkMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        this.bulkRequestWriter = bulkMapper.writer();
+        this.bulkResponseReader = bulkMapper.readerFor(PscBulkResponse.class);
+    }
+
+    /**
+     * Sends the PUT request on the API executor, with the calling thread's logging context.
+     *
+     * @return a future completed once the API has accepted the record, or completed exceptionally with the
+     *         RetryableErrorException or NonRetryableErrorException the response was handled as
+     */
+    public CompletableFuture<Void> putPscFullRecordAsync(String companyNumber, String notificationId,
+            FullRecordCompanyPSCApi fullRecordCompanyPscApi) {
+        return CompletableFuture.runAsync(DataMapHolder.wrap(
+                () -> putPscFullRecord(companyNumber, notificationId, fullRecordCompanyPscApi)), apiExecutor);
+    }
+
+    /**
+     * Sends the DELETE request on the API executor, with the calling thread's logging context.
+     *
+     * @return a future completed once the API has deleted the record, or completed exceptionally with the
+     *         RetryableErrorException or NonRetryableErrorException the response was handled as
+     */
+    public CompletableFuture<Void> deletePscFullRecordAsync(DeletePscApiClientRequest clientRequest) {
+        return CompletableFuture.runAsync(DataMapHolder.wrap(() -> deletePscFullRecord(clientRequest)), apiExecutor);
     }
 
     public void putPscFullRecord(String companyNumber, String notificationId,
             FullRecordCompanyPSCApi fullRecordCompanyPscApi) {
-        final String formattedUri = String.format(URI, companyNumber, notificationId);
-        LOGGER.info("Sending PUT request to API", DataMapHolder.getLogMap());
+        if (dryRunOutputWriter.isEnabled()) {
+            dryRunOutputWriter.write(companyNumber, PscBulkItem.put(notificationId, fullRecordCompanyPscApi));
+            return;
+        }
+        final String formattedUri = URI.expand(companyNumber, notificationId);
+        StageLogger.info("Sending PUT request to API");
+
+        callThroughCircuitBreaker(started -> {
+            sendPut(formattedUri, fullRecordCompanyPscApi, started);
+            return null;
+        });
+    }
+
+    public void deletePscFullRecord(DeletePscApiClientRequest clientRequest) {
+        if (dryRunOutputWriter.isEnabled()) {
+            dryRunOutputWriter.write(clientRequest.getCompanyNumber(), PscBulkItem.delete(clientRequest));
+            return;
+        }
+        final String formattedUri = URI.expand(clientRequest.getCompanyNumber(), clientRequest.getNotificationId());
+        StageLogger.info("Sending DELETE request to API");
 
+        callThroughCircuitBreaker(started -> {
+            sendDelete(formattedUri, clientRequest, started);
+            return null;
+        });
+    }
+
+    private void sendPut(String formattedUri, FullRecordCompanyPSCApi fullRecordCompanyPscApi, long started) {
+        final Timer.Sample sample = deltaMetrics.startTimer();
+        Integer statusCode = null;
         try {
             InternalApiClient apiClient = internalApiClientSupplier.get();
-            apiClient.getHttpClient().setRequestId(DataMapHolder.getRequestId());
 
-            apiClient.privatePscFullRecordResourceHandler()
+            ApiResponse<Void> response = apiClient.privatePscFullRecordResourceHandler()
                     .putPscFullRecord(formattedUri, fullRecordCompanyPscApi)
                     .execute();
+            statusCode = response.getStatusCode();
+            deltaMetrics.recordApiCall(sample, Operation.PUT, statusCode);
 
         } catch (ApiErrorResponseException ex) {
-            responseHandler.handle(ex);
+            statusCode = ex.getStatusCode();
+            deltaMetrics.recordApiCall(sample, Operation.PUT, statusCode);
+            responseHandler.handle(ex, Operation.PUT, formattedUri);
         } catch (URIValidationException ex) {
             responseHandler.handle(ex);
+        } finally {
+            concurrencyLimiter.release(started, statusCode);
         }
     }
 
-    public void deletePscFullRecord(DeletePscApiClientRequest clientRequest) {
-        final String formattedUri = String.format(URI, clientRequest.getCompanyNumber(), clientRequest.getNotificationId());
-        LOGGER.info("Sending DELETE request to API", DataMapHolder.getLogMap());
-
+    private void sendDelete(String formattedUri, DeletePscApiClientRequest clientRequest, long started) {
+        final Timer.Sample sample = deltaMetrics.startTimer();
+        Integer statusCode = null;
         try {
             InternalApiClient apiClient = internalApiClientSupplier.get();
-            apiClient.getHttpClient().setRequestId(DataMapHolder.getRequestId());
 
-            apiClient.privatePscFullRecordResourceHandler()
+            ApiResponse<Void> response = apiClient.privatePscFullRecordResourceHandler()
                     .deletePscFullRecord(formattedUri, clientRequest.getDeltaAt(), clientRequest.getKind())
                     .execute();
+            statusCode = response.getStatusCode();
+            deltaMetrics.recordApiCall(sample, Operation.DELETE, statusCode);
 
         } catch (ApiErrorResponseException ex) {
-            responseHandler.handle(ex);
+            statusCode = ex.getStatusCode();
+            deltaMetrics.recordApiCall(sample, Operation.DELETE, statusCode);
+            responseHandler.handle(ex, Operation.DELETE, formattedUri);
         } catch (URIValidationException ex) {
             responseHandler.handle(ex);
+        } finally {
+            concurrencyLimiter.release(started, statusCode);
+        }
+    }
+
+    /**
+     * Sends the upserts and deletes for one company in a single bulk request, with the result of each item sorted
+     * into retryable and non-retryable failures as the response handler does for a single request. If the PSC data
+     * API answers that it does not support bulk requests, the items are sent one request at a time instead, as is
+     * every later call. During a dry run the items are written to the dry run output instead, one by one.
+     *
+     * @param companyNumber the company the items are for
+     * @param items         the items, applied in the order given
+     * @return the result of each item, in the order given
+     */
+    public List<PscBulkResult> bulkPscFullRecords(String companyNumber, List<PscBulkItem> items) {
+        if (dryRunOutputWriter.isEnabled()) {
+            return sendEach(companyNumber, items);
+        }
+        List<PscBulkResult> results;
+        try {
+            results = bulkSupported.get()
+                    ? callThroughCircuitBreaker(started -> sendBulk(companyNumber, items, started)) : null;
+        } catch (RuntimeException ex) {
+            return failEach(items, ex);
         }
+        return results != null ? results : sendEach(companyNumber, items);
+    }
+
+    /**
+     * Makes the call once the circuit breaker permits it. A call that fails as the API is unavailable while the
+     * circuit is open is made again once the circuit half-opens or closes, rather than failing its delta. Each
+     * attempt is traced in a span of its own, which the request carries the trace context of.
+     *
+     * <p>Each attempt then takes a place under the concurrency limit, waiting to the same deadline as the circuit
+     * breaker, so the waits of every attempt together end by it. The call is given the time the place was taken, and
+     * must release it. An attempt that gets no place never reaches the API, so it is not recorded as a success or a
+     * failure; if it was the half-open probe, the probe is left to the next call.
+     */
+    private <T> T callThroughCircuitBreaker(LongFunction<T> call) {
+        final long deadline = circuitBreaker.waitDeadline();
+        while (true) {
+            final boolean probe = circuitBreaker.acquirePermission(deadline);
+            final long started;
+            try {
+                started = concurrencyLimiter.acquire(deadline);
+            } catch (RuntimeException ex) {
+                if (probe) {
+                    circuitBreaker.abandonProbe();
+                }
+                throw ex;
+            }
+            try {
+                T result = deltaTracing.trace(TracedStage.API_CALL, () -> call.apply(started));
+                circuitBreaker.onSuccess();
+                return result;
+            } catch (RuntimeException ex) {
+                if (!ApiCircuitBreaker.isUnavailable(ex)) {
+                    circuitBreaker.onSuccess();
+                    throw ex;
+                }
+                if (!circuitBreaker.onFailure()) {
+                    throw ex;
+                }
+                LOGGER.info("PSC data API unavailable, waiting for circuit to half-open", DataMapHolder.getLogMap());
+            }
+        }
+    }
+
+    /**
+     * @return the result of each item, or null if the API does not support bulk requests
+     * @throws RuntimeException the exception every item failed with, if the request as a whole failed
+     */
+    private List<PscBulkResult> sendBulk(String companyNumber, List<PscBulkItem> items, long started) {
+        if (StageLogger.isEnabled()) {
+            StageLogger.info("Sending bulk request of %d items to API".formatted(items.size()));
+        }
+
+        final String formattedUri = BULK_URI.expand(companyNumber);
+        final Timer.Sample sample = deltaMetrics.startTimer();
+        Integer statusCode = null;
+        PscBulkResponse bulkResponse;
+        try {
+            InternalApiClient apiClient = internalApiClientSupplier.get();
+            byte[] body = bulkRequestWriter.writeValueAsBytes(Map.of("items", items));
+            HttpRequest request = apiClient.getHttpClient().getRequestFactory().buildPostRequest(
+                    new GenericUrl(apiClient.getBasePath() + formattedUri),
+                    new ByteArrayContent(JSON_CONTENT_TYPE, body));
+            request.setThrowExceptionOnExecuteError(false);
+
+            HttpResponse response = request.execute();
+            try {
+                statusCode = response.getStatusCode();
+                deltaMetrics.recordApiCall(sample, Operation.BULK, statusCode);
+                if (BULK_UNSUPPORTED_STATUSES.contains(statusCode)) {
+                    LOGGER.info("Bulk requests not supported by API, status code: %d".formatted(statusCode),
+                            DataMapHolder.getLogMap());
+                    bulkSupported.set(false);
+                    return null;
+                }
+                if (!response.isSuccessStatusCode()) {
+                    throw failure(statusCode, formattedUri, "Bulk request failed");
+                }
+                try (InputStream content = response.getContent()) {
+                    bulkResponse = bulkResponseReader.readValue(content);
+                }
+            } finally {
+                response.disconnect();
+            }
+        } catch (IOException ex) {
+            if (statusCode == null) {
+                deltaMetrics.recordApiCall(sample, Operation.BULK, null);
+            }
+            throw new RetryableErrorException("Failed to send bulk request to API", ex);
+        } finally {
+            concurrencyLimiter.release(started, statusCode);
+        }
+
+        if (bulkResponse == null || bulkResponse.results() == null
+                || bulkResponse.results().size() != items.size()) {
+            throw new RetryableErrorException(
+                    "Bulk response with status %d did not have a result for every item".formatted(statusCode));
+        }
+        List<PscBulkResult> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            int itemStatus = bulkResponse.results().get(i).status();
+            results.add(new PscBulkResult(items.get(i), itemStatus >= 200 && itemStatus < 300
+                    ? null : failure(itemStatus, formattedUri, "Bulk item %d failed".formatted(i))));
+        }
+        return results;
+    }
+
+    private List<PscBulkResult> sendEach(String companyNumber, List<PscBulkItem> items) {
+        List<PscBulkResult> results = new ArrayList<>(items.size());
+        for (PscBulkItem item : items) {
+            try {
+                if (item.isDelete()) {
+                    deletePscFullRecord(DeletePscApiClientRequest.Builder.builder()
+                            .companyNumber(companyNumber)
+                            .notificationId(item.notificationId())
+                            .deltaAt(item.deltaAt())
+                            .kind(item.kind())
+                            .build());
+                } else {
+                    putPscFullRecord(companyNumber, item.notificationId(), item.fullRecord());
+                }
+                results.add(new PscBulkResult(item, null));
+            } catch (RuntimeException ex) {
+                results.add(new PscBulkResult(item, ex));
+            }
+        }
+        return results;
+    }
+
+    private static List<PscBulkResult> failEach(List<PscBulkItem> items, RuntimeException failure) {
+        List<PscBulkResult> results = new ArrayList<>(items.size());
+        for (PscBulkItem item : items) {
+            results.add(new PscBulkResult(item, failure));
+        }
+        return results;
+    }
+
+    /**
+     * The exception the response handler sorts a failed status into, as it would for a single request.
+     */
+    private RuntimeException failure(int statusCode, String formattedUri, String message) {
+        return responseHandler.failure(statusCode, message, Operation.BULK, formattedUri, null);
     }
 }
@@ -0,0 +1,211 @@
+package uk.gov.companieshouse.psc.delta.service;
+
+import static uk.gov.companieshouse.psc.delta.PscDeltaConsumerApplication.NAMESPACE;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import consumer.exception.RetryableErrorException;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.logging.Logger;
+import uk.gov.companieshouse.logging.LoggerFactory;
+import uk.gov.companieshouse.psc.delta.logging.DataMapHolder;
+
+/**
+ * Writes the records that would have been sent to the PSC data API to local files instead, so the transform can be
+ * run over the topic or a bulk load without touching the API, and its output compared or measured on its own. Each
+ * upsert or delete is one line of JSON, the company number followed by the bulk item the API would have been sent.
+ * A dry run from the topic still commits offsets, so it must run under its own group id rather than the production
+ * one, or the deltas it reads would never be sent to the API. It still forwards deltas that fail, so it must also
+ * forward them to retry and error topics of its own, by changing the topic suffixes from the production ones. A
+ * dry run of a bulk load reads no topic and forwards nothing, so neither is checked under the bulk-load profile.
+ *
+ * <p>Lines are gathered in a direct buffer and written to the current file through its channel once the buffer is
+ * full, so a write costs a copy rather than a system call. A new file is started once the current one has reached
+ * the roll size; file names sort in the order they were written. Lines still in the buffer are written when the file
+ * rolls and on shutdown, so a crash may lose the last of them.
+ */
+@Component
+public class DryRunOutputWriter {
+
+    static final String PRODUCTION_GROUP_ID = "psc-delta-consumer";
+    static final String PRODUCTION_RETRY_TOPIC_SUFFIX = "-retry";
+    static final String PRODUCTION_ERROR_TOPIC_SUFFIX = "-error";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NAMESPACE);
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final byte NEWLINE = '\n';
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss")
+            .withZone(ZoneOffset.UTC);
+
+    private final boolean enabled;
+    private final Path outputDir;
+    private final long rollSize;
+    private final Clock clock;
+    private final ObjectWriter lineWriter;
+
+    private ByteBuffer buffer;
+    private FileChannel channel;
+    private Path currentFile;
+    private long currentSize;
+    private int fileCount;
+
+    public DryRunOutputWriter(@Value("${pscs.delta.dry-run.enabled}") boolean enabled,
+            @Value("${pscs.delta.group-id}") String groupId,
+            @Value("${pscs.delta.retry-topic-suffix}") String retryTopicSuffix,
+            @Value("${pscs.delta.error-topic-suffix}") String errorTopicSuffix,
+            @Value("${pscs.delta.dry-run.output-dir}") String outputDir,
+            @Value("${pscs.delta.dry-run.roll-size-bytes}") long rollSize, Environment environment) {
+        this(enabled, !environment.acceptsProfiles(Profiles.of("bulk-load")), groupId, retryTopicSuffix,
+                errorTopicSuffix, outputDir, rollSize, Clock.systemUTC());
+    }
+
+    /**
+     * @param fromTopic whether deltas are read from the topic, rather than bulk loaded, so the group id and topic
+     *                  suffixes must not be the production ones
+     */
+    DryRunOutputWriter(boolean enabled, boolean fromTopic, String groupId, String retryTopicSuffix,
+            String errorTopicSuffix, String outputDir, long rollSize, Clock clock) {
+        if (enabled && (outputDir == null || outputDir.isBlank())) {
+            throw new IllegalArgumentException("pscs.delta.dry-run.output-dir must be set to run a dry run");
+        }
+        if (enabled && fromTopic && PRODUCTION_GROUP_ID.equals(groupId)) {
+            throw new IllegalArgumentException("pscs.delta.group-id must be changed from %s to run a dry run"
+                    .formatted(PRODUCTION_GROUP_ID));
+        }
+        if (enabled && fromTopic && (PRODUCTION_RETRY_TOPIC_SUFFIX.equals(retryTopicSuffix)
+                || PRODUCTION_ERROR_TOPIC_SUFFIX.equals(errorTopicSuffix))) {
+            throw new IllegalArgumentException(("pscs.delta.retry-topic-suffix and pscs.delta.error-topic-suffix must "
+                    + "be changed from %s and %s to run a dry run")
+                    .formatted(PRODUCTION_RETRY_TOPIC_SUFFIX, PRODUCTION_ERROR_TOPIC_SUFFIX));
+        }
+        this.enabled = enabled;
+        this.outputDir = enabled ? Path.of(outputDir) : null;
+        this.rollSize = Math.max(1L, rollSize);
+        this.clock = clock;
+        this.lineWriter = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .writerFor(DryRunLine.class);
+        if (enabled) {
+            LOGGER.info("Dry run enabled, writing transformed PSC records to %s instead of the API"
+                    .formatted(this.outputDir), DataMapHolder.getLogMap());
+        }
+    }
+
+    /**
+     * Whether records are written here in place of being sent to the API.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Writes the item as it would have been sent to the API for the company.
+     *
+     * @throws RetryableErrorException if the line could not be written, e.g. as the disk is full
+     */
+    public void write(String companyNumber, PscBulkItem item) {
+        try {
+            byte[] line = lineWriter.writeValueAsBytes(new DryRunLine(companyNumber, item));
+            append(line);
+        } catch (IOException ex) {
+            throw new RetryableErrorException("Failed to write dry run output to %s".formatted(currentFile), ex);
+        }
+    }
+
+    /**
+     * Writes the lines still buffered to the current file.
+     */
+    public synchronized void flush() throws IOException {
+        if (channel == null || buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @PreDestroy
+    synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            closeCurrentFile();
+        } catch (IOException ex) {
+            LOGGER.error("Failed to close dry run output %s".formatted(currentFile), ex, DataMapHolder.getLogMap());
+        }
+    }
+
+    private synchronized void append(byte[] line) throws IOException {
+        if (channel == null || currentSize >= rollSize) {
+            roll();
+        }
+        if (buffer.remaining() < line.length + 1) {
+            flush();
+        }
+        if (buffer.remaining() < line.length + 1) {
+            // Too long to buffer, so written straight to the file
+            ByteBuffer direct = ByteBuffer.allocate(line.length + 1).put(line).put(NEWLINE).flip();
+            while (direct.hasRemaining()) {
+                channel.write(direct);
+            }
+        } else {
+            buffer.put(line).put(NEWLINE);
+        }
+        currentSize += line.length + 1;
+    }
+
+    private void roll() throws IOException {
+        if (channel != null) {
+            closeCurrentFile();
+        } else {
+            Files.createDirectories(outputDir);
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        currentFile = outputDir.resolve("pscs-%s-%05d.ndjson".formatted(FILE_TIMESTAMP.format(clock.instant()),
+                fileCount++));
+        channel = FileChannel.open(currentFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        currentSize = 0;
+    }
+
+    private void closeCurrentFile() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+            channel = null;
+        }
+        LOGGER.info("Wrote %d bytes of dry run output to %s".formatted(currentSize, currentFile),
+                DataMapHolder.getLogMap());
+    }
+
+    /**
+     * One line of output: the company the item is for, then the item's own fields.
+     */
+    private record DryRunLine(@JsonProperty("company_number") String companyNumber,
+                              @JsonUnwrapped PscBulkItem item) {
+    }
+}
@@ -0,0 +1,39 @@
+package uk.gov.companieshouse.psc.delta.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import uk.gov.companieshouse.api.psc.FullRecordCompanyPSCApi;
+import uk.gov.companieshouse.psc.delta.metrics.Operation;
+import uk.gov.companieshouse.psc.delta.processor.DeletePscApiClientRequest;
+
+/**
+ * One upsert or delete of a PSC full record within a bulk request for a company.
+ *
+ * @param operation      whether the record is put or deleted
+ * @param notificationId the encoded notification id of the record
+ * @param fullRecord     the record to put, for a PUT
+ * @param deltaAt        the delta_at of the delete, for a DELETE
+ * @param kind           the kind of PSC deleted, for a DELETE
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PscBulkItem(@JsonProperty("operation") Operation operation,
+                          @JsonProperty("notification_id") String notificationId,
+                          @JsonProperty("full_record") FullRecordCompanyPSCApi fullRecord,
+                          @JsonProperty("delta_at") String deltaAt,
+                          @JsonProperty("kind") String kind) {
+
+    public static PscBulkItem put(String notificationId, FullRecordCompanyPSCApi fullRecord) {
+        return new PscBulkItem(Operation.PUT, notificationId, fullRecord, null, null);
+    }
+
+    public static PscBulkItem delete(DeletePscApiClientRequest clientRequest) {
+        return new PscBulkItem(Operation.DELETE, clientRequest.getNotificationId(), null,
+                clientRequest.getDeltaAt(), clientRequest.getKind());
+    }
+
+    @JsonIgnore
+    public boolean isDelete() {
+        return operation == Operation.DELETE;
+    }
+}
@@ -0,0 +1,17 @@
+package uk.gov.companieshouse.psc.delta.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+/**
+ * The body of a bulk response: the status of each item, in the order the items were sent.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+record PscBulkResponse(@JsonProperty("results") List<ItemStatus> results) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record ItemStatus(@JsonProperty("notification_id") String notificationId,
+                      @JsonProperty("status") int status) {
+    }
+}
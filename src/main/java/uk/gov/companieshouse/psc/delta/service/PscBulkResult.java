@@ -0,0 +1,15 @@
+package uk.gov.companieshouse.psc.delta.service;
+
+/**
+ * The result of one item of a bulk request.
+ *
+ * @param item    the item sent
+ * @param failure the RetryableErrorException or NonRetryableErrorException the item failed with, as the response
+ *                handler would have thrown for it on its own, or null if it succeeded
+ */
+public record PscBulkResult(PscBulkItem item, RuntimeException failure) {
+
+    public boolean succeeded() {
+        return failure == null;
+    }
+}
@@ -5,38 +5,125 @@ import static uk.gov.companieshouse.psc.delta.PscDeltaConsumerApplication.NAMESP
 import consumer.exception.NonRetryableErrorException;
 import consumer.exception.RetryableErrorException;
 import java.util.Arrays;
-import org.springframework.http.HttpStatus;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import uk.gov.companieshouse.api.error.ApiErrorResponseException;
 import uk.gov.companieshouse.api.handler.exception.URIValidationException;
 import uk.gov.companieshouse.logging.Logger;
 import uk.gov.companieshouse.logging.LoggerFactory;
 import uk.gov.companieshouse.psc.delta.logging.DataMapHolder;
+import uk.gov.companieshouse.psc.delta.metrics.DeltaMetrics;
+import uk.gov.companieshouse.psc.delta.metrics.Operation;
+import uk.gov.companieshouse.psc.delta.metrics.Outcome;
 
+/**
+ * Sorts failed PSC data API responses into retryable and non-retryable failures. Each failure is counted by
+ * operation, status and outcome, and logged as one short line of its status, operation, endpoint and cause. While
+ * the API is failing many calls at once, building the stack trace of every failure would cost the most just when the
+ * service can least afford it, so a stack trace is only logged with the first failure in each sample interval, along
+ * with the number of failures logged without one since the last.
+ */
 @Component
 public class ResponseHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(NAMESPACE);
-    private static final String API_INFO_RESPONSE_MESSAGE = "Call to API failed, status code: %d. %s";
-    private static final String API_ERROR_RESPONSE_MESSAGE = "Call to API failed, status code: %d";
+    private static final String API_ERROR_RESPONSE_MESSAGE = "Call to API failed, status code: ";
     private static final String URI_VALIDATION_EXCEPTION_MESSAGE = "Invalid URI";
+    private static final int MAX_CAUSE_LENGTH = 200;
+    private static final int BAD_REQUEST = 400;
+    private static final int CONFLICT = 409;
 
-    public void handle(ApiErrorResponseException ex) {
-        final int statusCode = ex.getStatusCode();
-        final HttpStatus httpStatus = HttpStatus.valueOf(statusCode);
+    private final DeltaMetrics deltaMetrics;
+    private final long sampleIntervalNanos;
+    private final LongSupplier nanoTime;
+    private final AtomicLong nextSampleAt;
+    private final AtomicLong unsampled = new AtomicLong();
 
-        if (HttpStatus.CONFLICT.equals(httpStatus) || HttpStatus.BAD_REQUEST.equals(httpStatus)) {
-            LOGGER.error(String.format(API_ERROR_RESPONSE_MESSAGE, statusCode), ex, DataMapHolder.getLogMap());
-            throw new NonRetryableErrorException(String.format(API_ERROR_RESPONSE_MESSAGE, statusCode), ex);
+    public ResponseHandler(DeltaMetrics deltaMetrics,
+            @Value("${api.stack-trace-sample-interval-ms}") long sampleIntervalMillis) {
+        this(deltaMetrics, sampleIntervalMillis, System::nanoTime);
+    }
+
+    ResponseHandler(DeltaMetrics deltaMetrics, long sampleIntervalMillis, LongSupplier nanoTime) {
+        this.deltaMetrics = deltaMetrics;
+        this.sampleIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, sampleIntervalMillis));
+        this.nanoTime = nanoTime;
+        this.nextSampleAt = new AtomicLong(nanoTime.getAsLong());
+    }
+
+    /**
+     * @throws NonRetryableErrorException for a 400 or 409 response, which sending again would not change
+     * @throws RetryableErrorException    for any other status
+     */
+    public void handle(ApiErrorResponseException ex, Operation operation, String uri) {
+        throw failure(ex.getStatusCode(), ex.getStatusMessage(), operation, uri, ex);
+    }
+
+    /**
+     * Sorts a failed status into the exception it is handled as, counting and logging it as a failed response is.
+     *
+     * @param statusCode the status of the failed response
+     * @param cause      a short description of the failure, such as the status message
+     * @param operation  the operation that failed
+     * @param uri        the endpoint the failed request was sent to
+     * @param ex         the exception the failure was reported with, or null if there was none
+     * @return the NonRetryableErrorException or RetryableErrorException to fail the call with
+     */
+    public RuntimeException failure(int statusCode, String cause, Operation operation, String uri, Exception ex) {
+        final String message = API_ERROR_RESPONSE_MESSAGE + statusCode;
+        final boolean retryable = statusCode != BAD_REQUEST && statusCode != CONFLICT;
+        deltaMetrics.countApiFailure(operation, statusCode,
+                retryable ? Outcome.RETRYABLE_ERROR : Outcome.NON_RETRYABLE_ERROR);
+
+        final String summary = summary(message, operation, uri, cause);
+        final long skipped = ex != null ? sampleStackTrace() : -1;
+        if (retryable) {
+            LOGGER.info(skipped < 0 ? summary : summary + ", failures since last stack trace: " + skipped + ". "
+                    + Arrays.toString(ex.getStackTrace()), DataMapHolder.getLogMap());
+            return new RetryableErrorException(message, ex);
+        }
+        if (skipped < 0) {
+            LOGGER.error(summary, DataMapHolder.getLogMap());
         } else {
-            LOGGER.info(String.format(API_INFO_RESPONSE_MESSAGE, statusCode, Arrays.toString(ex.getStackTrace())),
-                    DataMapHolder.getLogMap());
-            throw new RetryableErrorException(String.format(API_ERROR_RESPONSE_MESSAGE, statusCode), ex);
+            LOGGER.error(summary + ", failures since last stack trace: " + skipped, ex, DataMapHolder.getLogMap());
         }
+        return new NonRetryableErrorException(message, ex);
     }
 
     public void handle(URIValidationException ex) {
         LOGGER.error(URI_VALIDATION_EXCEPTION_MESSAGE, DataMapHolder.getLogMap());
         throw new NonRetryableErrorException(URI_VALIDATION_EXCEPTION_MESSAGE, ex);
     }
+
+    /**
+     * Whether this failure is the one in its interval to log a stack trace for.
+     *
+     * @return the number of failures logged without a stack trace since the last one was, or -1 if this failure is
+     *         not to have one either
+     */
+    long sampleStackTrace() {
+        final long now = nanoTime.getAsLong();
+        final long sampleAt = nextSampleAt.get();
+        if (now - sampleAt < 0 || !nextSampleAt.compareAndSet(sampleAt, now + sampleIntervalNanos)) {
+            unsampled.incrementAndGet();
+            return -1;
+        }
+        return unsampled.getAndSet(0);
+    }
+
+    static String summary(String message, Operation operation, String uri, String cause) {
+        return message + ", operation: " + operation + ", uri: " + uri + ", cause: " + shorten(cause);
+    }
+
+    private static String shorten(String cause) {
+        if (cause == null || cause.isEmpty()) {
+            return "none";
+        }
+        int end = Math.min(cause.length(), MAX_CAUSE_LENGTH);
+        int newline = cause.indexOf('\n');
+        return cause.substring(0, newline >= 0 && newline < end ? newline : end);
+    }
 }
@@ -0,0 +1,173 @@
+package uk.gov.companieshouse.psc.delta.tracing;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.context.propagation.TextMapSetter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.stereotype.Component;
+import uk.gov.companieshouse.psc.delta.logging.DataMapHolder;
+
+/**
+ * Traces the stages a delta passes through as OpenTelemetry spans, so the time a delta spends in each can be found
+ * for any one delta rather than only in aggregate, as the stage timers give it. Each span carries the company
+ * number, kind and retry count of the delta from its logging context, read as the span ends, when the most is known
+ * about the delta.
+ *
+ * <p>The trace context of a delta is written into the headers of its record as the record is deserialised, so a
+ * delta forwarded to the retry topic carries it and each attempt is traced as part of the same trace. It is sent
+ * on to the PSC data API in the headers of each request.
+ */
+@Component
+public class DeltaTracing {
+
+    static final String INSTRUMENTATION_NAME = "uk.gov.companieshouse.psc.delta";
+    static final AttributeKey<String> COMPANY_NUMBER = AttributeKey.stringKey("psc.company_number");
+    static final AttributeKey<String> KIND = AttributeKey.stringKey("psc.kind");
+    static final AttributeKey<Long> RETRY_COUNT = AttributeKey.longKey("psc.retry_count");
+
+    private static final TextMapGetter<Headers> RECORD_HEADERS_GETTER = new TextMapGetter<>() {
+        @Override
+        public Iterable<String> keys(Headers headers) {
+            List<String> keys = new ArrayList<>();
+            headers.forEach(header -> keys.add(header.key()));
+            return keys;
+        }
+
+        @Override
+        public String get(Headers headers, String key) {
+            Header header = headers != null ? headers.lastHeader(key) : null;
+            return header != null && header.value() != null
+                    ? new String(header.value(), StandardCharsets.UTF_8) : null;
+        }
+    };
+
+    private static final TextMapGetter<MessageHeaders> MESSAGE_HEADERS_GETTER = new TextMapGetter<>() {
+        @Override
+        public Iterable<String> keys(MessageHeaders headers) {
+            return headers.keySet();
+        }
+
+        @Override
+        public String get(MessageHeaders headers, String key) {
+            Object value = headers != null ? headers.get(key) : null;
+            if (value instanceof byte[] bytes) {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+            return value instanceof String string ? string : null;
+        }
+    };
+
+    private static final TextMapSetter<Headers> RECORD_HEADERS_SETTER = (headers, key, value) -> {
+        if (headers != null) {
+            headers.remove(key);
+            headers.add(key, value.getBytes(StandardCharsets.UTF_8));
+        }
+    };
+
+    private final Tracer tracer;
+    private final TextMapPropagator propagator;
+
+    public DeltaTracing(OpenTelemetry openTelemetry) {
+        this.tracer = openTelemetry.getTracer(INSTRUMENTATION_NAME);
+        this.propagator = openTelemetry.getPropagators().getTextMapPropagator();
+    }
+
+    /**
+     * Makes the call within a span of the stage, as a child of the current span.
+     *
+     * @throws E whatever the call throws, which is recorded on the span
+     */
+    public <T, E extends Throwable> T trace(TracedStage stage, TracedCall<T, E> call) throws E {
+        return trace(stage, Context.current(), call);
+    }
+
+    /**
+     * Processes a delta within a span of its own, as a child of the span the record is already being processed in,
+     * if any, or otherwise of the trace context in the headers of its message.
+     *
+     * @throws E whatever the call throws, which is recorded on the span
+     */
+    public <T, E extends Throwable> T traceDelta(MessageHeaders headers, TracedCall<T, E> call) throws E {
+        Context parent = Span.current().getSpanContext().isValid()
+                ? Context.current()
+                : propagator.extract(Context.current(), headers, MESSAGE_HEADERS_GETTER);
+        return trace(TracedStage.PROCESS, parent, call);
+    }
+
+    /**
+     * Deserialises a record within a span as a child of the trace context in its headers, replacing that context
+     * with the span's own, so the delta is traced from its deserialisation onwards.
+     */
+    public <T, E extends Throwable> T traceDeserialise(Headers headers, TracedCall<T, E> call) throws E {
+        return trace(TracedStage.AVRO_DESERIALISE, propagator.extract(Context.current(), headers,
+                RECORD_HEADERS_GETTER), () -> {
+                    propagator.inject(Context.current(), headers, RECORD_HEADERS_SETTER);
+                    return call.call();
+                });
+    }
+
+    /**
+     * Copies the trace context in the headers of a delta's message into the headers of the record it is forwarded
+     * in, so the delta is traced as part of the same trace when it is next attempted.
+     */
+    public void propagate(MessageHeaders from, Headers to) {
+        propagator.inject(propagator.extract(Context.root(), from, MESSAGE_HEADERS_GETTER), to,
+                RECORD_HEADERS_SETTER);
+    }
+
+    private <T, E extends Throwable> T trace(TracedStage stage, Context parent, TracedCall<T, E> call) throws E {
+        Span span = tracer.spanBuilder(stage.getSpanName())
+                .setSpanKind(stage.getSpanKind())
+                .setParent(parent)
+                .startSpan();
+        try (Scope ignored = span.makeCurrent()) {
+            return call.call();
+        } catch (Throwable ex) {
+            span.recordException(ex);
+            span.setStatus(StatusCode.ERROR);
+            throw ex;
+        } finally {
+            describe(span);
+            span.end();
+        }
+    }
+
+    private static void describe(Span span) {
+        String companyNumber = DataMapHolder.getCompanyNumber();
+        if (companyNumber != null) {
+            span.setAttribute(COMPANY_NUMBER, companyNumber);
+        }
+        String kind = DataMapHolder.getKind();
+        if (kind != null) {
+            span.setAttribute(KIND, kind);
+        }
+        Integer retryCount = DataMapHolder.getRetryCount();
+        if (retryCount != null) {
+            span.setAttribute(RETRY_COUNT, retryCount.longValue());
+        }
+    }
+
+    /**
+     * A call made within a span.
+     *
+     * @param <T> the result of the call
+     * @param <E> the exception the call may throw
+     */
+    @FunctionalInterface
+    public interface TracedCall<T, E extends Throwable> {
+
+        T call() throws E;
+    }
+}
@@ -0,0 +1,30 @@
+package uk.gov.companieshouse.psc.delta.tracing;
+
+import io.opentelemetry.api.trace.SpanKind;
+
+/**
+ * The stages of a delta traced as spans of their own, as children of the span processing the delta.
+ */
+public enum TracedStage {
+    PROCESS("psc.delta.process", SpanKind.CONSUMER),
+    AVRO_DESERIALISE("psc.delta.avro-deserialise", SpanKind.INTERNAL),
+    READ_DELTA("psc.delta.read", SpanKind.INTERNAL),
+    TRANSFORM("psc.delta.transform", SpanKind.INTERNAL),
+    API_CALL("psc.delta.api-call", SpanKind.CLIENT);
+
+    private final String spanName;
+    private final SpanKind spanKind;
+
+    TracedStage(String spanName, SpanKind spanKind) {
+        this.spanName = spanName;
+        this.spanKind = spanKind;
+    }
+
+    String getSpanName() {
+        return spanName;
+    }
+
+    SpanKind getSpanKind() {
+        return spanKind;
+    }
+}
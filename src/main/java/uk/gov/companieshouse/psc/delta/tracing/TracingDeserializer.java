@@ -0,0 +1,45 @@
+package uk.gov.companieshouse.psc.delta.tracing;
+
+import java.util.Map;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * Deserialises records through another deserializer within a span, writing the span's trace context into the
+ * headers of each record for the stages after it to continue.
+ *
+ * @param <T> the type deserialised
+ */
+public class TracingDeserializer<T> implements Deserializer<T> {
+
+    private final Deserializer<T> delegate;
+    private final DeltaTracing deltaTracing;
+
+    public TracingDeserializer(Deserializer<T> delegate, DeltaTracing deltaTracing) {
+        this.delegate = delegate;
+        this.deltaTracing = deltaTracing;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        delegate.configure(configs, isKey);
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        return delegate.deserialize(topic, data);
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, byte[] data) {
+        if (headers == null) {
+            return delegate.deserialize(topic, data);
+        }
+        return deltaTracing.traceDeserialise(headers, () -> delegate.deserialize(topic, headers, data));
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
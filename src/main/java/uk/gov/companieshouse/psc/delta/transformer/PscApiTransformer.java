@@ -1,14 +1,12 @@
 package uk.gov.companieshouse.psc.delta.transformer;
 
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import uk.gov.companieshouse.api.delta.Psc;
 import uk.gov.companieshouse.api.delta.PscDelta;
 import uk.gov.companieshouse.api.psc.FullRecordCompanyPSCApi;
 import uk.gov.companieshouse.api.psc.InternalData;
+import uk.gov.companieshouse.psc.delta.mapper.ChipsDates;
 import uk.gov.companieshouse.psc.delta.mapper.PscMapper;
 
 @Component
@@ -53,10 +51,7 @@ public class PscApiTransformer {
             PscDelta pscDelta) {
         InternalData internalData = new
                 InternalData();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSSSSS")
-                .withZone(ZoneId.of("Z"));
-        ZonedDateTime datetime = ZonedDateTime.parse(pscDelta.getDeltaAt(), formatter);
-        internalData.setDeltaAt(datetime.toOffsetDateTime());
+        internalData.setDeltaAt(ChipsDates.parseDeltaAt(pscDelta.getDeltaAt()));
 
         apiObject.setInternalData(internalData);
         return apiObject;
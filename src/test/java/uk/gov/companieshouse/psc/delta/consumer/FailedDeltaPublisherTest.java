@@ -0,0 +1,102 @@
+package uk.gov.companieshouse.psc.delta.consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import consumer.exception.NonRetryableErrorException;
+import consumer.exception.RetryableErrorException;
+import io.opentelemetry.api.OpenTelemetry;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.KafkaNull;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import uk.gov.companieshouse.delta.ChsDelta;
+import uk.gov.companieshouse.psc.delta.tracing.DeltaTracing;
+import uk.gov.companieshouse.psc.delta.utils.TestHelper;
+
+@ExtendWith(MockitoExtension.class)
+class FailedDeltaPublisherTest {
+
+    private static final String TOPIC = "psc-delta";
+
+    private final TestHelper testHelper = new TestHelper();
+
+    @Mock
+    private KafkaTemplate<String, Object> kafkaTemplate;
+    @Captor
+    private ArgumentCaptor<ProducerRecord<String, Object>> producerRecord;
+
+    private FailedDeltaPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        publisher = new FailedDeltaPublisher(kafkaTemplate, 100L, "-retry", "-error",
+                new DeltaTracing(OpenTelemetry.noop()));
+    }
+
+    @Test
+    void shouldPublishRetryableFailureToRetryTopic() throws IOException {
+        // given
+        Message<ChsDelta> message = MessageBuilder.fromMessage(testHelper.createChsDeltaMessage(false))
+                .setHeader(KafkaHeaders.RECEIVED_TOPIC, TOPIC)
+                .build();
+        when(kafkaTemplate.send(producerRecord.capture()))
+                .thenReturn(CompletableFuture.completedFuture(new SendResult<>(null, null)));
+
+        // when
+        publisher.publish(message, new RetryableErrorException("API unavailable"));
+
+        // then
+        assertEquals("psc-delta-retry", producerRecord.getValue().topic());
+    }
+
+    @Test
+    void shouldPublishNonRetryableFailureToErrorTopic() throws IOException {
+        // given
+        Message<ChsDelta> message = MessageBuilder.fromMessage(testHelper.createChsDeltaMessage(true))
+                .setHeader(KafkaHeaders.RECEIVED_TOPIC, TOPIC)
+                .build();
+        when(kafkaTemplate.send(producerRecord.capture()))
+                .thenReturn(CompletableFuture.completedFuture(new SendResult<>(null, null)));
+
+        // when
+        publisher.publish(message, new NonRetryableErrorException("Bad request"));
+
+        // then
+        assertEquals("psc-delta-error", producerRecord.getValue().topic());
+    }
+
+    @Test
+    void shouldFailRatherThanDropMessageWithoutDelta() {
+        // given
+        @SuppressWarnings("unchecked")
+        Message<ChsDelta> message = (Message<ChsDelta>) (Message<?>) MessageBuilder.withPayload(KafkaNull.INSTANCE)
+                .setHeader(KafkaHeaders.RECEIVED_TOPIC, TOPIC)
+                .build();
+        RetryableErrorException cause = new RetryableErrorException("Failed to deserialise");
+
+        // when
+        NonRetryableErrorException actual = assertThrows(NonRetryableErrorException.class,
+                () -> publisher.publish(message, cause));
+
+        // then
+        assertEquals(cause, actual.getCause());
+        verify(kafkaTemplate, never()).send(any(ProducerRecord.class));
+    }
+}
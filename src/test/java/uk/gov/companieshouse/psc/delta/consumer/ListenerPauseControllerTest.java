@@ -0,0 +1,80 @@
+package uk.gov.companieshouse.psc.delta.consumer;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+@ExtendWith(MockitoExtension.class)
+class ListenerPauseControllerTest {
+
+    @Mock
+    private KafkaListenerEndpointRegistry registry;
+    @Mock
+    private MessageListenerContainer container;
+
+    private ListenerPauseController pauseController;
+
+    @BeforeEach
+    void setUp() {
+        pauseController = new ListenerPauseController(registry);
+    }
+
+    @Test
+    void shouldPauseContainersOnceForFirstReason() {
+        // given
+        when(registry.getAllListenerContainers()).thenReturn(List.of(container));
+
+        // when
+        pauseController.pause("first");
+        pauseController.pause("first");
+        pauseController.pause("second");
+
+        // then
+        verify(container, times(1)).pause();
+        assertTrue(pauseController.isPaused());
+    }
+
+    @Test
+    void shouldOnlyResumeContainersOnceEveryReasonHasCleared() {
+        // given
+        when(registry.getAllListenerContainers()).thenReturn(List.of(container));
+        pauseController.pause("first");
+        pauseController.pause("second");
+
+        // when
+        pauseController.resume("first");
+
+        // then
+        verify(container, never()).resume();
+        assertTrue(pauseController.isPaused());
+
+        // when
+        pauseController.resume("second");
+
+        // then
+        verify(container).resume();
+        assertFalse(pauseController.isPaused());
+    }
+
+    @Test
+    void shouldIgnoreResumeForReasonThatWasNotRaised() {
+        // when
+        pauseController.resume("first");
+
+        // then
+        verify(container, never()).resume();
+        assertFalse(pauseController.isPaused());
+    }
+}
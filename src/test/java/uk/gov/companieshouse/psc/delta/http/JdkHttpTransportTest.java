@@ -0,0 +1,138 @@
+package uk.gov.companieshouse.psc.delta.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.api.client.http.ByteArrayContent;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequestFactory;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpResponseException;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.gov.companieshouse.psc.delta.logging.DataMapHolder;
+
+class JdkHttpTransportTest {
+
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 2;
+
+    private final List<String> requestIds = new ArrayList<>();
+    private final List<String> bodies = new ArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private HttpServer server;
+    private JdkHttpTransport transport;
+    private HttpRequestFactory requestFactory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(8));
+        server.createContext("/ok", exchange -> {
+            int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+            synchronized (requestIds) {
+                requestIds.add(exchange.getRequestHeaders().getFirst(PooledApiKeyHttpClient.REQUEST_ID_HEADER));
+                bodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            }
+            sleep();
+            inFlight.decrementAndGet();
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.createContext("/conflict", exchange -> {
+            exchange.sendResponseHeaders(409, -1);
+            exchange.close();
+        });
+        server.start();
+
+        transport = new JdkHttpTransport(Duration.ofSeconds(5), MAX_CONNECTIONS_PER_ROUTE, false);
+        requestFactory = transport.createRequestFactory(request -> request.getHeaders()
+                .set(PooledApiKeyHttpClient.REQUEST_ID_HEADER, DataMapHolder.getRequestId()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        transport.shutdown();
+        DataMapHolder.clear();
+    }
+
+    @Test
+    void shouldSendRequestWithBodyAndPerCallRequestId() throws IOException {
+        // given
+        DataMapHolder.initialise("request-1");
+
+        // when
+        HttpResponse response = requestFactory.buildPutRequest(url("/ok"),
+                ByteArrayContent.fromString("application/json", "{\"psc\":1}")).execute();
+
+        // then
+        assertEquals(200, response.getStatusCode());
+        assertEquals(List.of("request-1"), requestIds);
+        assertEquals(List.of("{\"psc\":1}"), bodies);
+    }
+
+    @Test
+    void shouldThrowForErrorResponse() {
+        HttpResponseException actual = assertThrows(HttpResponseException.class,
+                () -> requestFactory.buildDeleteRequest(url("/conflict")).execute());
+
+        assertEquals(409, actual.getStatusCode());
+    }
+
+    @Test
+    void shouldLimitConcurrentCallsPerRouteAndKeepRequestIdsSeparate() throws Exception {
+        // when
+        try (ExecutorService executor = Executors.newFixedThreadPool(6)) {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                String requestId = "request-" + i;
+                results.add(executor.submit(() -> {
+                    DataMapHolder.initialise(requestId);
+                    try {
+                        return requestFactory.buildPutRequest(url("/ok"),
+                                ByteArrayContent.fromString("application/json", requestId)).execute().getStatusCode();
+                    } finally {
+                        DataMapHolder.clear();
+                    }
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(200, result.get());
+            }
+        }
+
+        // then
+        assertTrue(maxInFlight.get() <= MAX_CONNECTIONS_PER_ROUTE);
+        assertEquals(bodies.stream().sorted().toList(), requestIds.stream().sorted().toList());
+        assertFalse(requestIds.contains("uninitialised"));
+    }
+
+    private GenericUrl url(String path) {
+        return new GenericUrl("http://localhost:" + server.getAddress().getPort() + path);
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
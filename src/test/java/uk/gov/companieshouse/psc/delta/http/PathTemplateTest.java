@@ -0,0 +1,60 @@
+package uk.gov.companieshouse.psc.delta.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class PathTemplateTest {
+
+    @Test
+    void shouldExpandValuesAsStringFormatWould() {
+        // given
+        String template = "/company/%s/persons-with-significant-control/%s/%s";
+        PathTemplate pathTemplate = PathTemplate.compile(template);
+
+        // when
+        String actual = pathTemplate.expand("00623672", "individual", "lXgouUAR16hSIwxdJSpbr_dhyT8");
+
+        // then
+        assertEquals(String.format(template, "00623672", "individual", "lXgouUAR16hSIwxdJSpbr_dhyT8"), actual);
+    }
+
+    @Test
+    void shouldExpandValuesAtStartAndEndOfTemplate() {
+        // given
+        PathTemplate pathTemplate = PathTemplate.compile("%s/full_record/%s");
+
+        // when
+        String actual = pathTemplate.expand("/company/00623672", "bulk");
+
+        // then
+        assertEquals("/company/00623672/full_record/bulk", actual);
+    }
+
+    @Test
+    void shouldExpandNullAsStringFormatWould() {
+        // given
+        PathTemplate pathTemplate = PathTemplate.compile("/company/%s/persons-with-significant-control/full_record");
+
+        // when
+        String actual = pathTemplate.expand(null);
+
+        // then
+        assertEquals("/company/null/persons-with-significant-control/full_record", actual);
+    }
+
+    @Test
+    void shouldRejectWrongNumberOfValues() {
+        // given
+        PathTemplate pathTemplate = PathTemplate.compile("/company/%s/persons-with-significant-control/%s");
+
+        // when
+        IllegalArgumentException actual = assertThrows(IllegalArgumentException.class,
+                () -> pathTemplate.expand("00623672"));
+
+        // then
+        assertEquals("Path template [/company/%s/persons-with-significant-control/%s] takes 2 values, not 1",
+                actual.getMessage());
+    }
+}
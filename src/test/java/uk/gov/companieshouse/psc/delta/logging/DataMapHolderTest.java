@@ -0,0 +1,152 @@
+package uk.gov.companieshouse.psc.delta.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+class DataMapHolderTest {
+
+    @Test
+    void shouldKeepRequestIdSeparateForEachVirtualThread() throws Exception {
+        // given
+        List<Future<String>> requestIds = new ArrayList<>();
+
+        // when
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 100; i++) {
+                final String requestId = "context_id_" + i;
+                requestIds.add(executor.submit(() -> {
+                    DataMapHolder.initialise(requestId);
+                    Thread.yield();
+                    try {
+                        return DataMapHolder.getRequestId();
+                    } finally {
+                        DataMapHolder.clear();
+                    }
+                }));
+            }
+        }
+
+        // then
+        for (int i = 0; i < requestIds.size(); i++) {
+            assertEquals("context_id_" + i, requestIds.get(i).get());
+        }
+    }
+
+    @Test
+    void shouldCarryEachListenerThreadsContextToTasksItHandsToVirtualThreads() throws Exception {
+        // given
+        List<Future<List<Object>>> seen = new ArrayList<>();
+
+        // when
+        try (ExecutorService listeners = Executors.newVirtualThreadPerTaskExecutor();
+                ExecutorService apiExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 100; i++) {
+                final String requestId = "context_id_" + i;
+                seen.add(listeners.submit(() -> {
+                    DataMapHolder.initialise(requestId);
+                    Supplier<List<Object>> task = DataMapHolder.wrap(() -> {
+                        Thread.yield();
+                        return List.of(Thread.currentThread().isVirtual(), DataMapHolder.getRequestId(),
+                                DataMapHolder.getLogMap().get("request_id"));
+                    });
+                    try {
+                        return CompletableFuture.supplyAsync(task, apiExecutor).join();
+                    } finally {
+                        DataMapHolder.clear();
+                    }
+                }));
+            }
+        }
+
+        // then
+        for (int i = 0; i < seen.size(); i++) {
+            assertEquals(List.of(true, "context_id_" + i, "context_id_" + i), seen.get(i).get());
+        }
+    }
+
+    @Test
+    void shouldResetRequestIdWhenCleared() {
+        // given
+        DataMapHolder.initialise("context_id");
+
+        // when
+        DataMapHolder.clear();
+
+        // then
+        assertEquals("uninitialised", DataMapHolder.getRequestId());
+    }
+
+    @Test
+    void shouldRunWrappedTaskWithCallersContextAndRestoreContextAfterwards() throws Exception {
+        // given
+        DataMapHolder.initialise("context_id");
+        Runnable task = DataMapHolder.wrap(() -> assertEquals("context_id", DataMapHolder.getRequestId()));
+        DataMapHolder.clear();
+
+        // when
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            CompletableFuture.runAsync(task, executor).get();
+            String afterwards = executor.submit(DataMapHolder::getRequestId).get();
+
+            // then
+            assertEquals("uninitialised", afterwards);
+        }
+    }
+
+    @Test
+    void shouldSupplyWrappedValueWithCallersContext() {
+        // given
+        DataMapHolder.initialise("context_id");
+        Supplier<String> supplier = DataMapHolder.wrap(DataMapHolder::getRequestId);
+        DataMapHolder.clear();
+
+        // when
+        String actual = CompletableFuture.supplyAsync(supplier).join();
+
+        // then
+        assertEquals("context_id", actual);
+        assertEquals("uninitialised", DataMapHolder.getRequestId());
+    }
+
+    @Test
+    void shouldBuildLogMapAgainOnceFieldsAreAdded() {
+        // given
+        DataMapHolder.initialise("context_id");
+        Map<String, Object> before = DataMapHolder.getLogMap();
+
+        // when
+        DataMapHolder.get().companyNumber("00623672");
+        Map<String, Object> after = DataMapHolder.getLogMap();
+        DataMapHolder.clear();
+
+        // then
+        assertEquals("context_id", before.get("request_id"));
+        assertFalse(before.containsKey("company_number"));
+        assertEquals("00623672", after.get("company_number"));
+    }
+
+    @Test
+    void shouldHandOutCopyOfLogMapSoLoggerCannotChangeContext() {
+        // given
+        DataMapHolder.initialise("context_id");
+        DataMapHolder.getLogMap().put("message", "logged");
+
+        // when
+        Map<String, Object> actual = DataMapHolder.getLogMap();
+        DataMapHolder.clear();
+
+        // then
+        assertFalse(actual.containsKey("message"));
+        assertEquals("context_id", actual.get("request_id"));
+    }
+}
@@ -2,6 +2,7 @@ package uk.gov.companieshouse.psc.delta.logging;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
@@ -12,6 +13,8 @@ import static org.springframework.kafka.support.KafkaHeaders.RECEIVED_TOPIC;
 
 import consumer.exception.NonRetryableErrorException;
 import consumer.exception.RetryableErrorException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
 import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -26,6 +29,8 @@ import org.springframework.boot.test.system.OutputCaptureExtension;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHeaders;
 import uk.gov.companieshouse.delta.ChsDelta;
+import uk.gov.companieshouse.psc.delta.metrics.DeltaMetrics;
+import uk.gov.companieshouse.psc.delta.tracing.DeltaTracing;
 
 @ExtendWith(MockitoExtension.class)
 class StructuredLoggingKafkaListenerAspectTest {
@@ -55,7 +60,10 @@ class StructuredLoggingKafkaListenerAspectTest {
     private static final Pattern OFFSET_ZERO_PATTERN = Pattern.compile(
             "offset: 0|\"offset\":0");
 
-    private final StructuredLoggingKafkaListenerAspect aspect = new StructuredLoggingKafkaListenerAspect(4);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StructuredLoggingKafkaListenerAspect aspect =
+            new StructuredLoggingKafkaListenerAspect(4, new DeltaMetrics(meterRegistry), false,
+                    new DeltaTracing(OpenTelemetry.noop()));
 
     @Mock
     private ProceedingJoinPoint joinPoint;
@@ -89,6 +97,66 @@ class StructuredLoggingKafkaListenerAspectTest {
         assertEquals(expected, actual);
         assertTrue(capture.getOut().contains("Processed delta"));
         verifyInfoLogMap(capture);
+        assertEquals(1, meterRegistry.get("psc.delta.processing.duration")
+                .tags("operation", "PUT", "outcome", "success").timer().count());
+    }
+
+    @Test
+    @ExtendWith(OutputCaptureExtension.class)
+    void shouldLeaveSummaryAndOutcomeOfHandedOffDelta(CapturedOutput capture) throws Throwable {
+        // given
+        MessageHeaders headers = new MessageHeaders(
+                Map.of(
+                        RECEIVED_TOPIC, TOPIC,
+                        RECEIVED_PARTITION, 0,
+                        OFFSET, 0L));
+        when(joinPoint.getArgs()).thenReturn(new Object[]{message});
+        when(message.getPayload()).thenReturn(delta);
+        when(message.getHeaders()).thenReturn(headers);
+        when(delta.getContextId()).thenReturn(CONTEXT_ID);
+        when(joinPoint.proceed()).thenAnswer(invocation -> {
+            DataMapHolder.handOff();
+            return null;
+        });
+
+        // when
+        aspect.manageStructuredLogging(joinPoint);
+
+        //then
+        assertFalse(capture.getOut().contains("Processed delta"));
+        assertNull(meterRegistry.find("psc.delta.processing.duration").timer());
+        assertFalse(DataMapHolder.isHandedOff());
+    }
+
+    @Test
+    @ExtendWith(OutputCaptureExtension.class)
+    void shouldLogOnlyProcessedLineWhenSummaryOnly(CapturedOutput capture) throws Throwable {
+        // given
+        StructuredLoggingKafkaListenerAspect summaryAspect =
+                new StructuredLoggingKafkaListenerAspect(4, new DeltaMetrics(meterRegistry), true,
+                        new DeltaTracing(OpenTelemetry.noop()));
+        MessageHeaders headers = new MessageHeaders(
+                Map.of(
+                        RECEIVED_TOPIC, TOPIC,
+                        RECEIVED_PARTITION, 0,
+                        OFFSET, 0L));
+        when(joinPoint.getArgs()).thenReturn(new Object[]{message});
+        when(message.getPayload()).thenReturn(delta);
+        when(message.getHeaders()).thenReturn(headers);
+        when(delta.getContextId()).thenReturn(CONTEXT_ID);
+        when(joinPoint.proceed()).thenAnswer(invocation -> {
+            StageLogger.info("Sending PUT request to API");
+            return "result";
+        });
+
+        // when
+        summaryAspect.manageStructuredLogging(joinPoint);
+
+        //then
+        assertFalse(capture.getOut().contains("Processing delta"));
+        assertFalse(capture.getOut().contains("Sending PUT request to API"));
+        assertTrue(capture.getOut().contains("Processed delta"));
+        verifyInfoLogMap(capture);
     }
 
     @Test
@@ -170,6 +238,8 @@ class StructuredLoggingKafkaListenerAspectTest {
         assertTrue(MAIN_TOPIC_PATTERN.matcher(capture.getOut()).find());
         assertTrue(PARTITION_ZERO_PATTERN.matcher(capture.getOut()).find());
         assertTrue(OFFSET_ZERO_PATTERN.matcher(capture.getOut()).find());
+        assertEquals(4.0, meterRegistry.get("psc.delta.retry.attempts")
+                .tag("outcome", "retryable-error").summary().max());
     }
 
     @Test
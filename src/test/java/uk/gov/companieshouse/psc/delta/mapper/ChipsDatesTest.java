@@ -0,0 +1,87 @@
+package uk.gov.companieshouse.psc.delta.mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import consumer.exception.NonRetryableErrorException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class ChipsDatesTest {
+
+    private static final DateTimeFormatter DATE_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyyMMddHHmmss", Locale.UK).withZone(ZoneId.of("UTC"));
+    private static final DateTimeFormatter DELTA_AT_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSSSSS").withZone(ZoneId.of("Z"));
+
+    @ParameterizedTest
+    @ValueSource(strings = {"20251121", "20000101", "19991231", "20240229", "20230229", "20230231", "20240430",
+            "20240431", "00010101"})
+    void shouldParseDateAsFormatterDid(String date) {
+        // given
+        LocalDate expected = LocalDate.parse(date + "000000", DATE_FORMATTER);
+
+        // when
+        LocalDate actual = ChipsDates.parseDate(date);
+
+        // then
+        assertEquals(expected, actual);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"20211008152823383176", "20240229235959999999", "20230231000000000000",
+            "19700101000000000001"})
+    void shouldParseDeltaAtAsFormatterDid(String deltaAt) {
+        // given
+        OffsetDateTime expected = ZonedDateTime.parse(deltaAt, DELTA_AT_FORMATTER).toOffsetDateTime();
+
+        // when
+        OffsetDateTime actual = ChipsDates.parseDeltaAt(deltaAt);
+
+        // then
+        assertEquals(expected, actual);
+        assertEquals(ZoneOffset.UTC, actual.getOffset());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "2025112", "202511210", "2025-11-21", "00000101", "20250001", "20251300",
+            "20251100", "20251132", "+2025112"})
+    void shouldRejectInvalidDate(String date) {
+        // when
+        NonRetryableErrorException actual = assertThrows(NonRetryableErrorException.class,
+                () -> ChipsDates.parseDate(date));
+
+        // then
+        assertEquals("Failed to parse date/time: [%s000000]".formatted(date), actual.getMessage());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"2021100815282338317", "202110081528233831760", "20211008242823383176",
+            "20211008156023383176", "20211008152860383176", "2021100815282338317x", "20211308152823383176"})
+    void shouldRejectInvalidDeltaAt(String deltaAt) {
+        // when
+        NonRetryableErrorException actual = assertThrows(NonRetryableErrorException.class,
+                () -> ChipsDates.parseDeltaAt(deltaAt));
+
+        // then
+        assertEquals("Failed to parse date/time: [%s]".formatted(deltaAt), actual.getMessage());
+    }
+
+    @Test
+    void shouldRejectMissingDeltaAt() {
+        // when
+        NonRetryableErrorException actual = assertThrows(NonRetryableErrorException.class,
+                () -> ChipsDates.parseDeltaAt(null));
+
+        // then
+        assertEquals("Failed to parse date/time: [null]", actual.getMessage());
+    }
+}
@@ -0,0 +1,87 @@
+package uk.gov.companieshouse.psc.delta.mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Base64;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class IdEncoderTest {
+
+    private static final String SALT = "ks734s_sdgOc4£b2";
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "5", "3", "12345", "ZfTs9WeeqpXTqf6dc6FZ4C0H0ZZ", "£ürnø",
+            "an id that is longer than the sixty four characters copied straight into the scratch buffer"})
+    void shouldHashSameAsSaltedStringDigest(final String id) {
+        assertEquals(saltedDigest(id), IdEncoder.hash(id));
+        assertEquals(saltedDigest(id), IdEncoder.encode(id));
+    }
+
+    @Test
+    void shouldEncodeNullAsStringNull() {
+        assertEquals(saltedDigest("null"), IdEncoder.encode(null));
+    }
+
+    @Test
+    void shouldServeRepeatedIdsFromCache() {
+        // given
+        final String id = "cached-" + System.nanoTime();
+        final long hitsBefore = IdEncoder.cache().stats().hitCount();
+        final long missesBefore = IdEncoder.cache().stats().missCount();
+
+        // when
+        final String first = IdEncoder.encode(id);
+        final String second = IdEncoder.encode(id);
+
+        // then
+        assertEquals(first, second);
+        assertTrue(IdEncoder.cache().stats().missCount() > missesBefore);
+        assertTrue(IdEncoder.cache().stats().hitCount() > hitsBefore);
+    }
+
+    @Test
+    void shouldHashCorrectlyOnConcurrentThreads() throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            final Future<?>[] results = new Future<?>[200];
+            for (int i = 0; i < results.length; i++) {
+                final String id = "concurrent-" + i;
+                results[i] = executor.submit(() -> assertEquals(saltedDigest(id), IdEncoder.hash(id)));
+            }
+            for (final Future<?> result : results) {
+                result.get();
+            }
+        }
+    }
+
+    @Test
+    void shouldReuseDigestsAcrossVirtualThreads() throws Exception {
+        // given
+        final Future<?>[] results = new Future<?>[1_000];
+
+        // when
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < results.length; i++) {
+                final String id = "virtual-" + i;
+                results[i] = executor.submit(() -> assertEquals(saltedDigest(id), IdEncoder.hash(id)));
+            }
+            for (final Future<?> result : results) {
+                result.get();
+            }
+        }
+
+        // then
+        assertTrue(IdEncoder.pooledDigests() > 0);
+        assertTrue(IdEncoder.pooledDigests() <= IdEncoder.DIGEST_POOL_SIZE);
+    }
+
+    private static String saltedDigest(final String id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(DigestUtils.sha1(id + SALT));
+    }
+}
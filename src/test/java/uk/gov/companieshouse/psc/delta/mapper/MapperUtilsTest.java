@@ -14,6 +14,8 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import uk.gov.companieshouse.api.delta.Psc.NaturesOfControlEnum;
 
 class MapperUtilsTest {
 
@@ -176,6 +178,19 @@ class MapperUtilsTest {
         );
     }
 
+    @ParameterizedTest
+    @ValueSource(strings = {"A", "00623672", "SO123456", "NC123456", "OC123456", "OE123456", "XX123456"})
+    @DisplayName("Test MapperUtils.getNaturesOfControlLookup matches the natures of control map for the company type")
+    void testGetNaturesOfControlLookupMatchesMap(final String companyNumber) {
+        final Map<String, String> naturesOfControlMap = MapperUtils.getNaturesOfControlMap(companyNumber);
+        final Map<NaturesOfControlEnum, String> lookup = MapperUtils.getNaturesOfControlLookup(companyNumber);
+
+        for (final NaturesOfControlEnum nature : NaturesOfControlEnum.values()) {
+            assertThat("Lookup should match map for: " + nature, lookup.get(nature),
+                    is(naturesOfControlMap.get(nature.name())));
+        }
+    }
+
     @ParameterizedTest
     @MethodSource("provideParseLocalDateTestCases")
     @DisplayName("Test MapperUtils.parseLocalDate with various date strings")
@@ -0,0 +1,73 @@
+package uk.gov.companieshouse.psc.delta.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import consumer.exception.NonRetryableErrorException;
+import consumer.exception.RetryableErrorException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+class DeltaMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final DeltaMetrics deltaMetrics = new DeltaMetrics(registry);
+
+    @Test
+    void shouldRecordStageDuration() {
+        // when
+        deltaMetrics.recordStage(deltaMetrics.startTimer(), Stage.TRANSFORM);
+
+        // then
+        assertEquals(1, registry.get(DeltaMetrics.STAGE_DURATION).tag("stage", "transform").timer().count());
+        assertEquals(0, registry.get(DeltaMetrics.STAGE_DURATION).tag("stage", "deserialise").timer().count());
+    }
+
+    @Test
+    void shouldCountDeltasByKindAndOperation() {
+        // when
+        deltaMetrics.countDelta("individual", Operation.PUT);
+        deltaMetrics.countDelta("individual", Operation.PUT);
+        deltaMetrics.countDelta(null, Operation.DELETE);
+
+        // then
+        assertEquals(2.0, registry.get(DeltaMetrics.DELTAS)
+                .tags("kind", "individual", "operation", "PUT").counter().count());
+        assertEquals(1.0, registry.get(DeltaMetrics.DELTAS)
+                .tags("kind", "unknown", "operation", "DELETE").counter().count());
+    }
+
+    @Test
+    void shouldRecordApiCallByStatusCode() {
+        // when
+        deltaMetrics.recordApiCall(deltaMetrics.startTimer(), Operation.PUT, 200);
+        deltaMetrics.recordApiCall(deltaMetrics.startTimer(), Operation.DELETE, 503);
+
+        // then
+        assertEquals(1.0, registry.get(DeltaMetrics.API_RESPONSES)
+                .tags("operation", "PUT", "status", "200").counter().count());
+        assertEquals(1.0, registry.get(DeltaMetrics.API_RESPONSES)
+                .tags("operation", "DELETE", "status", "503").counter().count());
+        assertEquals(2, registry.get(DeltaMetrics.STAGE_DURATION).tag("stage", "api-call").timer().count());
+    }
+
+    @Test
+    void shouldRecordRetryAttemptsByOutcome() {
+        // when
+        deltaMetrics.recordProcessed(deltaMetrics.startTimer(), Operation.PUT, Outcome.SUCCESS, 0);
+        deltaMetrics.recordProcessed(deltaMetrics.startTimer(), Operation.PUT, Outcome.SUCCESS, 2);
+
+        // then
+        assertEquals(2, registry.get(DeltaMetrics.RETRY_ATTEMPTS).tag("outcome", "success").summary().count());
+        assertEquals(2.0, registry.get(DeltaMetrics.RETRY_ATTEMPTS).tag("outcome", "success").summary()
+                .totalAmount());
+        assertEquals(2, registry.get(DeltaMetrics.PROCESSING_DURATION)
+                .tags("operation", "PUT", "outcome", "success").timer().count());
+    }
+
+    @Test
+    void shouldMapExceptionsToOutcomes() {
+        assertEquals(Outcome.RETRYABLE_ERROR, Outcome.of(new RetryableErrorException("retry")));
+        assertEquals(Outcome.NON_RETRYABLE_ERROR, Outcome.of(new NonRetryableErrorException("invalid")));
+        assertEquals(Outcome.ERROR, Outcome.of(new IllegalStateException()));
+    }
+}
@@ -0,0 +1,185 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import uk.gov.companieshouse.delta.ChsDelta;
+import uk.gov.companieshouse.psc.delta.metrics.DeltaMetrics;
+import uk.gov.companieshouse.psc.delta.utils.TestHelper;
+
+class AppliedDeltaCacheTest {
+
+    private static final long EXPIRE_AFTER_MS = 60_000L;
+    private static final Instant NOW = Instant.parse("2024-01-31T09:00:00Z");
+
+    private final TestHelper testHelper = new TestHelper();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void shouldRememberDeltaOnceApplied() throws IOException {
+        // given
+        AppliedDeltaCache cache = cache(true, "", Clock.systemUTC());
+        DeltaSummary summary = cache.summarise(testHelper.createChsDeltaMessage(true));
+
+        // when
+        boolean before = cache.isApplied(summary);
+        cache.markApplied(summary);
+        boolean after = cache.isApplied(summary);
+
+        // then
+        assertFalse(before);
+        assertTrue(after);
+        assertEquals(1.0, registry.get("psc.delta.dedup.lookups")
+                .tags("operation", "DELETE", "result", "miss").counter().count());
+        assertEquals(1.0, registry.get("psc.delta.dedup.lookups")
+                .tags("operation", "DELETE", "result", "hit").counter().count());
+    }
+
+    @Test
+    void shouldKeyOnContextIdAndDeltaAt() {
+        // given
+        AppliedDeltaCache cache = cache(true, "", Clock.systemUTC());
+        cache.markApplied(cache.summarise(delete("context_id", "20230724093435661593")));
+
+        // then
+        assertTrue(cache.isApplied(cache.summarise(delete("context_id", "20230724093435661593"))));
+        assertFalse(cache.isApplied(cache.summarise(delete("other_context_id", "20230724093435661593"))));
+        assertFalse(cache.isApplied(cache.summarise(delete("context_id", "20230724093435661594"))));
+    }
+
+    @Test
+    void shouldNeverSkipDeltaThatCannotBeKeyed() {
+        // given
+        AppliedDeltaCache cache = cache(true, "", Clock.systemUTC());
+        DeltaSummary summary = cache.summarise(testHelper.createInvalidChsDeltaMessage());
+
+        // when
+        cache.markApplied(summary);
+
+        // then
+        assertFalse(cache.isApplied(summary));
+        assertEquals(0, cache.size());
+        assertTrue(registry.find("psc.delta.dedup.lookups").counters().isEmpty());
+    }
+
+    @Test
+    void shouldNeitherReadNorRememberDeltasWhenDisabled() throws IOException {
+        // given
+        AppliedDeltaCache cache = cache(false, "", Clock.systemUTC());
+        DeltaSummary summary = cache.summarise(testHelper.createChsDeltaMessage(true));
+
+        // when
+        cache.markApplied(summary);
+
+        // then
+        assertFalse(summary.valid());
+        assertFalse(cache.isApplied(summary));
+    }
+
+    @Test
+    void shouldLoadDeltasSavedBeforeRestart() throws IOException {
+        // given
+        Path storePath = tempDir.resolve("applied-deltas");
+        AppliedDeltaCache cache = cache(true, storePath.toString(), Clock.fixed(NOW, ZoneOffset.UTC));
+        DeltaSummary summary = cache.summarise(testHelper.createChsDeltaMessage(true));
+        cache.markApplied(summary);
+
+        // when
+        cache.save();
+        AppliedDeltaCache restarted = cache(true, storePath.toString(), Clock.fixed(NOW, ZoneOffset.UTC));
+
+        // then
+        assertTrue(restarted.isApplied(summary));
+        assertFalse(Files.exists(tempDir.resolve("applied-deltas.tmp")));
+    }
+
+    @Test
+    void shouldNotLoadDeltasThatHaveExpired() throws IOException {
+        // given
+        Path storePath = tempDir.resolve("applied-deltas");
+        AppliedDeltaCache cache = cache(true, storePath.toString(), Clock.fixed(NOW, ZoneOffset.UTC));
+        DeltaSummary summary = cache.summarise(testHelper.createChsDeltaMessage(true));
+        cache.markApplied(summary);
+        cache.save();
+
+        // when
+        AppliedDeltaCache restarted = cache(true, storePath.toString(),
+                Clock.fixed(NOW.plus(Duration.ofMillis(EXPIRE_AFTER_MS)), ZoneOffset.UTC));
+
+        // then
+        assertFalse(restarted.isApplied(summary));
+    }
+
+    @Test
+    void shouldStartEmptyWhenStoreIsUnreadable() throws IOException {
+        // given
+        Path storePath = Files.writeString(tempDir.resolve("applied-deltas"), "not a timestamp\n");
+
+        // when
+        AppliedDeltaCache cache = cache(true, storePath.toString(), Clock.systemUTC());
+
+        // then
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void shouldSkipDeltaAppliedBeforeButRememberNoneDuringDryRun() throws Exception {
+        // given
+        Path storePath = tempDir.resolve("applied-deltas");
+        AppliedDeltaCache cache = cache(true, storePath.toString(), Clock.fixed(NOW, ZoneOffset.UTC));
+        DeltaSummary applied = cache.summarise(delete("context_id", "20230724093435661593"));
+        cache.markApplied(applied);
+        cache.save();
+        AppliedDeltaCache dryRun = cache(true, storePath.toString(), true, Clock.fixed(NOW, ZoneOffset.UTC));
+        DeltaSummary written = dryRun.summarise(delete("context_id", "20230724093435661594"));
+        DeltaSummary writtenAsync = dryRun.summarise(delete("context_id", "20230724093435661595"));
+
+        // when
+        dryRun.markApplied(written);
+        dryRun.markingApplied(writtenAsync, () -> CompletableFuture.completedFuture(null)).get().get();
+
+        // then
+        assertTrue(dryRun.isApplied(applied));
+        assertFalse(dryRun.isApplied(written));
+        assertFalse(dryRun.isApplied(writtenAsync));
+    }
+
+    private AppliedDeltaCache cache(boolean enabled, String storePath, Clock clock) {
+        return cache(enabled, storePath, false, clock);
+    }
+
+    private AppliedDeltaCache cache(boolean enabled, String storePath, boolean dryRun, Clock clock) {
+        return new AppliedDeltaCache(enabled, 100L, EXPIRE_AFTER_MS, storePath, dryRun, new ObjectMapper(),
+                new DeltaMetrics(registry), clock);
+    }
+
+    private static Message<ChsDelta> delete(String contextId, String deltaAt) {
+        return MessageBuilder.withPayload(ChsDelta.newBuilder()
+                        .setData("""
+                                {"internal_id": "5", "company_number": "00623672", "delta_at": "%s"}
+                                """.formatted(deltaAt))
+                        .setContextId(contextId)
+                        .setAttempt(0)
+                        .setIsDelete(true)
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,127 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import consumer.exception.RetryableErrorException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.companieshouse.api.delta.PscDeleteDelta;
+import uk.gov.companieshouse.api.delta.PscDelta;
+import uk.gov.companieshouse.psc.delta.utils.TestHelper;
+
+@ExtendWith(MockitoExtension.class)
+class BulkLoaderTest {
+
+    private final TestHelper testHelper = new TestHelper();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private BulkLoader bulkLoader;
+
+    @TempDir
+    private Path tempDir;
+
+    @Mock
+    private PscDeltaProcessor pscDeltaProcessor;
+
+    @BeforeEach
+    void setUp() {
+        bulkLoader = new BulkLoader(pscDeltaProcessor, new DeltaReader(objectMapper), objectMapper, "", "", 2, 2,
+                0L);
+    }
+
+    @Test
+    void shouldLoadDeltasFromNdjsonAndGzippedFilesInNameOrder() throws IOException {
+        // given
+        String upsert = objectMapper.readTree(testHelper.createChsDelta(false).getData()).toString();
+        Files.writeString(tempDir.resolve("a.ndjson"), upsert + "\n" + delete("5") + "\n");
+        try (OutputStream outputStream = new GZIPOutputStream(
+                Files.newOutputStream(tempDir.resolve("b.json.gz")))) {
+            outputStream.write(testHelper.createChsDelta(true).getData().getBytes(StandardCharsets.UTF_8));
+        }
+
+        // when
+        BulkLoader.BulkLoadResult actual = bulkLoader.load(tempDir, null);
+
+        // then
+        assertEquals(new BulkLoader.BulkLoadResult(3, 0), actual);
+        verify(pscDeltaProcessor).applyDelta(any(PscDelta.class));
+        verify(pscDeltaProcessor).applyDelete(any(PscDeleteDelta.class), eq("bulk-load-a.ndjson-1"));
+        verify(pscDeltaProcessor).applyDelete(any(PscDeleteDelta.class), eq("bulk-load-b.json.gz-0"));
+    }
+
+    @Test
+    void shouldResumeFromCheckpointAndSaveWhereLoadFinished() throws IOException {
+        // given
+        Path input = Files.createDirectory(tempDir.resolve("input"));
+        Files.writeString(input.resolve("a.ndjson"), delete("1") + "\n" + delete("2") + "\n");
+        Files.writeString(input.resolve("b.ndjson"), delete("3") + "\n");
+        Path checkpoint = Files.writeString(tempDir.resolve("checkpoint"), "a.ndjson\t1\n");
+
+        // when
+        BulkLoader.BulkLoadResult actual = bulkLoader.load(input, checkpoint);
+
+        // then
+        assertEquals(new BulkLoader.BulkLoadResult(2, 0), actual);
+        verify(pscDeltaProcessor, never()).applyDelete(any(), eq("bulk-load-a.ndjson-0"));
+        verify(pscDeltaProcessor).applyDelete(any(), eq("bulk-load-a.ndjson-1"));
+        verify(pscDeltaProcessor).applyDelete(any(), eq("bulk-load-b.ndjson-0"));
+        assertEquals("b.ndjson\t1", Files.readString(checkpoint).strip());
+    }
+
+    @Test
+    void shouldRetryRetryableFailureThenCarryOnPastDeltaThatStillFailsWithoutCheckpointingPastIt() throws IOException {
+        // given
+        Path input = Files.writeString(tempDir.resolve("a.ndjson"), delete("1") + "\n" + delete("2") + "\n");
+        Path checkpoint = tempDir.resolve("checkpoint");
+        doThrow(new RetryableErrorException("PSC data API unavailable"))
+                .doThrow(new RetryableErrorException("PSC data API unavailable"))
+                .doNothing()
+                .when(pscDeltaProcessor).applyDelete(any(), anyString());
+
+        // when
+        BulkLoader.BulkLoadResult actual = bulkLoader.load(input, checkpoint);
+
+        // then
+        assertEquals(new BulkLoader.BulkLoadResult(1, 1), actual);
+        assertEquals(1, bulkLoader.getExitCode());
+        verify(pscDeltaProcessor, times(2)).applyDelete(any(), eq("bulk-load-a.ndjson-0"));
+        verify(pscDeltaProcessor).applyDelete(any(), eq("bulk-load-a.ndjson-1"));
+        assertEquals("a.ndjson\t0", Files.readString(checkpoint).strip());
+    }
+
+    @Test
+    void shouldFailDeltaThatCannotBeBound() throws IOException {
+        // given
+        Path input = Files.writeString(tempDir.resolve("a.ndjson"), "{\"pscs\": \"not a list\"}\n" + delete("1"));
+
+        // when
+        BulkLoader.BulkLoadResult actual = bulkLoader.load(input, null);
+
+        // then
+        assertEquals(new BulkLoader.BulkLoadResult(1, 1), actual);
+        verify(pscDeltaProcessor, never()).applyDelta(any());
+    }
+
+    private static String delete(String internalId) {
+        return """
+                {"internal_id": "%s", "company_number": "00623672", "action": "DELETE", "kind": "individual", \
+                "delta_at": "20230724093435661593"}""".formatted(internalId);
+    }
+}
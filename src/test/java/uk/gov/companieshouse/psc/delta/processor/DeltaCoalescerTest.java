@@ -0,0 +1,98 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.BitSet;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import uk.gov.companieshouse.psc.delta.metrics.DeltaMetrics;
+
+class DeltaCoalescerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final DeltaCoalescer coalescer = new DeltaCoalescer(true, new DeltaMetrics(registry));
+
+    @Test
+    void shouldSupersedeEveryDeltaButNewestForNotification() {
+        // given
+        List<DeltaSummary> summaries = List.of(
+                summary("company", "1", "20230724093435661593", false),
+                summary("company", "1", "20230724093435661595", true),
+                summary("company", "1", "20230724093435661594", false));
+
+        // when
+        BitSet actual = coalescer.superseded(summaries);
+
+        // then
+        assertEquals(BitSet.valueOf(new long[] {0b101}), actual);
+        assertEquals(2.0, registry.get("psc.delta.coalesced").tag("operation", "PUT").counter().count());
+    }
+
+    @Test
+    void shouldKeepLaterOfEquallyNewDeltas() {
+        // given
+        List<DeltaSummary> summaries = List.of(
+                summary("company", "1", "20230724093435661593", false),
+                summary("company", "1", "20230724093435661593", true));
+
+        // when
+        BitSet actual = coalescer.superseded(summaries);
+
+        // then
+        assertTrue(actual.get(0));
+        assertEquals(1, actual.cardinality());
+        assertEquals(1.0, registry.get("psc.delta.coalesced").tag("operation", "PUT").counter().count());
+    }
+
+    @Test
+    void shouldNotSupersedeDeltasForDifferentNotifications() {
+        // given
+        List<DeltaSummary> summaries = List.of(
+                summary("company", "1", "20230724093435661593", false),
+                summary("company", "2", "20230724093435661594", false),
+                summary("other", "1", "20230724093435661595", false));
+
+        // when
+        BitSet actual = coalescer.superseded(summaries);
+
+        // then
+        assertTrue(actual.isEmpty());
+    }
+
+    @Test
+    void shouldNotSupersedeDeltasThatCannotBeOrdered() {
+        // given
+        List<DeltaSummary> summaries = List.of(
+                summary("company", "1", null, false),
+                summary("company", "1", "2023-07-24", false),
+                summary("company", "1", "20230724093435661593", false),
+                DeltaSummary.INVALID);
+
+        // when
+        BitSet actual = coalescer.superseded(summaries);
+
+        // then
+        assertTrue(actual.isEmpty());
+    }
+
+    @Test
+    void shouldNotSupersedeAnyDeltaWhenDisabled() {
+        // given
+        DeltaCoalescer disabled = new DeltaCoalescer(false, new DeltaMetrics(registry));
+        List<DeltaSummary> summaries = List.of(
+                summary("company", "1", "20230724093435661593", false),
+                summary("company", "1", "20230724093435661594", false));
+
+        // when
+        BitSet actual = disabled.superseded(summaries);
+
+        // then
+        assertTrue(actual.isEmpty());
+    }
+
+    private static DeltaSummary summary(String companyNumber, String internalId, String deltaAt, boolean delete) {
+        return new DeltaSummary(true, "contextId", companyNumber, internalId, "individual", deltaAt, delete);
+    }
+}
@@ -0,0 +1,73 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import java.io.IOException;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import uk.gov.companieshouse.api.delta.PscDeleteDelta;
+import uk.gov.companieshouse.api.delta.PscDelta;
+import uk.gov.companieshouse.psc.delta.utils.TestHelper;
+
+class DeltaReaderTest {
+
+    private final TestHelper testHelper = new TestHelper();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static Stream<ObjectMapper> objectMappers() {
+        return Stream.of(new ObjectMapper(), new ObjectMapper().registerModule(new BlackbirdModule()));
+    }
+
+    @ParameterizedTest
+    @MethodSource("objectMappers")
+    void shouldReadPscDeltaSameAsObjectMapper(ObjectMapper mapper) throws IOException {
+        // given
+        String data = testHelper.createChsDelta(false).getData();
+
+        // when
+        PscDelta actual = new DeltaReader(mapper).readPscDelta(data);
+
+        // then
+        assertEquals(objectMapper.readValue(data, PscDelta.class), actual);
+    }
+
+    @ParameterizedTest
+    @MethodSource("objectMappers")
+    void shouldReadPscDeleteDeltaSameAsObjectMapper(ObjectMapper mapper) throws IOException {
+        // given
+        String data = testHelper.createChsDelta(true).getData();
+
+        // when
+        PscDeleteDelta actual = new DeltaReader(mapper).readPscDeleteDelta(data);
+
+        // then
+        assertEquals(objectMapper.readValue(data, PscDeleteDelta.class), actual);
+    }
+
+    @Test
+    void shouldSkipUnknownProperties() throws JsonProcessingException {
+        // given
+        String data = """
+                {"company_number": "00623672", "internal_id": "5", "unknown": {"nested": [1, 2]}}""";
+
+        // when
+        PscDeleteDelta actual = new DeltaReader(objectMapper).readPscDeleteDelta(data);
+
+        // then
+        assertEquals("00623672", actual.getCompanyNumber());
+        assertEquals("5", actual.getInternalId());
+    }
+
+    @Test
+    void shouldThrowWhenDataIsNotJson() {
+        DeltaReader deltaReader = new DeltaReader(objectMapper);
+
+        assertThrows(JsonProcessingException.class, () -> deltaReader.readPscDelta("This is some invalid data"));
+    }
+}
@@ -0,0 +1,78 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.support.MessageBuilder;
+import uk.gov.companieshouse.psc.delta.utils.TestHelper;
+
+class DeltaSummaryTest {
+
+    private final TestHelper testHelper = new TestHelper();
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @Test
+    void shouldReadDeleteDeltaFields() throws IOException {
+        // when
+        DeltaSummary actual = DeltaSummary.read(jsonFactory, testHelper.createChsDeltaMessage(true));
+
+        // then
+        assertEquals(new DeltaSummary(true, "contextId", "00623672", "5", "corporate-entity",
+                "20230724093435661593", true), actual);
+        assertEquals("00623672/5", actual.notificationKey());
+    }
+
+    @Test
+    void shouldReadUpsertDeltaFieldsFromPsc() {
+        // given
+        String data = """
+                {"pscs": [{"company_number": "00623672", "internal_id": "5",
+                  "address": {"internal_id": "nested", "kind": "nested"}, "kind": "individual"}],
+                 "delta_at": "20211029142043360560"}
+                """;
+
+        // when
+        DeltaSummary actual = DeltaSummary.read(jsonFactory, testHelper.createChsDeltaMessage(data, false));
+
+        // then
+        assertEquals(new DeltaSummary(true, "contextId", "00623672", "5", "individual",
+                "20211029142043360560", false), actual);
+    }
+
+    @Test
+    void shouldKeepFieldsFoundBeforeInvalidData() {
+        // when
+        DeltaSummary actual = DeltaSummary.read(jsonFactory,
+                testHelper.createChsDeltaMessage("{\"company_number\": \"00623672\", \"internal_id\": ", true));
+
+        // then
+        assertEquals("00623672", actual.companyNumber());
+        assertNull(actual.notificationKey());
+        assertEquals("00623672", actual.orderingKey());
+    }
+
+    @Test
+    void shouldKeyInvalidDeltaOnContextId() {
+        // when
+        DeltaSummary actual = DeltaSummary.read(jsonFactory, testHelper.createInvalidChsDeltaMessage());
+
+        // then
+        assertTrue(actual.valid());
+        assertEquals("contextId", actual.orderingKey());
+    }
+
+    @Test
+    void shouldSummariseInvalidPayloadAsInvalid() {
+        // when
+        DeltaSummary actual = DeltaSummary.read(jsonFactory, MessageBuilder.withPayload("invalid").build());
+
+        // then
+        assertFalse(actual.valid());
+        assertEquals("", actual.orderingKey());
+    }
+}
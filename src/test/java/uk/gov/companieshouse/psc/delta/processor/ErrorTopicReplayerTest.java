@@ -0,0 +1,235 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import consumer.exception.NonRetryableErrorException;
+import consumer.exception.RetryableErrorException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import uk.gov.companieshouse.delta.ChsDelta;
+import uk.gov.companieshouse.psc.delta.utils.TestHelper;
+
+@ExtendWith(MockitoExtension.class)
+class ErrorTopicReplayerTest {
+
+    private static final String ERROR_TOPIC = "psc-delta-error";
+    private static final TopicPartition PARTITION = new TopicPartition(ERROR_TOPIC, 0);
+    private static final ReplayFilter NO_FILTER = new ReplayFilter(null, null, null, null, null, null);
+
+    private final TestHelper testHelper = new TestHelper();
+    private final MockConsumer<String, ChsDelta> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    private ErrorTopicReplayer replayer;
+
+    @Mock
+    private ConsumerFactory<String, ChsDelta> consumerFactory;
+    @Mock
+    private PscDeltaProcessor pscDeltaProcessor;
+
+    @BeforeEach
+    void setUp() {
+        replayer = new ErrorTopicReplayer(consumerFactory, pscDeltaProcessor, new ObjectMapper(), "psc-delta", "-error",
+                2, 0);
+        consumer.updatePartitions(ERROR_TOPIC, List.of(new PartitionInfo(ERROR_TOPIC, 0, null, null, null)));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+    }
+
+    @Test
+    void shouldReplayDeltasMatchingFilterAndSkipTheRest() throws Exception {
+        // given
+        ChsDelta delete = testHelper.createChsDelta(true);
+        ChsDelta otherCompany = new ChsDelta("{\"company_number\": \"12345678\"}", 0, "context_id", false);
+        givenErrorTopic(errorRecord(0, delete, NonRetryableErrorException.class),
+                errorRecord(1, otherCompany, NonRetryableErrorException.class),
+                errorRecord(2, null, NonRetryableErrorException.class));
+
+        // when
+        replayer.start(new ReplayFilter(null, null, null, "00623672", null, null));
+        ReplayProgress actual = awaitFinished();
+
+        // then
+        assertEquals(ReplayProgress.State.COMPLETED, actual.state());
+        assertEquals(3, actual.read());
+        assertEquals(1, actual.matched());
+        assertEquals(1, actual.replayed());
+        assertEquals(0, actual.failed());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Message<ChsDelta>> captor = ArgumentCaptor.forClass(Message.class);
+        verify(pscDeltaProcessor).process(captor.capture());
+        assertEquals(delete, captor.getValue().getPayload());
+        assertEquals(ERROR_TOPIC, captor.getValue().getHeaders().get(KafkaHeaders.RECEIVED_TOPIC));
+        assertEquals(0L, captor.getValue().getHeaders().get(KafkaHeaders.OFFSET));
+    }
+
+    @Test
+    void shouldReplayOnlyDeltasThatFailedWithErrorClass() throws Exception {
+        // given
+        ChsDelta delete = testHelper.createChsDelta(true);
+        givenErrorTopic(errorRecord(0, delete, RetryableErrorException.class),
+                errorRecord(1, delete, NonRetryableErrorException.class));
+
+        // when
+        replayer.start(new ReplayFilter(null, null, null, null, "corporate-entity", "NonRetryableErrorException"));
+        ReplayProgress actual = awaitFinished();
+
+        // then
+        assertEquals(2, actual.read());
+        assertEquals(1, actual.matched());
+        verify(pscDeltaProcessor, times(1)).process(any());
+    }
+
+    @Test
+    void shouldStartFromOffset() throws Exception {
+        // given
+        ChsDelta delete = testHelper.createChsDelta(true);
+        givenErrorTopic(errorRecord(0, delete, NonRetryableErrorException.class),
+                errorRecord(1, delete, NonRetryableErrorException.class),
+                errorRecord(2, delete, NonRetryableErrorException.class));
+
+        // when
+        replayer.start(new ReplayFilter(2L, null, null, null, null, null));
+        ReplayProgress actual = awaitFinished();
+
+        // then
+        assertEquals(1, actual.read());
+        assertEquals(1, actual.replayed());
+    }
+
+    @Test
+    void shouldCountDeltasThatFailAgainAndCarryOn() throws Exception {
+        // given
+        ChsDelta delete = testHelper.createChsDelta(true);
+        givenErrorTopic(errorRecord(0, delete, NonRetryableErrorException.class),
+                errorRecord(1, delete, NonRetryableErrorException.class));
+        doThrow(new RetryableErrorException("PSC data API unavailable"))
+                .doNothing()
+                .when(pscDeltaProcessor).process(any());
+
+        // when
+        replayer.start(NO_FILTER);
+        ReplayProgress actual = awaitFinished();
+
+        // then
+        assertEquals(ReplayProgress.State.COMPLETED, actual.state());
+        assertEquals(1, actual.replayed());
+        assertEquals(1, actual.failed());
+        assertEquals("PSC data API unavailable", actual.lastError());
+    }
+
+    @Test
+    void shouldRefuseToStartWhileReplayIsRunning() throws Exception {
+        // given
+        CountDownLatch processing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            processing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(pscDeltaProcessor).process(any());
+        givenErrorTopic(errorRecord(0, testHelper.createChsDelta(true), NonRetryableErrorException.class));
+        replayer.start(NO_FILTER);
+        processing.await(5, TimeUnit.SECONDS);
+
+        // when
+        assertThrows(IllegalStateException.class, () -> replayer.start(NO_FILTER));
+        release.countDown();
+
+        // then
+        assertEquals(ReplayProgress.State.COMPLETED, awaitFinished().state());
+    }
+
+    @Test
+    void shouldCompleteAtOnceWhenErrorTopicIsEmpty() throws Exception {
+        // given
+        givenErrorTopic();
+
+        // when
+        replayer.start(NO_FILTER);
+        ReplayProgress actual = awaitFinished();
+
+        // then
+        assertEquals(ReplayProgress.State.COMPLETED, actual.state());
+        assertEquals(0, actual.read());
+    }
+
+    @Test
+    void shouldCompleteWhenLastOffsetsHoldNoRecord() throws Exception {
+        // given
+        ChsDelta delete = testHelper.createChsDelta(true);
+        when(consumerFactory.createConsumer("psc-delta-consumer-replay", "-replay")).thenReturn(consumer);
+        consumer.updateEndOffsets(Map.of(PARTITION, 3L));
+        consumer.schedulePollTask(() -> {
+            consumer.addRecord(errorRecord(0, delete, NonRetryableErrorException.class));
+            consumer.addRecord(errorRecord(1, delete, NonRetryableErrorException.class));
+        });
+        // offset 2 is a transaction marker, which the position moves past without a record being returned
+        consumer.schedulePollTask(() -> consumer.seek(PARTITION, 3L));
+
+        // when
+        replayer.start(NO_FILTER);
+        ReplayProgress actual = awaitFinished();
+
+        // then
+        assertEquals(ReplayProgress.State.COMPLETED, actual.state());
+        assertEquals(2, actual.read());
+        assertEquals(2, actual.replayed());
+    }
+
+    @SafeVarargs
+    private void givenErrorTopic(ConsumerRecord<String, ChsDelta>... records) {
+        when(consumerFactory.createConsumer("psc-delta-consumer-replay", "-replay")).thenReturn(consumer);
+        consumer.updateEndOffsets(Map.of(PARTITION, (long) records.length));
+        consumer.schedulePollTask(() -> {
+            for (ConsumerRecord<String, ChsDelta> errorRecord : records) {
+                consumer.addRecord(errorRecord);
+            }
+        });
+    }
+
+    private static ConsumerRecord<String, ChsDelta> errorRecord(long offset, ChsDelta value,
+            Class<? extends Exception> exceptionClass) {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(KafkaHeaders.DLT_EXCEPTION_FQCN, exceptionClass.getName().getBytes(StandardCharsets.UTF_8));
+        return new ConsumerRecord<>(ERROR_TOPIC, 0, offset, System.currentTimeMillis(), TimestampType.CREATE_TIME,
+                -1, -1, "key", value, headers, Optional.empty());
+    }
+
+    private ReplayProgress awaitFinished() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        ReplayProgress progress = replayer.progress();
+        while (progress.state() == ReplayProgress.State.RUNNING && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            progress = replayer.progress();
+        }
+        return progress;
+    }
+}
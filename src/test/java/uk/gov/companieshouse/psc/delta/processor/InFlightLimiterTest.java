@@ -0,0 +1,100 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import consumer.exception.RetryableErrorException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.companieshouse.psc.delta.consumer.ListenerPauseController;
+
+@ExtendWith(MockitoExtension.class)
+class InFlightLimiterTest {
+
+    @Mock
+    private ListenerPauseController pauseController;
+
+    private InFlightLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new InFlightLimiter(4, 5000L, pauseController);
+    }
+
+    @Test
+    void shouldNotPauseWhileWindowHasRoom() {
+        // when
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire();
+        }
+
+        // then
+        assertEquals(4, limiter.inFlight());
+        verify(pauseController, never()).pause(InFlightLimiter.PAUSE_REASON);
+    }
+
+    @Test
+    void shouldPauseWhenWindowIsFullAndResumeOnceHalfIsFree() throws Exception {
+        // given
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire();
+        }
+
+        // when
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(limiter::acquire);
+        verify(pauseController, timeout(5000)).pause(InFlightLimiter.PAUSE_REASON);
+        limiter.release();
+        waiting.get(5, TimeUnit.SECONDS);
+
+        // then
+        verify(pauseController).pause(InFlightLimiter.PAUSE_REASON);
+        verify(pauseController, never()).resume(InFlightLimiter.PAUSE_REASON);
+
+        // when
+        limiter.release();
+        limiter.release();
+
+        // then
+        assertEquals(2, limiter.inFlight());
+        verify(pauseController).resume(InFlightLimiter.PAUSE_REASON);
+    }
+
+    @Test
+    void shouldFailWithRetryableErrorWhenNoPlaceFreesUpInTime() {
+        // given
+        InFlightLimiter shortWaitLimiter = new InFlightLimiter(1, 10L, pauseController);
+        shortWaitLimiter.acquire();
+
+        // when
+        RetryableErrorException actual = assertThrows(RetryableErrorException.class, shortWaitLimiter::acquire);
+
+        // then
+        assertEquals("Timed out waiting for an in-flight API call to complete", actual.getMessage());
+        assertEquals(1, shortWaitLimiter.inFlight());
+        verify(pauseController).pause(InFlightLimiter.PAUSE_REASON);
+    }
+
+    @Test
+    void shouldThrowRetryableErrorWhenInterruptedWaiting() {
+        // given
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire();
+        }
+        Thread.currentThread().interrupt();
+
+        // when
+        assertThrows(RetryableErrorException.class, limiter::acquire);
+
+        // then
+        assertTrue(Thread.interrupted());
+    }
+}
@@ -0,0 +1,138 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class KeyOrderedExecutorTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final KeyOrderedExecutor keyOrderedExecutor = new KeyOrderedExecutor(executor);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldRunTasksWithSameKeyInSubmissionOrder() {
+        // given
+        List<Integer> completed = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < 50; i++) {
+            final int task = i;
+            futures.add(keyOrderedExecutor.submit("company", () -> completed.add(task)));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        // then
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, completed.get(i));
+        }
+    }
+
+    @Test
+    void shouldRunTasksWithDifferentKeysConcurrently() throws Exception {
+        // given
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Runnable task = () -> {
+            bothStarted.countDown();
+            try {
+                bothStarted.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        // when
+        CompletableFuture<Void> first = keyOrderedExecutor.submit("first", task);
+        CompletableFuture<Void> second = keyOrderedExecutor.submit("second", task);
+        CompletableFuture.allOf(first, second).get(10, TimeUnit.SECONDS);
+
+        // then
+        assertEquals(0, bothStarted.getCount());
+    }
+
+    @Test
+    void shouldRunNextTaskWhenPreviousTaskWithSameKeyFails() {
+        // given
+        List<String> completed = Collections.synchronizedList(new ArrayList<>());
+
+        // when
+        CompletableFuture<Void> failed = keyOrderedExecutor.submit("company", () -> {
+            throw new IllegalStateException("failed");
+        });
+        CompletableFuture<Void> next = keyOrderedExecutor.submit("company", () -> completed.add("next"));
+        next.join();
+
+        // then
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(List.of("next"), completed);
+    }
+
+    @Test
+    void shouldStartAsyncTasksWithSameKeyOnlyOnceEarlierTasksHaveCompleted() {
+        // given
+        CompletableFuture<Void> firstCall = new CompletableFuture<>();
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+
+        // when
+        CompletableFuture<Void> first = keyOrderedExecutor.submitAsync("company", () -> {
+            started.add("first");
+            return firstCall;
+        });
+        CompletableFuture<Void> second = keyOrderedExecutor.submitAsync("company", () -> {
+            started.add("second");
+            return CompletableFuture.completedFuture(null);
+        });
+        CompletableFuture<Void> other = keyOrderedExecutor.submitAsync("other", () -> {
+            started.add("other");
+            return CompletableFuture.completedFuture(null);
+        });
+
+        // then
+        assertEquals(List.of("first", "other"), started);
+        assertTrue(other.isDone());
+
+        firstCall.completeExceptionally(new IllegalStateException("failed"));
+        second.join();
+        assertTrue(first.isCompletedExceptionally());
+        assertEquals(List.of("first", "other", "second"), started);
+        assertEquals(0, keyOrderedExecutor.pendingKeys());
+    }
+
+    @Test
+    void shouldLetTaskStartingAtOnceSubmitAnotherTaskWithSameKey() {
+        // given
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> inner = new ArrayList<>();
+
+        // when
+        CompletableFuture<Void> outer = keyOrderedExecutor.submitAsync("company", () -> {
+            started.add("outer");
+            inner.add(keyOrderedExecutor.submitAsync("company", () -> {
+                started.add("inner");
+                return CompletableFuture.completedFuture(null);
+            }));
+            return CompletableFuture.completedFuture(null);
+        });
+
+        // then
+        assertTrue(outer.isDone());
+        assertTrue(inner.getFirst().isDone());
+        assertEquals(List.of("outer", "inner"), started);
+        assertEquals(0, keyOrderedExecutor.pendingKeys());
+    }
+}
@@ -0,0 +1,217 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import consumer.exception.NonRetryableErrorException;
+import consumer.exception.RetryableErrorException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import uk.gov.companieshouse.psc.delta.consumer.ListenerPauseController;
+import uk.gov.companieshouse.psc.delta.metrics.DeltaMetrics;
+import uk.gov.companieshouse.psc.delta.metrics.Lane;
+
+class PriorityLaneSchedulerTest {
+
+    private static final long MAX_WAIT_MS = 5000L;
+
+    private final ListenerPauseController pauseController = mock(ListenerPauseController.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final DeltaMetrics deltaMetrics = new DeltaMetrics(registry);
+
+    @Test
+    void shouldStartCallsAtOnceWhenDisabled() {
+        // given
+        PriorityLaneScheduler scheduler = new PriorityLaneScheduler(false, false, false, 0, 0, 0, 0, 0, MAX_WAIT_MS,
+                pauseController, deltaMetrics);
+        CompletableFuture<Void> call = new CompletableFuture<>();
+
+        // when
+        scheduler.reserve(Lane.UPSERT);
+        CompletableFuture<Void> result = scheduler.submit(Lane.UPSERT, () -> call);
+
+        // then
+        assertSame(call, result);
+    }
+
+    @Test
+    void shouldStartWaitingCallsFromLanesInProportionToWeight() {
+        // given
+        PriorityLaneScheduler scheduler = new PriorityLaneScheduler(true, true, false, 1, 3, 10, 1, 10, MAX_WAIT_MS,
+                pauseController, deltaMetrics);
+        CompletableFuture<Void> running = new CompletableFuture<>();
+        List<String> started = new ArrayList<>();
+        scheduler.reserve(Lane.UPSERT);
+        scheduler.submit(Lane.UPSERT, () -> running);
+        for (int i = 0; i < 4; i++) {
+            submit(scheduler, Lane.UPSERT, started);
+            submit(scheduler, Lane.DELETE, started);
+        }
+
+        // when
+        running.complete(null);
+
+        // then
+        assertEquals(List.of("delete", "delete", "upsert", "delete", "delete", "upsert", "upsert", "upsert"),
+                started);
+    }
+
+    @Test
+    void shouldRunNoMoreThanMaximumCallsAtOnce() {
+        // given
+        PriorityLaneScheduler scheduler = new PriorityLaneScheduler(true, true, false, 2, 3, 10, 1, 10, MAX_WAIT_MS,
+                pauseController, deltaMetrics);
+        List<CompletableFuture<Void>> calls = List.of(new CompletableFuture<>(), new CompletableFuture<>(),
+                new CompletableFuture<>());
+
+        // when
+        for (CompletableFuture<Void> call : calls) {
+            scheduler.reserve(Lane.DELETE);
+            scheduler.submit(Lane.DELETE, () -> call);
+        }
+
+        // then
+        assertEquals(1, scheduler.queued(Lane.DELETE));
+
+        // when
+        calls.getFirst().complete(null);
+
+        // then
+        assertEquals(0, scheduler.queued(Lane.DELETE));
+    }
+
+    @Test
+    void shouldCompleteWithFailureOfCallAndFreeItsPlace() {
+        // given
+        PriorityLaneScheduler scheduler = new PriorityLaneScheduler(true, true, false, 1, 3, 1, 1, 1, MAX_WAIT_MS,
+                pauseController, deltaMetrics);
+        NonRetryableErrorException exception = new NonRetryableErrorException("Bad request");
+
+        // when
+        scheduler.reserve(Lane.DELETE);
+        CompletableFuture<Void> result = scheduler.submit(Lane.DELETE,
+                () -> CompletableFuture.failedFuture(exception));
+
+        // then
+        CompletionException actual = assertThrows(CompletionException.class, result::join);
+        assertSame(exception, actual.getCause());
+        scheduler.reserve(Lane.DELETE);
+    }
+
+    @Test
+    void shouldFailToReserveFullLaneWhenInterrupted() {
+        // given
+        PriorityLaneScheduler scheduler = new PriorityLaneScheduler(true, true, false, 1, 3, 1, 1, 1, MAX_WAIT_MS,
+                pauseController, deltaMetrics);
+        scheduler.reserve(Lane.UPSERT);
+        Thread.currentThread().interrupt();
+
+        // when
+        try {
+            assertThrows(RetryableErrorException.class, () -> scheduler.reserve(Lane.UPSERT));
+        } finally {
+            // then
+            assertTrue(Thread.interrupted());
+        }
+    }
+
+    @Test
+    void shouldPauseWhenLaneIsFullAndResumeOnceHalfIsFree() throws Exception {
+        // given
+        PriorityLaneScheduler scheduler = new PriorityLaneScheduler(true, true, false, 4, 3, 4, 1, 4, MAX_WAIT_MS,
+                pauseController, deltaMetrics);
+        List<CompletableFuture<Void>> calls = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            CompletableFuture<Void> call = new CompletableFuture<>();
+            calls.add(call);
+            scheduler.reserve(Lane.UPSERT);
+            scheduler.submit(Lane.UPSERT, () -> call);
+        }
+        String pauseReason = PriorityLaneScheduler.pauseReason(Lane.UPSERT);
+
+        // when
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> scheduler.reserve(Lane.UPSERT));
+        verify(pauseController, timeout(5000)).pause(pauseReason);
+        calls.get(0).complete(null);
+        waiting.get(5, TimeUnit.SECONDS);
+        calls.get(1).complete(null);
+
+        // then
+        verify(pauseController, never()).resume(pauseReason);
+
+        // when
+        calls.get(2).complete(null);
+
+        // then
+        verify(pauseController).resume(pauseReason);
+    }
+
+    @Test
+    void shouldFailToReserveFullLaneWhenNoPlaceIsFreeInTime() {
+        // given
+        PriorityLaneScheduler scheduler = new PriorityLaneScheduler(true, true, false, 1, 3, 1, 1, 1, 10L,
+                pauseController, deltaMetrics);
+        scheduler.reserve(Lane.DELETE);
+
+        // when
+        RetryableErrorException actual = assertThrows(RetryableErrorException.class,
+                () -> scheduler.reserve(Lane.DELETE));
+
+        // then
+        assertEquals("Timed out waiting for a place in the DELETE lane", actual.getMessage());
+        verify(pauseController).pause(PriorityLaneScheduler.pauseReason(Lane.DELETE));
+    }
+
+    @Test
+    void shouldRecordWaitAndLatencyForEachLane() {
+        // given
+        PriorityLaneScheduler scheduler = new PriorityLaneScheduler(true, true, false, 1, 3, 10, 1, 10, MAX_WAIT_MS,
+                pauseController, deltaMetrics);
+
+        // when
+        scheduler.reserve(Lane.DELETE);
+        scheduler.submit(Lane.DELETE, () -> CompletableFuture.completedFuture(null)).join();
+
+        // then
+        assertEquals(1, registry.get("psc.delta.lane.wait").tag("lane", "delete").timer().count());
+        assertEquals(1, registry.get("psc.delta.lane.latency").tag("lane", "delete").timer().count());
+        assertEquals(0, registry.get("psc.delta.lane.latency").tag("lane", "upsert").timer().count());
+    }
+
+    @Test
+    void shouldRejectLaneWithoutWeight() {
+        assertThrows(IllegalArgumentException.class, () -> new PriorityLaneScheduler(true, true, false, 1, 0, 10,
+                1, 10, MAX_WAIT_MS, pauseController, deltaMetrics));
+    }
+
+    @Test
+    void shouldRejectLanesWithoutAsynchronousProcessing() {
+        assertThrows(IllegalArgumentException.class, () -> new PriorityLaneScheduler(true, false, false, 1, 3, 10,
+                1, 10, MAX_WAIT_MS, pauseController, deltaMetrics));
+    }
+
+    @Test
+    void shouldRejectLanesWithBatchProcessing() {
+        assertThrows(IllegalArgumentException.class, () -> new PriorityLaneScheduler(true, true, true, 1, 3, 10,
+                1, 10, MAX_WAIT_MS, pauseController, deltaMetrics));
+    }
+
+    private static void submit(PriorityLaneScheduler scheduler, Lane lane, List<String> started) {
+        scheduler.reserve(lane);
+        scheduler.submit(lane, () -> {
+            started.add(lane.name().toLowerCase());
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+}
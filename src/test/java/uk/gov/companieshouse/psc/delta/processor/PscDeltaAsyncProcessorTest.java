@@ -0,0 +1,417 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import consumer.exception.NonRetryableErrorException;
+import consumer.exception.RetryableErrorException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.messaging.Message;
+import uk.gov.companieshouse.delta.ChsDelta;
+import uk.gov.companieshouse.psc.delta.consumer.FailedDeltaPublisher;
+import uk.gov.companieshouse.psc.delta.consumer.ListenerPauseController;
+import uk.gov.companieshouse.psc.delta.consumer.PscDeltaConsumer;
+import uk.gov.companieshouse.psc.delta.logging.DataMapHolder;
+import uk.gov.companieshouse.psc.delta.metrics.DeltaMetrics;
+import uk.gov.companieshouse.psc.delta.metrics.Lane;
+import uk.gov.companieshouse.psc.delta.utils.TestHelper;
+
+@ExtendWith(MockitoExtension.class)
+class PscDeltaAsyncProcessorTest {
+
+    private static final String COMPANY_NUMBER = "00623672";
+
+    private static final int FORWARD_ATTEMPTS = 2;
+
+    private final TestHelper testHelper = new TestHelper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DeltaMetrics deltaMetrics = new DeltaMetrics(meterRegistry);
+    private PscDeltaAsyncProcessor asyncProcessor;
+
+    @Mock
+    private PscDeltaProcessor pscDeltaProcessor;
+    @Mock
+    private FailedDeltaPublisher failedDeltaPublisher;
+    @Mock
+    private InFlightLimiter inFlightLimiter;
+    @Mock
+    private Acknowledgment acknowledgment;
+    @Mock
+    private KafkaListenerEndpointRegistry registry;
+    @Mock
+    private MessageListenerContainer container;
+
+    @BeforeEach
+    void setUp() {
+        asyncProcessor = asyncProcessor(Runnable::run, disabledLaneScheduler());
+    }
+
+    @AfterEach
+    void tearDown() {
+        DataMapHolder.clear();
+    }
+
+    @Test
+    void shouldAcknowledgeDeltaOnlyOnceApiCallHasCompleted() throws IOException {
+        // given
+        Message<ChsDelta> message = testHelper.createChsDeltaMessage(false);
+        CompletableFuture<Void> call = new CompletableFuture<>();
+        when(pscDeltaProcessor.prepare(message)).thenReturn(new ApiCall(COMPANY_NUMBER, () -> call));
+
+        // when
+        CompletableFuture<Void> result = asyncProcessor.submit(message, acknowledgment);
+
+        // then
+        verify(inFlightLimiter).acquire();
+        verify(acknowledgment, never()).acknowledge();
+        verify(inFlightLimiter, never()).release();
+
+        // when
+        call.complete(null);
+
+        // then
+        assertTrue(result.isDone());
+        verify(acknowledgment).acknowledge();
+        verify(inFlightLimiter).release();
+        verifyNoInteractions(failedDeltaPublisher);
+    }
+
+    @Test
+    void shouldForwardDeltaWhoseApiCallFailedBeforeAcknowledgingIt() throws IOException {
+        // given
+        Message<ChsDelta> message = testHelper.createChsDeltaMessage(true);
+        NonRetryableErrorException exception = new NonRetryableErrorException("Bad request");
+        when(pscDeltaProcessor.prepare(message))
+                .thenReturn(new ApiCall(COMPANY_NUMBER, () -> CompletableFuture.failedFuture(exception)));
+
+        // when
+        asyncProcessor.submit(message, acknowledgment).join();
+
+        // then
+        verify(failedDeltaPublisher).publish(message, exception);
+        verify(acknowledgment).acknowledge();
+        verify(inFlightLimiter).release();
+    }
+
+    @Test
+    void shouldForwardDeltaThatFailedToTransform() {
+        // given
+        Message<ChsDelta> message = testHelper.createInvalidChsDeltaMessage();
+        RetryableErrorException exception = new RetryableErrorException("Failed to extract PSC delta");
+        when(pscDeltaProcessor.prepare(message)).thenThrow(exception);
+
+        // when
+        asyncProcessor.submit(message, acknowledgment).join();
+
+        // then
+        verify(failedDeltaPublisher).publish(message, exception);
+        verify(acknowledgment).acknowledge();
+        verify(inFlightLimiter).release();
+    }
+
+    @Test
+    void shouldRetryForwardingUntilDeltaIsForwarded() throws IOException {
+        // given
+        Message<ChsDelta> message = testHelper.createChsDeltaMessage(false);
+        RetryableErrorException exception = new RetryableErrorException("API unavailable");
+        when(pscDeltaProcessor.prepare(message))
+                .thenReturn(new ApiCall(COMPANY_NUMBER, () -> CompletableFuture.failedFuture(exception)));
+        doThrow(RetryableErrorException.class)
+                .doNothing()
+                .when(failedDeltaPublisher).publish(message, exception);
+
+        // when
+        asyncProcessor.submit(message, acknowledgment).join();
+
+        // then
+        verify(failedDeltaPublisher, times(2)).publish(message, exception);
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void shouldOnlyStartApiCallForCompanyOnceEarlierCallHasCompleted() throws IOException {
+        // given
+        Message<ChsDelta> first = testHelper.createChsDeltaMessage(false);
+        Message<ChsDelta> second = testHelper.createChsDeltaMessage(true);
+        CompletableFuture<Void> firstCall = new CompletableFuture<>();
+        List<String> started = new ArrayList<>();
+        when(pscDeltaProcessor.prepare(first)).thenReturn(new ApiCall(COMPANY_NUMBER, () -> {
+            started.add("first");
+            return firstCall;
+        }));
+        when(pscDeltaProcessor.prepare(second)).thenReturn(new ApiCall(COMPANY_NUMBER, () -> {
+            started.add("second");
+            return CompletableFuture.completedFuture(null);
+        }));
+        Acknowledgment secondAcknowledgment = mock(Acknowledgment.class);
+
+        // when
+        asyncProcessor.submit(first, acknowledgment);
+        CompletableFuture<Void> secondResult = asyncProcessor.submit(second, secondAcknowledgment);
+
+        // then
+        assertEquals(List.of("first"), started);
+        verify(secondAcknowledgment, never()).acknowledge();
+
+        // when
+        firstCall.complete(null);
+        secondResult.join();
+
+        // then
+        assertEquals(List.of("first", "second"), started);
+        verify(acknowledgment).acknowledge();
+        verify(secondAcknowledgment).acknowledge();
+    }
+
+    @Test
+    void shouldRecordOutcomeAndLogSummaryOnlyOnceApiCallHasCompleted() throws IOException {
+        // given
+        Message<ChsDelta> message = testHelper.createChsDeltaMessage(false);
+        CompletableFuture<Void> call = new CompletableFuture<>();
+        when(pscDeltaProcessor.prepare(message)).thenReturn(new ApiCall(COMPANY_NUMBER, () -> call));
+
+        // when
+        asyncProcessor.submit(message, acknowledgment);
+
+        // then
+        assertTrue(DataMapHolder.isHandedOff());
+        assertNull(meterRegistry.find("psc.delta.processing.duration").timer());
+
+        // when
+        call.complete(null);
+
+        // then
+        assertEquals(1, meterRegistry.get("psc.delta.processing.duration")
+                .tags("operation", "PUT", "outcome", "success").timer().count());
+    }
+
+    @Test
+    void shouldRecordFailedOutcomeOfApiCall() throws IOException {
+        // given
+        Message<ChsDelta> message = testHelper.createChsDeltaMessage(true);
+        NonRetryableErrorException exception = new NonRetryableErrorException("Bad request");
+        when(pscDeltaProcessor.prepare(message))
+                .thenReturn(new ApiCall(COMPANY_NUMBER, () -> CompletableFuture.failedFuture(exception)));
+
+        // when
+        asyncProcessor.submit(message, acknowledgment).join();
+
+        // then
+        assertEquals(1, meterRegistry.get("psc.delta.processing.duration")
+                .tags("operation", "DELETE", "outcome", "non-retryable-error").timer().count());
+    }
+
+    @Test
+    void shouldForwardFailedDeltaOnForwardExecutor() throws IOException {
+        // given
+        List<Runnable> forwarding = new ArrayList<>();
+        PscDeltaAsyncProcessor forwardingAsyncProcessor = asyncProcessor(forwarding::add, disabledLaneScheduler());
+        Message<ChsDelta> message = testHelper.createChsDeltaMessage(false);
+        RetryableErrorException exception = new RetryableErrorException("API unavailable");
+        when(pscDeltaProcessor.prepare(message))
+                .thenReturn(new ApiCall(COMPANY_NUMBER, () -> CompletableFuture.failedFuture(exception)));
+
+        // when
+        CompletableFuture<Void> result = forwardingAsyncProcessor.submit(message, acknowledgment);
+
+        // then
+        verifyNoInteractions(failedDeltaPublisher);
+        assertEquals(1, forwarding.size());
+
+        // when
+        forwarding.getFirst().run();
+
+        // then
+        assertTrue(result.isDone());
+        verify(failedDeltaPublisher).publish(message, exception);
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void shouldRestartListenerRatherThanAcknowledgeDeltaThatCannotBeForwarded() throws IOException {
+        // given
+        Message<ChsDelta> message = testHelper.createChsDeltaMessage(false);
+        RetryableErrorException exception = new RetryableErrorException("API unavailable");
+        when(pscDeltaProcessor.prepare(message))
+                .thenReturn(new ApiCall(COMPANY_NUMBER, () -> CompletableFuture.failedFuture(exception)));
+        doThrow(RetryableErrorException.class).when(failedDeltaPublisher).publish(message, exception);
+        when(registry.getListenerContainer(PscDeltaConsumer.LISTENER_ID)).thenReturn(container);
+        when(container.isRunning()).thenReturn(true, false);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(container).stop(any(Runnable.class));
+
+        // when
+        asyncProcessor.submit(message, acknowledgment).join();
+
+        // then
+        verify(failedDeltaPublisher, times(FORWARD_ATTEMPTS)).publish(message, exception);
+        verify(acknowledgment, never()).acknowledge();
+        verify(container).stop(any(Runnable.class));
+        verify(container, timeout(5000)).start();
+        verify(inFlightLimiter).release();
+    }
+
+    @Test
+    void shouldKeepTryingToRestartListener() throws IOException {
+        // given
+        Message<ChsDelta> message = testHelper.createChsDeltaMessage(false);
+        RetryableErrorException exception = new RetryableErrorException("API unavailable");
+        when(pscDeltaProcessor.prepare(message))
+                .thenReturn(new ApiCall(COMPANY_NUMBER, () -> CompletableFuture.failedFuture(exception)));
+        doThrow(RetryableErrorException.class).when(failedDeltaPublisher).publish(message, exception);
+        when(registry.getListenerContainer(PscDeltaConsumer.LISTENER_ID)).thenReturn(container);
+        when(container.isRunning()).thenReturn(true, false);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(container).stop(any(Runnable.class));
+        doThrow(IllegalStateException.class)
+                .doNothing()
+                .when(container).start();
+
+        // when
+        asyncProcessor.submit(message, acknowledgment).join();
+
+        // then
+        verify(container, timeout(5000).times(2)).start();
+    }
+
+    @Test
+    void shouldStartQueuedDeleteAheadOfQueuedUpsertWhenLanesEnabled() throws IOException {
+        // given
+        PriorityLaneScheduler laneScheduler = new PriorityLaneScheduler(true, true, false, 1, 3, 10, 1, 10, 5000L,
+                mock(ListenerPauseController.class), new DeltaMetrics(new SimpleMeterRegistry()));
+        PscDeltaAsyncProcessor laneAsyncProcessor = asyncProcessor(Runnable::run, laneScheduler);
+        Message<ChsDelta> running = testHelper.createChsDeltaMessage(false);
+        Message<ChsDelta> upsert = testHelper.createChsDeltaMessage(false);
+        Message<ChsDelta> delete = testHelper.createChsDeltaMessage(true);
+        CompletableFuture<Void> runningCall = new CompletableFuture<>();
+        List<String> started = new ArrayList<>();
+        when(pscDeltaProcessor.prepare(running)).thenReturn(new ApiCall("00000001", () -> {
+            started.add("running");
+            return runningCall;
+        }));
+        when(pscDeltaProcessor.prepare(upsert)).thenReturn(new ApiCall("00000002", () -> {
+            started.add("upsert");
+            return CompletableFuture.completedFuture(null);
+        }));
+        when(pscDeltaProcessor.prepare(delete)).thenReturn(new ApiCall("00000003", () -> {
+            started.add("delete");
+            return CompletableFuture.completedFuture(null);
+        }));
+
+        // when
+        laneAsyncProcessor.submit(running, acknowledgment);
+        CompletableFuture<Void> upsertResult = laneAsyncProcessor.submit(upsert, mock(Acknowledgment.class));
+        CompletableFuture<Void> deleteResult = laneAsyncProcessor.submit(delete, mock(Acknowledgment.class));
+
+        // then
+        assertEquals(List.of("running"), started);
+
+        // when
+        runningCall.complete(null);
+        CompletableFuture.allOf(upsertResult, deleteResult).join();
+
+        // then
+        assertEquals(List.of("running", "delete", "upsert"), started);
+    }
+
+    @Test
+    void shouldCompleteCallsThatFinishAtOnceWhenQueuedBehindFullLane() throws IOException {
+        // given
+        PriorityLaneScheduler laneScheduler = new PriorityLaneScheduler(true, true, false, 1, 3, 10, 1, 10, 5000L,
+                mock(ListenerPauseController.class), new DeltaMetrics(new SimpleMeterRegistry()));
+        PscDeltaAsyncProcessor laneAsyncProcessor = asyncProcessor(Runnable::run, laneScheduler);
+        Message<ChsDelta> running = testHelper.createChsDeltaMessage(false);
+        Message<ChsDelta> sameCompany = testHelper.createChsDeltaMessage(true);
+        Message<ChsDelta> otherCompany = testHelper.createChsDeltaMessage(false);
+        CompletableFuture<Void> runningCall = new CompletableFuture<>();
+        when(pscDeltaProcessor.prepare(running)).thenReturn(new ApiCall(COMPANY_NUMBER, () -> runningCall));
+        // Deltas already applied, whose calls complete as soon as they are started
+        when(pscDeltaProcessor.prepare(sameCompany))
+                .thenReturn(new ApiCall(COMPANY_NUMBER, () -> CompletableFuture.completedFuture(null)));
+        when(pscDeltaProcessor.prepare(otherCompany))
+                .thenReturn(new ApiCall("00000002", () -> CompletableFuture.completedFuture(null)));
+        Acknowledgment sameCompanyAcknowledgment = mock(Acknowledgment.class);
+        Acknowledgment otherCompanyAcknowledgment = mock(Acknowledgment.class);
+
+        // when
+        laneAsyncProcessor.submit(running, acknowledgment);
+        CompletableFuture<Void> sameCompanyResult = laneAsyncProcessor.submit(sameCompany, sameCompanyAcknowledgment);
+        CompletableFuture<Void> otherCompanyResult = laneAsyncProcessor.submit(otherCompany,
+                otherCompanyAcknowledgment);
+
+        // then
+        assertFalse(sameCompanyResult.isDone());
+        assertFalse(otherCompanyResult.isDone());
+
+        // when
+        runningCall.complete(null);
+        CompletableFuture.allOf(sameCompanyResult, otherCompanyResult).join();
+
+        // then
+        verify(acknowledgment).acknowledge();
+        verify(sameCompanyAcknowledgment).acknowledge();
+        verify(otherCompanyAcknowledgment).acknowledge();
+        verify(inFlightLimiter, times(3)).release();
+        verifyNoInteractions(failedDeltaPublisher);
+    }
+
+    @Test
+    void shouldGiveUpPlaceReservedInLaneWhenCallCannotBeQueued() throws IOException {
+        // given
+        PriorityLaneScheduler laneScheduler = new PriorityLaneScheduler(true, true, false, 1, 3, 1, 1, 1, 10L,
+                mock(ListenerPauseController.class), new DeltaMetrics(new SimpleMeterRegistry()));
+        PscDeltaAsyncProcessor laneAsyncProcessor = asyncProcessor(Runnable::run, laneScheduler);
+        Message<ChsDelta> message = testHelper.createChsDeltaMessage(false);
+        // Without a company number the call cannot be queued in order
+        when(pscDeltaProcessor.prepare(message))
+                .thenReturn(new ApiCall(null, () -> CompletableFuture.completedFuture(null)));
+
+        // when
+        laneAsyncProcessor.submit(message, acknowledgment).join();
+
+        // then
+        verify(failedDeltaPublisher).publish(eq(message), any(NullPointerException.class));
+        laneScheduler.reserve(Lane.UPSERT);
+    }
+
+    private PriorityLaneScheduler disabledLaneScheduler() {
+        return new PriorityLaneScheduler(false, false, false, 0, 0, 0, 0, 0, 0L, mock(ListenerPauseController.class),
+                deltaMetrics);
+    }
+
+    private PscDeltaAsyncProcessor asyncProcessor(Executor forwardExecutor, PriorityLaneScheduler laneScheduler) {
+        return new PscDeltaAsyncProcessor(pscDeltaProcessor, failedDeltaPublisher, inFlightLimiter, Runnable::run,
+                forwardExecutor, laneScheduler, registry, deltaMetrics, FORWARD_ATTEMPTS, 0L);
+    }
+}
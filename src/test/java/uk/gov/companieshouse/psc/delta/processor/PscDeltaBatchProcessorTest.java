@@ -0,0 +1,238 @@
+package uk.gov.companieshouse.psc.delta.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import consumer.exception.NonRetryableErrorException;
+import consumer.exception.RetryableErrorException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import uk.gov.companieshouse.delta.ChsDelta;
+import uk.gov.companieshouse.psc.delta.consumer.FailedDeltaPublisher;
+import uk.gov.companieshouse.psc.delta.metrics.DeltaMetrics;
+import uk.gov.companieshouse.psc.delta.metrics.Operation;
+import uk.gov.companieshouse.psc.delta.service.ApiClientService;
+import uk.gov.companieshouse.psc.delta.service.PscBulkItem;
+import uk.gov.companieshouse.psc.delta.service.PscBulkResult;
+import uk.gov.companieshouse.psc.delta.utils.TestHelper;
+
+@ExtendWith(MockitoExtension.class)
+class PscDeltaBatchProcessorTest {
+
+    private final TestHelper testHelper = new TestHelper();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private PscDeltaBatchProcessor batchProcessor;
+
+    @Mock
+    private PscDeltaProcessor pscDeltaProcessor;
+    @Mock
+    private FailedDeltaPublisher failedDeltaPublisher;
+    @Mock
+    private ApiClientService apiClientService;
+
+    @BeforeEach
+    void setUp() {
+        batchProcessor = new PscDeltaBatchProcessor(pscDeltaProcessor, failedDeltaPublisher, executor,
+                new ObjectMapper(), new DeltaCoalescer(false, new DeltaMetrics(new SimpleMeterRegistry())),
+                apiClientService, disabledCache(), false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldProcessEveryDeltaInBatch() throws IOException {
+        // given
+        Message<ChsDelta> upsert = testHelper.createChsDeltaMessage(false);
+        Message<ChsDelta> delete = testHelper.createChsDeltaMessage(true);
+
+        // when
+        batchProcessor.processBatch(List.of(upsert, delete));
+
+        // then
+        verify(pscDeltaProcessor).process(upsert);
+        verify(pscDeltaProcessor).process(delete);
+        verify(failedDeltaPublisher, never()).publish(any(), any());
+    }
+
+    @Test
+    void shouldForwardFailedDeltaAndContinueWithRestOfBatch() throws IOException {
+        // given
+        Message<ChsDelta> failing = testHelper.createChsDeltaMessage(false);
+        Message<ChsDelta> succeeding = testHelper.createChsDeltaMessage(true);
+        RetryableErrorException exception = new RetryableErrorException("API unavailable");
+        doThrow(exception).when(pscDeltaProcessor).process(failing);
+
+        // when
+        batchProcessor.processBatch(List.of(failing, succeeding));
+
+        // then
+        verify(failedDeltaPublisher).publish(failing, exception);
+        verify(pscDeltaProcessor).process(succeeding);
+    }
+
+    @Test
+    void shouldThrowBatchListenerFailedExceptionWhenDeltaCannotBeForwarded() throws IOException {
+        // given
+        Message<ChsDelta> succeeding = testHelper.createChsDeltaMessage(true);
+        Message<ChsDelta> failing = testHelper.createChsDeltaMessage(false);
+        NonRetryableErrorException exception = new NonRetryableErrorException("Bad request");
+        doThrow(exception).when(pscDeltaProcessor).process(failing);
+        doThrow(RetryableErrorException.class).when(failedDeltaPublisher).publish(failing, exception);
+
+        // when
+        BatchListenerFailedException actual = assertThrows(BatchListenerFailedException.class,
+                () -> batchProcessor.processBatch(List.of(succeeding, failing)));
+
+        // then
+        assertEquals(1, actual.getIndex());
+    }
+
+    @Test
+    void shouldProcessDeltasForSameCompanyInOrder() throws IOException {
+        // given
+        List<Message<ChsDelta>> messages = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            messages.add(testHelper.createChsDeltaMessage(i % 2 == 0));
+        }
+        List<Message<ChsDelta>> processed = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> processed.add(invocation.getArgument(0)))
+                .when(pscDeltaProcessor).process(any());
+
+        // when
+        batchProcessor.processBatch(messages);
+
+        // then
+        assertEquals(messages, processed);
+    }
+
+    @Test
+    void shouldOnlyProcessNewestDeltaForNotificationWhenCoalescing() {
+        // given
+        PscDeltaBatchProcessor coalescingBatchProcessor = new PscDeltaBatchProcessor(pscDeltaProcessor,
+                failedDeltaPublisher, executor, new ObjectMapper(),
+                new DeltaCoalescer(true, new DeltaMetrics(new SimpleMeterRegistry())), apiClientService,
+                disabledCache(), false);
+        Message<ChsDelta> older = deleteDelta("20230724093435661593");
+        Message<ChsDelta> newer = deleteDelta("20230724093435661594");
+        Message<ChsDelta> oldest = deleteDelta("20230724093435661592");
+
+        // when
+        coalescingBatchProcessor.processBatch(List.of(older, newer, oldest));
+
+        // then
+        verify(pscDeltaProcessor).process(newer);
+        verify(pscDeltaProcessor, never()).process(older);
+        verify(pscDeltaProcessor, never()).process(oldest);
+    }
+
+    @Test
+    void shouldSendDeltasForCompanyInOneBulkRequestAndForwardFailedItems() throws IOException {
+        // given
+        PscDeltaBatchProcessor bulkBatchProcessor = new PscDeltaBatchProcessor(pscDeltaProcessor,
+                failedDeltaPublisher, executor, new ObjectMapper(),
+                new DeltaCoalescer(false, new DeltaMetrics(new SimpleMeterRegistry())), apiClientService,
+                disabledCache(), true);
+        Message<ChsDelta> upsert = testHelper.createChsDeltaMessage(false);
+        Message<ChsDelta> delete = testHelper.createChsDeltaMessage(true);
+        Message<ChsDelta> invalid = testHelper.createInvalidChsDeltaMessage();
+        PscBulkItem upsertItem = PscBulkItem.put("notification", null);
+        PscBulkItem deleteItem = new PscBulkItem(Operation.DELETE, "notification", null,
+                "20230724093435661593", "kind");
+        RetryableErrorException invalidException = new RetryableErrorException("Failed to extract PSC delta");
+        NonRetryableErrorException deleteException = new NonRetryableErrorException("Conflict");
+        when(pscDeltaProcessor.prepareBulkItem(upsert)).thenReturn(upsertItem);
+        when(pscDeltaProcessor.prepareBulkItem(delete)).thenReturn(deleteItem);
+        when(pscDeltaProcessor.prepareBulkItem(invalid)).thenThrow(invalidException);
+        when(apiClientService.bulkPscFullRecords("00623672", List.of(upsertItem, deleteItem))).thenReturn(List.of(
+                new PscBulkResult(upsertItem, null), new PscBulkResult(deleteItem, deleteException)));
+
+        // when
+        bulkBatchProcessor.processBatch(List.of(upsert, delete, invalid));
+
+        // then
+        verify(failedDeltaPublisher).publish(delete, deleteException);
+        verify(failedDeltaPublisher).publish(invalid, invalidException);
+        verify(failedDeltaPublisher, never()).publish(eq(upsert), any());
+        verify(pscDeltaProcessor, never()).process(any());
+    }
+
+    @Test
+    void shouldThrowBatchListenerFailedExceptionWhenBulkItemCannotBeForwarded() throws IOException {
+        // given
+        PscDeltaBatchProcessor bulkBatchProcessor = new PscDeltaBatchProcessor(pscDeltaProcessor,
+                failedDeltaPublisher, executor, new ObjectMapper(),
+                new DeltaCoalescer(false, new DeltaMetrics(new SimpleMeterRegistry())), apiClientService,
+                disabledCache(), true);
+        Message<ChsDelta> upsert = testHelper.createChsDeltaMessage(false);
+        Message<ChsDelta> delete = testHelper.createChsDeltaMessage(true);
+        PscBulkItem upsertItem = PscBulkItem.put("notification", null);
+        PscBulkItem deleteItem = new PscBulkItem(Operation.DELETE, "notification", null,
+                "20230724093435661593", "kind");
+        RetryableErrorException exception = new RetryableErrorException("API unavailable");
+        when(pscDeltaProcessor.prepareBulkItem(upsert)).thenReturn(upsertItem);
+        when(pscDeltaProcessor.prepareBulkItem(delete)).thenReturn(deleteItem);
+        when(apiClientService.bulkPscFullRecords("00623672", List.of(upsertItem, deleteItem))).thenReturn(List.of(
+                new PscBulkResult(upsertItem, null), new PscBulkResult(deleteItem, exception)));
+        doThrow(RetryableErrorException.class).when(failedDeltaPublisher).publish(delete, exception);
+
+        // when
+        BatchListenerFailedException actual = assertThrows(BatchListenerFailedException.class,
+                () -> bulkBatchProcessor.processBatch(List.of(upsert, delete)));
+
+        // then
+        assertEquals(1, actual.getIndex());
+    }
+
+    @Test
+    void shouldKeyDeltasOnCompanyNumber() throws IOException {
+        assertEquals("00623672", batchProcessor.orderingKey(testHelper.createChsDeltaMessage(false)));
+        assertEquals("00623672", batchProcessor.orderingKey(testHelper.createChsDeltaMessage(true)));
+        assertEquals("contextId", batchProcessor.orderingKey(testHelper.createInvalidChsDeltaMessage()));
+    }
+
+    @Test
+    void shouldKeyInvalidPayloadWithoutFailing() {
+        Message<?> message = MessageBuilder.withPayload("invalid").build();
+
+        @SuppressWarnings("unchecked")
+        String actual = batchProcessor.orderingKey((Message<ChsDelta>) message);
+
+        assertEquals("", actual);
+    }
+
+    private Message<ChsDelta> deleteDelta(String deltaAt) {
+        return testHelper.createChsDeltaMessage("""
+                {"internal_id": "5", "company_number": "00623672", "kind": "individual", "delta_at": "%s"}
+                """.formatted(deltaAt), true);
+    }
+
+    private static AppliedDeltaCache disabledCache() {
+        return new AppliedDeltaCache(false, 1L, 1L, "", false, new ObjectMapper(),
+                new DeltaMetrics(new SimpleMeterRegistry()));
+    }
+}
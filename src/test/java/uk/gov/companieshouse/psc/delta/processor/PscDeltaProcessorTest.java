@@ -9,21 +9,28 @@ import static org.mockito.Mockito.when;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import consumer.exception.RetryableErrorException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.messaging.Message;
+import uk.gov.companieshouse.api.delta.PscDeleteDelta;
 import uk.gov.companieshouse.api.delta.PscDelta;
 import uk.gov.companieshouse.api.psc.FullRecordCompanyPSCApi;
 import uk.gov.companieshouse.delta.ChsDelta;
 import uk.gov.companieshouse.psc.delta.mapper.KindMapper;
+import uk.gov.companieshouse.psc.delta.metrics.DeltaMetrics;
 import uk.gov.companieshouse.psc.delta.service.ApiClientService;
+import uk.gov.companieshouse.psc.delta.tracing.DeltaTracing;
 import uk.gov.companieshouse.psc.delta.transformer.PscApiTransformer;
 import uk.gov.companieshouse.psc.delta.utils.TestHelper;
 
@@ -45,8 +52,7 @@ class PscDeltaProcessorTest {
 
     @BeforeEach
     void setUp() {
-        ObjectMapper objectMapper = new ObjectMapper();
-        deltaProcessor = new PscDeltaProcessor(transformer, apiClientService, kindMapper, objectMapper);
+        deltaProcessor = processor(false);
     }
 
     @Test
@@ -103,4 +109,104 @@ class PscDeltaProcessorTest {
         Mockito.verify(apiClientService, times(1)).
                 deletePscFullRecord(any());
     }
+
+    @Test
+    @DisplayName("Prepares the DELETE call for a delete delta without sending it")
+    void When_ValidChsDeleteDeltaMessage_Expect_PreparedCallSendsDeleteAsync() throws IOException {
+        Message<ChsDelta> mockChsDeltaMessage = testHelper.createChsDeltaMessage(true);
+
+        ApiCall apiCall = deltaProcessor.prepare(mockChsDeltaMessage);
+
+        Assertions.assertEquals("00623672", apiCall.companyNumber());
+        Mockito.verifyNoInteractions(apiClientService);
+
+        apiCall.send().get();
+
+        Mockito.verify(apiClientService).deletePscFullRecordAsync(any());
+    }
+
+    @Test
+    @DisplayName("Prepares the PUT call for a delta without sending it")
+    void When_ValidChsDeltaMessage_Expect_PreparedCallSendsPutAsync() throws IOException {
+        Message<ChsDelta> mockChsDeltaMessage = testHelper.createChsDeltaMessage(false);
+        PscDelta expectedDelta = testHelper.createPscDelta();
+        FullRecordCompanyPSCApi apiObject = testHelper.createFullRecordCompanyPSCApi();
+        when(transformer.transform(expectedDelta)).thenReturn(apiObject);
+
+        ApiCall apiCall = deltaProcessor.prepare(mockChsDeltaMessage);
+
+        Mockito.verifyNoInteractions(apiClientService);
+
+        apiCall.send().get();
+
+        Mockito.verify(apiClientService).putPscFullRecordAsync(apiObject.getExternalData().getCompanyNumber(),
+                apiObject.getExternalData().getNotificationId(), apiObject);
+    }
+
+    @Test
+    @DisplayName("Skips a delete delta that has already been applied")
+    void When_DeleteDeltaAlreadyApplied_Expect_NoSecondDelete() throws IOException {
+        PscDeltaProcessor dedupProcessor = processor(true);
+        Message<ChsDelta> mockChsDeltaMessage = testHelper.createChsDeltaMessage(true);
+
+        dedupProcessor.processDelete(mockChsDeltaMessage);
+        dedupProcessor.processDelete(mockChsDeltaMessage);
+
+        Mockito.verify(apiClientService, times(1)).deletePscFullRecord(any());
+    }
+
+    @Test
+    @DisplayName("Sends a delta again when its first call failed")
+    void When_DeltaCallFailed_Expect_DeltaNotSkipped() throws IOException {
+        PscDeltaProcessor dedupProcessor = processor(true);
+        Message<ChsDelta> mockChsDeltaMessage = testHelper.createChsDeltaMessage(true);
+        Mockito.doThrow(new RetryableErrorException("PSC data API unavailable"))
+                .doNothing()
+                .when(apiClientService).deletePscFullRecord(any());
+
+        assertThrows(RetryableErrorException.class, () -> dedupProcessor.processDelete(mockChsDeltaMessage));
+        dedupProcessor.processDelete(mockChsDeltaMessage);
+        dedupProcessor.processDelete(mockChsDeltaMessage);
+
+        Mockito.verify(apiClientService, times(2)).deletePscFullRecord(any());
+    }
+
+    @Test
+    @DisplayName("Completes the prepared call at once for a delta whose async call has already succeeded")
+    void When_AsyncCallSucceeded_Expect_PreparedCallSkipped() throws Exception {
+        PscDeltaProcessor dedupProcessor = processor(true);
+        Message<ChsDelta> mockChsDeltaMessage = testHelper.createChsDeltaMessage(true);
+        when(apiClientService.deletePscFullRecordAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        dedupProcessor.prepare(mockChsDeltaMessage).send().get().get();
+        ApiCall actual = dedupProcessor.prepare(mockChsDeltaMessage);
+        actual.send().get().get();
+
+        Assertions.assertEquals("00623672", actual.companyNumber());
+        Mockito.verify(apiClientService, times(1)).deletePscFullRecordAsync(any());
+    }
+
+    @Test
+    @DisplayName("Deletes the PSC of a delete delta bound outside the processor with the given context id")
+    void When_BoundDeleteDelta_Expect_DeleteSentWithContextId() throws IOException {
+        PscDeleteDelta pscDelete = new DeltaReader(new ObjectMapper())
+                .readPscDeleteDelta(testHelper.createChsDelta(true).getData());
+        when(kindMapper.mapKindForDelete("corporate-entity")).thenReturn("corporate-entity");
+
+        deltaProcessor.applyDelete(pscDelete, "bulk-load-a.ndjson-0");
+
+        ArgumentCaptor<DeletePscApiClientRequest> captor = ArgumentCaptor.forClass(DeletePscApiClientRequest.class);
+        Mockito.verify(apiClientService).deletePscFullRecord(captor.capture());
+        Assertions.assertEquals("bulk-load-a.ndjson-0", captor.getValue().getContextId());
+        Assertions.assertEquals("00623672", captor.getValue().getCompanyNumber());
+        Assertions.assertEquals("corporate-entity", captor.getValue().getKind());
+    }
+
+    private PscDeltaProcessor processor(boolean dedupEnabled) {
+        DeltaMetrics deltaMetrics = new DeltaMetrics(new SimpleMeterRegistry());
+        return new PscDeltaProcessor(transformer, apiClientService, kindMapper,
+                new DeltaReader(new ObjectMapper()), deltaMetrics,
+                new AppliedDeltaCache(dedupEnabled, 100L, 60_000L, "", false, new ObjectMapper(), deltaMetrics),
+                new DeltaTracing(OpenTelemetry.noop()));
+    }
 }
@@ -0,0 +1,205 @@
+package uk.gov.companieshouse.psc.delta.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import consumer.exception.RetryableErrorException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.companieshouse.psc.delta.consumer.ListenerPauseController;
+import uk.gov.companieshouse.psc.delta.metrics.DeltaMetrics;
+
+@ExtendWith(MockitoExtension.class)
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long LATENCY_THRESHOLD_MS = 10_000L;
+    private static final long MAX_WAIT_MS = 10_000L;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Mock
+    private ListenerPauseController pauseController;
+
+    @Test
+    void shouldCutLimitOnServerErrorOnceForCallsAlreadyInFlight() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 1, 50, LATENCY_THRESHOLD_MS);
+        long first = limiter.acquire(deadline());
+        long second = limiter.acquire(deadline());
+
+        // when
+        limiter.release(first, 503);
+        limiter.release(second, 503);
+
+        // then
+        assertEquals(4, limiter.limit());
+
+        // when
+        limiter.release(limiter.acquire(deadline()), 429);
+
+        // then
+        assertEquals(2, limiter.limit());
+        assertEquals(2.0, registry.get("psc.delta.api.concurrency.limit").gauge().value());
+    }
+
+    @Test
+    void shouldNotCutLimitBelowMinimum() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 2, 50, LATENCY_THRESHOLD_MS);
+
+        // when
+        limiter.release(limiter.acquire(deadline()), 500);
+
+        // then
+        assertEquals(2, limiter.limit());
+    }
+
+    @Test
+    void shouldCutLimitOnSlowResponse() throws Exception {
+        // given
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 1, 50, 1L);
+        long started = limiter.acquire(deadline());
+        Thread.sleep(10);
+
+        // when
+        limiter.release(started, 200);
+
+        // then
+        assertEquals(4, limiter.limit());
+    }
+
+    @Test
+    void shouldRaiseLimitByAboutOneForEachWindowOfSuccessfulCalls() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1, 3, LATENCY_THRESHOLD_MS);
+
+        // when
+        limiter.release(limiter.acquire(deadline()), 200);
+        limiter.release(limiter.acquire(deadline()), 200);
+
+        // then
+        assertEquals(2, limiter.limit());
+
+        // when
+        limiter.release(limiter.acquire(deadline()), 200);
+        for (int i = 0; i < 10; i++) {
+            limiter.release(limiter.acquire(deadline()), 200);
+        }
+
+        // then
+        assertEquals(3, limiter.limit());
+    }
+
+    @Test
+    void shouldNotChangeLimitForCallThatWasNotAnswered() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1, 50, LATENCY_THRESHOLD_MS);
+
+        // when
+        for (int i = 0; i < 10; i++) {
+            limiter.release(limiter.acquire(deadline()), null);
+        }
+
+        // then
+        assertEquals(2, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void shouldPauseWhenLimitIsReachedAndResumeOnceHalfIsFree() throws Exception {
+        // given
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 4, 4, LATENCY_THRESHOLD_MS);
+        long first = limiter.acquire(deadline());
+        long second = limiter.acquire(deadline());
+        long third = limiter.acquire(deadline());
+        limiter.acquire(deadline());
+
+        // when
+        CompletableFuture<Long> waiting = CompletableFuture.supplyAsync(() -> limiter.acquire(deadline()));
+        verify(pauseController, timeout(5000)).pause(AdaptiveConcurrencyLimiter.PAUSE_REASON);
+        limiter.release(first, 200);
+        waiting.get(5, TimeUnit.SECONDS);
+        limiter.release(second, 200);
+
+        // then
+        assertEquals(3, limiter.inFlight());
+        verify(pauseController, never()).resume(AdaptiveConcurrencyLimiter.PAUSE_REASON);
+
+        // when
+        limiter.release(third, 200);
+
+        // then
+        assertEquals(2, limiter.inFlight());
+        verify(pauseController).resume(AdaptiveConcurrencyLimiter.PAUSE_REASON);
+    }
+
+    @Test
+    void shouldThrowRetryableErrorWhenInterruptedWaiting() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 1, LATENCY_THRESHOLD_MS);
+        limiter.acquire(deadline());
+        Thread.currentThread().interrupt();
+
+        // when
+        assertThrows(RetryableErrorException.class, () -> limiter.acquire(deadline()));
+
+        // then
+        assertTrue(Thread.interrupted());
+    }
+
+    @Test
+    void shouldThrowRetryableErrorWhenNoPlaceIsFreeByDeadline() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 1, LATENCY_THRESHOLD_MS);
+        limiter.acquire(deadline());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10);
+
+        // when
+        RetryableErrorException actual = assertThrows(RetryableErrorException.class,
+                () -> limiter.acquire(deadline));
+
+        // then
+        assertEquals("Timed out waiting for a place to call the PSC data API", actual.getMessage());
+        assertEquals(1, limiter.inFlight());
+        verify(pauseController).pause(AdaptiveConcurrencyLimiter.PAUSE_REASON);
+    }
+
+    @Test
+    void shouldNeitherLimitNorPublishGaugeWhenDisabled() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(false, 1, 1, 1, LATENCY_THRESHOLD_MS,
+                0.5, pauseController, new DeltaMetrics(registry));
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire(deadline());
+        }
+        limiter.release(System.nanoTime(), 503);
+
+        // then
+        assertEquals(0, limiter.inFlight());
+        assertEquals(1, limiter.limit());
+        assertNull(registry.find("psc.delta.api.concurrency.limit").gauge());
+        verifyNoInteractions(pauseController);
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdMs) {
+        return new AdaptiveConcurrencyLimiter(true, initialLimit, minLimit, maxLimit, latencyThresholdMs, 0.5,
+                pauseController, new DeltaMetrics(registry));
+    }
+
+    private static long deadline() {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_WAIT_MS);
+    }
+}
@@ -0,0 +1,198 @@
+package uk.gov.companieshouse.psc.delta.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import consumer.exception.NonRetryableErrorException;
+import consumer.exception.RetryableErrorException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.companieshouse.api.error.ApiErrorResponseException;
+import uk.gov.companieshouse.psc.delta.consumer.ListenerPauseController;
+import uk.gov.companieshouse.psc.delta.metrics.DeltaMetrics;
+
+@ExtendWith(MockitoExtension.class)
+class ApiCircuitBreakerTest {
+
+    private static final long OPEN_DURATION_MS = 50L;
+    private static final long MAX_WAIT_MS = 5000L;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Mock
+    private ListenerPauseController pauseController;
+
+    @Test
+    void shouldOpenAndPauseContainersOnceFailureThresholdIsReached() {
+        // given
+        ApiCircuitBreaker circuitBreaker = circuitBreaker(3);
+
+        // when
+        boolean first = circuitBreaker.onFailure();
+        boolean second = circuitBreaker.onFailure();
+
+        // then
+        assertFalse(first);
+        assertFalse(second);
+        verify(pauseController, never()).pause(ApiCircuitBreaker.PAUSE_REASON);
+
+        // when
+        boolean third = circuitBreaker.onFailure();
+
+        // then
+        assertTrue(third);
+        assertEquals(ApiCircuitBreaker.State.OPEN, circuitBreaker.state());
+        verify(pauseController).pause(ApiCircuitBreaker.PAUSE_REASON);
+        assertEquals(1.0, registry.get("psc.delta.api.circuit.open").gauge().value());
+    }
+
+    @Test
+    void shouldCountOnlyConsecutiveFailures() {
+        // given
+        ApiCircuitBreaker circuitBreaker = circuitBreaker(2);
+
+        // when
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+
+        // then
+        assertEquals(ApiCircuitBreaker.State.CLOSED, circuitBreaker.state());
+        verifyNoInteractions(pauseController);
+    }
+
+    @Test
+    void shouldLetOneProbeThroughOnceOpenDurationHasPassedAndCloseWhenItSucceeds() throws Exception {
+        // given
+        ApiCircuitBreaker circuitBreaker = circuitBreaker(1);
+        circuitBreaker.onFailure();
+
+        // when
+        boolean probe = circuitBreaker.acquirePermission(circuitBreaker.waitDeadline());
+
+        // then
+        assertTrue(probe);
+        assertEquals(ApiCircuitBreaker.State.HALF_OPEN, circuitBreaker.state());
+
+        // when
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(
+                () -> circuitBreaker.acquirePermission(circuitBreaker.waitDeadline()));
+        Thread.sleep(OPEN_DURATION_MS * 2);
+
+        // then
+        assertFalse(waiting.isDone());
+
+        // when
+        circuitBreaker.onSuccess();
+        waiting.get(5, TimeUnit.SECONDS);
+
+        // then
+        assertEquals(ApiCircuitBreaker.State.CLOSED, circuitBreaker.state());
+        verify(pauseController).resume(ApiCircuitBreaker.PAUSE_REASON);
+        assertEquals(0.0, registry.get("psc.delta.api.circuit.open").gauge().value());
+    }
+
+    @Test
+    void shouldOpenAgainWhenProbeFails() {
+        // given
+        ApiCircuitBreaker circuitBreaker = circuitBreaker(1);
+        circuitBreaker.onFailure();
+        circuitBreaker.acquirePermission(circuitBreaker.waitDeadline());
+
+        // when
+        boolean actual = circuitBreaker.onFailure();
+
+        // then
+        assertTrue(actual);
+        assertEquals(ApiCircuitBreaker.State.OPEN, circuitBreaker.state());
+        verify(pauseController, times(2)).pause(ApiCircuitBreaker.PAUSE_REASON);
+        verify(pauseController, never()).resume(ApiCircuitBreaker.PAUSE_REASON);
+    }
+
+    @Test
+    void shouldLetNextCallProbeOnceProbeIsAbandoned() throws Exception {
+        // given
+        ApiCircuitBreaker circuitBreaker = circuitBreaker(1);
+        circuitBreaker.onFailure();
+        circuitBreaker.acquirePermission(circuitBreaker.waitDeadline());
+        CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(
+                () -> circuitBreaker.acquirePermission(circuitBreaker.waitDeadline()));
+
+        // when
+        circuitBreaker.abandonProbe();
+
+        // then
+        assertTrue(waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(ApiCircuitBreaker.State.HALF_OPEN, circuitBreaker.state());
+        verify(pauseController, never()).resume(ApiCircuitBreaker.PAUSE_REASON);
+    }
+
+    @Test
+    void shouldFailCallThatWaitsBeyondDeadline() {
+        // given
+        ApiCircuitBreaker circuitBreaker = new ApiCircuitBreaker(true, 1, 60_000L, MAX_WAIT_MS, pauseController,
+                new DeltaMetrics(registry));
+        circuitBreaker.onFailure();
+
+        // when
+        RetryableErrorException actual = assertThrows(RetryableErrorException.class,
+                () -> circuitBreaker.acquirePermission(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10)));
+
+        // then
+        assertEquals("PSC data API circuit open", actual.getMessage());
+        assertEquals(ApiCircuitBreaker.State.OPEN, circuitBreaker.state());
+    }
+
+    @Test
+    void shouldNeverOpenWhenDisabled() {
+        // given
+        ApiCircuitBreaker circuitBreaker = new ApiCircuitBreaker(false, 1, OPEN_DURATION_MS, MAX_WAIT_MS,
+                pauseController, new DeltaMetrics(registry));
+
+        // when
+        boolean actual = circuitBreaker.onFailure();
+        circuitBreaker.acquirePermission(circuitBreaker.waitDeadline());
+
+        // then
+        assertFalse(actual);
+        assertEquals(ApiCircuitBreaker.State.CLOSED, circuitBreaker.state());
+        verifyNoInteractions(pauseController);
+    }
+
+    @Test
+    void shouldTreatServerErrorsTooManyRequestsAndMissingResponsesAsUnavailable() {
+        assertTrue(ApiCircuitBreaker.isUnavailable(retryable(503)));
+        assertTrue(ApiCircuitBreaker.isUnavailable(retryable(429)));
+        assertTrue(ApiCircuitBreaker.isUnavailable(new RetryableErrorException("timeout", new IOException())));
+        assertFalse(ApiCircuitBreaker.isUnavailable(retryable(404)));
+        assertFalse(ApiCircuitBreaker.isUnavailable(new RetryableErrorException("no cause")));
+        assertFalse(ApiCircuitBreaker.isUnavailable(new NonRetryableErrorException("conflict", apiException(409))));
+    }
+
+    private ApiCircuitBreaker circuitBreaker(int failureThreshold) {
+        return new ApiCircuitBreaker(true, failureThreshold, OPEN_DURATION_MS, MAX_WAIT_MS, pauseController,
+                new DeltaMetrics(registry));
+    }
+
+    private static RetryableErrorException retryable(int statusCode) {
+        return new RetryableErrorException("Call to API failed", apiException(statusCode));
+    }
+
+    private static ApiErrorResponseException apiException(int statusCode) {
+        return new ApiErrorResponseException(new HttpResponseException.Builder(statusCode, null, new HttpHeaders()));
+    }
+}
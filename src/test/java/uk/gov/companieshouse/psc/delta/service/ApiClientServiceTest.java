@@ -1,16 +1,40 @@
 package uk.gov.companieshouse.psc.delta.service;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import consumer.exception.NonRetryableErrorException;
+import consumer.exception.RetryableErrorException;
+import io.opentelemetry.api.OpenTelemetry;
+import java.util.concurrent.CompletableFuture;
+import java.util.List;
+import java.util.concurrent.CompletionException;
 import java.util.function.Supplier;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.companieshouse.api.InternalApiClient;
 import uk.gov.companieshouse.api.error.ApiErrorResponseException;
@@ -21,7 +45,12 @@ import uk.gov.companieshouse.api.handler.exception.URIValidationException;
 import uk.gov.companieshouse.api.http.HttpClient;
 import uk.gov.companieshouse.api.model.ApiResponse;
 import uk.gov.companieshouse.api.psc.FullRecordCompanyPSCApi;
+import uk.gov.companieshouse.psc.delta.consumer.ListenerPauseController;
+import uk.gov.companieshouse.psc.delta.logging.DataMapHolder;
+import uk.gov.companieshouse.psc.delta.metrics.DeltaMetrics;
+import uk.gov.companieshouse.psc.delta.metrics.Operation;
 import uk.gov.companieshouse.psc.delta.processor.DeletePscApiClientRequest;
+import uk.gov.companieshouse.psc.delta.tracing.DeltaTracing;
 
 @ExtendWith(MockitoExtension.class)
 class ApiClientServiceTest {
@@ -33,6 +62,8 @@ class ApiClientServiceTest {
     private static final String URI = "/company/%s/persons-with-significant-control/%s/full_record";
     private static final ApiResponse<Void> SUCCESS_RESPONSE = new ApiResponse<>(200, null);
 
+    private final FullRecordCompanyPSCApi fullRecord = new FullRecordCompanyPSCApi();
+
     @InjectMocks
     private ApiClientService apiClientService;
 
@@ -40,6 +71,16 @@ class ApiClientServiceTest {
     private Supplier<InternalApiClient> internalApiClientSupplier;
     @Mock
     private ResponseHandler responseHandler;
+    @Mock
+    private DeltaMetrics deltaMetrics;
+    @Mock
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+    @Mock
+    private ApiCircuitBreaker circuitBreaker;
+    @Mock
+    private DryRunOutputWriter dryRunOutputWriter;
+    @Spy
+    private DeltaTracing deltaTracing = new DeltaTracing(OpenTelemetry.noop());
 
     @Mock
     private FullRecordCompanyPSCApi fullRecordCompanyPSCApi;
@@ -60,7 +101,6 @@ class ApiClientServiceTest {
     void shouldSuccessfullySendPutRequestToApi() throws Exception {
         // given
         when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
-        when(internalApiClient.getHttpClient()).thenReturn(httpClient);
         when(internalApiClient.privatePscFullRecordResourceHandler()).thenReturn(privateDeltaResourceHandler);
         when(privateDeltaResourceHandler.putPscFullRecord(anyString(), any(FullRecordCompanyPSCApi.class)))
                 .thenReturn(pscFullRecordPut);
@@ -73,6 +113,7 @@ class ApiClientServiceTest {
 
         // then
         verify(privateDeltaResourceHandler).putPscFullRecord(formattedUri, fullRecordCompanyPSCApi);
+        verify(deltaMetrics).recordApiCall(any(), eq(Operation.PUT), eq(200));
         verifyNoInteractions(responseHandler);
     }
 
@@ -80,7 +121,6 @@ class ApiClientServiceTest {
     void shouldSendPutRequestAndHandleNon200ResponseFromApi() throws Exception {
         // given
         when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
-        when(internalApiClient.getHttpClient()).thenReturn(httpClient);
         when(internalApiClient.privatePscFullRecordResourceHandler()).thenReturn(privateDeltaResourceHandler);
         when(privateDeltaResourceHandler.putPscFullRecord(anyString(), any(FullRecordCompanyPSCApi.class)))
                 .thenReturn(pscFullRecordPut);
@@ -93,14 +133,13 @@ class ApiClientServiceTest {
 
         // then
         verify(privateDeltaResourceHandler).putPscFullRecord(formattedUri, fullRecordCompanyPSCApi);
-        verify(responseHandler).handle(any(ApiErrorResponseException.class));
+        verify(responseHandler).handle(any(ApiErrorResponseException.class), eq(Operation.PUT), eq(formattedUri));
     }
 
     @Test
     void shouldSendPutRequestAndHandleURIValidationExceptionFromApi() throws Exception {
         // given
         when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
-        when(internalApiClient.getHttpClient()).thenReturn(httpClient);
         when(internalApiClient.privatePscFullRecordResourceHandler()).thenReturn(privateDeltaResourceHandler);
         when(privateDeltaResourceHandler.putPscFullRecord(anyString(), any(FullRecordCompanyPSCApi.class)))
                 .thenReturn(pscFullRecordPut);
@@ -116,6 +155,101 @@ class ApiClientServiceTest {
         verify(responseHandler).handle(any(URIValidationException.class));
     }
 
+    @Test
+    void shouldGiveLimiterStatusCodeOfPutRequestOnceItCompletes() throws Exception {
+        // given
+        when(circuitBreaker.waitDeadline()).thenReturn(7L);
+        when(concurrencyLimiter.acquire(7L)).thenReturn(42L);
+        when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
+        when(internalApiClient.privatePscFullRecordResourceHandler()).thenReturn(privateDeltaResourceHandler);
+        when(privateDeltaResourceHandler.putPscFullRecord(anyString(), any(FullRecordCompanyPSCApi.class)))
+                .thenReturn(pscFullRecordPut);
+        ApiErrorResponseException exception = new ApiErrorResponseException(
+                new HttpResponseException.Builder(503, "Service Unavailable", new HttpHeaders()));
+        when(pscFullRecordPut.execute()).thenThrow(exception);
+        RetryableErrorException retryable = new RetryableErrorException("Service Unavailable");
+        doThrow(retryable).when(responseHandler).handle(exception, Operation.PUT,
+                String.format(URI, COMPANY_NUMBER, NOTIFICATION_ID));
+
+        // when
+        RetryableErrorException actual = assertThrows(RetryableErrorException.class,
+                () -> apiClientService.putPscFullRecord(COMPANY_NUMBER, NOTIFICATION_ID, fullRecordCompanyPSCApi));
+
+        // then
+        assertSame(retryable, actual);
+        verify(concurrencyLimiter).release(42L, 503);
+    }
+
+    @Test
+    void shouldSendPutRequestAgainOnceCircuitHalfOpensInsteadOfFailing() throws Exception {
+        // given
+        ListenerPauseController pauseController = mock(ListenerPauseController.class);
+        ApiCircuitBreaker openingCircuitBreaker = new ApiCircuitBreaker(true, 1, 10L, 5000L, pauseController,
+                deltaMetrics);
+        ApiClientService breakerApiClientService = new ApiClientService(internalApiClientSupplier,
+                new ResponseHandler(deltaMetrics, 60000L), deltaMetrics, Runnable::run, concurrencyLimiter,
+                openingCircuitBreaker, dryRunOutputWriter, deltaTracing);
+        when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
+        when(internalApiClient.privatePscFullRecordResourceHandler()).thenReturn(privateDeltaResourceHandler);
+        when(privateDeltaResourceHandler.putPscFullRecord(anyString(), any(FullRecordCompanyPSCApi.class)))
+                .thenReturn(pscFullRecordPut);
+        when(pscFullRecordPut.execute())
+                .thenThrow(new ApiErrorResponseException(
+                        new HttpResponseException.Builder(503, "Service Unavailable", new HttpHeaders())))
+                .thenReturn(SUCCESS_RESPONSE);
+
+        // when
+        breakerApiClientService.putPscFullRecord(COMPANY_NUMBER, NOTIFICATION_ID, fullRecordCompanyPSCApi);
+
+        // then
+        verify(pscFullRecordPut, times(2)).execute();
+        verify(pauseController).pause(ApiCircuitBreaker.PAUSE_REASON);
+        verify(pauseController).resume(ApiCircuitBreaker.PAUSE_REASON);
+        assertEquals(ApiCircuitBreaker.State.CLOSED, openingCircuitBreaker.state());
+    }
+
+    @Test
+    void shouldLeaveCircuitHalfOpenWhenProbeGetsNoPlaceUnderConcurrencyLimit() throws Exception {
+        // given
+        ListenerPauseController pauseController = mock(ListenerPauseController.class);
+        ApiCircuitBreaker openingCircuitBreaker = new ApiCircuitBreaker(true, 1, 10L, 5000L, pauseController,
+                deltaMetrics);
+        ApiClientService breakerApiClientService = new ApiClientService(internalApiClientSupplier,
+                new ResponseHandler(deltaMetrics, 60000L), deltaMetrics, Runnable::run, concurrencyLimiter,
+                openingCircuitBreaker, dryRunOutputWriter, deltaTracing);
+        openingCircuitBreaker.onFailure();
+        Thread.sleep(20);
+        RetryableErrorException timeout =
+                new RetryableErrorException("Timed out waiting for a place to call the PSC data API");
+        when(concurrencyLimiter.acquire(anyLong())).thenThrow(timeout).thenReturn(42L);
+
+        // when
+        RetryableErrorException actual = assertThrows(RetryableErrorException.class,
+                () -> breakerApiClientService.putPscFullRecord(COMPANY_NUMBER, NOTIFICATION_ID,
+                        fullRecordCompanyPSCApi));
+
+        // then
+        assertSame(timeout, actual);
+        assertEquals(ApiCircuitBreaker.State.HALF_OPEN, openingCircuitBreaker.state());
+        verifyNoInteractions(internalApiClientSupplier);
+        verify(pauseController, never()).resume(ApiCircuitBreaker.PAUSE_REASON);
+
+        // given
+        when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
+        when(internalApiClient.privatePscFullRecordResourceHandler()).thenReturn(privateDeltaResourceHandler);
+        when(privateDeltaResourceHandler.putPscFullRecord(anyString(), any(FullRecordCompanyPSCApi.class)))
+                .thenReturn(pscFullRecordPut);
+        when(pscFullRecordPut.execute()).thenReturn(SUCCESS_RESPONSE);
+
+        // when
+        breakerApiClientService.putPscFullRecord(COMPANY_NUMBER, NOTIFICATION_ID, fullRecordCompanyPSCApi);
+
+        // then
+        assertEquals(ApiCircuitBreaker.State.CLOSED, openingCircuitBreaker.state());
+        verify(pauseController).resume(ApiCircuitBreaker.PAUSE_REASON);
+        verify(concurrencyLimiter).release(42L, 200);
+    }
+
     @Test
     void shouldSuccessfullySendDeleteRequestToApi() throws Exception {
         // given
@@ -124,7 +258,6 @@ class ApiClientServiceTest {
         when(deletePscApiClientRequest.getDeltaAt()).thenReturn(DELTA_AT);
         when(deletePscApiClientRequest.getKind()).thenReturn(INDIVIDUAL_KIND);
         when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
-        when(internalApiClient.getHttpClient()).thenReturn(httpClient);
         when(internalApiClient.privatePscFullRecordResourceHandler()).thenReturn(privateDeltaResourceHandler);
         when(privateDeltaResourceHandler.deletePscFullRecord(anyString(), anyString(), anyString())).thenReturn(
                 pscFullRecordDelete);
@@ -137,6 +270,7 @@ class ApiClientServiceTest {
 
         // then
         verify(privateDeltaResourceHandler).deletePscFullRecord(formattedUri, DELTA_AT, INDIVIDUAL_KIND);
+        verify(deltaMetrics).recordApiCall(any(), eq(Operation.DELETE), eq(200));
         verifyNoInteractions(responseHandler);
     }
 
@@ -148,7 +282,6 @@ class ApiClientServiceTest {
         when(deletePscApiClientRequest.getDeltaAt()).thenReturn(DELTA_AT);
         when(deletePscApiClientRequest.getKind()).thenReturn(INDIVIDUAL_KIND);
         when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
-        when(internalApiClient.getHttpClient()).thenReturn(httpClient);
         when(internalApiClient.privatePscFullRecordResourceHandler()).thenReturn(privateDeltaResourceHandler);
         when(privateDeltaResourceHandler.deletePscFullRecord(anyString(), anyString(), anyString())).thenReturn(
                 pscFullRecordDelete);
@@ -161,7 +294,8 @@ class ApiClientServiceTest {
 
         // then
         verify(privateDeltaResourceHandler).deletePscFullRecord(formattedUri, DELTA_AT, INDIVIDUAL_KIND);
-        verify(responseHandler).handle(any(ApiErrorResponseException.class));
+        verify(responseHandler).handle(any(ApiErrorResponseException.class), eq(Operation.DELETE),
+                eq(formattedUri));
     }
 
     @Test
@@ -172,7 +306,6 @@ class ApiClientServiceTest {
         when(deletePscApiClientRequest.getDeltaAt()).thenReturn(DELTA_AT);
         when(deletePscApiClientRequest.getKind()).thenReturn(INDIVIDUAL_KIND);
         when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
-        when(internalApiClient.getHttpClient()).thenReturn(httpClient);
         when(internalApiClient.privatePscFullRecordResourceHandler()).thenReturn(privateDeltaResourceHandler);
         when(privateDeltaResourceHandler.deletePscFullRecord(anyString(), anyString(), anyString())).thenReturn(
                 pscFullRecordDelete);
@@ -187,4 +320,172 @@ class ApiClientServiceTest {
         verify(privateDeltaResourceHandler).deletePscFullRecord(formattedUri, DELTA_AT, INDIVIDUAL_KIND);
         verify(responseHandler).handle(any(URIValidationException.class));
     }
+
+    @Test
+    void shouldSendPutRequestOnApiExecutorWithCallersLoggingContext() throws Exception {
+        // given
+        ApiClientService asyncApiClientService = new ApiClientService(internalApiClientSupplier, responseHandler,
+                deltaMetrics, task -> new Thread(task).start(), concurrencyLimiter,
+                circuitBreaker, dryRunOutputWriter, deltaTracing);
+        when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
+        when(internalApiClient.privatePscFullRecordResourceHandler()).thenReturn(privateDeltaResourceHandler);
+        when(privateDeltaResourceHandler.putPscFullRecord(anyString(), any(FullRecordCompanyPSCApi.class)))
+                .thenReturn(pscFullRecordPut);
+        String[] requestId = new String[1];
+        when(pscFullRecordPut.execute()).thenAnswer(invocation -> {
+            requestId[0] = DataMapHolder.getRequestId();
+            return SUCCESS_RESPONSE;
+        });
+        DataMapHolder.initialise("context_id");
+
+        // when
+        CompletableFuture<Void> result = asyncApiClientService.putPscFullRecordAsync(COMPANY_NUMBER, NOTIFICATION_ID,
+                fullRecordCompanyPSCApi);
+        DataMapHolder.clear();
+        result.join();
+
+        // then
+        verify(privateDeltaResourceHandler).putPscFullRecord(String.format(URI, COMPANY_NUMBER, NOTIFICATION_ID),
+                fullRecordCompanyPSCApi);
+        verify(deltaMetrics).recordApiCall(any(), eq(Operation.PUT), eq(200));
+        assertEquals("context_id", requestId[0]);
+    }
+
+    @Test
+    void shouldFailAsyncDeleteWithExceptionThrownByResponseHandler() throws Exception {
+        // given
+        ApiClientService asyncApiClientService = new ApiClientService(internalApiClientSupplier, responseHandler,
+                deltaMetrics, Runnable::run, concurrencyLimiter,
+                circuitBreaker, dryRunOutputWriter, deltaTracing);
+        when(deletePscApiClientRequest.getCompanyNumber()).thenReturn(COMPANY_NUMBER);
+        when(deletePscApiClientRequest.getNotificationId()).thenReturn(NOTIFICATION_ID);
+        when(deletePscApiClientRequest.getDeltaAt()).thenReturn(DELTA_AT);
+        when(deletePscApiClientRequest.getKind()).thenReturn(INDIVIDUAL_KIND);
+        when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
+        when(internalApiClient.privatePscFullRecordResourceHandler()).thenReturn(privateDeltaResourceHandler);
+        when(privateDeltaResourceHandler.deletePscFullRecord(anyString(), anyString(), anyString())).thenReturn(
+                pscFullRecordDelete);
+        when(pscFullRecordDelete.execute()).thenThrow(ApiErrorResponseException.class);
+        NonRetryableErrorException exception = new NonRetryableErrorException("Bad request");
+        doThrow(exception).when(responseHandler).handle(any(ApiErrorResponseException.class),
+                eq(Operation.DELETE), eq(String.format(URI, COMPANY_NUMBER, NOTIFICATION_ID)));
+
+        // when
+        CompletableFuture<Void> result = asyncApiClientService.deletePscFullRecordAsync(deletePscApiClientRequest);
+
+        // then
+        CompletionException actual = assertThrows(CompletionException.class, result::join);
+        assertSame(exception, actual.getCause());
+    }
+
+    @Test
+    void shouldSortBulkItemResultsIntoRetryableAndNonRetryableFailures() throws Exception {
+        // given
+        ApiClientService bulkApiClientService = new ApiClientService(internalApiClientSupplier,
+                new ResponseHandler(deltaMetrics, 60000L), deltaMetrics, Runnable::run, concurrencyLimiter,
+                circuitBreaker, dryRunOutputWriter, deltaTracing);
+        MockLowLevelHttpRequest request = bulkRequest(207, """
+                {"results": [{"notification_id": "1", "status": 200},
+                             {"notification_id": "2", "status": 409},
+                             {"notification_id": "3", "status": 503}]}
+                """);
+        List<PscBulkItem> items = List.of(
+                PscBulkItem.put("1", fullRecord),
+                PscBulkItem.put("2", fullRecord),
+                PscBulkItem.put("3", fullRecord));
+
+        // when
+        List<PscBulkResult> actual = bulkApiClientService.bulkPscFullRecords(COMPANY_NUMBER, items);
+
+        // then
+        assertTrue(request.getContentAsString().contains("\"notification_id\":\"2\""));
+        assertNull(actual.get(0).failure());
+        assertInstanceOf(NonRetryableErrorException.class, actual.get(1).failure());
+        assertInstanceOf(RetryableErrorException.class, actual.get(2).failure());
+        verify(deltaMetrics).recordApiCall(any(), eq(Operation.BULK), eq(207));
+    }
+
+    @Test
+    void shouldFailEveryBulkItemWhenResponseIsMissingResults() throws Exception {
+        // given
+        bulkRequest(200, "{\"results\": []}");
+        List<PscBulkItem> items = List.of(PscBulkItem.put("1", fullRecord));
+
+        // when
+        List<PscBulkResult> actual = apiClientService.bulkPscFullRecords(COMPANY_NUMBER, items);
+
+        // then
+        assertInstanceOf(RetryableErrorException.class, actual.getFirst().failure());
+    }
+
+    @Test
+    void shouldFallBackToPerItemRequestsWhenBulkIsNotSupported() throws Exception {
+        // given
+        bulkRequest(404, "");
+        when(internalApiClient.privatePscFullRecordResourceHandler()).thenReturn(privateDeltaResourceHandler);
+        when(privateDeltaResourceHandler.putPscFullRecord(anyString(), any(FullRecordCompanyPSCApi.class)))
+                .thenReturn(pscFullRecordPut);
+        when(pscFullRecordPut.execute()).thenReturn(SUCCESS_RESPONSE);
+        when(privateDeltaResourceHandler.deletePscFullRecord(anyString(), anyString(), anyString()))
+                .thenReturn(pscFullRecordDelete);
+        when(pscFullRecordDelete.execute()).thenReturn(SUCCESS_RESPONSE);
+        when(deletePscApiClientRequest.getNotificationId()).thenReturn("2");
+        when(deletePscApiClientRequest.getDeltaAt()).thenReturn(DELTA_AT);
+        when(deletePscApiClientRequest.getKind()).thenReturn(INDIVIDUAL_KIND);
+        List<PscBulkItem> items = List.of(
+                PscBulkItem.put(NOTIFICATION_ID, fullRecord),
+                PscBulkItem.delete(deletePscApiClientRequest));
+
+        // when
+        List<PscBulkResult> first = apiClientService.bulkPscFullRecords(COMPANY_NUMBER, items);
+        List<PscBulkResult> second = apiClientService.bulkPscFullRecords(COMPANY_NUMBER, items);
+
+        // then
+        assertTrue(first.stream().allMatch(PscBulkResult::succeeded));
+        assertTrue(second.stream().allMatch(PscBulkResult::succeeded));
+        verify(httpClient, times(1)).getRequestFactory();
+        verify(privateDeltaResourceHandler, times(2)).putPscFullRecord(
+                String.format(URI, COMPANY_NUMBER, NOTIFICATION_ID), fullRecord);
+        verify(privateDeltaResourceHandler, times(2)).deletePscFullRecord(
+                String.format(URI, COMPANY_NUMBER, "2"), DELTA_AT, INDIVIDUAL_KIND);
+    }
+
+    @Test
+    void shouldWriteRecordsToDryRunOutputInsteadOfCallingApi() {
+        // given
+        when(dryRunOutputWriter.isEnabled()).thenReturn(true);
+        when(deletePscApiClientRequest.getCompanyNumber()).thenReturn(COMPANY_NUMBER);
+        when(deletePscApiClientRequest.getNotificationId()).thenReturn("2");
+        when(deletePscApiClientRequest.getDeltaAt()).thenReturn(DELTA_AT);
+        when(deletePscApiClientRequest.getKind()).thenReturn(INDIVIDUAL_KIND);
+
+        // when
+        apiClientService.putPscFullRecord(COMPANY_NUMBER, NOTIFICATION_ID, fullRecord);
+        apiClientService.deletePscFullRecord(deletePscApiClientRequest);
+        List<PscBulkResult> bulkResults = apiClientService.bulkPscFullRecords(COMPANY_NUMBER,
+                List.of(PscBulkItem.put("3", fullRecord)));
+
+        // then
+        verify(dryRunOutputWriter).write(COMPANY_NUMBER, PscBulkItem.put(NOTIFICATION_ID, fullRecord));
+        verify(dryRunOutputWriter).write(COMPANY_NUMBER,
+                new PscBulkItem(Operation.DELETE, "2", null, DELTA_AT, INDIVIDUAL_KIND));
+        verify(dryRunOutputWriter).write(COMPANY_NUMBER, PscBulkItem.put("3", fullRecord));
+        assertTrue(bulkResults.getFirst().succeeded());
+        verifyNoInteractions(internalApiClientSupplier, concurrencyLimiter, circuitBreaker, deltaMetrics);
+    }
+
+    private MockLowLevelHttpRequest bulkRequest(int statusCode, String content) {
+        MockLowLevelHttpRequest request = new MockLowLevelHttpRequest().setResponse(new MockLowLevelHttpResponse()
+                .setStatusCode(statusCode)
+                .setContentType("application/json")
+                .setContent(content));
+        when(internalApiClientSupplier.get()).thenReturn(internalApiClient);
+        when(internalApiClient.getBasePath()).thenReturn("http://localhost");
+        when(internalApiClient.getHttpClient()).thenReturn(httpClient);
+        when(httpClient.getRequestFactory()).thenReturn(new MockHttpTransport.Builder()
+                .setLowLevelHttpRequest(request)
+                .build()
+                .createRequestFactory());
+        return request;
+    }
 }
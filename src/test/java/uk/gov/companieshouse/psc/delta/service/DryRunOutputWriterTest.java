@@ -0,0 +1,156 @@
+package uk.gov.companieshouse.psc.delta.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.env.StandardEnvironment;
+import uk.gov.companieshouse.api.psc.FullRecordCompanyPSCApi;
+import uk.gov.companieshouse.api.psc.InternalData;
+import uk.gov.companieshouse.psc.delta.metrics.Operation;
+
+class DryRunOutputWriterTest {
+
+    private static final String GROUP_ID = "psc-delta-consumer-dry-run";
+    private static final String RETRY_TOPIC_SUFFIX = "-dry-run-retry";
+    private static final String ERROR_TOPIC_SUFFIX = "-dry-run-error";
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-01-31T09:00:00Z"), ZoneOffset.UTC);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void shouldWriteOneLinePerItem() throws IOException {
+        // given
+        DryRunOutputWriter writer = new DryRunOutputWriter(true, true, GROUP_ID, RETRY_TOPIC_SUFFIX, ERROR_TOPIC_SUFFIX,
+                tempDir.toString(), 1024L * 1024L, CLOCK);
+        InternalData internalData = new InternalData();
+        internalData.setDeltaAt(OffsetDateTime.parse("2024-01-30T10:11:12Z"));
+        FullRecordCompanyPSCApi fullRecord = new FullRecordCompanyPSCApi();
+        fullRecord.setInternalData(internalData);
+
+        // when
+        writer.write("00623672", PscBulkItem.put("notification_id", fullRecord));
+        writer.write("00623672", new PscBulkItem(Operation.DELETE, "notification_id", null,
+                "20240130101112000000", "individual-person-with-significant-control"));
+        writer.close();
+
+        // then
+        List<Path> files = outputFiles();
+        assertEquals(List.of(tempDir.resolve("pscs-20240131T090000-00000.ndjson")), files);
+        List<String> lines = Files.readAllLines(files.getFirst());
+        assertEquals(2, lines.size());
+        JsonNode put = objectMapper.readTree(lines.getFirst());
+        assertEquals("00623672", put.path("company_number").asText());
+        assertEquals("PUT", put.path("operation").asText());
+        assertEquals("notification_id", put.path("notification_id").asText());
+        assertTrue(put.path("full_record").has("internal_data"));
+        assertFalse(put.has("delta_at"));
+        JsonNode delete = objectMapper.readTree(lines.get(1));
+        assertEquals("DELETE", delete.path("operation").asText());
+        assertEquals("20240130101112000000", delete.path("delta_at").asText());
+        assertFalse(delete.has("full_record"));
+    }
+
+    @Test
+    void shouldRollToNewFileOnceRollSizeReached() throws IOException {
+        // given
+        DryRunOutputWriter writer = new DryRunOutputWriter(true, true, GROUP_ID, RETRY_TOPIC_SUFFIX, ERROR_TOPIC_SUFFIX,
+                tempDir.toString(), 1L, CLOCK);
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            writer.write("00623672", PscBulkItem.put(Integer.toString(i), new FullRecordCompanyPSCApi()));
+        }
+        writer.close();
+
+        // then
+        List<Path> files = outputFiles();
+        assertEquals(3, files.size());
+        for (int i = 0; i < 3; i++) {
+            List<String> lines = Files.readAllLines(files.get(i));
+            assertEquals(1, lines.size());
+            assertEquals(Integer.toString(i), objectMapper.readTree(lines.getFirst()).path("notification_id").asText());
+        }
+    }
+
+    @Test
+    void shouldNotCreateOutputWhenDisabled() throws IOException {
+        // given
+        DryRunOutputWriter writer = new DryRunOutputWriter(false, true, DryRunOutputWriter.PRODUCTION_GROUP_ID,
+                DryRunOutputWriter.PRODUCTION_RETRY_TOPIC_SUFFIX, DryRunOutputWriter.PRODUCTION_ERROR_TOPIC_SUFFIX, "",
+                1024L, CLOCK);
+
+        // when
+        writer.close();
+
+        // then
+        assertFalse(writer.isEnabled());
+        assertTrue(outputFiles().isEmpty());
+    }
+
+    @Test
+    void shouldRequireOutputDirWhenEnabled() {
+        assertThrows(IllegalArgumentException.class, () -> new DryRunOutputWriter(true, true, GROUP_ID,
+                RETRY_TOPIC_SUFFIX, ERROR_TOPIC_SUFFIX, " ", 1024L, CLOCK));
+    }
+
+    @Test
+    void shouldRefuseDryRunUnderProductionGroupId() {
+        assertThrows(IllegalArgumentException.class, () -> new DryRunOutputWriter(true, true,
+                DryRunOutputWriter.PRODUCTION_GROUP_ID, RETRY_TOPIC_SUFFIX, ERROR_TOPIC_SUFFIX, tempDir.toString(),
+                1024L, CLOCK));
+    }
+
+    @Test
+    void shouldRefuseDryRunForwardingToProductionRetryTopic() {
+        assertThrows(IllegalArgumentException.class, () -> new DryRunOutputWriter(true, true, GROUP_ID,
+                DryRunOutputWriter.PRODUCTION_RETRY_TOPIC_SUFFIX, ERROR_TOPIC_SUFFIX, tempDir.toString(), 1024L,
+                CLOCK));
+    }
+
+    @Test
+    void shouldRefuseDryRunForwardingToProductionErrorTopic() {
+        assertThrows(IllegalArgumentException.class, () -> new DryRunOutputWriter(true, true, GROUP_ID,
+                RETRY_TOPIC_SUFFIX, DryRunOutputWriter.PRODUCTION_ERROR_TOPIC_SUFFIX, tempDir.toString(), 1024L,
+                CLOCK));
+    }
+
+    @Test
+    void shouldAllowDryRunOfBulkLoadUnderProductionGroupIdAndTopics() {
+        // given
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.setActiveProfiles("bulk-load");
+
+        // when
+        DryRunOutputWriter writer = new DryRunOutputWriter(true, DryRunOutputWriter.PRODUCTION_GROUP_ID,
+                DryRunOutputWriter.PRODUCTION_RETRY_TOPIC_SUFFIX, DryRunOutputWriter.PRODUCTION_ERROR_TOPIC_SUFFIX,
+                tempDir.toString(), 1024L, environment);
+        writer.close();
+
+        // then
+        assertTrue(writer.isEnabled());
+    }
+
+    private List<Path> outputFiles() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.sorted().toList();
+        }
+    }
+}
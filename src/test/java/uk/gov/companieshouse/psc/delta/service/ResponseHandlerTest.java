@@ -1,11 +1,15 @@
 package uk.gov.companieshouse.psc.delta.service;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import com.google.api.client.http.HttpHeaders;
 import com.google.api.client.http.HttpResponseException.Builder;
 import consumer.exception.NonRetryableErrorException;
 import consumer.exception.RetryableErrorException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
@@ -15,24 +19,37 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.springframework.http.HttpStatus;
 import uk.gov.companieshouse.api.error.ApiErrorResponseException;
 import uk.gov.companieshouse.api.handler.exception.URIValidationException;
+import uk.gov.companieshouse.psc.delta.metrics.DeltaMetrics;
+import uk.gov.companieshouse.psc.delta.metrics.Operation;
 
 class ResponseHandlerTest {
 
-    private final ResponseHandler responseHandler = new ResponseHandler();
+    private static final long SAMPLE_INTERVAL_MS = 1000L;
+    private static final String URI = "/company/00623672/persons-with-significant-control/notification_id/full_record";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final long[] now = {0L};
+    private final ResponseHandler responseHandler =
+            new ResponseHandler(new DeltaMetrics(registry), SAMPLE_INTERVAL_MS, () -> now[0]);
 
     @ParameterizedTest
     @MethodSource("scenarios")
     void shouldHandleApiErrorResponseScenarios(HttpStatus apiResponseStatus,
-            Class<RuntimeException> expectedException) {
+            Class<RuntimeException> expectedException, String expectedOutcome) {
         // given
         ApiErrorResponseException exception = new ApiErrorResponseException(
                 new Builder(apiResponseStatus.value(), "message", new HttpHeaders()));
 
         // when
-        Executable executable = () -> responseHandler.handle(exception);
+        Executable executable = () -> responseHandler.handle(exception, Operation.PUT, URI);
 
         // then
-        assertThrows(expectedException, executable);
+        RuntimeException actual = assertThrows(expectedException, executable);
+        assertEquals("Call to API failed, status code: " + apiResponseStatus.value(), actual.getMessage());
+        assertEquals(1.0, registry.get("psc.delta.api.failures")
+                .tags("operation", "PUT", "status", String.valueOf(apiResponseStatus.value()),
+                        "outcome", expectedOutcome)
+                .counter().count());
     }
 
     @Test
@@ -47,16 +64,57 @@ class ResponseHandlerTest {
         assertThrows(NonRetryableErrorException.class, executable);
     }
 
+    @Test
+    void shouldSortFailedBulkItemStatusWithoutException() {
+        // when
+        RuntimeException actual = responseHandler.failure(409, "Bulk item 0 failed", Operation.BULK,
+                "/company/00623672/persons-with-significant-control/full_record/bulk", null);
+
+        // then
+        assertInstanceOf(NonRetryableErrorException.class, actual);
+        assertNull(actual.getCause());
+        assertEquals(1.0, registry.get("psc.delta.api.failures")
+                .tags("operation", "BULK", "status", "409", "outcome", "non-retryable-error")
+                .counter().count());
+    }
+
+    @Test
+    void shouldSummariseFailureWithEndpoint() {
+        // when
+        String actual = ResponseHandler.summary("Call to API failed, status code: 503", Operation.PUT, URI,
+                "Service Unavailable\nretry later");
+
+        // then
+        assertEquals("Call to API failed, status code: 503, operation: PUT, uri: " + URI
+                + ", cause: Service Unavailable", actual);
+    }
+
+    @Test
+    void shouldSampleOneStackTracePerIntervalAndCountTheRest() {
+        // when
+        long first = responseHandler.sampleStackTrace();
+        long second = responseHandler.sampleStackTrace();
+        long third = responseHandler.sampleStackTrace();
+        now[0] += SAMPLE_INTERVAL_MS * 1_000_000L;
+        long nextInterval = responseHandler.sampleStackTrace();
+
+        // then
+        assertEquals(0, first);
+        assertEquals(-1, second);
+        assertEquals(-1, third);
+        assertEquals(2, nextInterval);
+    }
+
     private static Stream<Arguments> scenarios() {
         return Stream.of(
-                Arguments.of(HttpStatus.BAD_REQUEST, NonRetryableErrorException.class),
-                Arguments.of(HttpStatus.CONFLICT, NonRetryableErrorException.class),
-                Arguments.of(HttpStatus.UNAUTHORIZED, RetryableErrorException.class),
-                Arguments.of(HttpStatus.FORBIDDEN, RetryableErrorException.class),
-                Arguments.of(HttpStatus.NOT_FOUND, RetryableErrorException.class),
-                Arguments.of(HttpStatus.METHOD_NOT_ALLOWED, RetryableErrorException.class),
-                Arguments.of(HttpStatus.INTERNAL_SERVER_ERROR, RetryableErrorException.class),
-                Arguments.of(HttpStatus.SERVICE_UNAVAILABLE, RetryableErrorException.class)
+                Arguments.of(HttpStatus.BAD_REQUEST, NonRetryableErrorException.class, "non-retryable-error"),
+                Arguments.of(HttpStatus.CONFLICT, NonRetryableErrorException.class, "non-retryable-error"),
+                Arguments.of(HttpStatus.UNAUTHORIZED, RetryableErrorException.class, "retryable-error"),
+                Arguments.of(HttpStatus.FORBIDDEN, RetryableErrorException.class, "retryable-error"),
+                Arguments.of(HttpStatus.NOT_FOUND, RetryableErrorException.class, "retryable-error"),
+                Arguments.of(HttpStatus.METHOD_NOT_ALLOWED, RetryableErrorException.class, "retryable-error"),
+                Arguments.of(HttpStatus.INTERNAL_SERVER_ERROR, RetryableErrorException.class, "retryable-error"),
+                Arguments.of(HttpStatus.SERVICE_UNAVAILABLE, RetryableErrorException.class, "retryable-error")
         );
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,160 @@
+package uk.gov.companieshouse.psc.delta.tracing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.MessageHeaders;
+import uk.gov.companieshouse.psc.delta.logging.DataMapHolder;
+
+class DeltaTracingTest {
+
+    private static final String TRACEPARENT = "traceparent";
+    private static final String TRACE_ID = "0af7651916cd43dd8448eb211c80319c";
+    private static final String PARENT_SPAN_ID = "b7ad6b7169203331";
+
+    private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+    private final SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+            .build();
+    private final DeltaTracing deltaTracing = new DeltaTracing(OpenTelemetrySdk.builder()
+            .setTracerProvider(tracerProvider)
+            .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+            .build());
+
+    @AfterEach
+    void tearDown() {
+        DataMapHolder.clear();
+        tracerProvider.close();
+    }
+
+    @Test
+    void shouldTraceStageWithDeltaFromLoggingContext() {
+        // given
+        DataMapHolder.retryCount(2);
+
+        // when
+        String result = deltaTracing.trace(TracedStage.TRANSFORM, () -> {
+            DataMapHolder.psc("00623672", "5", "individual");
+            return "transformed";
+        });
+
+        // then
+        assertEquals("transformed", result);
+        SpanData span = exporter.getFinishedSpanItems().getFirst();
+        assertEquals("psc.delta.transform", span.getName());
+        assertEquals(SpanKind.INTERNAL, span.getKind());
+        assertEquals("00623672", span.getAttributes().get(DeltaTracing.COMPANY_NUMBER));
+        assertEquals("individual", span.getAttributes().get(DeltaTracing.KIND));
+        assertEquals(2L, span.getAttributes().get(DeltaTracing.RETRY_COUNT));
+    }
+
+    @Test
+    void shouldRecordFailureOnSpan() {
+        // when
+        assertThrows(IOException.class, () -> deltaTracing.trace(TracedStage.READ_DELTA, () -> {
+            throw new IOException("Unexpected end of input");
+        }));
+
+        // then
+        SpanData span = exporter.getFinishedSpanItems().getFirst();
+        assertEquals(StatusCode.ERROR, span.getStatus().getStatusCode());
+        assertEquals("exception", span.getEvents().getFirst().getName());
+    }
+
+    @Test
+    void shouldContinueTraceInRecordHeadersWhenDeserialising() {
+        // given
+        Headers headers = new RecordHeaders();
+        headers.add(TRACEPARENT,
+                "00-%s-%s-01".formatted(TRACE_ID, PARENT_SPAN_ID).getBytes(StandardCharsets.UTF_8));
+
+        // when
+        deltaTracing.traceDeserialise(headers, () -> "delta");
+
+        // then
+        SpanData span = exporter.getFinishedSpanItems().getFirst();
+        assertEquals("psc.delta.avro-deserialise", span.getName());
+        assertEquals(TRACE_ID, span.getTraceId());
+        assertEquals(PARENT_SPAN_ID, span.getParentSpanId());
+        assertEquals("00-%s-%s-01".formatted(TRACE_ID, span.getSpanId()), traceparent(headers));
+    }
+
+    @Test
+    void shouldTraceEachStageOfDeltaAsPartOfOneTrace() {
+        // given
+        Headers recordHeaders = new RecordHeaders();
+        deltaTracing.traceDeserialise(recordHeaders, () -> "delta");
+        MessageHeaders messageHeaders = new MessageHeaders(
+                Map.of(TRACEPARENT, recordHeaders.lastHeader(TRACEPARENT).value()));
+
+        // when
+        deltaTracing.traceDelta(messageHeaders, () -> deltaTracing.trace(TracedStage.API_CALL, () -> null));
+
+        // then
+        List<SpanData> spans = exporter.getFinishedSpanItems();
+        SpanData deserialise = spans.get(0);
+        SpanData apiCall = spans.get(1);
+        SpanData process = spans.get(2);
+        assertEquals("psc.delta.process", process.getName());
+        assertEquals(SpanKind.CLIENT, apiCall.getKind());
+        assertEquals(deserialise.getSpanId(), process.getParentSpanId());
+        assertEquals(process.getSpanId(), apiCall.getParentSpanId());
+        assertEquals(deserialise.getTraceId(), apiCall.getTraceId());
+    }
+
+    @Test
+    void shouldPropagateTraceContextToForwardedRecord() {
+        // given
+        Headers recordHeaders = new RecordHeaders();
+        deltaTracing.traceDeserialise(recordHeaders, () -> "delta");
+        MessageHeaders messageHeaders = new MessageHeaders(
+                Map.of(TRACEPARENT, recordHeaders.lastHeader(TRACEPARENT).value()));
+        Headers retryHeaders = new RecordHeaders();
+
+        // when
+        deltaTracing.propagate(messageHeaders, retryHeaders);
+
+        // then
+        assertNotNull(retryHeaders.lastHeader(TRACEPARENT));
+        assertEquals(traceparent(recordHeaders), traceparent(retryHeaders));
+    }
+
+    @Test
+    void shouldStartNewTraceWhenRecordHasNoTraceContext() {
+        // given
+        Headers headers = new RecordHeaders();
+
+        // when
+        deltaTracing.traceDeserialise(headers, () -> "delta");
+
+        // then
+        SpanData span = exporter.getFinishedSpanItems().getFirst();
+        assertTrue(span.getSpanContext().isValid());
+        assertNotEquals(TRACE_ID, span.getTraceId());
+        assertTrue(traceparent(headers).contains(span.getTraceId()));
+    }
+
+    private static String traceparent(Headers headers) {
+        return new String(headers.lastHeader(TRACEPARENT).value(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,81 @@
+package uk.gov.companieshouse.psc.delta.tracing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import java.nio.charset.StandardCharsets;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class TracingDeserializerTest {
+
+    private static final String TOPIC = "stream-company-psc";
+    private static final byte[] DATA = "data".getBytes(StandardCharsets.UTF_8);
+
+    private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+    private final SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+            .build();
+
+    @Mock
+    private Deserializer<String> delegate;
+
+    private TracingDeserializer<String> deserializer;
+
+    @BeforeEach
+    void setUp() {
+        deserializer = new TracingDeserializer<>(delegate, new DeltaTracing(OpenTelemetrySdk.builder()
+                .setTracerProvider(tracerProvider)
+                .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+                .build()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+    }
+
+    @Test
+    void shouldDeserialiseRecordWithinSpan() {
+        // given
+        Headers headers = new RecordHeaders();
+        when(delegate.deserialize(TOPIC, headers, DATA)).thenReturn("delta");
+
+        // when
+        String actual = deserializer.deserialize(TOPIC, headers, DATA);
+
+        // then
+        assertEquals("delta", actual);
+        assertEquals("psc.delta.avro-deserialise", exporter.getFinishedSpanItems().getFirst().getName());
+        assertNotNull(headers.lastHeader("traceparent"));
+    }
+
+    @Test
+    void shouldDeserialiseWithoutSpanWhenRecordHasNoHeaders() {
+        // given
+        when(delegate.deserialize(TOPIC, DATA)).thenReturn("delta");
+
+        // when
+        String actual = deserializer.deserialize(TOPIC, null, DATA);
+
+        // then
+        assertEquals("delta", actual);
+        assertTrue(exporter.getFinishedSpanItems().isEmpty());
+    }
+}
@@ -1,8 +1,10 @@
 package uk.gov.companieshouse.psc.delta.transformer;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.when;
 
+import consumer.exception.NonRetryableErrorException;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
@@ -47,4 +49,19 @@ class PscTransformerTest {
         assertThat(actual.getInternalData().getDeltaAt()).isEqualTo(OffsetDateTime.of(
                 2021, 10, 8, 15, 28, 23, 383176000, ZoneOffset.UTC));
     }
+
+    @Test
+    void transformPscWithInvalidDeltaAtFailsNonRetryably() {
+        PscDelta input = new PscDelta();
+        List<Psc> pscList = new ArrayList<>();
+        pscList.add(new Psc());
+        input.setPscs(pscList);
+        input.setDeltaAt("2021-10-08T15:28:23");
+
+        when(pscMapper.mapPscData(input.getPscs().get(0))).thenReturn(new FullRecordCompanyPSCApi());
+
+        assertThatThrownBy(() -> transformer.transform(input))
+                .isInstanceOf(NonRetryableErrorException.class)
+                .hasMessage("Failed to parse date/time: [2021-10-08T15:28:23]");
+    }
 }
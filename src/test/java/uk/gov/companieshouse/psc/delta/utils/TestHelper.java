@@ -33,6 +33,10 @@ public class TestHelper {
                 .build();
     }
 
+    public Message<ChsDelta> createChsDeltaMessage(String data, boolean isDelete) {
+        return buildMessage(data, isDelete);
+    }
+
     public Message<ChsDelta> createInvalidChsDeltaMessage() {
         return buildMessage("This is some invalid data", false);
     }